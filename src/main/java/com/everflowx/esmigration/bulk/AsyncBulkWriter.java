@@ -0,0 +1,250 @@
+package com.everflowx.esmigration.bulk;
+
+import com.everflowx.esmigration.bulk.BulkRetryHandler.BulkOutcome;
+import com.everflowx.esmigration.domain.MigrationConfig;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步批量写入器
+ *
+ * 通过 {@link BulkRetryHandler#executeAsync} 以 bulkAsync 提交批量请求，调用线程提交后立即返回，
+ * 响应由客户端的 IO 线程处理，少量线程即可同时保持多个批量写入在途：
+ * 1. 每个写入器用信号量限制自身的在途请求数（maxInFlightBulks），达到上限时 write 阻塞
+ * 2. 所有写入器共享 {@link com.everflowx.esmigration.throttle.BulkConcurrencyController} 的全局在途上限
+ * 3. 请求结束（含 429 重试）后在 IO 线程中把结果累加到无锁计数器，再依次通知写入器与本次写入的监听器
+ * 4. {@link #flush()} 等待已提交的请求全部结束，{@link #close()} 在此基础上拒绝后续写入
+ *
+ * 监听器在 IO 线程中执行，只应做计数或入队等轻量操作。
+ * 每个迁移任务（或切片）打开一个，可在多个线程间共享。
+ *
+ * @author everflowx
+ */
+@Slf4j
+public class AsyncBulkWriter implements Closeable {
+
+    private final BulkRetryHandler retryHandler;
+    private final RestHighLevelClient client;
+    private final MigrationConfig config;
+    private final BulkListener listener;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private volatile boolean closed;
+
+    // 无锁结果统计，由各 IO 线程并发累加
+    private final LongAdder bulkCount = new LongAdder();
+    private final LongAdder docCount = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder successCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder totalLatencyMs = new LongAdder();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+
+    AsyncBulkWriter(BulkRetryHandler retryHandler, RestHighLevelClient client, MigrationConfig config,
+                    int maxInFlight, BulkListener listener) {
+        this.retryHandler = retryHandler;
+        this.client = client;
+        this.config = config;
+        this.listener = listener;
+        this.maxInFlight = Math.max(maxInFlight, 1);
+        this.inFlight = new Semaphore(this.maxInFlight);
+    }
+
+    /**
+     * 提交批量请求，在途请求数达到上限时阻塞
+     */
+    public void write(BulkRequest request, long estimatedBytes) throws IOException {
+        write(request, estimatedBytes, null);
+    }
+
+    /**
+     * 提交批量请求，请求结束后额外通知本次写入的监听器
+     *
+     * @throws InterruptedIOException 等待在途名额时被中断
+     * @throws IllegalStateException 写入器已关闭
+     */
+    public void write(BulkRequest request, long estimatedBytes, BulkListener callback) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("批量写入器已关闭");
+        }
+        if (request.numberOfActions() == 0) {
+            return;
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待在途批量写入时被中断");
+        }
+
+        long startTime = System.currentTimeMillis();
+        ActionListener<BulkOutcome> completion = new ActionListener<BulkOutcome>() {
+            @Override
+            public void onResponse(BulkOutcome outcome) {
+                complete(request, estimatedBytes, System.currentTimeMillis() - startTime, outcome, callback);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                log.error("批量写入完全失败", e);
+                complete(request, estimatedBytes, System.currentTimeMillis() - startTime,
+                    BulkOutcome.failed(request, e), callback);
+            }
+        };
+        try {
+            retryHandler.executeAsync(client, request, config, ActionListener.runAfter(completion, inFlight::release));
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private void complete(BulkRequest request, long estimatedBytes, long latencyMs, BulkOutcome outcome,
+                          BulkListener callback) {
+        bulkCount.increment();
+        docCount.add(request.numberOfActions());
+        bytes.add(estimatedBytes);
+        successCount.add(outcome.getSuccessCount());
+        failedCount.add(outcome.getFailedCount());
+        rejectedCount.add(outcome.getRejectedCount());
+        retryCount.add(outcome.getRetryCount());
+        totalLatencyMs.add(latencyMs);
+
+        if (outcome.isRequestFailed()) {
+            lastError.set(outcome.getRequestError());
+        }
+        if (outcome.hasFailures() && !outcome.getFailures().isEmpty()) {
+            for (BulkItemResponse item : outcome.getFailures()) {
+                log.debug("文档写入失败: {}, 原因: {}", item.getId(), item.getFailureMessage());
+            }
+            log.warn("批量写入部分失败: 成功 {} 件，失败 {} 件", outcome.getSuccessCount(), outcome.getFailedCount());
+            lastError.set(outcome.getFailures().get(0).getFailureMessage());
+        }
+
+        notify(listener, request, estimatedBytes, latencyMs, outcome);
+        notify(callback, request, estimatedBytes, latencyMs, outcome);
+    }
+
+    private void notify(BulkListener target, BulkRequest request, long estimatedBytes, long latencyMs,
+                        BulkOutcome outcome) {
+        if (target == null) {
+            return;
+        }
+        try {
+            target.onBulk(request, estimatedBytes, latencyMs, outcome);
+        } catch (RuntimeException e) {
+            log.error("批量写入监听器执行失败", e);
+        }
+    }
+
+    /**
+     * 等待已提交的批量请求全部结束（含重试），返回后统计值包含这些请求的结果
+     */
+    public void flush() throws InterruptedIOException {
+        try {
+            inFlight.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待批量写入完成时被中断");
+        }
+        inFlight.release(maxInFlight);
+    }
+
+    /**
+     * 等待在途请求结束并拒绝后续写入，重复关闭无效
+     */
+    @Override
+    public void close() throws InterruptedIOException {
+        closed = true;
+        flush();
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public long getSuccessCount() {
+        return successCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * 最近一次写入失败的原因，没有失败时为 null
+     */
+    public String getLastError() {
+        return lastError.get();
+    }
+
+    /**
+     * 获取写入统计
+     */
+    public WriterStats getStats() {
+        WriterStats stats = new WriterStats();
+        stats.setBulkCount(bulkCount.sum());
+        stats.setDocCount(docCount.sum());
+        stats.setBytes(bytes.sum());
+        stats.setSuccessCount(successCount.sum());
+        stats.setFailedCount(failedCount.sum());
+        stats.setRejectedCount(rejectedCount.sum());
+        stats.setRetryCount(retryCount.sum());
+        stats.setInFlight(getInFlight());
+        stats.setMaxInFlight(maxInFlight);
+        stats.setAvgLatencyMs(stats.getBulkCount() > 0 ? totalLatencyMs.sum() / stats.getBulkCount() : 0);
+        return stats;
+    }
+
+    /**
+     * 批量请求结束回调，在 IO 线程中执行
+     */
+    @FunctionalInterface
+    public interface BulkListener {
+        /**
+         * @param request 批量请求
+         * @param estimatedBytes 请求估算字节数
+         * @param latencyMs 提交到结束（含重试）的耗时
+         * @param outcome 写入结果，请求整体失败时全部文档计为失败
+         */
+        void onBulk(BulkRequest request, long estimatedBytes, long latencyMs, BulkOutcome outcome);
+    }
+
+    /**
+     * 写入统计信息
+     */
+    @Data
+    public static class WriterStats {
+        private long bulkCount;
+        private long docCount;
+        private long bytes;
+        private long successCount;
+        private long failedCount;
+        private long rejectedCount;
+        private long retryCount;
+        private int inFlight;
+        private int maxInFlight;
+        private long avgLatencyMs;
+
+        @Override
+        public String toString() {
+            return String.format("WriterStats{批量请求=%d, 文档=%d, 字节=%d, 成功=%d, 失败=%d, 被拒绝=%d, 重试=%d, " +
+                    "在途=%d/%d, 平均耗时=%dms}",
+                bulkCount, docCount, bytes, successCount, failedCount, rejectedCount, retryCount,
+                inFlight, maxInFlight, avgLatencyMs);
+        }
+    }
+}
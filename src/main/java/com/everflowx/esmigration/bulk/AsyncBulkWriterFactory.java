@@ -0,0 +1,37 @@
+package com.everflowx.esmigration.bulk;
+
+import com.everflowx.esmigration.domain.MigrationConfig;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 异步批量写入器工厂
+ *
+ * 按迁移配置打开 {@link AsyncBulkWriter}，写入器自身的在途请求数取 maxInFlightBulks，
+ * 所有写入器共享批量写入重试处理器及其全局并发许可。
+ *
+ * @author everflowx
+ */
+@Component
+public class AsyncBulkWriterFactory {
+
+    @Resource
+    private BulkRetryHandler bulkRetryHandler;
+
+    /**
+     * 打开写入器
+     */
+    public AsyncBulkWriter open(RestHighLevelClient client, MigrationConfig config) {
+        return open(client, config, null);
+    }
+
+    /**
+     * 打开写入器，每个批量请求结束后通知监听器
+     */
+    public AsyncBulkWriter open(RestHighLevelClient client, MigrationConfig config, AsyncBulkWriter.BulkListener listener) {
+        int maxInFlight = config.getMaxInFlightBulks() != null ? config.getMaxInFlightBulks() : 1;
+        return new AsyncBulkWriter(bulkRetryHandler, client, config, maxInFlight, listener);
+    }
+}
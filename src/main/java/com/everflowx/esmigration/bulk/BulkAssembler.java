@@ -0,0 +1,165 @@
+package com.everflowx.esmigration.bulk;
+
+import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.throttle.BulkConcurrencyController;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 批量写入请求组装器
+ *
+ * 按字节数而不是源数据批次组装 BulkRequest，与读取批次大小解耦：
+ * 1. 加入文档会使请求超过目标字节数时，先发送已组装的请求（超大文档单独成为一个请求）
+ * 2. 文档数达到上限时立即发送
+ * 3. 首个文档加入后超过等待时间仍未发送时，在下次加入或 {@link #flushIfExpired()} 时发送
+ *
+ * 目标字节数可以是动态值，由 {@link BulkConcurrencyController} 按目标集群状态调节。
+ *
+ * 每个文档可以附带一个标记，发送时按请求中的顺序一并交给发送回调，
+ * 便于调用方把写入结果对应回源数据批次。
+ *
+ * 方法均已同步，发送回调在调用线程内执行。
+ *
+ * @param <T> 文档标记类型
+ * @author everflowx
+ */
+public class BulkAssembler<T> {
+
+    /**
+     * 每个写入请求在 bulk 报文中的额外开销估算（元数据行）
+     */
+    private static final int ACTION_OVERHEAD_BYTES = 50;
+
+    private final LongSupplier maxBytes;
+    private final int maxDocs;
+    private final long lingerMs;
+    private final BulkFlusher<T> flusher;
+
+    private BulkRequest current = new BulkRequest();
+    private List<T> tags = new ArrayList<>();
+    private long currentBytes;
+    private long firstAddTime;
+
+    public BulkAssembler(long maxBytes, int maxDocs, long lingerMs, BulkFlusher<T> flusher) {
+        this(() -> maxBytes, maxDocs, lingerMs, flusher);
+    }
+
+    public BulkAssembler(LongSupplier maxBytes, int maxDocs, long lingerMs, BulkFlusher<T> flusher) {
+        this.maxBytes = maxBytes;
+        this.maxDocs = maxDocs;
+        this.lingerMs = lingerMs;
+        this.flusher = flusher;
+    }
+
+    /**
+     * 按迁移配置中的批量写入参数创建
+     */
+    public static <T> BulkAssembler<T> create(MigrationConfig config, BulkFlusher<T> flusher) {
+        return new BulkAssembler<>(config.getBulkMaxBytes(), config.getBulkMaxDocs(), config.getBulkLingerMs(), flusher);
+    }
+
+    /**
+     * 按迁移配置创建，目标字节数跟随并发控制器调节，不超过配置的上限
+     */
+    public static <T> BulkAssembler<T> create(MigrationConfig config, BulkConcurrencyController controller,
+                                              BulkFlusher<T> flusher) {
+        long configuredMaxBytes = config.getBulkMaxBytes();
+        return new BulkAssembler<>(() -> controller.getBulkBytesLimit(configuredMaxBytes),
+            config.getBulkMaxDocs(), config.getBulkLingerMs(), flusher);
+    }
+
+    /**
+     * 加入写入请求
+     */
+    public synchronized void add(DocWriteRequest<?> request) throws IOException {
+        add(request, null);
+    }
+
+    /**
+     * 加入写入请求并附带标记
+     */
+    public synchronized void add(DocWriteRequest<?> request, T tag) throws IOException {
+        long size = estimateSize(request);
+        long limit = maxBytes.getAsLong();
+        if (current.numberOfActions() > 0 && currentBytes + size > limit) {
+            flush();
+        }
+        if (current.numberOfActions() == 0) {
+            firstAddTime = System.currentTimeMillis();
+        }
+        current.add(request);
+        tags.add(tag);
+        currentBytes += size;
+
+        if (current.numberOfActions() >= maxDocs || currentBytes >= limit || isExpired()) {
+            flush();
+        }
+    }
+
+    /**
+     * 超过等待时间时发送已组装的请求
+     *
+     * @return 是否发送了请求
+     */
+    public synchronized boolean flushIfExpired() throws IOException {
+        if (current.numberOfActions() > 0 && isExpired()) {
+            flush();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 发送已组装的请求
+     */
+    public synchronized void flush() throws IOException {
+        if (current.numberOfActions() == 0) {
+            return;
+        }
+        BulkRequest request = current;
+        List<T> requestTags = tags;
+        long requestBytes = currentBytes;
+        current = new BulkRequest();
+        tags = new ArrayList<>();
+        currentBytes = 0;
+        flusher.flush(request, requestBytes, requestTags);
+    }
+
+    public synchronized int getPendingDocs() {
+        return current.numberOfActions();
+    }
+
+    public synchronized long getPendingBytes() {
+        return currentBytes;
+    }
+
+    private boolean isExpired() {
+        return System.currentTimeMillis() - firstAddTime >= lingerMs;
+    }
+
+    private static long estimateSize(DocWriteRequest<?> request) {
+        if (request instanceof IndexRequest && ((IndexRequest) request).source() != null) {
+            return ((IndexRequest) request).source().length() + ACTION_OVERHEAD_BYTES;
+        }
+        return ACTION_OVERHEAD_BYTES;
+    }
+
+    /**
+     * 批量写入请求发送回调
+     */
+    @FunctionalInterface
+    public interface BulkFlusher<T> {
+        /**
+         * @param request 组装好的批量写入请求
+         * @param estimatedBytes 请求估算字节数
+         * @param tags 与请求中写入操作一一对应的标记
+         */
+        void flush(BulkRequest request, long estimatedBytes, List<T> tags) throws IOException;
+    }
+}
@@ -0,0 +1,282 @@
+package com.everflowx.esmigration.bulk;
+
+import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
+import com.everflowx.esmigration.throttle.AdaptiveThrottleController;
+import com.everflowx.esmigration.throttle.BulkConcurrencyController;
+import com.everflowx.esmigration.throttle.BulkConcurrencyController.BulkPermit;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量写入重试处理器
+ *
+ * 目标集群因写入队列已满拒绝的文档（429 es_rejected_execution_exception、503）只是回压，
+ * 并非数据错误：从 BulkResponse 中挑出这些文档，按带全抖动的指数退避等待后只重新提交它们。
+ * 映射冲突、文档解析失败等永久性错误不重试，直接计为失败。
+ * 重试请求整体失败时，之前各次已写入的文档仍计为成功，只有本次未写入的文档计为失败。
+ * 每次被拒绝都会通知限流控制器，让写入速度收敛到目标集群可承受的水平。
+ *
+ * 每个批量写入（含重试）占用 {@link BulkConcurrencyController} 的一个在途许可，
+ * 每次请求的耗时与拒绝数都会上报给它，所有引擎因此共享同一个目标集群写入并发上限。
+ * 各引擎通过 {@link AsyncBulkWriter} 使用，重试由调度线程延迟提交，不占用调用线程。
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class BulkRetryHandler {
+
+    @Resource
+    private AdaptiveThrottleController throttleController;
+
+    @Resource
+    private BulkConcurrencyController concurrencyController;
+
+    /**
+     * 异步重试通过共享线程池的调度线程延迟提交
+     */
+    @Resource
+    private MigrationWorkerPool workerPool;
+
+    /**
+     * 异步执行批量写入，被拒绝的文档按配置延迟后重试，全部完成后回调
+     */
+    public void executeAsync(RestHighLevelClient client, BulkRequest request, MigrationConfig config,
+                             ActionListener<BulkOutcome> listener) {
+        BulkPermit permit;
+        try {
+            permit = acquirePermit();
+        } catch (InterruptedIOException e) {
+            listener.onFailure(e);
+            return;
+        }
+        submitAsync(client, request, config, new BulkOutcome(request.numberOfActions()), 0,
+            ActionListener.runAfter(listener, permit::release));
+    }
+
+    private void submitAsync(RestHighLevelClient client, BulkRequest pending, MigrationConfig config,
+                             BulkOutcome outcome, int attempt, ActionListener<BulkOutcome> listener) {
+        long startTime = System.currentTimeMillis();
+        client.bulkAsync(pending, RequestOptions.DEFAULT, new ActionListener<BulkResponse>() {
+            @Override
+            public void onResponse(BulkResponse response) {
+                BulkRequest retry;
+                try {
+                    retry = collect(pending, response, outcome);
+                } catch (RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+                recordResponse(startTime, pending, retry);
+                scheduleRetry(retry);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                if (e instanceof ElasticsearchStatusException && isRetryable(((ElasticsearchStatusException) e).status())) {
+                    recordResponse(startTime, pending, pending);
+                    scheduleRetry(pending);
+                } else {
+                    fail(e);
+                }
+            }
+
+            /**
+             * 首次提交失败时整个请求失败；重试失败时保留之前的结果，只把本次未写入的文档计为失败
+             */
+            private void fail(Exception e) {
+                if (attempt == 0) {
+                    listener.onFailure(e);
+                    return;
+                }
+                log.error("批量写入第 {} 次重试整体失败，{} 件文档计为失败", attempt, pending.numberOfActions(), e);
+                outcome.markRequestFailed(pending, e);
+                listener.onResponse(outcome);
+            }
+
+            private void scheduleRetry(BulkRequest retry) {
+                if (retry == null || !prepareRetry(retry, attempt, config, outcome)) {
+                    listener.onResponse(outcome);
+                    return;
+                }
+                workerPool.schedule(() -> submitAsync(client, retry, config, outcome, attempt + 1, listener),
+                    backoffMillis(attempt, config), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    private BulkPermit acquirePermit() throws InterruptedIOException {
+        try {
+            return concurrencyController.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待批量写入许可被中断");
+        }
+    }
+
+    /**
+     * 向并发控制器上报一次请求的耗时与被拒绝的文档数
+     */
+    private void recordResponse(long startTime, BulkRequest request, BulkRequest retry) {
+        concurrencyController.recordResponse(System.currentTimeMillis() - startTime,
+            retry == null ? 0 : retry.numberOfActions(), request.numberOfActions());
+    }
+
+    /**
+     * 统计一次响应的结果，返回需要重试的文档组成的新请求，没有时返回 null
+     */
+    private BulkRequest collect(BulkRequest request, BulkResponse response, BulkOutcome outcome) {
+        if (!response.hasFailures()) {
+            outcome.successCount += response.getItems().length;
+            return null;
+        }
+        List<DocWriteRequest<?>> requests = request.requests();
+        BulkRequest retry = null;
+        for (BulkItemResponse item : response.getItems()) {
+            if (!item.isFailed()) {
+                outcome.successCount++;
+            } else if (isRetryable(item.status())) {
+                if (retry == null) {
+                    retry = new BulkRequest();
+                }
+                retry.add(requests.get(item.getItemId()));
+                outcome.lastRetryableFailures.add(item);
+            } else {
+                outcome.failedCount++;
+                outcome.permanentFailures.add(item);
+                log.debug("文档写入失败（不可重试）: {}, 原因: {}", item.getId(), item.getFailureMessage());
+            }
+        }
+        return retry;
+    }
+
+    /**
+     * 准备重试：通知限流控制器，超过重试次数时把剩余文档计为失败
+     *
+     * @return 是否继续重试
+     */
+    private boolean prepareRetry(BulkRequest retry, int attempt, MigrationConfig config, BulkOutcome outcome) {
+        int rejected = retry.numberOfActions();
+        throttleController.recordRejection(rejected, outcome.totalCount);
+        outcome.rejectedCount += rejected;
+
+        if (attempt >= config.getBulkMaxRetries()) {
+            log.error("批量写入被拒绝的 {} 件文档重试 {} 次后仍失败，计为失败", rejected, attempt);
+            outcome.failedCount += rejected;
+            outcome.retryExhaustedCount += rejected;
+            outcome.permanentFailures.addAll(outcome.lastRetryableFailures);
+            outcome.lastRetryableFailures.clear();
+            return false;
+        }
+        outcome.lastRetryableFailures.clear();
+        outcome.retryCount++;
+        log.warn("批量写入 {} 件文档被目标集群拒绝，第 {} 次重试", rejected, attempt + 1);
+        return true;
+    }
+
+    /**
+     * 全抖动指数退避：在 [0, min(最大退避, 初始退避 * 2^attempt)] 内随机取值
+     */
+    private long backoffMillis(int attempt, MigrationConfig config) {
+        long ceiling = config.getBulkRetryBackoffMs() << Math.min(attempt, 20);
+        long cap = Math.min(ceiling, config.getBulkRetryMaxBackoffMs());
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * 是否为可重试的回压状态
+     */
+    public static boolean isRetryable(RestStatus status) {
+        return status == RestStatus.TOO_MANY_REQUESTS || status == RestStatus.SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * 批量写入最终结果（含重试）
+     */
+    public static class BulkOutcome {
+        private final int totalCount;
+        private long successCount;
+        private long failedCount;
+        private long rejectedCount;
+        private int retryCount;
+        private long retryExhaustedCount;
+        private boolean requestFailed;
+        private String requestError;
+        private final List<DocWriteRequest<?>> unwrittenRequests = new ArrayList<>();
+        private final List<BulkItemResponse> permanentFailures = new ArrayList<>();
+        private final List<BulkItemResponse> lastRetryableFailures = new ArrayList<>();
+
+        BulkOutcome(int totalCount) {
+            this.totalCount = totalCount;
+        }
+
+        /**
+         * 请求整体失败时的结果，全部文档计为失败
+         */
+        static BulkOutcome failed(BulkRequest request, Exception e) {
+            BulkOutcome outcome = new BulkOutcome(request.numberOfActions());
+            outcome.markRequestFailed(request, e);
+            return outcome;
+        }
+
+        /**
+         * 记录一次整体失败的提交，其中的文档计为失败
+         */
+        void markRequestFailed(BulkRequest request, Exception e) {
+            failedCount += request.numberOfActions();
+            unwrittenRequests.addAll(request.requests());
+            requestFailed = true;
+            requestError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            lastRetryableFailures.clear();
+        }
+
+        public int getTotalCount() { return totalCount; }
+        public long getSuccessCount() { return successCount; }
+        public long getFailedCount() { return failedCount; }
+        public long getRejectedCount() { return rejectedCount; }
+        public int getRetryCount() { return retryCount; }
+        public boolean hasFailures() { return failedCount > 0; }
+        
+        /**
+         * 某次提交整体失败（未得到逐条结果），其中的文档见 {@link #getUnwrittenRequests()}
+         */
+        public boolean isRequestFailed() { return requestFailed; }
+
+        /**
+         * 整体失败的原因，没有整体失败时为 null
+         */
+        public String getRequestError() { return requestError; }
+
+        /**
+         * 因请求整体失败而未写入的文档，这些文档不在 {@link #getFailures()} 中
+         */
+        public List<DocWriteRequest<?>> getUnwrittenRequests() { return unwrittenRequests; }
+        
+        /**
+         * 重试耗尽仍被拒绝（429/503）的文档数，这些文档计入失败，但稍后重写通常可以成功
+         */
+        public long getRetryExhaustedCount() { return retryExhaustedCount; }
+
+        /**
+         * 最终失败的文档（包括重试耗尽的被拒绝文档）
+         */
+        public List<BulkItemResponse> getFailures() { return permanentFailures; }
+    }
+}
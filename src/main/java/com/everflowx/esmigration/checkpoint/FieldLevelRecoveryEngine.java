@@ -1,11 +1,14 @@
 package com.everflowx.esmigration.checkpoint;
 
 import com.alibaba.fastjson.JSON;
+import com.everflowx.esmigration.bulk.AsyncBulkWriter;
+import com.everflowx.esmigration.bulk.AsyncBulkWriterFactory;
 import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
 import com.everflowx.esmigration.service.EsMigrationService;
+import com.everflowx.esmigration.transform.IndexRequestFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
@@ -19,14 +22,14 @@ import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -46,8 +49,14 @@ public class FieldLevelRecoveryEngine {
     @Resource
     private EsMigrationService migrationService;
     
-    // 恢复线程池
-    private final ExecutorService recoveryExecutor = Executors.newFixedThreadPool(4);
+    @Resource
+    private MigrationWorkerPool workerPool;
+    
+    @Resource
+    private AsyncBulkWriterFactory asyncBulkWriterFactory;
+    
+    // 恢复执行器，最多同时执行4个恢复计划
+    private Executor recoveryExecutor;
     
     // 最大批次大小
     private static final int MAX_RECOVERY_BATCH_SIZE = 100;
@@ -55,6 +64,11 @@ public class FieldLevelRecoveryEngine {
     // 重试间隔（毫秒）
     private static final long RETRY_DELAY_MS = 1000;
     
+    @PostConstruct
+    public void init() {
+        recoveryExecutor = workerPool.stageExecutor("Recovery", 4);
+    }
+    
     /**
      * 执行恢复计划
      */
@@ -403,6 +417,7 @@ public class FieldLevelRecoveryEngine {
         }
         
         BulkRequest bulkRequest = new BulkRequest();
+        IndexRequestFactory requestFactory = IndexRequestFactory.create(config);
         
         // 从源ES获取文档
         for (String docId : docIds) {
@@ -411,14 +426,7 @@ public class FieldLevelRecoveryEngine {
                 GetResponse getResponse = sourceClient.get(getRequest, RequestOptions.DEFAULT);
                 
                 if (getResponse.isExists()) {
-                    Map<String, Object> sourceData = getResponse.getSourceAsMap();
-                    Map<String, Object> transformedData = transformDocument(sourceData, config);
-                    
-                    IndexRequest indexRequest = new IndexRequest(config.getTargetIndex())
-                        .id(docId)
-                        .source(transformedData, XContentType.JSON);
-                    
-                    bulkRequest.add(indexRequest);
+                    bulkRequest.add(requestFactory.build(docId, getResponse.getSourceAsBytesRef(), getResponse::getSourceAsMap));
                 } else {
                     log.warn("恢复时源文档不存在: docId={}", docId);
                 }
@@ -427,12 +435,14 @@ public class FieldLevelRecoveryEngine {
             }
         }
         
-        // 批量写入目标ES
+        // 批量写入目标ES，等待写入结束后检查结果
         if (bulkRequest.numberOfActions() > 0) {
-            BulkResponse bulkResponse = targetClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+            AsyncBulkWriter bulkWriter = asyncBulkWriterFactory.open(targetClient, config);
+            bulkWriter.write(bulkRequest, bulkRequest.estimatedSizeInBytes());
+            bulkWriter.close();
             
-            if (bulkResponse.hasFailures()) {
-                log.warn("文档批次恢复部分失败: {}", bulkResponse.buildFailureMessage());
+            if (bulkWriter.getFailedCount() > 0) {
+                log.warn("文档批次恢复部分失败: {}", bulkWriter.getLastError());
                 throw new IOException("批次恢复部分失败");
             }
         }
@@ -523,15 +533,6 @@ public class FieldLevelRecoveryEngine {
         }
     }
     
-    /**
-     * 转换文档数据
-     */
-    private Map<String, Object> transformDocument(Map<String, Object> sourceData, MigrationConfig config) {
-        // 这里应该复用原有的文档转换逻辑
-        // 为简化，直接返回源数据
-        return new HashMap<>(sourceData);
-    }
-    
     /**
      * 转换字段值
      */
@@ -0,0 +1,259 @@
+package com.everflowx.esmigration.config;
+
+import com.everflowx.esmigration.monitor.MigrationMonitor;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 支持 gzip 压缩的 HTTP 异步客户端
+ *
+ * 包装 RestClient 内部使用的异步客户端（7.10 的 RestClient 没有请求压缩开关）：
+ * 1. 请求压缩 - 请求体不小于 min-bytes 时按配置的级别 gzip 压缩，并设置 Content-Encoding: gzip
+ * 2. 响应压缩 - 设置 Accept-Encoding: gzip，压缩的响应在这里解压后交给 RestClient
+ * 请求体与响应体的传输字节数和解压后字节数记录到 {@link MigrationMonitor}，用于核对压缩效果。
+ * 节点重试时请求已带 Content-Encoding，不会重复压缩。
+ *
+ * @author everflowx
+ */
+public class CompressingHttpAsyncClient extends CloseableHttpAsyncClient {
+
+    private static final String GZIP = "gzip";
+
+    private final CloseableHttpAsyncClient delegate;
+    private final ElasticsearchConfig.ClientProfile profile;
+    private final MigrationMonitor migrationMonitor;
+
+    private CompressingHttpAsyncClient(CloseableHttpAsyncClient delegate, ElasticsearchConfig.ClientProfile profile,
+                                       MigrationMonitor migrationMonitor) {
+        this.delegate = delegate;
+        this.profile = profile;
+        this.migrationMonitor = migrationMonitor;
+    }
+
+    /**
+     * 包装客户端构建器，构建出的客户端按配置压缩请求和响应
+     */
+    static HttpAsyncClientBuilder wrap(HttpAsyncClientBuilder builder, ElasticsearchConfig.ClientProfile profile,
+                                       MigrationMonitor migrationMonitor) {
+        return new HttpAsyncClientBuilder() {
+            @Override
+            public CloseableHttpAsyncClient build() {
+                return new CompressingHttpAsyncClient(builder.build(), profile, migrationMonitor);
+            }
+        };
+    }
+
+    @Override
+    public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<T> responseConsumer,
+                                 HttpContext context, FutureCallback<T> callback) {
+        HttpAsyncRequestProducer producer = requestProducer;
+        try {
+            HttpRequest request = requestProducer.generateRequest();
+            if (profile.isResponseCompression() && !request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+                request.setHeader(HttpHeaders.ACCEPT_ENCODING, GZIP);
+            }
+            if (profile.isRequestCompression() && compressRequest(request)) {
+                producer = HttpAsyncMethods.create(requestProducer.getTarget(), request);
+            }
+        } catch (IOException | HttpException e) {
+            responseConsumer.failed(e);
+            BasicFuture<T> future = new BasicFuture<>(callback);
+            future.failed(e);
+            return future;
+        }
+        return delegate.execute(producer, new CountingResponseConsumer<>(responseConsumer), context, callback);
+    }
+
+    /**
+     * 压缩请求体，未压缩（无请求体、已压缩或小于阈值）时返回 false
+     */
+    private boolean compressRequest(HttpRequest request) throws IOException {
+        if (!(request instanceof HttpEntityEnclosingRequest) || request.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+            return false;
+        }
+        HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+        HttpEntity entity = enclosing.getEntity();
+        if (entity == null || entity.getContentLength() <= 0) {
+            return false;
+        }
+        if (entity.getContentLength() < profile.getCompressionMinBytes()) {
+            if (migrationMonitor != null) {
+                migrationMonitor.recordRequestTraffic(entity.getContentLength(), entity.getContentLength());
+            }
+            return false;
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream((int) Math.min(entity.getContentLength() / 4, 1 << 20));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192) {
+            {
+                def.setLevel(profile.getCompressionLevel());
+            }
+        }) {
+            entity.writeTo(gzip);
+        }
+        ByteArrayEntity gzipEntity = new ByteArrayEntity(compressed.toByteArray(),
+            entity.getContentType() != null ? ContentType.parse(entity.getContentType().getValue()) : null);
+        enclosing.setEntity(gzipEntity);
+        request.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        if (migrationMonitor != null) {
+            migrationMonitor.recordRequestTraffic(entity.getContentLength(), gzipEntity.getContentLength());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * 统计响应体传输字节数，并解压 gzip 响应
+     */
+    private class CountingResponseConsumer<T> implements HttpAsyncResponseConsumer<T> {
+        private final HttpAsyncResponseConsumer<T> consumer;
+        private long wireBytes;
+        private boolean decoded;
+
+        private CountingResponseConsumer(HttpAsyncResponseConsumer<T> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void responseReceived(HttpResponse response) throws IOException, HttpException {
+            consumer.responseReceived(response);
+        }
+
+        @Override
+        public void consumeContent(ContentDecoder decoder, IOControl ioControl) throws IOException {
+            consumer.consumeContent(new ContentDecoder() {
+                @Override
+                public int read(ByteBuffer dst) throws IOException {
+                    int read = decoder.read(dst);
+                    if (read > 0) {
+                        wireBytes += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public boolean isCompleted() {
+                    return decoder.isCompleted();
+                }
+            }, ioControl);
+        }
+
+        @Override
+        public void responseCompleted(HttpContext context) {
+            consumer.responseCompleted(context);
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            consumer.failed(ex);
+        }
+
+        @Override
+        public Exception getException() {
+            return consumer.getException();
+        }
+
+        @Override
+        public T getResult() {
+            T result = consumer.getResult();
+            if (!decoded && result instanceof HttpResponse) {
+                decoded = true;
+                try {
+                    decode((HttpResponse) result);
+                } catch (IOException e) {
+                    throw new IllegalStateException("解压响应失败", e);
+                }
+            }
+            return result;
+        }
+
+        private void decode(HttpResponse response) throws IOException {
+            Header encoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+            HttpEntity entity = response.getEntity();
+            if (encoding == null || !GZIP.equalsIgnoreCase(encoding.getValue()) || entity == null) {
+                if (profile.isResponseCompression() && migrationMonitor != null) {
+                    migrationMonitor.recordResponseTraffic(wireBytes, wireBytes);
+                }
+                return;
+            }
+            byte[] content;
+            try (InputStream in = new GZIPInputStream(entity.getContent())) {
+                content = readFully(in);
+            }
+            ByteArrayEntity decodedEntity = new ByteArrayEntity(content,
+                entity.getContentType() != null ? ContentType.parse(entity.getContentType().getValue()) : null);
+            response.setEntity(decodedEntity);
+            response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+            response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+            EntityUtils.consumeQuietly(entity);
+            if (migrationMonitor != null) {
+                migrationMonitor.recordResponseTraffic(wireBytes, content.length);
+            }
+        }
+
+        @Override
+        public boolean isDone() {
+            return consumer.isDone();
+        }
+
+        @Override
+        public void close() throws IOException {
+            consumer.close();
+        }
+
+        @Override
+        public boolean cancel() {
+            return consumer.cancel();
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
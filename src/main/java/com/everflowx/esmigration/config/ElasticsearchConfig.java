@@ -1,33 +1,61 @@
 package com.everflowx.esmigration.config;
 
+import com.everflowx.esmigration.monitor.MigrationMonitor;
+import lombok.Data;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
 import org.apache.http.nio.reactor.ConnectingIOReactor;
-import org.apache.http.nio.reactor.IOReactor;
 import org.apache.http.nio.reactor.IOReactorException;
 import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.pool.PoolStats;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.HttpAsyncResponseConsumerFactory;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.NodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 import lombok.extern.slf4j.Slf4j;
-import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Elasticsearch配置类
  * 支持源ES和目标ES的双连接配置
  * 支持可动态调整的HeapBufferedResponseConsumerFactory
  *
+ * 客户端按用途划分为命名配置（profile），每个配置拥有独立的连接池、IO反应器和超时：
+ * 1. scroll - 源端长时间的滚动读取，默认用于 sourceElasticsearchClient
+ * 2. bulk - 目标端批量写入，默认用于 targetElasticsearchClient
+ * 3. admin - 健康检查、元数据等短请求，连接数小、超时短，不会排在读写请求之后
+ * 配置项为 elasticsearch.profiles.<名称>.*，未配置的项沿用 elasticsearch.connection/timeout/io 的全局值。
+ * 连接池上限可通过 {@link #resizePool} 在运行时调整，{@link #getPoolStatus()} 按路由给出连接占用情况。
+ *
+ * 每端可配置多个节点（elasticsearch.source/target.hosts），请求在节点间分摊，不再集中到单个协调节点：
+ * 1. node-selection=round-robin 由 RestClient 轮询，least-loaded 选择在途请求最少的节点
+ * 2. sniff=true 时定期通过 _nodes/http 发现集群节点，请求失败后提前重新嗅探，专用主节点不参与请求
+ * 3. 请求失败的节点由 RestClient 标记为失效并按指数退避（1分钟起，最长30分钟）恢复重试
+ *
  * @author everflowx
  */
 @Slf4j
@@ -35,6 +63,9 @@ import java.util.concurrent.TimeUnit;
 public class ElasticsearchConfig {
 
     // 源ES配置
+    @Value("${elasticsearch.source.hosts:}") // 多节点，逗号分隔的 host:port，配置后忽略 host/port
+    private String sourceHosts;
+
     @Value("${elasticsearch.source.host:localhost}")
     private String sourceHost;
 
@@ -50,7 +81,16 @@ public class ElasticsearchConfig {
     @Value("${elasticsearch.source.password:}")
     private String sourcePassword;
 
+    @Value("${elasticsearch.source.sniff:false}")
+    private boolean sourceSniff;
+
+    @Value("${elasticsearch.source.node-selection:" + SELECTION_ROUND_ROBIN + "}")
+    private String sourceNodeSelection;
+
     // 目标ES配置
+    @Value("${elasticsearch.target.hosts:}") // 多节点，逗号分隔的 host:port，配置后忽略 host/port
+    private String targetHosts;
+
     @Value("${elasticsearch.target.host:localhost}")
     private String targetHost;
 
@@ -66,6 +106,19 @@ public class ElasticsearchConfig {
     @Value("${elasticsearch.target.password:}")
     private String targetPassword;
 
+    @Value("${elasticsearch.target.sniff:false}")
+    private boolean targetSniff;
+
+    @Value("${elasticsearch.target.node-selection:" + SELECTION_ROUND_ROBIN + "}")
+    private String targetNodeSelection;
+
+    // 节点嗅探配置
+    @Value("${elasticsearch.sniff.interval:300000}") // 嗅探间隔，默认5分钟
+    private int sniffInterval;
+
+    @Value("${elasticsearch.sniff.after-failure-delay:60000}") // 请求失败后重新嗅探的间隔，默认1分钟
+    private int sniffAfterFailureDelay;
+
     // 响应缓冲区配置
     @Value("${elasticsearch.response.buffer.limit:524288000}") // 默认500MB
     private int responseBufferLimit;
@@ -94,60 +147,198 @@ public class ElasticsearchConfig {
     @Value("${elasticsearch.io.thread-count:0}") // IO线程数，0表示使用CPU核数
     private int ioThreadCount;
 
+    // 客户端配置分配
+    @Value("${elasticsearch.source.profile:" + PROFILE_SCROLL + "}")
+    private String sourceProfile;
+
+    @Value("${elasticsearch.target.profile:" + PROFILE_BULK + "}")
+    private String targetProfile;
+
+    public static final String PROFILE_SCROLL = "scroll";
+    public static final String PROFILE_BULK = "bulk";
+    public static final String PROFILE_ADMIN = "admin";
+
+    public static final String SELECTION_ROUND_ROBIN = "round-robin";
+    public static final String SELECTION_LEAST_LOADED = "least-loaded";
+
+    // 压缩配置，可按客户端配置覆盖
+    @Value("${elasticsearch.compression.request:false}") // 是否 gzip 压缩请求体
+    private boolean requestCompression;
+
+    @Value("${elasticsearch.compression.response:false}") // 是否请求 gzip 压缩的响应
+    private boolean responseCompression;
+
+    @Value("${elasticsearch.compression.level:6}") // gzip 压缩级别 1-9
+    private int compressionLevel;
+
+    @Value("${elasticsearch.compression.min-bytes:1024}") // 小于该大小的请求体不压缩
+    private int compressionMinBytes;
+
+    @Resource
+    private Environment environment;
+
+    @Resource
+    private MigrationMonitor migrationMonitor;
+
+    /**
+     * 已创建客户端的连接池，键为 端/配置名，如 source/scroll
+     */
+    private final Map<String, ManagedPool> pools = new ConcurrentSkipListMap<>();
+
     /**
-     * 源ES客户端
+     * 源ES客户端，用于数据读取
      */
     @Bean(name = "sourceElasticsearchClient")
     public RestHighLevelClient sourceElasticsearchClient() {
-        return createClient(sourceHost, sourcePort, sourceScheme, sourceUsername, sourcePassword);
+        return createClient(sourceEndpoint(), sourceProfile);
     }
 
     /**
-     * 目标ES客户端
+     * 目标ES客户端，用于数据写入
      */
     @Bean(name = "targetElasticsearchClient")
     @Primary
     public RestHighLevelClient targetElasticsearchClient() {
-        return createClient(targetHost, targetPort, targetScheme, targetUsername, targetPassword);
+        return createClient(targetEndpoint(), targetProfile);
     }
 
     /**
-     * 创建ES客户端，支持可动态调整的响应缓冲区
+     * 源ES管理客户端，用于健康检查等短请求
      */
-    private RestHighLevelClient createClient(String host, int port, String scheme, String username, String password) {
-        RestClientBuilder builder = RestClient.builder(new HttpHost(host, port, scheme));
+    @Bean(name = "sourceAdminElasticsearchClient")
+    public RestHighLevelClient sourceAdminElasticsearchClient() {
+        return createClient(sourceEndpoint(), PROFILE_ADMIN);
+    }
+
+    /**
+     * 目标ES管理客户端，用于健康检查等短请求
+     */
+    @Bean(name = "targetAdminElasticsearchClient")
+    public RestHighLevelClient targetAdminElasticsearchClient() {
+        return createClient(targetEndpoint(), PROFILE_ADMIN);
+    }
+
+    private Endpoint sourceEndpoint() {
+        return new Endpoint("source", parseHosts(sourceHosts, sourceHost, sourcePort, sourceScheme),
+            sourceUsername, sourcePassword, sourceSniff, sourceNodeSelection);
+    }
+
+    private Endpoint targetEndpoint() {
+        return new Endpoint("target", parseHosts(targetHosts, targetHost, targetPort, targetScheme),
+            targetUsername, targetPassword, targetSniff, targetNodeSelection);
+    }
+
+    /**
+     * 解析节点列表，支持 host、host:port 和 scheme://host:port，未配置时使用单个 host/port
+     */
+    private static HttpHost[] parseHosts(String hosts, String defaultHost, int defaultPort, String scheme) {
+        List<HttpHost> result = new ArrayList<>();
+        if (hosts != null) {
+            for (String entry : hosts.split(",")) {
+                entry = entry.trim();
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                if (entry.contains("://")) {
+                    result.add(HttpHost.create(entry));
+                } else {
+                    int colon = entry.lastIndexOf(':');
+                    result.add(colon > 0
+                        ? new HttpHost(entry.substring(0, colon), Integer.parseInt(entry.substring(colon + 1)), scheme)
+                        : new HttpHost(entry, defaultPort, scheme));
+                }
+            }
+        }
+        if (result.isEmpty()) {
+            result.add(new HttpHost(defaultHost, defaultPort, scheme));
+        }
+        return result.toArray(new HttpHost[0]);
+    }
+
+    /**
+     * 解析命名配置，未配置的项沿用全局连接、超时和IO线程配置
+     */
+    private ClientProfile resolveProfile(String name) {
+        String prefix = "elasticsearch.profiles." + name + ".";
+        ClientProfile profile = new ClientProfile();
+        profile.setName(name);
+        profile.setMaxTotal(environment.getProperty(prefix + "max-total", Integer.class, maxConnectionTotal));
+        profile.setMaxPerRoute(environment.getProperty(prefix + "max-per-route", Integer.class, maxConnectionPerRoute));
+        profile.setConnectTimeout(environment.getProperty(prefix + "connect-timeout", Integer.class, connectTimeout));
+        profile.setSocketTimeout(environment.getProperty(prefix + "socket-timeout", Integer.class, socketTimeout));
+        profile.setConnectionRequestTimeout(environment.getProperty(prefix + "connection-request-timeout",
+            Integer.class, connectionRequestTimeout));
+        int threads = environment.getProperty(prefix + "io-thread-count", Integer.class, ioThreadCount);
+        profile.setIoThreadCount(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        profile.setRequestCompression(environment.getProperty(prefix + "compression.request", Boolean.class,
+            requestCompression));
+        profile.setResponseCompression(environment.getProperty(prefix + "compression.response", Boolean.class,
+            responseCompression));
+        int level = environment.getProperty(prefix + "compression.level", Integer.class, compressionLevel);
+        profile.setCompressionLevel(Math.max(1, Math.min(level, 9)));
+        profile.setCompressionMinBytes(environment.getProperty(prefix + "compression.min-bytes", Integer.class,
+            compressionMinBytes));
+        return profile;
+    }
+
+    /**
+     * 按命名配置创建ES客户端，支持可动态调整的响应缓冲区
+     */
+    private RestHighLevelClient createClient(Endpoint endpoint, String profileName) {
+        String side = endpoint.side;
+        String username = endpoint.username;
+        String password = endpoint.password;
+        ClientProfile profile = resolveProfile(profileName);
+        RestClientBuilder builder = RestClient.builder(endpoint.hosts);
+
+        // 节点选择 - 轮询或选择在途请求最少的节点，均跳过专用主节点
+        LeastLoadedNodeSelector leastLoaded = null;
+        if (SELECTION_LEAST_LOADED.equalsIgnoreCase(endpoint.nodeSelection)) {
+            leastLoaded = new LeastLoadedNodeSelector();
+            builder.setNodeSelector(leastLoaded);
+        } else {
+            builder.setNodeSelector(NodeSelector.SKIP_DEDICATED_MASTERS);
+        }
+        LeastLoadedNodeSelector selector = leastLoaded;
+
+        SniffOnFailureListener sniffOnFailure = endpoint.sniff ? new SniffOnFailureListener() : null;
+        if (sniffOnFailure != null) {
+            builder.setFailureListener(sniffOnFailure);
+        }
 
         // 配置HTTP客户端 - 针对百万级数据优化
         builder.setHttpClientConfigCallback(httpClientBuilder -> {
             // 设置连接池大小 - 增加并发处理能力
-            httpClientBuilder.setMaxConnTotal(maxConnectionTotal);
-            httpClientBuilder.setMaxConnPerRoute(maxConnectionPerRoute);
+            httpClientBuilder.setMaxConnTotal(profile.getMaxTotal());
+            httpClientBuilder.setMaxConnPerRoute(profile.getMaxPerRoute());
 
             // 设置连接管理策略
             // 注意：setConnectionTimeToLive 在某些版本中不可用，这里移除
 
             // 配置IO反应器 - 优化大数据量处理
-            int actualIoThreadCount = ioThreadCount > 0 ? ioThreadCount : Runtime.getRuntime().availableProcessors();
-
             IOReactorConfig ioConfig = IOReactorConfig.custom()
-                .setIoThreadCount(actualIoThreadCount)
+                .setIoThreadCount(profile.getIoThreadCount())
                 .setSoKeepAlive(true)
                 .setTcpNoDelay(true) // 禁用Nagle算法，减少延迟
-                .setSoTimeout(socketTimeout)
-                .setConnectTimeout(connectTimeout)
+                .setSoTimeout(profile.getSocketTimeout())
+                .setConnectTimeout(profile.getConnectTimeout())
                 .setSoReuseAddress(true) // 允许地址重用
                 .build();
 
             httpClientBuilder.setDefaultIOReactorConfig(ioConfig);
 
-            // 创建连接管理器 - 优化连接复用
+            // 创建连接管理器 - 优化连接复用，保留引用以便运行时调整和统计
             try {
                 ConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(ioConfig);
                 PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(ioReactor);
-                connectionManager.setMaxTotal(maxConnectionTotal);
-                connectionManager.setDefaultMaxPerRoute(maxConnectionPerRoute);
+                connectionManager.setMaxTotal(profile.getMaxTotal());
+                connectionManager.setDefaultMaxPerRoute(profile.getMaxPerRoute());
                 // connectionManager.setValidateAfterInactivity(30000); // 方法不存在，已注释
                 httpClientBuilder.setConnectionManager(connectionManager);
+                pools.put(poolKey(side, profileName), new ManagedPool(side, profile, connectionManager));
+                if (selector != null) {
+                    selector.setConnectionManager(connectionManager);
+                }
             } catch (IOReactorException e) {
                 log.error("创建IO反应器失败", e);
                 // 如果创建失败，使用默认配置
@@ -160,28 +351,56 @@ public class ElasticsearchConfig {
                 httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
             }
 
+            // 请求/响应 gzip 压缩 - 跨机房迁移时以CPU换带宽
+            if (profile.isRequestCompression() || profile.isResponseCompression()) {
+                return CompressingHttpAsyncClient.wrap(httpClientBuilder, profile, migrationMonitor);
+            }
             return httpClientBuilder;
         });
 
         // 设置请求配置 - 优化百万级数据迁移超时参数
         builder.setRequestConfigCallback(requestConfigBuilder ->
             requestConfigBuilder
-                .setConnectTimeout(connectTimeout)          // 连接超时
-                .setSocketTimeout(socketTimeout)            // Socket超时，增加到10分钟
-                .setConnectionRequestTimeout(connectionRequestTimeout) // 连接请求超时
+                .setConnectTimeout(profile.getConnectTimeout())          // 连接超时
+                .setSocketTimeout(profile.getSocketTimeout())            // Socket超时
+                .setConnectionRequestTimeout(profile.getConnectionRequestTimeout()) // 连接请求超时
                 .setExpectContinueEnabled(false)            // 禁用100-Continue，减少延迟
                 .setRedirectsEnabled(false)                 // 禁用重定向，避免意外问题
                 .setCircularRedirectsAllowed(false)         // 禁用循环重定向
                 .setMaxRedirects(0));                       // 最大重定向次数为0
 
-        log.info("创建ES客户端 - Host: {}:{}, 响应缓冲区限制: {}MB, 初始缓冲区: {}MB, " +
-                "连接池: {}/{}, IO线程: {}, 超时: {}/{}ms",
-                host, port, responseBufferLimit / 1024 / 1024, responseBufferInitial / 1024 / 1024,
-                maxConnectionTotal, maxConnectionPerRoute,
-                ioThreadCount > 0 ? ioThreadCount : Runtime.getRuntime().availableProcessors(),
-                connectTimeout, socketTimeout);
+        log.info("创建ES客户端 - {}/{}, 节点: {}, 节点选择: {}, 嗅探: {}, 响应缓冲区限制: {}MB, 初始缓冲区: {}MB, " +
+                "连接池: {}/{}, IO线程: {}, 超时: {}/{}ms, 压缩(请求/响应/级别): {}/{}/{}",
+                side, profileName, Arrays.toString(endpoint.hosts), endpoint.nodeSelection, endpoint.sniff,
+                responseBufferLimit / 1024 / 1024, responseBufferInitial / 1024 / 1024,
+                profile.getMaxTotal(), profile.getMaxPerRoute(), profile.getIoThreadCount(),
+                profile.getConnectTimeout(), profile.getSocketTimeout(),
+                profile.isRequestCompression(), profile.isResponseCompression(), profile.getCompressionLevel());
 
-        return new RestHighLevelClient(builder);
+        if (sniffOnFailure == null) {
+            return new RestHighLevelClient(builder);
+        }
+
+        // 节点嗅探 - 嗅探器需在客户端关闭前停止
+        RestClient restClient = builder.build();
+        ElasticsearchNodesSniffer.Scheme sniffScheme = "https".equalsIgnoreCase(endpoint.hosts[0].getSchemeName())
+            ? ElasticsearchNodesSniffer.Scheme.HTTPS : ElasticsearchNodesSniffer.Scheme.HTTP;
+        NodesSniffer nodesSniffer = new ElasticsearchNodesSniffer(restClient,
+            ElasticsearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT, sniffScheme);
+        Sniffer sniffer = Sniffer.builder(restClient)
+            .setNodesSniffer(nodesSniffer)
+            .setSniffIntervalMillis(sniffInterval)
+            .setSniffAfterFailureDelayMillis(sniffAfterFailureDelay)
+            .build();
+        sniffOnFailure.setSniffer(sniffer);
+        return new RestHighLevelClient(restClient, client -> {
+            try {
+                sniffer.close();
+            } finally {
+                client.close();
+            }
+        }, Collections.emptyList()) {
+        };
     }
 
     /**
@@ -273,6 +492,52 @@ public class ElasticsearchConfig {
             ioThreadCount > 0 ? ioThreadCount : Runtime.getRuntime().availableProcessors());
     }
 
+    /**
+     * 运行时调整连接池上限，参数为 null 时保持不变
+     *
+     * @throws IllegalArgumentException 连接池不存在或上限不是正数
+     */
+    public PoolStatus resizePool(String side, String profileName, Integer maxTotal, Integer maxPerRoute) {
+        ManagedPool pool = pools.get(poolKey(side, profileName));
+        if (pool == null) {
+            throw new IllegalArgumentException("连接池不存在: " + poolKey(side, profileName) + ", 可选: " + pools.keySet());
+        }
+        if ((maxTotal != null && maxTotal <= 0) || (maxPerRoute != null && maxPerRoute <= 0)) {
+            throw new IllegalArgumentException("连接数上限必须为正数");
+        }
+        PoolingNHttpClientConnectionManager manager = pool.connectionManager;
+        synchronized (pool) {
+            if (maxTotal != null) {
+                manager.setMaxTotal(maxTotal);
+            }
+            if (maxPerRoute != null) {
+                manager.setDefaultMaxPerRoute(maxPerRoute);
+                // 已建立的路由可能有单独设置的上限，一并调整
+                for (HttpRoute route : manager.getRoutes()) {
+                    manager.setMaxPerRoute(route, maxPerRoute);
+                }
+            }
+        }
+        log.info("动态调整连接池 {}: 总连接数={}, 每路由连接数={}", poolKey(side, profileName),
+            manager.getMaxTotal(), manager.getDefaultMaxPerRoute());
+        return pool.toStatus();
+    }
+
+    /**
+     * 各客户端连接池的占用情况，包括每个路由的租用、等待和空闲连接数
+     */
+    public List<PoolStatus> getPoolStatus() {
+        List<PoolStatus> statuses = new ArrayList<>();
+        for (ManagedPool pool : pools.values()) {
+            statuses.add(pool.toStatus());
+        }
+        return statuses;
+    }
+
+    private static String poolKey(String side, String profileName) {
+        return side + "/" + profileName;
+    }
+
     /**
      * 获取超时配置信息
      */
@@ -280,4 +545,111 @@ public class ElasticsearchConfig {
         return String.format("超时配置: 连接超时=%ds, Socket超时=%ds, 连接请求超时=%ds",
             connectTimeout / 1000, socketTimeout / 1000, connectionRequestTimeout / 1000);
     }
+
+    /**
+     * 单端（源或目标）的连接信息
+     */
+    private static class Endpoint {
+        private final String side;
+        private final HttpHost[] hosts;
+        private final String username;
+        private final String password;
+        private final boolean sniff;
+        private final String nodeSelection;
+
+        private Endpoint(String side, HttpHost[] hosts, String username, String password, boolean sniff,
+                         String nodeSelection) {
+            this.side = side;
+            this.hosts = hosts;
+            this.username = username;
+            this.password = password;
+            this.sniff = sniff;
+            this.nodeSelection = nodeSelection;
+        }
+    }
+
+    /**
+     * 客户端命名配置
+     */
+    @Data
+    public static class ClientProfile {
+        private String name;
+        private int maxTotal;
+        private int maxPerRoute;
+        private int connectTimeout;
+        private int socketTimeout;
+        private int connectionRequestTimeout;
+        private int ioThreadCount;
+        private boolean requestCompression;
+        private boolean responseCompression;
+        private int compressionLevel;
+        private int compressionMinBytes;
+    }
+
+    /**
+     * 已创建客户端的连接池
+     */
+    private static class ManagedPool {
+        private final String side;
+        private final ClientProfile profile;
+        private final PoolingNHttpClientConnectionManager connectionManager;
+
+        private ManagedPool(String side, ClientProfile profile, PoolingNHttpClientConnectionManager connectionManager) {
+            this.side = side;
+            this.profile = profile;
+            this.connectionManager = connectionManager;
+        }
+
+        private PoolStatus toStatus() {
+            PoolStatus status = new PoolStatus();
+            status.setSide(side);
+            status.setProfile(profile.getName());
+            status.setMaxPerRoute(connectionManager.getDefaultMaxPerRoute());
+            status.setSocketTimeout(profile.getSocketTimeout());
+            status.setConnectionRequestTimeout(profile.getConnectionRequestTimeout());
+            status.setIoThreadCount(profile.getIoThreadCount());
+            status.setTotal(RouteStats.of("total", connectionManager.getTotalStats()));
+            for (HttpRoute route : connectionManager.getRoutes()) {
+                status.getRoutes().add(RouteStats.of(route.getTargetHost().toURI(), connectionManager.getStats(route)));
+            }
+            return status;
+        }
+    }
+
+    /**
+     * 连接池状态
+     */
+    @Data
+    public static class PoolStatus {
+        private String side;
+        private String profile;
+        private int maxPerRoute;
+        private int socketTimeout;
+        private int connectionRequestTimeout;
+        private int ioThreadCount;
+        private RouteStats total;
+        private List<RouteStats> routes = new ArrayList<>();
+    }
+
+    /**
+     * 单个路由（或整个连接池）的连接数统计
+     */
+    @Data
+    public static class RouteStats {
+        private String route;
+        private int leased;
+        private int pending;
+        private int available;
+        private int max;
+
+        static RouteStats of(String route, PoolStats stats) {
+            RouteStats routeStats = new RouteStats();
+            routeStats.setRoute(route);
+            routeStats.setLeased(stats.getLeased());
+            routeStats.setPending(stats.getPending());
+            routeStats.setAvailable(stats.getAvailable());
+            routeStats.setMax(stats.getMax());
+            return routeStats;
+        }
+    }
 }
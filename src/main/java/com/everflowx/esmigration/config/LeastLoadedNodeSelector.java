@@ -0,0 +1,58 @@
+package com.everflowx.esmigration.config;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 按节点当前负载选择请求节点
+ *
+ * 以连接池中各路由的租用连接数作为节点的在途请求数，只保留在途请求最少的节点，
+ * 同样最少的多个节点之间仍由 RestClient 轮询。与 {@link NodeSelector#SKIP_DEDICATED_MASTERS} 一样跳过专用主节点。
+ * 连接管理器在客户端构建时才创建，创建前所有节点负载视为相同。
+ *
+ * @author everflowx
+ */
+public class LeastLoadedNodeSelector implements NodeSelector {
+
+    private volatile PoolingNHttpClientConnectionManager connectionManager;
+
+    void setConnectionManager(PoolingNHttpClientConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    public void select(Iterable<Node> nodes) {
+        NodeSelector.SKIP_DEDICATED_MASTERS.select(nodes);
+
+        PoolingNHttpClientConnectionManager manager = connectionManager;
+        if (manager == null) {
+            return;
+        }
+        Map<HttpHost, Integer> leased = new HashMap<>();
+        for (HttpRoute route : manager.getRoutes()) {
+            leased.put(route.getTargetHost(), manager.getStats(route).getLeased());
+        }
+
+        int min = Integer.MAX_VALUE;
+        for (Node node : nodes) {
+            min = Math.min(min, leased.getOrDefault(node.getHost(), 0));
+        }
+        for (Iterator<Node> it = nodes.iterator(); it.hasNext(); ) {
+            if (leased.getOrDefault(it.next().getHost(), 0) > min) {
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LEAST_LOADED";
+    }
+}
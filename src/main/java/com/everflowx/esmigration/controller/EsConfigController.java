@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -59,6 +60,31 @@ public class EsConfigController {
         return result;
     }
 
+    @ApiOperation("获取各客户端连接池状态（按路由统计租用、等待和空闲连接数）")
+    @GetMapping("/client-pools")
+    public List<ElasticsearchConfig.PoolStatus> getClientPools() {
+        return elasticsearchConfig.getPoolStatus();
+    }
+
+    @ApiOperation("动态调整客户端连接池上限")
+    @PostMapping("/client-pools/{side}/{profile}")
+    public Map<String, Object> resizeClientPool(
+            @ApiParam("source 或 target") @PathVariable String side,
+            @ApiParam("客户端配置名：scroll/bulk/admin") @PathVariable String profile,
+            @ApiParam("最大总连接数") @RequestParam(required = false) Integer maxTotal,
+            @ApiParam("每个路由最大连接数") @RequestParam(required = false) Integer maxPerRoute) {
+
+        Map<String, Object> result = new HashMap<>();
+        try {
+            result.put("pool", elasticsearchConfig.resizePool(side, profile, maxTotal, maxPerRoute));
+            result.put("success", true);
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        }
+        return result;
+    }
+
     @ApiOperation("获取推荐的缓冲区配置")
     @GetMapping("/recommended-buffer")
     public Map<String, Object> getRecommendedBuffer(
@@ -1,10 +1,14 @@
 package com.everflowx.esmigration.controller;
 
 import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.domain.SyncCursor;
+import com.everflowx.esmigration.reconcile.DeleteReconciler;
 import com.everflowx.esmigration.service.EsMigrationService;
 import com.everflowx.esmigration.service.EsMigrationService.MigrationResult;
 import com.everflowx.esmigration.service.EsMigrationService.ValidationResult;
+import com.everflowx.esmigration.service.SyncCursorService;
 import com.everflowx.esmigration.service.impl.EsMigrationServiceImpl;
+import com.everflowx.esmigration.stream.ChangeTailingEngine;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -29,6 +33,15 @@ public class EsMigrationController {
     @Autowired
     private EsMigrationService esMigrationService;
 
+    @Autowired
+    private SyncCursorService syncCursorService;
+
+    @Autowired
+    private ChangeTailingEngine changeTailingEngine;
+
+    @Autowired
+    private DeleteReconciler deleteReconciler;
+
     @ApiOperation("全量数据迁移")
     @PostMapping("/full-migration")
     public MigrationResult fullMigration(@RequestBody MigrationConfig config) {
@@ -45,14 +58,72 @@ public class EsMigrationController {
 
         log.info("开始增量数据迁移: {}, 上次同步时间: {}", config, lastSyncTime);
 
-        // 如果没有提供上次同步时间，尝试从目标索引获取
+        // 如果没有提供上次同步时间，从同步游标继续
         if (lastSyncTime == null) {
-            lastSyncTime = esMigrationService.getLastSyncTime(config.getTargetIndex(), config.getTimestampField());
+            return esMigrationService.incrementalSync(config);
         }
 
         return esMigrationService.incrementalMigration(config, lastSyncTime);
     }
 
+    @ApiOperation("启动持续同步，以亚秒级延迟持续复制新文档")
+    @PostMapping("/tailing/start")
+    public Map<String, Object> startTailing(@RequestBody MigrationConfig config) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            result.put("status", changeTailingEngine.start(config));
+            result.put("success", true);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        }
+        return result;
+    }
+
+    @ApiOperation("停止持续同步")
+    @PostMapping("/tailing/stop")
+    public Map<String, Object> stopTailing(
+            @ApiParam("源索引名称") @RequestParam String sourceIndex,
+            @ApiParam("目标索引名称") @RequestParam String targetIndex) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", changeTailingEngine.stop(sourceIndex, targetIndex));
+        return result;
+    }
+
+    @ApiOperation("删除同步，删除目标索引中源索引已不存在的文档")
+    @PostMapping("/reconcile-deletes")
+    public Map<String, Object> reconcileDeletes(@RequestBody MigrationConfig config) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            DeleteReconciler.ReconcileResult reconcileResult = deleteReconciler.reconcile(config);
+            result.put("success", reconcileResult.getErrorMessage() == null);
+            result.put("result", reconcileResult);
+        } catch (IllegalStateException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        }
+        return result;
+    }
+
+    @ApiOperation("获取所有增量同步游标")
+    @GetMapping("/sync-cursors")
+    public List<SyncCursor> getSyncCursors() {
+        return syncCursorService.getCursors();
+    }
+
+    @ApiOperation("重置增量同步游标，下一轮同步从头开始")
+    @DeleteMapping("/sync-cursors")
+    public Map<String, Object> resetSyncCursor(
+            @ApiParam("源索引名称") @RequestParam String sourceIndex,
+            @ApiParam("目标索引名称") @RequestParam String targetIndex) {
+        syncCursorService.removeCursor(sourceIndex, targetIndex);
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("sourceIndex", sourceIndex);
+        result.put("targetIndex", targetIndex);
+        return result;
+    }
+
     @ApiOperation("检查索引是否存在")
     @GetMapping("/index-exists")
     public Map<String, Object> indexExists(
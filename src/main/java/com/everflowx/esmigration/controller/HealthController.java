@@ -3,6 +3,7 @@ package com.everflowx.esmigration.controller;
 import com.everflowx.esmigration.config.ElasticsearchConfig;
 import com.everflowx.esmigration.exception.GlobalExceptionHandler;
 import com.everflowx.esmigration.manager.MigrationTaskManager;
+import com.everflowx.esmigration.monitor.GcPressureMonitor;
 import com.everflowx.esmigration.service.EsMigrationService;
 import com.everflowx.esmigration.service.IndexSyncService;
 import io.swagger.annotations.Api;
@@ -38,11 +39,11 @@ import java.util.Map;
 public class HealthController {
     
     @Resource
-    @Qualifier("sourceElasticsearchClient")
+    @Qualifier("sourceAdminElasticsearchClient")
     private RestHighLevelClient sourceClient;
     
     @Resource
-    @Qualifier("targetElasticsearchClient")
+    @Qualifier("targetAdminElasticsearchClient")
     private RestHighLevelClient targetClient;
     
     @Autowired
@@ -60,6 +61,9 @@ public class HealthController {
     @Autowired
     private MigrationTaskManager taskManager;
     
+    @Autowired
+    private GcPressureMonitor gcPressureMonitor;
+    
     @ApiOperation("系统健康检查")
     @GetMapping("/check")
     public Map<String, Object> healthCheck() {
@@ -263,6 +267,7 @@ public class HealthController {
         jvm.put("maxMemoryMB", runtime.maxMemory() / 1024 / 1024);
         jvm.put("usedMemoryMB", (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024);
         jvm.put("processors", runtime.availableProcessors());
+        jvm.put("gcPressure", gcPressureMonitor.getStats());
         result.put("jvm", jvm);
         
         // 系统信息
@@ -1,17 +1,24 @@
 package com.everflowx.esmigration.controller;
 
+import com.everflowx.esmigration.cursor.ShardReadPlanner;
 import com.everflowx.esmigration.domain.IndexSyncConfig;
 import com.everflowx.esmigration.domain.MigrationConfig;
 import com.everflowx.esmigration.domain.MigrationTask;
 import com.everflowx.esmigration.domain.TaskStatus;
 import com.everflowx.esmigration.exception.MigrationConfigException;
+import com.everflowx.esmigration.executor.IndexSyncScheduler;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
 import com.everflowx.esmigration.manager.MigrationTaskManager;
+import com.everflowx.esmigration.metadata.IndexMetadataCache;
+import com.everflowx.esmigration.monitor.MigrationMonitor;
 import com.everflowx.esmigration.service.EsMigrationService;
 import com.everflowx.esmigration.service.EnhancedMigrationService;
 import com.everflowx.esmigration.service.IndexSyncService;
 import com.everflowx.esmigration.util.ConfigValidator;
 import com.everflowx.esmigration.websocket.MonitorWebSocketHandler;
+import com.everflowx.esmigration.reconcile.DeleteReconciler;
 import com.everflowx.esmigration.service.SystemStatisticsService;
+import com.everflowx.esmigration.stream.ChangeTailingEngine;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -57,6 +64,27 @@ public class MonitorController {
     @Autowired
     private SystemStatisticsService systemStatisticsService;
     
+    @Autowired
+    private MigrationWorkerPool workerPool;
+    
+    @Autowired
+    private IndexMetadataCache indexMetadataCache;
+    
+    @Autowired
+    private IndexSyncScheduler indexSyncScheduler;
+    
+    @Autowired
+    private ShardReadPlanner shardReadPlanner;
+    
+    @Autowired
+    private MigrationMonitor migrationMonitor;
+    
+    @Autowired
+    private ChangeTailingEngine changeTailingEngine;
+    
+    @Autowired
+    private DeleteReconciler deleteReconciler;
+    
     @ApiOperation("获取所有任务列表")
     @GetMapping("/tasks")
     public Map<String, Object> getAllTasks() {
@@ -189,6 +217,70 @@ public class MonitorController {
         return result;
     }
     
+    @ApiOperation("获取迁移工作线程池统计")
+    @GetMapping("/stats/worker-pool")
+    public Map<String, Object> getWorkerPoolStats() {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            result.put("success", true);
+            result.put("workerPoolStats", workerPool.getStats());
+            result.put("indexSyncStats", indexSyncScheduler.getStats());
+            result.put("shardReadersPerNode", shardReadPlanner.getActiveReaders());
+            result.put("timestamp", System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("获取迁移工作线程池统计失败", e);
+            result.put("success", false);
+            result.put("message", "获取迁移工作线程池统计失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
+    @ApiOperation("获取持续同步状态与复制延迟")
+    @GetMapping("/stats/tailing")
+    public Map<String, Object> getTailingStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("tails", changeTailingEngine.getStatus());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+    
+    @ApiOperation("获取删除同步的吞吐与删除数")
+    @GetMapping("/stats/reconcile")
+    public Map<String, Object> getReconcileStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("results", deleteReconciler.getResults());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+    
+    @ApiOperation("获取ES传输字节统计（压缩前后）")
+    @GetMapping("/stats/wire-traffic")
+    public Map<String, Object> getWireTrafficStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("wireTraffic", migrationMonitor.getWireTraffic());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+    
+    @ApiOperation("获取索引元数据缓存统计")
+    @GetMapping("/stats/metadata-cache")
+    public Map<String, Object> getMetadataCacheStats() {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            result.put("success", true);
+            result.put("metadataCacheStats", indexMetadataCache.getStats());
+            result.put("timestamp", System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("获取索引元数据缓存统计失败", e);
+            result.put("success", false);
+            result.put("message", "获取索引元数据缓存统计失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
     @ApiOperation("获取历史趋势数据")
     @GetMapping("/stats/trends")
     public Map<String, Object> getHistoricalTrends() {
@@ -573,7 +665,7 @@ public class MonitorController {
                 taskManager.completeTask(task.getTaskId(), false, e.getMessage());
                 webSocketHandler.pushErrorMessage(task.getTaskId(), e.getMessage());
             }
-        });
+        }, workerPool.stageExecutor("Task-" + task.getTaskId()));
     }
     
     @Async
@@ -611,7 +703,7 @@ public class MonitorController {
                 taskManager.completeTask(task.getTaskId(), false, e.getMessage());
                 webSocketHandler.pushErrorMessage(task.getTaskId(), e.getMessage());
             }
-        });
+        }, workerPool.stageExecutor("Task-" + task.getTaskId()));
     }
     
     @Async
@@ -623,7 +715,8 @@ public class MonitorController {
                 
                 // 执行索引同步
                 IndexSyncConfig config = task.getIndexSyncConfig();
-                com.everflowx.esmigration.domain.IndexSyncResult result = indexSyncService.syncIndices(config);
+                com.everflowx.esmigration.domain.IndexSyncResult result = indexSyncService.syncIndices(config,
+                    progress -> updateIndexSyncProgress(task.getTaskId(), progress));
                 
                 // 更新性能指标
                 systemStatisticsService.updatePerformanceMetrics(
@@ -646,6 +739,24 @@ public class MonitorController {
                 taskManager.completeTask(task.getTaskId(), false, e.getMessage());
                 webSocketHandler.pushErrorMessage(task.getTaskId(), e.getMessage());
             }
-        });
+        }, workerPool.stageExecutor("Task-" + task.getTaskId()));
+    }
+    
+    /**
+     * 汇总各索引进度并更新任务进度
+     */
+    private void updateIndexSyncProgress(String taskId, com.everflowx.esmigration.domain.IndexSyncResult progress) {
+        long total = 0;
+        long processed = 0;
+        long success = 0;
+        long failed = 0;
+        for (com.everflowx.esmigration.domain.IndexSyncResult.IndexSyncDetail detail : progress.getIndexDetails().values()) {
+            total += detail.getDocumentCount();
+            processed += detail.getProcessedCount();
+            success += detail.getSuccessCount();
+            failed += detail.getFailedCount();
+        }
+        taskManager.updateTaskProgress(taskId, total, processed, success, failed,
+            String.format("索引同步中 (%d/%d)", progress.getTotalIndices(), progress.getIndexDetails().size()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.everflowx.esmigration.cursor;
+
+/**
+ * 源数据游标类型
+ * 
+ * @author everflowx
+ */
+public enum CursorType {
+    
+    /**
+     * 根据源集群版本自动选择：7.10+ 使用 PIT，低版本使用 _id search_after
+     */
+    AUTO,
+    
+    /**
+     * 传统 scroll 游标，滚动上下文过期后无法恢复
+     */
+    SCROLL,
+    
+    /**
+     * point-in-time + search_after，可从断点排序值恢复
+     */
+    PIT,
+    
+    /**
+     * 基于 _id 排序的 search_after，不持有任何服务端上下文
+     */
+    SEARCH_AFTER
+}
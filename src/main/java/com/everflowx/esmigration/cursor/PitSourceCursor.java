@@ -0,0 +1,109 @@
+package com.everflowx.esmigration.cursor;
+
+import com.everflowx.esmigration.util.EsQueryHelper;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+
+import java.io.IOException;
+
+/**
+ * 基于 point-in-time + search_after 的源数据游标
+ * 
+ * PIT 只在每次请求时续期，读取位置由排序值表示。进程崩溃后可凭断点中的
+ * PIT ID 与排序值继续读取；PIT 已过期时重新打开，按 _id 排序的位置仍然有效，
+ * 按 _shard_doc 排序的位置只对原 PIT 有意义，此时从头读取（写入按 _id 幂等）。
+ * 
+ * @author everflowx
+ */
+@Slf4j
+public class PitSourceCursor extends SearchAfterSourceCursor {
+    
+    private final PitLifecycle pitLifecycle;
+    private String pitId;
+    private boolean reusedPit;
+    private boolean firstPage = true;
+    
+    public PitSourceCursor(RestHighLevelClient client, EsQueryHelper queryHelper, SourceCursorConfig config,
+                           String sortField, PitLifecycle pitLifecycle) throws IOException {
+        super(client, queryHelper, config, sortField);
+        this.pitLifecycle = pitLifecycle;
+        this.reusedPit = config.getPitId() != null;
+        this.pitId = reusedPit ? config.getPitId() : pitLifecycle.open(config.getIndex(), config.getKeepAliveMinutes());
+    }
+    
+    @Override
+    protected SearchRequest buildRequest() {
+        SearchSourceBuilder sourceBuilder = buildSource();
+        sourceBuilder.pointInTimeBuilder(new PointInTimeBuilder(pitId)
+            .setKeepAlive(TimeValue.timeValueMinutes(config.getKeepAliveMinutes())));
+        // PIT 切片需要 7.16+，由 SourceCursorFactory 保证只在支持的集群上带切片打开
+        if (config.isSliced()) {
+            sourceBuilder.slice(new SliceBuilder(config.getSliceId(), config.getMaxSlices()));
+        }
+        
+        // PIT 请求不能指定索引、routing、preference，也不能开启 ccs_minimize_roundtrips
+        SearchRequest request = new SearchRequest();
+        request.source(sourceBuilder);
+        request.setCcsMinimizeRoundtrips(false);
+        return request;
+    }
+    
+    @Override
+    protected SearchResponse search(SearchRequest request) throws IOException {
+        SearchResponse response;
+        try {
+            response = super.search(request);
+        } catch (IOException e) {
+            if (!firstPage || !reusedPit) {
+                throw e;
+            }
+            // 断点中的 PIT 已失效，重新打开
+            log.warn("断点中的PIT已失效，重新打开PIT: {}", e.getMessage());
+            reusedPit = false;
+            pitId = pitLifecycle.open(config.getIndex(), config.getKeepAliveMinutes());
+            if (position != null && SourceCursorFactory.SHARD_DOC_FIELD.equals(sortField)) {
+                log.warn("_shard_doc 排序值只对原PIT有效，从头开始读取");
+                position = null;
+            }
+            response = super.search(buildRequest());
+        }
+        firstPage = false;
+        if (response.pointInTimeId() != null) {
+            pitId = response.pointInTimeId();
+        }
+        return response;
+    }
+    
+    @Override
+    public String getPitId() {
+        return pitId;
+    }
+    
+    @Override
+    public CursorType getType() {
+        return CursorType.PIT;
+    }
+    
+    @Override
+    public void close() {
+        if (pitId != null) {
+            pitLifecycle.close(pitId);
+            pitId = null;
+        }
+    }
+    
+    /**
+     * PIT 打开与关闭（高级客户端 7.10 尚未提供 PIT API，由低级客户端实现）
+     */
+    public interface PitLifecycle {
+        String open(String index, int keepAliveMinutes) throws IOException;
+        
+        void close(String pitId);
+    }
+}
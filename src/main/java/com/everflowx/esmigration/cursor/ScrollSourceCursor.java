@@ -0,0 +1,130 @@
+package com.everflowx.esmigration.cursor;
+
+import com.everflowx.esmigration.util.EsQueryHelper;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+
+import java.io.IOException;
+
+/**
+ * 基于 scroll 的源数据游标
+ * 
+ * 滚动上下文在存活期内持有源集群的段文件，且过期后无法恢复，
+ * 仅在源集群不支持 PIT 且需要切片时使用。
+ * 
+ * @author everflowx
+ */
+@Slf4j
+public class ScrollSourceCursor implements SourceCursor {
+    
+    private final RestHighLevelClient client;
+    private final EsQueryHelper queryHelper;
+    private final SourceCursorConfig config;
+    private int batchSize;
+    private String scrollId;
+    private long totalHits = -1;
+    private boolean exhausted = false;
+    
+    public ScrollSourceCursor(RestHighLevelClient client, EsQueryHelper queryHelper, SourceCursorConfig config) {
+        this.client = client;
+        this.queryHelper = queryHelper;
+        this.config = config;
+        this.batchSize = config.getBatchSize();
+    }
+    
+    @Override
+    public SearchHit[] nextBatch() throws IOException {
+        if (exhausted) {
+            return new SearchHit[0];
+        }
+        
+        SearchResponse response;
+        TimeValue keepAlive = TimeValue.timeValueMinutes(config.getKeepAliveMinutes());
+        if (scrollId == null) {
+            SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+            sourceBuilder.query(config.getQuery());
+            sourceBuilder.size(batchSize);
+            sourceBuilder.trackTotalHits(true);
+            sourceBuilder.fetchSource(config.isFetchSource());
+            sourceBuilder.sort("_doc");
+            if (config.isSliced()) {
+                sourceBuilder.slice(new SliceBuilder(config.getSliceId(), config.getMaxSlices()));
+            }
+            
+            SearchRequest request = new SearchRequest(config.getIndex());
+            request.source(sourceBuilder);
+            request.scroll(keepAlive);
+            if (config.getPreference() != null) {
+                request.preference(config.getPreference());
+            }
+            
+            response = queryHelper.searchWithRetry(client, request, true, 3);
+            totalHits = response.getHits().getTotalHits() != null ? response.getHits().getTotalHits().value : -1;
+        } else {
+            SearchScrollRequest scrollRequest = new SearchScrollRequest(scrollId);
+            scrollRequest.scroll(keepAlive);
+            response = queryHelper.scrollWithRetry(client, scrollRequest, true, 3);
+        }
+        
+        scrollId = response.getScrollId();
+        SearchHit[] hits = response.getHits().getHits();
+        if (hits.length == 0) {
+            exhausted = true;
+        }
+        return hits;
+    }
+    
+    @Override
+    public void setBatchSize(int batchSize) {
+        // scroll 的批次大小在首次查询时确定
+        if (scrollId == null) {
+            this.batchSize = batchSize;
+        }
+    }
+    
+    @Override
+    public Object[] getPosition() {
+        return null;
+    }
+    
+    @Override
+    public long getTotalHits() {
+        return totalHits;
+    }
+    
+    @Override
+    public CursorType getType() {
+        return CursorType.SCROLL;
+    }
+    
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+    
+    @Override
+    public void close() {
+        if (scrollId == null) {
+            return;
+        }
+        try {
+            ClearScrollRequest clearRequest = new ClearScrollRequest();
+            clearRequest.addScrollId(scrollId);
+            client.clearScroll(clearRequest, RequestOptions.DEFAULT);
+            log.debug("Scroll上下文已清理: {}", scrollId);
+        } catch (Exception e) {
+            log.warn("清理Scroll上下文失败: {}", e.getMessage());
+        } finally {
+            scrollId = null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.everflowx.esmigration.cursor;
+
+import com.everflowx.esmigration.util.EsQueryHelper;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.IOException;
+
+/**
+ * 基于 search_after 的源数据游标
+ * 
+ * 每次请求都是独立查询，按唯一排序键（默认 _id）翻页，不在服务端持有上下文；
+ * 当前位置即最后一条文档的排序值，可直接写入断点并在重启后继续。
+ * 
+ * @author everflowx
+ */
+public class SearchAfterSourceCursor implements SourceCursor {
+    
+    protected final RestHighLevelClient client;
+    protected final EsQueryHelper queryHelper;
+    protected final SourceCursorConfig config;
+    protected final String sortField;
+    protected int batchSize;
+    protected Object[] position;
+    protected long totalHits = -1;
+    protected boolean exhausted = false;
+    
+    public SearchAfterSourceCursor(RestHighLevelClient client, EsQueryHelper queryHelper,
+                                   SourceCursorConfig config, String sortField) {
+        this.client = client;
+        this.queryHelper = queryHelper;
+        this.config = config;
+        this.sortField = sortField;
+        this.batchSize = config.getBatchSize();
+        this.position = config.getResumeAfter();
+    }
+    
+    @Override
+    public SearchHit[] nextBatch() throws IOException {
+        if (exhausted) {
+            return new SearchHit[0];
+        }
+        
+        SearchRequest request = buildRequest();
+        SearchResponse response = search(request);
+        if (totalHits < 0 && response.getHits().getTotalHits() != null) {
+            totalHits = response.getHits().getTotalHits().value;
+        }
+        
+        SearchHit[] hits = response.getHits().getHits();
+        if (hits.length > 0) {
+            position = hits[hits.length - 1].getSortValues();
+        }
+        // 查询重试时可能缩小了批次大小，以实际请求大小判断是否读完
+        if (hits.length < request.source().size()) {
+            exhausted = true;
+        }
+        return hits;
+    }
+    
+    /**
+     * 构建下一页查询
+     */
+    protected SearchRequest buildRequest() {
+        SearchRequest request = new SearchRequest(config.getIndex());
+        request.source(buildSource());
+        if (config.getPreference() != null) {
+            request.preference(config.getPreference());
+        }
+        return request;
+    }
+    
+    protected SearchSourceBuilder buildSource() {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.query(config.getQuery());
+        sourceBuilder.size(batchSize);
+        sourceBuilder.sort(sortField, SortOrder.ASC);
+        sourceBuilder.fetchSource(config.isFetchSource());
+        // 只有首页需要精确总数，后续翻页跳过计数
+        sourceBuilder.trackTotalHits(totalHits < 0);
+        if (position != null) {
+            sourceBuilder.searchAfter(position);
+        }
+        return sourceBuilder;
+    }
+    
+    protected SearchResponse search(SearchRequest request) throws IOException {
+        return queryHelper.searchWithRetry(client, request, true, 3);
+    }
+    
+    @Override
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(batchSize, 1);
+    }
+    
+    @Override
+    public Object[] getPosition() {
+        return position;
+    }
+    
+    @Override
+    public long getTotalHits() {
+        return totalHits;
+    }
+    
+    @Override
+    public CursorType getType() {
+        return CursorType.SEARCH_AFTER;
+    }
+    
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+    
+    @Override
+    public void close() {
+        // 无服务端上下文需要释放
+    }
+}
@@ -0,0 +1,31 @@
+package com.everflowx.esmigration.cursor;
+
+import com.everflowx.esmigration.util.EsQueryHelper;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+/**
+ * 按 _seq_no 读取单个分片变更的 search_after 游标
+ *
+ * 同一分片内每个存活文档的 _seq_no 唯一，按 _seq_no 升序翻页即可不重不漏，位置即 [_seq_no]。
+ * _seq_no 只在分片内有意义，配置中必须通过 preference=_shards:N 限定到单个分片，
+ * 并以 _seq_no 范围查询限定本轮读取的区间。命中结果带回 _seq_no 与 _primary_term。
+ *
+ * @author everflowx
+ */
+public class SeqNoSourceCursor extends SearchAfterSourceCursor {
+
+    public static final String SEQ_NO_FIELD = "_seq_no";
+
+    public SeqNoSourceCursor(RestHighLevelClient client, EsQueryHelper queryHelper, SourceCursorConfig config) {
+        super(client, queryHelper, config, SEQ_NO_FIELD);
+        if (config.getPreference() == null) {
+            throw new IllegalArgumentException("按 _seq_no 读取必须指定分片 preference");
+        }
+    }
+
+    @Override
+    protected SearchSourceBuilder buildSource() {
+        return super.buildSource().seqNoAndPrimaryTerm(true);
+    }
+}
@@ -0,0 +1,180 @@
+package com.everflowx.esmigration.cursor;
+
+import com.everflowx.esmigration.metadata.IndexMetadataCache;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按主分片拆分读取的规划器
+ *
+ * 根据 _cat/shards 给出的分片分布，把索引拆成每个分片一个读取单元，
+ * 每个读取单元通过 preference=_shards:N|_prefer_nodes:节点ID 只读取该分片，并指定由哪个节点上的副本提供。
+ * 源索引是别名或通配符时按 (具体索引, 分片号) 拆分，每个读取单元只查询其所属的具体索引，
+ * 否则 _shards:N 会同时读到每个索引的 N 号分片。
+ * 节点按当前读取数选择：在分片所有已启动副本（主分片或副本）所在的节点中选读取数最少的节点，
+ * 每个节点同时服务的读取数不超过 max-readers-per-node，所有迁移任务共享该上限。
+ *
+ * 与 sliced scroll 相比，每个读取只落在一个分片上，读取压力按节点均匀分布，不会集中到少数热点节点。
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class ShardReadPlanner {
+
+    @Value("${es.migration.shard-read.max-readers-per-node:2}")
+    private int maxReadersPerNode;
+
+    @Resource
+    private IndexMetadataCache indexMetadataCache;
+
+    /**
+     * 各节点当前的读取数，按节点ID记录
+     */
+    private final Map<String, Integer> activeReaders = new HashMap<>();
+
+    /**
+     * 为索引（可以是别名或通配符）规划按分片读取，文档数多的分片排在前面
+     *
+     * @throws IOException 获取分片分布失败，或存在没有已启动副本的分片
+     */
+    public List<ShardRead> plan(RestHighLevelClient client, String indexName) throws IOException {
+        Map<String, ShardRead> reads = new TreeMap<>();
+        for (IndexMetadataCache.ShardCopy copy : indexMetadataCache.getShards(client, indexName)) {
+            ShardRead read = reads.computeIfAbsent(copy.getIndex() + "/" + copy.getShard(),
+                key -> new ShardRead(copy.getIndex(), copy.getShard()));
+            if (copy.isStarted()) {
+                read.nodeIds.add(copy.getNodeId());
+                if (copy.isPrimary() || read.docs < 0) {
+                    read.docs = copy.getDocs();
+                }
+            }
+        }
+        if (reads.isEmpty()) {
+            throw new IOException("未获取到索引分片分布: " + indexName);
+        }
+
+        List<ShardRead> plan = new ArrayList<>(reads.values());
+        for (ShardRead read : plan) {
+            if (read.nodeIds.isEmpty()) {
+                throw new IOException("索引 " + read.index + " 的分片 " + read.shard + " 没有已启动的副本");
+            }
+        }
+        plan.sort((a, b) -> Long.compare(b.docs, a.docs));
+        log.info("索引 {} 按分片读取规划完成 - 分片数: {}, 每节点读取上限: {}", indexName, plan.size(), maxReadersPerNode);
+        return plan;
+    }
+
+    /**
+     * 为分片选择读取节点，所有候选节点都已达到读取上限时阻塞
+     */
+    public NodeLease acquire(ShardRead read) throws InterruptedException {
+        synchronized (activeReaders) {
+            while (true) {
+                String best = null;
+                int bestActive = Integer.MAX_VALUE;
+                for (String nodeId : read.nodeIds) {
+                    int active = activeReaders.getOrDefault(nodeId, 0);
+                    if (active < Math.max(maxReadersPerNode, 1) && active < bestActive) {
+                        best = nodeId;
+                        bestActive = active;
+                    }
+                }
+                if (best != null) {
+                    activeReaders.put(best, bestActive + 1);
+                    return new NodeLease(read, best);
+                }
+                activeReaders.wait();
+            }
+        }
+    }
+
+    private void release(String nodeId) {
+        synchronized (activeReaders) {
+            int active = activeReaders.getOrDefault(nodeId, 0) - 1;
+            if (active > 0) {
+                activeReaders.put(nodeId, active);
+            } else {
+                activeReaders.remove(nodeId);
+            }
+            activeReaders.notifyAll();
+        }
+    }
+
+    /**
+     * 各节点当前读取数
+     */
+    public Map<String, Integer> getActiveReaders() {
+        synchronized (activeReaders) {
+            return new LinkedHashMap<>(activeReaders);
+        }
+    }
+
+    /**
+     * 单个分片的读取单元
+     */
+    public static class ShardRead {
+        /**
+         * 分片所属的具体索引，读取时只查询该索引
+         */
+        private final String index;
+        private final int shard;
+        private final List<String> nodeIds = new ArrayList<>();
+        private long docs = -1;
+
+        private ShardRead(String index, int shard) {
+            this.index = index;
+            this.shard = shard;
+        }
+
+        public String getIndex() { return index; }
+        public int getShard() { return shard; }
+        public List<String> getNodeIds() { return Collections.unmodifiableList(nodeIds); }
+        public long getDocs() { return docs; }
+    }
+
+    /**
+     * 分片读取占用的节点名额，读取结束后释放，重复释放无效
+     */
+    public class NodeLease {
+        private final ShardRead read;
+        private final String nodeId;
+        private boolean released;
+
+        private NodeLease(ShardRead read, String nodeId) {
+            this.read = read;
+            this.nodeId = nodeId;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        /**
+         * 只读取该分片、优先由选定节点提供的查询 preference
+         */
+        public String getPreference() {
+            return "_shards:" + read.shard + "|_prefer_nodes:" + nodeId;
+        }
+
+        public synchronized void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            ShardReadPlanner.this.release(nodeId);
+        }
+    }
+}
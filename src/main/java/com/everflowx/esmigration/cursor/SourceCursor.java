@@ -0,0 +1,56 @@
+package com.everflowx.esmigration.cursor;
+
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+
+/**
+ * 源数据游标 - 屏蔽 scroll / PIT / search_after 的差异，按批次顺序读取源索引
+ * 
+ * @author everflowx
+ */
+public interface SourceCursor extends AutoCloseable {
+    
+    /**
+     * 读取下一批文档，读取完毕时返回空数组
+     */
+    SearchHit[] nextBatch() throws IOException;
+    
+    /**
+     * 调整后续批次大小（scroll 游标在首批之后无法调整，忽略该调用）
+     */
+    void setBatchSize(int batchSize);
+    
+    /**
+     * 当前读取位置（最后一条文档的排序值），scroll 游标返回 null
+     */
+    Object[] getPosition();
+    
+    /**
+     * 当前 PIT ID，非 PIT 游标返回 null
+     */
+    default String getPitId() {
+        return null;
+    }
+    
+    /**
+     * 首次查询返回的命中总数，未知时返回 -1
+     */
+    long getTotalHits();
+    
+    /**
+     * 游标类型
+     */
+    CursorType getType();
+    
+    /**
+     * 是否已读取完毕
+     */
+    boolean isExhausted();
+    
+    /**
+     * 释放服务端上下文
+     */
+    @Override
+    void close();
+}
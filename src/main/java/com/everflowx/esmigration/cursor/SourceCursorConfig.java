@@ -0,0 +1,94 @@
+package com.everflowx.esmigration.cursor;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+
+/**
+ * 源数据游标配置
+ * 
+ * @author everflowx
+ */
+public class SourceCursorConfig {
+    private String index;
+    private QueryBuilder query = QueryBuilders.matchAllQuery();
+    private int batchSize = 1000;
+    private int keepAliveMinutes = 5;
+    private CursorType type = CursorType.AUTO;
+    private Integer sliceId;
+    private Integer maxSlices;
+    private Object[] resumeAfter;
+    private String pitId;
+    private String preference;
+    private boolean fetchSource = true;
+    
+    public SourceCursorConfig index(String index) {
+        this.index = index;
+        return this;
+    }
+    
+    public SourceCursorConfig query(QueryBuilder query) {
+        this.query = query;
+        return this;
+    }
+    
+    public SourceCursorConfig batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+    
+    public SourceCursorConfig keepAliveMinutes(int minutes) {
+        this.keepAliveMinutes = minutes;
+        return this;
+    }
+    
+    public SourceCursorConfig type(CursorType type) {
+        this.type = type;
+        return this;
+    }
+    
+    public SourceCursorConfig slice(int sliceId, int maxSlices) {
+        this.sliceId = sliceId;
+        this.maxSlices = maxSlices;
+        return this;
+    }
+    
+    /**
+     * 从断点保存的排序值之后继续读取
+     */
+    public SourceCursorConfig resumeAfter(Object[] sortValues) {
+        this.resumeAfter = sortValues;
+        return this;
+    }
+    
+    /**
+     * 复用断点保存的 PIT（仍在存活期内时）
+     */
+    public SourceCursorConfig pitId(String pitId) {
+        this.pitId = pitId;
+        return this;
+    }
+    
+    public SourceCursorConfig preference(String preference) {
+        this.preference = preference;
+        return this;
+    }
+    
+    public SourceCursorConfig fetchSource(boolean fetchSource) {
+        this.fetchSource = fetchSource;
+        return this;
+    }
+    
+    // Getters
+    public String getIndex() { return index; }
+    public QueryBuilder getQuery() { return query; }
+    public int getBatchSize() { return batchSize; }
+    public int getKeepAliveMinutes() { return keepAliveMinutes; }
+    public CursorType getType() { return type; }
+    public Integer getSliceId() { return sliceId; }
+    public Integer getMaxSlices() { return maxSlices; }
+    public Object[] getResumeAfter() { return resumeAfter; }
+    public String getPitId() { return pitId; }
+    public String getPreference() { return preference; }
+    public boolean isFetchSource() { return fetchSource; }
+    public boolean isSliced() { return sliceId != null && maxSlices != null && maxSlices > 1; }
+}
@@ -0,0 +1,176 @@
+package com.everflowx.esmigration.cursor;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.everflowx.esmigration.util.EsQueryHelper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 源数据游标工厂 - 根据配置和源集群版本选择游标实现
+ * 
+ * 选择规则：
+ * 1. 7.12+ 集群使用 PIT + _shard_doc 排序
+ * 2. 7.10 / 7.11 集群使用 PIT + _id 排序（尚不支持 _shard_doc）
+ * 3. 更早的集群使用 _id search_after；需要切片时只能退回 scroll
+ * 4. 指定了 preference 时不能使用 PIT，改用 _id search_after
+ * 5. 切片读取只在 7.16+ 集群上使用 PIT（更早版本拒绝在 scroll 之外使用 slice），否则使用切片 scroll
+ * 
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class SourceCursorFactory {
+    
+    public static final String SHARD_DOC_FIELD = "_shard_doc";
+    public static final String ID_FIELD = "_id";
+    
+    @Resource
+    private EsQueryHelper esQueryHelper;
+    
+    /**
+     * 各客户端对应集群的版本号 [major, minor]
+     */
+    private final Map<RestHighLevelClient, int[]> versionCache = new ConcurrentHashMap<>();
+    
+    /**
+     * 打开源数据游标
+     */
+    public SourceCursor open(RestHighLevelClient client, SourceCursorConfig config) throws IOException {
+        CursorType type = resolveType(client, config);
+        switch (type) {
+            case SCROLL:
+                return new ScrollSourceCursor(client, esQueryHelper, config);
+            case SEARCH_AFTER:
+                return new SearchAfterSourceCursor(client, esQueryHelper, config, ID_FIELD);
+            case PIT:
+            default:
+                String sortField = supportsShardDoc(client) ? SHARD_DOC_FIELD : ID_FIELD;
+                log.debug("打开PIT游标，索引: {}, 排序字段: {}", config.getIndex(), sortField);
+                return new PitSourceCursor(client, esQueryHelper, config, sortField, new LowLevelPitLifecycle(client));
+        }
+    }
+    
+    /**
+     * 解析实际使用的游标类型
+     */
+    public CursorType resolveType(RestHighLevelClient client, SourceCursorConfig config) {
+        CursorType requested = config.getType() != null ? config.getType() : CursorType.AUTO;
+        if (requested == CursorType.SCROLL) {
+            return CursorType.SCROLL;
+        }
+        
+        boolean pitAvailable = supportsPit(client) && config.getPreference() == null
+            && (!config.isSliced() || supportsSlicedPit(client));
+        if (requested == CursorType.SEARCH_AFTER && !config.isSliced()) {
+            return CursorType.SEARCH_AFTER;
+        }
+        if (pitAvailable) {
+            return CursorType.PIT;
+        }
+        
+        // search_after 不支持切片，切片读取只能退回 scroll
+        CursorType fallback = config.isSliced() ? CursorType.SCROLL : CursorType.SEARCH_AFTER;
+        if (requested != CursorType.AUTO) {
+            log.warn("源集群或查询条件不支持 {} 游标，改用 {}", requested, fallback);
+        }
+        return fallback;
+    }
+    
+    /**
+     * 源集群是否支持 point-in-time（7.10+）
+     */
+    public boolean supportsPit(RestHighLevelClient client) {
+        int[] version = getVersion(client);
+        return version[0] > 7 || (version[0] == 7 && version[1] >= 10);
+    }
+    
+    /**
+     * 源集群是否支持在 PIT 查询中使用 slice（7.16+）
+     * 
+     * 7.10 ~ 7.15 的 SearchService 对非 scroll 请求中的 slice 报错
+     * "`slice` cannot be used outside of a scroll context"。
+     */
+    public boolean supportsSlicedPit(RestHighLevelClient client) {
+        int[] version = getVersion(client);
+        return version[0] > 7 || (version[0] == 7 && version[1] >= 16);
+    }
+    
+    /**
+     * 源集群是否支持 _shard_doc 排序（7.12+）
+     */
+    public boolean supportsShardDoc(RestHighLevelClient client) {
+        int[] version = getVersion(client);
+        return version[0] > 7 || (version[0] == 7 && version[1] >= 12);
+    }
+    
+    private int[] getVersion(RestHighLevelClient client) {
+        int[] version = versionCache.get(client);
+        if (version == null) {
+            version = detectVersion(client);
+            if (version != null) {
+                versionCache.put(client, version);
+            }
+        }
+        // 版本未知时按旧集群处理，不缓存以便下次重新探测
+        return version != null ? version : new int[]{0, 0};
+    }
+    
+    private int[] detectVersion(RestHighLevelClient client) {
+        try {
+            String number = client.info(RequestOptions.DEFAULT).getVersion().getNumber();
+            String[] parts = number.split("\\.");
+            log.info("检测到ES集群版本: {}", number);
+            return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+        } catch (Exception e) {
+            log.warn("获取ES集群版本失败，按不支持PIT处理: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 通过低级客户端打开和关闭 PIT
+     */
+    private static class LowLevelPitLifecycle implements PitSourceCursor.PitLifecycle {
+        private final RestHighLevelClient client;
+        
+        LowLevelPitLifecycle(RestHighLevelClient client) {
+            this.client = client;
+        }
+        
+        @Override
+        public String open(String index, int keepAliveMinutes) throws IOException {
+            Request request = new Request("POST", "/" + index + "/_pit");
+            request.addParameter("keep_alive", keepAliveMinutes + "m");
+            Response response = client.getLowLevelClient().performRequest(request);
+            JSONObject body = JSON.parseObject(EntityUtils.toString(response.getEntity()));
+            String pitId = body.getString("id");
+            log.info("已打开PIT，索引: {}, 存活时间: {}m", index, keepAliveMinutes);
+            return pitId;
+        }
+        
+        @Override
+        public void close(String pitId) {
+            try {
+                Request request = new Request("DELETE", "/_pit");
+                JSONObject body = new JSONObject();
+                body.put("id", pitId);
+                request.setJsonEntity(body.toJSONString());
+                client.getLowLevelClient().performRequest(request);
+                log.debug("PIT已关闭");
+            } catch (Exception e) {
+                log.warn("关闭PIT失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.everflowx.esmigration.cursor;
+
+import com.everflowx.esmigration.util.EsQueryHelper;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * 按时间戳高水位读取的 search_after 游标
+ *
+ * 按 (时间戳, _id) 升序翻页，_id 作为时间戳相同文档的排序依据，
+ * 位置即 [时间戳毫秒, _id]，可作为增量同步游标持久化，下一轮从该位置继续。
+ * 查询需限定时间戳字段存在，否则缺失该字段的文档排在最后，会把水位推到最大值。
+ *
+ * @author everflowx
+ */
+public class WatermarkSourceCursor extends SearchAfterSourceCursor {
+
+    private final String timestampField;
+
+    public WatermarkSourceCursor(RestHighLevelClient client, EsQueryHelper queryHelper,
+                                 SourceCursorConfig config, String timestampField) {
+        super(client, queryHelper, config, "_id");
+        this.timestampField = timestampField;
+    }
+
+    @Override
+    protected SearchSourceBuilder buildSource() {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.query(config.getQuery());
+        sourceBuilder.size(batchSize);
+        sourceBuilder.sort(timestampField, SortOrder.ASC);
+        sourceBuilder.sort(sortField, SortOrder.ASC);
+        sourceBuilder.fetchSource(config.isFetchSource());
+        sourceBuilder.trackTotalHits(totalHits < 0);
+        if (position != null) {
+            sourceBuilder.searchAfter(position);
+        }
+        return sourceBuilder;
+    }
+}
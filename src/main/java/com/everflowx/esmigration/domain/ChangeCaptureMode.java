@@ -0,0 +1,20 @@
+package com.everflowx.esmigration.domain;
+
+/**
+ * 增量同步的变更捕获方式
+ * 
+ * @author everflowx
+ */
+public enum ChangeCaptureMode {
+    
+    /**
+     * 按时间戳字段与 _id 的同步游标读取，依赖写入方更新时间戳字段
+     */
+    TIMESTAMP,
+    
+    /**
+     * 按分片 _seq_no 水位读取，不依赖时间戳字段，任何写入都会产生新的 _seq_no；
+     * 源索引必须是单个具体索引（不能是匹配多个索引的别名或通配符）
+     */
+    SEQ_NO
+}
@@ -53,10 +53,20 @@ public class IndexSyncConfig {
     private Integer scrollTimeout = 10;
     
     /**
-     * 线程数
+     * 线程数：同时同步的索引数，同时作为单个索引读取切片数的上限
      */
     private Integer threadCount = 2;
     
+    /**
+     * 多索引同步顺序，默认按存储大小从大到小
+     */
+    private IndexSyncOrder syncOrder = IndexSyncOrder.LARGEST_FIRST;
+    
+    /**
+     * 数据同步时按主分片拆分读取，见 {@link MigrationConfig#getShardRouting()}
+     */
+    private Boolean shardRouting = false;
+    
     /**
      * 排除的索引模式列表（支持通配符）
      */
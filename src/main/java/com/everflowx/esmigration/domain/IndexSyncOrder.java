@@ -0,0 +1,19 @@
+package com.everflowx.esmigration.domain;
+
+/**
+ * 多索引同步顺序
+ * 
+ * @author everflowx
+ */
+public enum IndexSyncOrder {
+    
+    /**
+     * 按存储大小从大到小：大索引最先开始，整体完成时间最短
+     */
+    LARGEST_FIRST,
+    
+    /**
+     * 按存储大小从小到大：小索引尽快完成，不被大索引阻塞
+     */
+    SMALLEST_FIRST
+}
@@ -102,8 +102,11 @@ public class IndexSyncResult {
     @Data
     public static class IndexSyncDetail {
         private String indexName;
-        private String status; // SUCCESS, FAILED, SKIPPED
+        private String status; // QUEUED, RUNNING, SUCCESS, FAILED, SKIPPED
         private Long documentCount = 0L;
+        private Long processedCount = 0L;
+        private Long storeSizeBytes = 0L;
+        private Integer readSlices = 0;
         private Long successCount = 0L;
         private Long failedCount = 0L;
         private Date startTime;
@@ -136,6 +139,13 @@ public class IndexSyncResult {
         this.totalDocuments += detail.getDocumentCount();
     }
     
+    /**
+     * 更新进行中索引的同步详情，不计入汇总统计
+     */
+    public void updateIndexProgress(IndexSyncDetail detail) {
+        this.indexDetails.put(detail.getIndexName(), detail);
+    }
+    
     /**
      * 添加错误信息
      */
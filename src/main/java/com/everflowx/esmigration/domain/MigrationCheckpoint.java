@@ -32,6 +32,26 @@ public class MigrationCheckpoint {
      */
     private String scrollId;
     
+    /**
+     * 当前PIT ID（PIT游标时使用）
+     */
+    private String pitId;
+    
+    /**
+     * 最后一条已处理文档的排序值（PIT / search_after 游标恢复位置）
+     */
+    private Object[] searchAfterValues;
+    
+    /**
+     * 分片已同步到的 _seq_no 水位（按 _seq_no 增量同步时使用，不超过该分片的全局检查点）
+     */
+    private Long maxSeqNo;
+    
+    /**
+     * 最后同步的文档所在的主分片任期（按 _seq_no 增量同步时使用）
+     */
+    private Long primaryTerm;
+    
     /**
      * 已处理文档数量
      */
@@ -58,10 +78,15 @@ public class MigrationCheckpoint {
     private int currentBatchSize;
     
     /**
-     * 分片索引（并行迁移时使用）
+     * 分片索引（并行迁移时使用，切片并行时为切片编号）
      */
     private Integer shardIndex;
     
+    /**
+     * 切片总数（sliced scroll 并行迁移时使用）
+     */
+    private Integer sliceCount;
+    
     /**
      * 分片范围开始
      */
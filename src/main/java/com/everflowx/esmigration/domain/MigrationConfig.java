@@ -1,5 +1,6 @@
 package com.everflowx.esmigration.domain;
 
+import com.everflowx.esmigration.cursor.CursorType;
 import lombok.Data;
 
 import java.util.List;
@@ -60,11 +61,21 @@ public class MigrationConfig {
      */
     private String timestampField = "updateTime";
     
+    /**
+     * 增量同步的变更捕获方式：TIMESTAMP（按时间戳字段）、SEQ_NO（按分片 _seq_no 水位，适用于没有可靠时间戳字段的索引）
+     */
+    private ChangeCaptureMode changeCapture = ChangeCaptureMode.TIMESTAMP;
+    
     /**
      * 是否删除目标索引中不存在于源索引的文档
      */
     private Boolean deleteNotExist = false;
     
+    /**
+     * 验证迁移结果时是否按文档内容哈希比对两侧索引（只比较文档数时为 false），差异文档的 _id 见验证结果
+     */
+    private Boolean verifyContent = false;
+    
     /**
      * 查询条件（JSON格式）
      */
@@ -89,4 +100,80 @@ public class MigrationConfig {
      * 线程数
      */
     private Integer threadCount = 1;
+    
+    /**
+     * 源数据读取游标类型：AUTO（按源集群版本选择）、SCROLL、PIT、SEARCH_AFTER
+     */
+    private CursorType cursorType = CursorType.AUTO;
+    
+    /**
+     * 是否启用流水线迁移（读取、转换、写入重叠执行），仅对单线程全量迁移生效
+     */
+    private Boolean pipelineEnabled = true;
+    
+    /**
+     * 流水线读取阶段预取的批次数（读取队列深度）
+     */
+    private Integer readAheadBatches = 4;
+    
+    /**
+     * 流水线转换线程数
+     */
+    private Integer transformThreads = 2;
+    
+    /**
+     * 流水线转换队列深度（已转换待写入的批次数）
+     */
+    private Integer transformQueueDepth = 4;
+    
+    /**
+     * 同时进行的异步批量写入数
+     */
+    private Integer maxInFlightBulks = 2;
+    
+    /**
+     * 单个批量写入请求的目标字节数，达到后立即发送（默认10MB）
+     */
+    private Long bulkMaxBytes = 10L * 1024 * 1024;
+    
+    /**
+     * 单个批量写入请求的最大文档数
+     */
+    private Integer bulkMaxDocs = 5000;
+    
+    /**
+     * 批量写入请求未满时最长等待时间（毫秒），超时后即使未满也发送
+     */
+    private Long bulkLingerMs = 1000L;
+    
+    /**
+     * 批量写入中被拒绝（429/503）的文档最大重试次数，超过后计为失败
+     */
+    private Integer bulkMaxRetries = 5;
+    
+    /**
+     * 批量写入重试的初始退避时间（毫秒），每次重试翻倍并加入随机抖动
+     */
+    private Long bulkRetryBackoffMs = 200L;
+    
+    /**
+     * 批量写入重试的最大退避时间（毫秒）
+     */
+    private Long bulkRetryMaxBackoffMs = 30000L;
+    
+    /**
+     * 流式迁移读取队列的字节预算，按 _source 长度估算，超过时读取阻塞，默认128MB
+     */
+    private Long streamQueueMaxBytes = 128L * 1024 * 1024;
+    
+    /**
+     * 并行迁移时按主分片拆分读取（preference=_shards:N），每个节点的并发读取数受全局上限约束；
+     * 为 false 时使用 sliced scroll / PIT 切片
+     */
+    private Boolean shardRouting = false;
+    
+    /**
+     * 指定迁移任务ID，用于进度监控与断点记录，为空时自动生成
+     */
+    private String taskId;
 }
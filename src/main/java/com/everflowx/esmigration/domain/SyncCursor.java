@@ -0,0 +1,57 @@
+package com.everflowx.esmigration.domain;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 增量同步游标
+ *
+ * 记录一对源/目标索引已同步到的位置：按 (时间戳, _id) 排序的最后一条已写入文档。
+ * 下一轮同步从该位置（减去重叠窗口）继续读取，只处理新增或更新的文档。
+ *
+ * @author everflowx
+ */
+@Data
+public class SyncCursor {
+
+    /**
+     * 源索引名
+     */
+    private String sourceIndex;
+
+    /**
+     * 目标索引名
+     */
+    private String targetIndex;
+
+    /**
+     * 时间戳字段名，字段变化时游标失效
+     */
+    private String timestampField;
+
+    /**
+     * 最后一条已同步文档的时间戳（毫秒，即排序值）
+     */
+    private Long timestamp;
+
+    /**
+     * 最后一条已同步文档的 _id，时间戳相同时的排序依据
+     */
+    private String docId;
+
+    /**
+     * 累计同步文档数量
+     */
+    private long syncedCount;
+
+    /**
+     * 最近一轮同步的文档数量
+     */
+    private long lastCycleCount;
+
+    /**
+     * 最后更新时间
+     */
+    private Date lastUpdateTime;
+}
@@ -0,0 +1,315 @@
+package com.everflowx.esmigration.executor;
+
+import com.everflowx.esmigration.domain.IndexSyncConfig;
+import com.everflowx.esmigration.domain.IndexSyncOrder;
+import com.everflowx.esmigration.domain.IndexSyncResult;
+import com.everflowx.esmigration.metadata.IndexMetadataCache;
+import com.everflowx.esmigration.monitor.MigrationMonitor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 多索引同步调度器 - 所有索引同步任务共享的读取切片预算
+ *
+ * 调度规则：
+ * 1. 按源索引存储大小排序（默认从大到小，可配置为从小到大），依次启动
+ * 2. 同时同步的索引数不超过 threadCount
+ * 3. 每个索引按存储大小申请读取切片（每 bytes-per-slice 一个切片，至少 1 个，至多 threadCount 个），
+ *    所有同步任务的切片总数不超过 max-read-slices，预算不足时按剩余预算缩减切片数
+ * 4. 写入并发由 {@link com.everflowx.esmigration.throttle.BulkConcurrencyController} 的全局在途许可控制，
+ *    各索引的批量写入共用同一组许可
+ *
+ * 这样并行同步时线程数不再是"索引数 × 切片数"的乘积，小索引也不会长期排在大索引之后无法启动。
+ * 各索引的进度从 {@link MigrationMonitor} 定期汇总到 {@link IndexSyncResult}。
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class IndexSyncScheduler {
+
+    @Value("${es.migration.index-sync.max-read-slices:16}")
+    private int maxReadSlices;
+
+    @Value("${es.migration.index-sync.bytes-per-slice:5368709120}") // 5GB
+    private long bytesPerSlice;
+
+    @Value("${es.migration.index-sync.progress-interval-ms:2000}")
+    private long progressIntervalMs;
+
+    @Resource
+    @Qualifier("sourceElasticsearchClient")
+    private RestHighLevelClient sourceClient;
+
+    @Resource
+    private MigrationWorkerPool workerPool;
+
+    @Resource
+    private MigrationMonitor migrationMonitor;
+
+    @Resource
+    private IndexMetadataCache indexMetadataCache;
+
+    private Semaphore readSlices;
+
+    @PostConstruct
+    public void init() {
+        maxReadSlices = Math.max(maxReadSlices, 1);
+        bytesPerSlice = Math.max(bytesPerSlice, 1);
+        readSlices = new Semaphore(maxReadSlices);
+        log.info("多索引同步调度器初始化 - 读取切片预算: {}, 每切片数据量: {}MB",
+            maxReadSlices, bytesPerSlice / 1024 / 1024);
+    }
+
+    /**
+     * 调度同步一组索引，全部完成后返回
+     *
+     * @param task 同步单个索引的任务
+     * @param progressListener 进度回调，每个进度周期与每个索引完成时调用
+     */
+    public void run(List<String> indices, IndexSyncConfig config, IndexSyncResult result,
+                    IndexSyncTask task, Consumer<IndexSyncResult> progressListener) {
+        int concurrency = Math.max(config.getThreadCount() != null ? config.getThreadCount() : 1, 1);
+        Deque<IndexSyncResult.IndexSyncDetail> pending = new ArrayDeque<>(orderIndices(indices, config, result));
+        Map<String, RunningIndex> running = new LinkedHashMap<>();
+        BlockingQueue<RunningIndex> completions = new LinkedBlockingQueue<>();
+
+        log.info("开始调度 {} 个索引，同时同步: {}, 顺序: {}", pending.size(), concurrency, config.getSyncOrder());
+        try {
+            while (!pending.isEmpty() || !running.isEmpty()) {
+                while (!pending.isEmpty() && running.size() < concurrency) {
+                    IndexSyncResult.IndexSyncDetail next = pending.peekFirst();
+                    int slices = acquireSlices(slicesFor(next.getStoreSizeBytes(), concurrency), running.isEmpty());
+                    if (slices == 0) {
+                        break;
+                    }
+                    pending.pollFirst();
+                    start(next, slices, task, result, running, completions);
+                }
+
+                RunningIndex done = completions.poll(progressIntervalMs, TimeUnit.MILLISECONDS);
+                while (done != null) {
+                    running.remove(done.detail.getIndexName());
+                    finish(done, result);
+                    done = completions.poll();
+                }
+                refreshProgress(running, result);
+                progressListener.accept(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("索引同步调度被中断，取消 {} 个进行中的索引", running.size());
+            for (RunningIndex index : running.values()) {
+                index.future.cancel(true);
+            }
+            result.addError("索引同步被中断，未开始的索引: " + pending.size());
+        }
+    }
+
+    /**
+     * 按存储大小排序索引，并登记为排队状态
+     */
+    private List<IndexSyncResult.IndexSyncDetail> orderIndices(List<String> indices, IndexSyncConfig config,
+                                                               IndexSyncResult result) {
+        Map<String, IndexMetadataCache.IndexCatalogEntry> catalog;
+        try {
+            catalog = indexMetadataCache.getCatalog(sourceClient);
+        } catch (Exception e) {
+            log.warn("获取源索引目录失败，按原顺序同步: {}", e.getMessage());
+            catalog = Collections.emptyMap();
+        }
+
+        List<IndexSyncResult.IndexSyncDetail> details = new ArrayList<>();
+        for (String indexName : indices) {
+            IndexMetadataCache.IndexCatalogEntry entry = catalog.get(indexName);
+            IndexSyncResult.IndexSyncDetail detail = new IndexSyncResult.IndexSyncDetail();
+            detail.setIndexName(indexName);
+            detail.setStatus("QUEUED");
+            detail.setStoreSizeBytes(entry != null ? Math.max(entry.getStoreSizeBytes(), 0) : 0L);
+            detail.setDocumentCount(entry != null ? Math.max(entry.getDocsCount(), 0) : 0L);
+            details.add(detail);
+            result.updateIndexProgress(detail);
+        }
+
+        Comparator<IndexSyncResult.IndexSyncDetail> bySize =
+            Comparator.comparing(IndexSyncResult.IndexSyncDetail::getStoreSizeBytes);
+        details.sort(config.getSyncOrder() == IndexSyncOrder.SMALLEST_FIRST ? bySize : bySize.reversed());
+        return details;
+    }
+
+    /**
+     * 按存储大小计算索引需要的读取切片数
+     */
+    private int slicesFor(long storeSizeBytes, int maxSlicesPerIndex) {
+        long slices = (storeSizeBytes + bytesPerSlice - 1) / bytesPerSlice;
+        return (int) Math.max(1, Math.min(slices, Math.min(maxSlicesPerIndex, maxReadSlices)));
+    }
+
+    /**
+     * 从全局预算申请切片，预算不足时按剩余预算缩减；
+     * 本次调度没有进行中的索引时阻塞等待至少 1 个切片（预算被其他同步任务占用），否则不等待
+     *
+     * @return 获得的切片数，0 表示暂无预算
+     */
+    private int acquireSlices(int wanted, boolean waitForOne) throws InterruptedException {
+        if (waitForOne) {
+            readSlices.acquire();
+        } else if (!readSlices.tryAcquire()) {
+            return 0;
+        }
+        int granted = 1;
+        while (granted < wanted && readSlices.tryAcquire()) {
+            granted++;
+        }
+        return granted;
+    }
+
+    private void start(IndexSyncResult.IndexSyncDetail detail, int slices, IndexSyncTask task,
+                       IndexSyncResult result, Map<String, RunningIndex> running,
+                       BlockingQueue<RunningIndex> completions) {
+        String indexName = detail.getIndexName();
+        RunningIndex index = new RunningIndex(detail, slices,
+            "index_sync_" + indexName + "_" + System.currentTimeMillis());
+        detail.setStatus("RUNNING");
+        detail.setReadSlices(slices);
+        detail.setStartTime(new Date());
+        result.updateIndexProgress(detail);
+
+        try {
+            index.future = workerPool.startStage("IndexSync-" + indexName, () -> {
+                try {
+                    index.finalDetail = task.sync(indexName, slices, index.taskId);
+                } catch (Exception e) {
+                    log.error("同步索引 {} 失败", indexName, e);
+                    index.error = e;
+                } finally {
+                    readSlices.release(slices);
+                    completions.add(index);
+                }
+            });
+            running.put(indexName, index);
+            log.info("开始同步索引 {} - 存储大小: {}MB, 读取切片: {}, 剩余切片预算: {}",
+                indexName, detail.getStoreSizeBytes() / 1024 / 1024, slices, readSlices.availablePermits());
+        } catch (RejectedExecutionException e) {
+            readSlices.release(slices);
+            index.error = e;
+            finish(index, result);
+        }
+    }
+
+    /**
+     * 索引完成后计入同步结果
+     */
+    private void finish(RunningIndex index, IndexSyncResult result) {
+        IndexSyncResult.IndexSyncDetail detail = index.finalDetail;
+        if (detail == null) {
+            detail = index.detail;
+            detail.setStatus("FAILED");
+            detail.setErrorMessage(index.error != null ? index.error.getMessage() : "索引同步未返回结果");
+            detail.setEndTime(new Date());
+        }
+        detail.setStoreSizeBytes(index.detail.getStoreSizeBytes());
+        detail.setReadSlices(index.slices);
+        detail.setProcessedCount(detail.getSuccessCount() + detail.getFailedCount());
+        result.addIndexDetail(detail.getIndexName(), detail);
+
+        if ("FAILED".equals(detail.getStatus())) {
+            result.addError("索引 " + detail.getIndexName() + " 同步失败: " + detail.getErrorMessage());
+        }
+        log.info("索引 {} 同步结束 - 状态: {}, 文档数: {}, 已完成索引: {}",
+            detail.getIndexName(), detail.getStatus(), detail.getSuccessCount(), result.getTotalIndices());
+    }
+
+    /**
+     * 从迁移监控汇总进行中索引的进度
+     */
+    private void refreshProgress(Map<String, RunningIndex> running, IndexSyncResult result) {
+        for (RunningIndex index : running.values()) {
+            MigrationMonitor.TaskMetrics metrics = migrationMonitor.getTaskMetrics(index.taskId);
+            if (metrics == null) {
+                continue;
+            }
+            IndexSyncResult.IndexSyncDetail detail = index.detail;
+            detail.setDocumentCount(metrics.getTotalDocuments());
+            detail.setProcessedCount(metrics.getProcessedDocuments());
+            detail.setSuccessCount(metrics.getSuccessDocuments());
+            detail.setFailedCount(metrics.getFailedDocuments());
+            result.updateIndexProgress(detail);
+        }
+    }
+
+    /**
+     * 获取调度器统计信息
+     */
+    public SchedulerStats getStats() {
+        SchedulerStats stats = new SchedulerStats();
+        stats.setMaxReadSlices(maxReadSlices);
+        stats.setAvailableReadSlices(readSlices.availablePermits());
+        stats.setBytesPerSlice(bytesPerSlice);
+        return stats;
+    }
+
+    /**
+     * 同步单个索引的任务
+     */
+    @FunctionalInterface
+    public interface IndexSyncTask {
+
+        /**
+         * @param readSlices 分配给该索引的读取切片数
+         * @param taskId 该索引的迁移任务ID，迁移进度按此ID上报
+         */
+        IndexSyncResult.IndexSyncDetail sync(String indexName, int readSlices, String taskId) throws Exception;
+    }
+
+    /**
+     * 进行中的索引
+     */
+    private static final class RunningIndex {
+        private final IndexSyncResult.IndexSyncDetail detail;
+        private final int slices;
+        private final String taskId;
+        private volatile Future<?> future;
+        private volatile IndexSyncResult.IndexSyncDetail finalDetail;
+        private volatile Exception error;
+
+        private RunningIndex(IndexSyncResult.IndexSyncDetail detail, int slices, String taskId) {
+            this.detail = detail;
+            this.slices = slices;
+            this.taskId = taskId;
+        }
+    }
+
+    /**
+     * 调度器统计信息
+     */
+    @Data
+    public static class SchedulerStats {
+        private int maxReadSlices;
+        private int availableReadSlices;
+        private long bytesPerSlice;
+    }
+}
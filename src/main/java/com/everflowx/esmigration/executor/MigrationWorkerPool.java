@@ -0,0 +1,365 @@
+package com.everflowx.esmigration.executor;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 迁移工作线程池 - 所有迁移引擎共享的有界线程资源
+ *
+ * 各引擎的批次任务、长时间运行的阶段与延迟任务都在这里执行，线程按名称前缀区分用途：
+ * 1. 工作线程（Migration-Worker-N）：固定数量，执行批次处理等短任务。
+ *    任务按迁移任务分道排队，每个任务同时占用的工作线程不超过公平份额，
+ *    一个大任务不会挤占其他任务的处理能力
+ * 2. 阶段线程（Migration-Stage-N）：执行读取、转换、写入循环与切片等长时间运行的阶段，
+ *    线程复用、数量有上限，运行期间以阶段名命名便于排查
+ * 3. 调度线程（Migration-Scheduler）：执行延迟任务，如批量写入重试
+ *
+ * 长时间阻塞的阶段不能提交到工作线程，否则会占满工作线程导致批次任务饥饿。
+ * 项目以 Java 8 为编译目标，暂不使用虚拟线程。
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class MigrationWorkerPool {
+
+    @Value("${es.migration.worker-pool.worker-threads:0}") // 0表示CPU核数的2倍
+    private int workerThreads;
+
+    @Value("${es.migration.worker-pool.max-stage-threads:256}")
+    private int maxStageThreads;
+
+    @Value("${es.migration.worker-pool.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor workerExecutor;
+    private ThreadPoolExecutor stageExecutor;
+    private ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * 按迁移任务分道的待执行任务，按提交顺序遍历
+     */
+    private final Map<String, TaskLane> lanes = new LinkedHashMap<>();
+
+    private final AtomicLong rejectedTasks = new AtomicLong(0);
+    private final AtomicLong completedStages = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        int workers = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors() * 2;
+        workerExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), namedThreadFactory("Migration-Worker-"));
+        stageExecutor = new ThreadPoolExecutor(0, Math.max(maxStageThreads, 1), 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), namedThreadFactory("Migration-Stage-"));
+        scheduler = new ScheduledThreadPoolExecutor(1, namedThreadFactory("Migration-Scheduler-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+
+        log.info("迁移工作线程池初始化 - 工作线程: {}, 阶段线程上限: {}, 排队上限: {}",
+            workers, maxStageThreads, queueCapacity);
+    }
+
+    /**
+     * 提交批次处理等短任务，同一迁移任务的任务按公平份额占用工作线程
+     *
+     * @param taskId 迁移任务标识，用于分道与统计
+     * @throws RejectedExecutionException 线程池已关闭或排队任务数达到上限
+     */
+    public Future<?> submit(String taskId, Runnable task) {
+        FutureTask<Void> future = new FutureTask<>(task, null);
+        synchronized (lanes) {
+            if (workerExecutor.isShutdown()) {
+                rejectedTasks.incrementAndGet();
+                throw new RejectedExecutionException("迁移工作线程池已关闭");
+            }
+            if (getQueuedCountLocked() >= queueCapacity) {
+                rejectedTasks.incrementAndGet();
+                throw new RejectedExecutionException("迁移工作线程池排队任务已满: " + queueCapacity);
+            }
+            TaskLane lane = lanes.computeIfAbsent(taskId, TaskLane::new);
+            lane.pending.add(future);
+            lane.submitted++;
+            dispatchLocked();
+        }
+        return future;
+    }
+
+    /**
+     * 在阶段线程中运行长时间任务，运行期间线程以阶段名命名
+     *
+     * @throws RejectedExecutionException 阶段线程数达到上限
+     */
+    public Future<?> startStage(String name, Runnable stage) {
+        FutureTask<Void> future = new FutureTask<>(() -> runNamed(name, stage), null);
+        try {
+            stageExecutor.execute(future);
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.incrementAndGet();
+            throw new RejectedExecutionException("阶段线程数已达上限 " + maxStageThreads + "，无法启动: " + name, e);
+        }
+        return future;
+    }
+
+    /**
+     * 以阶段线程执行的 Executor，便于与 CompletableFuture 配合使用
+     */
+    public Executor stageExecutor(String name) {
+        return command -> startStage(name, command);
+    }
+
+    /**
+     * 以阶段线程执行、同时最多运行 parallelism 个任务的 Executor，超出的任务排队等待
+     */
+    public Executor stageExecutor(String name, int parallelism) {
+        return new BoundedStageExecutor(name, Math.max(parallelism, 1));
+    }
+
+    /**
+     * 延迟执行任务
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return scheduler.schedule(task, delay, unit);
+    }
+
+    /**
+     * 把排队任务按轮转顺序派发到工作线程，每个任务同时运行数不超过公平份额
+     */
+    private void dispatchLocked() {
+        boolean dispatched = true;
+        while (dispatched && workerExecutor.getQueue().isEmpty()) {
+            dispatched = false;
+            int share = fairShareLocked();
+            for (TaskLane lane : lanes.values()) {
+                if (lane.pending.isEmpty() || lane.running >= share) {
+                    continue;
+                }
+                FutureTask<Void> next = lane.pending.poll();
+                lane.running++;
+                workerExecutor.execute(() -> runInLane(lane, next));
+                dispatched = true;
+                if (!workerExecutor.getQueue().isEmpty()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void runInLane(TaskLane lane, FutureTask<Void> task) {
+        try {
+            task.run();
+        } finally {
+            synchronized (lanes) {
+                lane.running--;
+                lane.completed++;
+                if (lane.running == 0 && lane.pending.isEmpty()) {
+                    lanes.remove(lane.taskId);
+                }
+                dispatchLocked();
+            }
+        }
+    }
+
+    /**
+     * 公平份额：工作线程数按有任务的分道平均分配，至少为 1
+     */
+    private int fairShareLocked() {
+        int activeLanes = 0;
+        for (TaskLane lane : lanes.values()) {
+            if (lane.running > 0 || !lane.pending.isEmpty()) {
+                activeLanes++;
+            }
+        }
+        return Math.max(workerExecutor.getMaximumPoolSize() / Math.max(activeLanes, 1), 1);
+    }
+
+    private int getQueuedCountLocked() {
+        int queued = workerExecutor.getQueue().size();
+        for (TaskLane lane : lanes.values()) {
+            queued += lane.pending.size();
+        }
+        return queued;
+    }
+
+    private void runNamed(String name, Runnable stage) {
+        Thread thread = Thread.currentThread();
+        String originalName = thread.getName();
+        thread.setName(originalName + "-" + name);
+        try {
+            stage.run();
+        } finally {
+            thread.setName(originalName);
+            completedStages.incrementAndGet();
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 获取线程池统计信息
+     */
+    public WorkerPoolStats getStats() {
+        WorkerPoolStats stats = new WorkerPoolStats();
+        stats.setWorkerThreads(workerExecutor.getPoolSize());
+        stats.setActiveWorkers(workerExecutor.getActiveCount());
+        stats.setCompletedTasks(workerExecutor.getCompletedTaskCount());
+        stats.setStageThreads(stageExecutor.getPoolSize());
+        stats.setActiveStages(stageExecutor.getActiveCount());
+        stats.setLargestStageThreads(stageExecutor.getLargestPoolSize());
+        stats.setCompletedStages(completedStages.get());
+        stats.setScheduledTasks(scheduler.getQueue().size());
+        stats.setRejectedTasks(rejectedTasks.get());
+        synchronized (lanes) {
+            stats.setQueueDepth(getQueuedCountLocked());
+            for (TaskLane lane : lanes.values()) {
+                LaneStats laneStats = new LaneStats();
+                laneStats.setQueued(lane.pending.size());
+                laneStats.setRunning(lane.running);
+                laneStats.setSubmitted(lane.submitted);
+                laneStats.setCompleted(lane.completed);
+                stats.getTasks().put(lane.taskId, laneStats);
+            }
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("关闭迁移工作线程池");
+        scheduler.shutdownNow();
+        workerExecutor.shutdownNow();
+        stageExecutor.shutdownNow();
+    }
+
+    /**
+     * 单个迁移任务的分道
+     */
+    private static final class TaskLane {
+        private final String taskId;
+        private final Queue<FutureTask<Void>> pending = new ArrayDeque<>();
+        private int running;
+        private long submitted;
+        private long completed;
+
+        private TaskLane(String taskId) {
+            this.taskId = taskId;
+        }
+    }
+
+    /**
+     * 限制并行数的阶段执行器
+     *
+     * 每个阶段线程执行完一个任务后直接从队列领取下一个，排队的任务不需要再申请阶段线程，不会因阶段线程不足被丢弃。
+     * 只有新开阶段线程被拒绝时才会失败：仍有运行中的阶段线程时任务放回队首由其领取，
+     * 没有时异常抛给提交方（CompletableFuture.runAsync 等直接抛出），任务不会悄悄丢失。
+     */
+    private final class BoundedStageExecutor implements Executor {
+        private final String name;
+        private final int parallelism;
+        private final Deque<Runnable> pending = new ArrayDeque<>();
+        private int running;
+
+        private BoundedStageExecutor(String name, int parallelism) {
+            this.name = name;
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            if (running >= parallelism) {
+                pending.add(command);
+                return;
+            }
+            running++;
+            try {
+                startStage(name, () -> runLoop(command));
+            } catch (RejectedExecutionException e) {
+                running--;
+                if (running == 0) {
+                    throw e;
+                }
+                log.warn("阶段线程不足，任务排队等待 {} 的运行中阶段领取: {}", name, e.getMessage());
+                pending.addFirst(command);
+            }
+        }
+
+        private void runLoop(Runnable first) {
+            for (Runnable command = first; command != null; command = next()) {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    log.error("阶段任务执行失败: {}", name, e);
+                }
+            }
+        }
+
+        /**
+         * 领取下一个排队任务，队列为空时释放并行名额并返回 null
+         */
+        private synchronized Runnable next() {
+            Runnable command = pending.poll();
+            if (command == null) {
+                running--;
+            }
+            return command;
+        }
+    }
+
+    /**
+     * 线程池统计信息
+     */
+    @Data
+    public static class WorkerPoolStats {
+        private int workerThreads;
+        private int activeWorkers;
+        private int queueDepth;
+        private long completedTasks;
+        private int stageThreads;
+        private int activeStages;
+        private int largestStageThreads;
+        private long completedStages;
+        private int scheduledTasks;
+        private long rejectedTasks;
+        private Map<String, LaneStats> tasks = new HashMap<>();
+    }
+
+    /**
+     * 单个迁移任务的排队统计
+     */
+    @Data
+    public static class LaneStats {
+        private int queued;
+        private int running;
+        private long submitted;
+        private long completed;
+    }
+}
@@ -0,0 +1,490 @@
+package com.everflowx.esmigration.metadata;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.core.CountRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.indices.GetIndexResponse;
+import org.elasticsearch.cluster.metadata.AliasMetadata;
+import org.elasticsearch.cluster.metadata.MappingMetadata;
+import org.elasticsearch.common.settings.Settings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 索引元数据缓存 - 迁移前检查与策略选择共用的索引信息
+ *
+ * 按集群客户端分别缓存以下信息，条目超过有效期后重新加载：
+ * 1. 索引目录：一次 _cat/indices 请求取得全部索引的状态与估算文档数
+ * 2. 精确文档数：使用 _count API，比 trackTotalHits 的 match_all 搜索开销小
+ * 3. 映射与设置：多个索引合并为一次 GetIndex 请求批量加载
+ * 4. 分片分布：_cat/shards 给出的各分片副本所在节点
+ *
+ * 创建或删除索引后需调用 {@link #invalidate(RestHighLevelClient, String)}，
+ * 写入大量文档后如需最新计数同样应先失效对应索引。
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class IndexMetadataCache {
+
+    @Value("${es.migration.metadata-cache.ttl-ms:300000}") // 5分钟
+    private long ttlMs;
+
+    @Value("${es.migration.metadata-cache.count-ttl-ms:30000}") // 30秒
+    private long countTtlMs;
+
+    @Value("${es.migration.metadata-cache.batch-size:100}")
+    private int batchSize;
+
+    private final Map<RestHighLevelClient, ClusterMetadata> clusters = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong catalogLoads = new AtomicLong(0);
+    private final AtomicLong countRequests = new AtomicLong(0);
+    private final AtomicLong descriptorRequests = new AtomicLong(0);
+    private final AtomicLong shardRequests = new AtomicLong(0);
+
+    /**
+     * 获取集群的索引目录（索引名 -> 目录信息），一次 _cat/indices 请求加载全部索引
+     */
+    public Map<String, IndexCatalogEntry> getCatalog(RestHighLevelClient client) throws IOException {
+        ClusterMetadata cluster = cluster(client);
+        Cached<Map<String, IndexCatalogEntry>> catalog = cluster.catalog;
+        if (catalog != null && !catalog.isExpired(ttlMs)) {
+            hits.incrementAndGet();
+            return catalog.value;
+        }
+        misses.incrementAndGet();
+        Map<String, IndexCatalogEntry> loaded = loadCatalog(client);
+        cluster.catalog = new Cached<>(loaded);
+        return loaded;
+    }
+
+    /**
+     * 获取集群中的全部索引名
+     */
+    public List<String> getIndexNames(RestHighLevelClient client) throws IOException {
+        return new ArrayList<>(getCatalog(client).keySet());
+    }
+
+    /**
+     * 检查索引是否存在，已加载的目录中存在时直接返回，否则请求集群确认（别名也视为存在）
+     */
+    public boolean exists(RestHighLevelClient client, String indexName) throws IOException {
+        Cached<Map<String, IndexCatalogEntry>> catalog = cluster(client).catalog;
+        if (catalog != null && !catalog.isExpired(ttlMs) && catalog.value.containsKey(indexName)) {
+            hits.incrementAndGet();
+            return true;
+        }
+        misses.incrementAndGet();
+        return client.indices().exists(new GetIndexRequest(indexName), RequestOptions.DEFAULT);
+    }
+
+    /**
+     * 获取精确文档数，使用 _count API
+     */
+    public long getDocCount(RestHighLevelClient client, String indexName) throws IOException {
+        return getDocCount(client, indexName, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * 获取精确文档数，使用指定的请求选项（大索引计数可使用更长的超时）
+     */
+    public long getDocCount(RestHighLevelClient client, String indexName, RequestOptions options) throws IOException {
+        ClusterMetadata cluster = cluster(client);
+        Cached<Long> cached = cluster.counts.get(indexName);
+        if (cached != null && !cached.isExpired(countTtlMs)) {
+            hits.incrementAndGet();
+            return cached.value;
+        }
+        misses.incrementAndGet();
+        countRequests.incrementAndGet();
+        long count = client.count(new CountRequest(indexName), options).getCount();
+        cluster.counts.put(indexName, new Cached<>(count));
+        return count;
+    }
+
+    /**
+     * 获取估算文档数：目录已加载时取 _cat/indices 的 docs.count（含嵌套文档），否则取精确文档数
+     */
+    public long getEstimatedDocCount(RestHighLevelClient client, String indexName) throws IOException {
+        Cached<Map<String, IndexCatalogEntry>> catalog = cluster(client).catalog;
+        if (catalog != null && !catalog.isExpired(ttlMs)) {
+            IndexCatalogEntry entry = catalog.value.get(indexName);
+            if (entry != null && entry.getDocsCount() >= 0) {
+                hits.incrementAndGet();
+                return entry.getDocsCount();
+            }
+        }
+        return getDocCount(client, indexName);
+    }
+
+    /**
+     * 获取索引的映射与设置，indexName 为别名时返回其写索引（没有时为名称最小的具体索引）的元数据
+     */
+    public IndexDescriptor getDescriptor(RestHighLevelClient client, String indexName) throws IOException {
+        ClusterMetadata cluster = cluster(client);
+        Cached<IndexDescriptor> cached = cluster.descriptors.get(indexName);
+        if (cached != null && !cached.isExpired(ttlMs)) {
+            hits.incrementAndGet();
+            return cached.value;
+        }
+        misses.incrementAndGet();
+        loadDescriptors(client, cluster, Collections.singletonList(indexName));
+        cached = cluster.descriptors.get(indexName);
+        if (cached == null) {
+            throw new IOException("未获取到索引元数据: " + indexName);
+        }
+        return cached.value;
+    }
+
+    /**
+     * 批量预加载多个索引的映射与设置，已缓存且未过期的索引跳过
+     */
+    public void preload(RestHighLevelClient client, Collection<String> indexNames) throws IOException {
+        ClusterMetadata cluster = cluster(client);
+        List<String> missing = new ArrayList<>();
+        for (String indexName : indexNames) {
+            Cached<IndexDescriptor> cached = cluster.descriptors.get(indexName);
+            if (cached == null || cached.isExpired(ttlMs)) {
+                missing.add(indexName);
+            }
+        }
+        int chunk = Math.max(batchSize, 1);
+        for (int from = 0; from < missing.size(); from += chunk) {
+            loadDescriptors(client, cluster, missing.subList(from, Math.min(from + chunk, missing.size())));
+        }
+        if (!missing.isEmpty()) {
+            log.info("预加载索引元数据完成 - 索引数: {}, 请求数: {}",
+                missing.size(), (missing.size() + chunk - 1) / chunk);
+        }
+    }
+
+    /**
+     * 获取索引各分片副本的分布（含主分片与副本，所有状态）
+     */
+    public List<ShardCopy> getShards(RestHighLevelClient client, String indexName) throws IOException {
+        ClusterMetadata cluster = cluster(client);
+        Cached<List<ShardCopy>> cached = cluster.shards.get(indexName);
+        if (cached != null && !cached.isExpired(ttlMs)) {
+            hits.incrementAndGet();
+            return cached.value;
+        }
+        misses.incrementAndGet();
+        List<ShardCopy> shards = loadShards(client, indexName);
+        cluster.shards.put(indexName, new Cached<>(shards));
+        return shards;
+    }
+
+    /**
+     * 检查索引映射中是否定义了指定字段，支持以点分隔的对象字段与多字段
+     */
+    public boolean hasField(RestHighLevelClient client, String indexName, String fieldName) throws IOException {
+        if (fieldName == null || fieldName.isEmpty()) {
+            return false;
+        }
+        return findField(getDescriptor(client, indexName).getMapping(), fieldName) != null;
+    }
+
+    /**
+     * 失效单个索引的全部缓存，并使索引目录重新加载
+     */
+    public void invalidate(RestHighLevelClient client, String indexName) {
+        ClusterMetadata cluster = clusters.get(client);
+        if (cluster == null) {
+            return;
+        }
+        cluster.counts.remove(indexName);
+        cluster.descriptors.remove(indexName);
+        cluster.shards.remove(indexName);
+        cluster.catalog = null;
+        log.debug("索引元数据缓存已失效: {}", indexName);
+    }
+
+    /**
+     * 仅失效索引的文档数，用于写入完成后重新计数
+     */
+    public void invalidateCount(RestHighLevelClient client, String indexName) {
+        ClusterMetadata cluster = clusters.get(client);
+        if (cluster != null) {
+            cluster.counts.remove(indexName);
+        }
+    }
+
+    /**
+     * 清空全部缓存
+     */
+    public void invalidateAll() {
+        clusters.clear();
+    }
+
+    private ClusterMetadata cluster(RestHighLevelClient client) {
+        return clusters.computeIfAbsent(client, c -> new ClusterMetadata());
+    }
+
+    private Map<String, IndexCatalogEntry> loadCatalog(RestHighLevelClient client) throws IOException {
+        Request request = new Request("GET", "/_cat/indices");
+        request.addParameter("format", "json");
+        request.addParameter("bytes", "b");
+        request.addParameter("h", "index,health,status,pri,rep,docs.count,store.size");
+        long startTime = System.currentTimeMillis();
+        Response response = client.getLowLevelClient().performRequest(request);
+        JSONArray rows = JSON.parseArray(EntityUtils.toString(response.getEntity()));
+        catalogLoads.incrementAndGet();
+
+        Map<String, IndexCatalogEntry> catalog = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            JSONObject row = rows.getJSONObject(i);
+            IndexCatalogEntry entry = new IndexCatalogEntry();
+            entry.setIndex(row.getString("index"));
+            entry.setHealth(row.getString("health"));
+            entry.setStatus(row.getString("status"));
+            entry.setPrimaryShards(parseLong(row.getString("pri")));
+            entry.setReplicas(parseLong(row.getString("rep")));
+            entry.setDocsCount(parseLong(row.getString("docs.count")));
+            entry.setStoreSizeBytes(parseLong(row.getString("store.size")));
+            catalog.put(entry.getIndex(), entry);
+        }
+        log.info("加载索引目录完成 - 索引数: {}, 耗时: {}ms", catalog.size(), System.currentTimeMillis() - startTime);
+        return Collections.unmodifiableMap(catalog);
+    }
+
+    private List<ShardCopy> loadShards(RestHighLevelClient client, String indexName) throws IOException {
+        Request request = new Request("GET", "/_cat/shards/" + indexName);
+        request.addParameter("format", "json");
+        request.addParameter("h", "index,shard,prirep,state,docs,node,id");
+        shardRequests.incrementAndGet();
+        Response response = client.getLowLevelClient().performRequest(request);
+        JSONArray rows = JSON.parseArray(EntityUtils.toString(response.getEntity()));
+
+        List<ShardCopy> shards = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            JSONObject row = rows.getJSONObject(i);
+            ShardCopy shard = new ShardCopy();
+            shard.setIndex(row.getString("index"));
+            shard.setShard((int) parseLong(row.getString("shard")));
+            shard.setPrimary("p".equals(row.getString("prirep")));
+            shard.setState(row.getString("state"));
+            shard.setDocs(parseLong(row.getString("docs")));
+            shard.setNode(row.getString("node"));
+            shard.setNodeId(row.getString("id"));
+            shards.add(shard);
+        }
+        return Collections.unmodifiableList(shards);
+    }
+
+    private void loadDescriptors(RestHighLevelClient client, ClusterMetadata cluster, List<String> indexNames) throws IOException {
+        GetIndexRequest request = new GetIndexRequest(indexNames.toArray(new String[0]));
+        descriptorRequests.incrementAndGet();
+        GetIndexResponse response = client.indices().get(request, RequestOptions.DEFAULT);
+        for (String indexName : response.getIndices()) {
+            IndexDescriptor descriptor = new IndexDescriptor();
+            descriptor.setIndex(indexName);
+            MappingMetadata mapping = response.getMappings().get(indexName);
+            descriptor.setMapping(mapping != null ? mapping.sourceAsMap() : Collections.emptyMap());
+            Settings settings = response.getSettings().get(indexName);
+            descriptor.setSettings(settings != null ? settings : Settings.EMPTY);
+            cluster.descriptors.put(indexName, new Cached<>(descriptor));
+        }
+        // 响应按具体索引组织，请求的是别名或通配符时解析到具体索引后以请求名再缓存一份
+        for (String requested : indexNames) {
+            if (response.getMappings().containsKey(requested)) {
+                continue;
+            }
+            String concrete = resolveConcreteIndex(response, requested, indexNames.size() == 1);
+            Cached<IndexDescriptor> descriptor = concrete != null ? cluster.descriptors.get(concrete) : null;
+            if (descriptor != null) {
+                cluster.descriptors.put(requested, descriptor);
+            }
+        }
+    }
+
+    /**
+     * 把别名或通配符解析为响应中的一个具体索引：优先别名的写索引，否则取名称排序后的第一个
+     *
+     * @param soleRequest 本次只请求了这一个名称，响应中的全部索引都由它匹配
+     */
+    private static String resolveConcreteIndex(GetIndexResponse response, String requested, boolean soleRequest) {
+        List<String> candidates = new ArrayList<>();
+        String writeIndex = null;
+        for (Map.Entry<String, List<AliasMetadata>> entry : response.getAliases().entrySet()) {
+            for (AliasMetadata alias : entry.getValue()) {
+                if (requested.equals(alias.alias())) {
+                    candidates.add(entry.getKey());
+                    if (Boolean.TRUE.equals(alias.writeIndex())) {
+                        writeIndex = entry.getKey();
+                    }
+                }
+            }
+        }
+        if (candidates.isEmpty() && soleRequest) {
+            Collections.addAll(candidates, response.getIndices());
+        }
+        if (writeIndex != null || candidates.isEmpty()) {
+            return writeIndex;
+        }
+        Collections.sort(candidates);
+        if (candidates.size() > 1) {
+            log.debug("{} 对应多个索引 {}，使用 {} 的元数据", requested, candidates, candidates.get(0));
+        }
+        return candidates.get(0);
+    }
+
+    /**
+     * 在映射中按路径查找字段定义
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> findField(Map<String, Object> mapping, String fieldName) {
+        Map<String, Object> current = mapping;
+        for (String part : fieldName.split("\\.")) {
+            Object children = current.get("properties");
+            if (!(children instanceof Map) || !((Map<String, Object>) children).containsKey(part)) {
+                children = current.get("fields");
+            }
+            if (!(children instanceof Map)) {
+                return null;
+            }
+            Object field = ((Map<String, Object>) children).get(part);
+            if (!(field instanceof Map)) {
+                return null;
+            }
+            current = (Map<String, Object>) field;
+        }
+        return current;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public CacheStats getStats() {
+        CacheStats stats = new CacheStats();
+        stats.setClusters(clusters.size());
+        for (ClusterMetadata cluster : clusters.values()) {
+            stats.setCachedCounts(stats.getCachedCounts() + cluster.counts.size());
+            stats.setCachedDescriptors(stats.getCachedDescriptors() + cluster.descriptors.size());
+        }
+        stats.setHits(hits.get());
+        stats.setMisses(misses.get());
+        stats.setCatalogLoads(catalogLoads.get());
+        stats.setCountRequests(countRequests.get());
+        stats.setDescriptorRequests(descriptorRequests.get());
+        stats.setShardRequests(shardRequests.get());
+        return stats;
+    }
+
+    /**
+     * 单个集群的缓存
+     */
+    private static final class ClusterMetadata {
+        private volatile Cached<Map<String, IndexCatalogEntry>> catalog;
+        private final Map<String, Cached<Long>> counts = new ConcurrentHashMap<>();
+        private final Map<String, Cached<IndexDescriptor>> descriptors = new ConcurrentHashMap<>();
+        private final Map<String, Cached<List<ShardCopy>>> shards = new ConcurrentHashMap<>();
+    }
+
+    private static final class Cached<T> {
+        private final T value;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Cached(T value) {
+            this.value = value;
+        }
+
+        private boolean isExpired(long ttl) {
+            return System.currentTimeMillis() - loadedAt > ttl;
+        }
+    }
+
+    /**
+     * _cat/indices 中的索引目录信息，数值缺失时为 -1
+     */
+    @Data
+    public static class IndexCatalogEntry {
+        private String index;
+        private String health;
+        private String status;
+        private long primaryShards;
+        private long replicas;
+        private long docsCount;
+        private long storeSizeBytes;
+    }
+
+    /**
+     * _cat/shards 中的分片副本信息，数值缺失时为 -1
+     */
+    @Data
+    public static class ShardCopy {
+        private String index;
+        private int shard;
+        private boolean primary;
+        private String state;
+        private long docs;
+        private String node;
+        private String nodeId;
+
+        public boolean isStarted() {
+            return "STARTED".equals(state) && nodeId != null;
+        }
+    }
+
+    /**
+     * 索引的映射与设置
+     */
+    @Data
+    public static class IndexDescriptor {
+        private String index;
+        /**
+         * 映射定义，即 {"properties": {...}} 部分
+         */
+        private Map<String, Object> mapping;
+        private Settings settings;
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    @Data
+    public static class CacheStats {
+        private int clusters;
+        private int cachedCounts;
+        private int cachedDescriptors;
+        private long hits;
+        private long misses;
+        private long catalogLoads;
+        private long countRequests;
+        private long descriptorRequests;
+        private long shardRequests;
+    }
+}
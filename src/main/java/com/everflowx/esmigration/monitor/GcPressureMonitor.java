@@ -0,0 +1,223 @@
+package com.everflowx.esmigration.monitor;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GC 压力监控器 - 所有限流逻辑共用的内存压力信号
+ *
+ * 订阅 GarbageCollectorMXBean 的 GC 完成通知，统计：
+ * 1. GC 时间占比：最近一个统计窗口内 GC 耗时占墙钟时间的比例
+ * 2. GC 后老年代占用：每次 GC 结束时老年代已用 / 最大值，反映真实存活数据量
+ *
+ * 堆已用比例包含尚未回收的垃圾，在 G1 等收集器下经常接近上限却并无风险，
+ * 据此触发 System.gc() 只会带来全堆停顿；GC 后占用与 GC 时间占比才表示真正的内存压力。
+ * 各限流逻辑按 {@link #getPressure()} 调节节奏，不再主动触发 GC。
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class GcPressureMonitor {
+
+    /**
+     * GC 时间占比统计窗口
+     */
+    private static final long WINDOW_MS = 60_000;
+
+    /**
+     * GC 时间占比达到该值时视为满压力
+     */
+    private static final double MAX_GC_TIME_RATIO = 0.25;
+
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::handleNotification;
+
+    /**
+     * 窗口内的 GC 事件：{结束时间, 耗时}
+     */
+    private final Deque<long[]> gcEvents = new ArrayDeque<>();
+    private final long startTime = System.currentTimeMillis();
+
+    private volatile double oldGenOccupancy;
+    private volatile long totalGcCount;
+    private volatile long totalGcTimeMs;
+    private volatile String lastGcName;
+    private volatile long lastGcDurationMs;
+
+    @PostConstruct
+    public void init() {
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gcBean;
+                emitter.addNotificationListener(listener, null, null);
+                emitters.add(emitter);
+            }
+        }
+        oldGenOccupancy = readOldGenCollectionUsage();
+        log.info("GC压力监控启动 - 监听收集器: {}, 当前GC后老年代占用: {}%",
+            emitters.size(), String.format("%.1f", oldGenOccupancy * 100));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException e) {
+                log.debug("GC通知监听器已移除");
+            }
+        }
+        emitters.clear();
+    }
+
+    private void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long duration = info.getGcInfo().getDuration();
+        long now = System.currentTimeMillis();
+
+        synchronized (gcEvents) {
+            gcEvents.addLast(new long[]{now, duration});
+            expireEvents(now);
+        }
+        totalGcCount++;
+        totalGcTimeMs += duration;
+        lastGcName = info.getGcName();
+        lastGcDurationMs = duration;
+
+        Double occupancy = oldGenOccupancy(info.getGcInfo().getMemoryUsageAfterGc());
+        if (occupancy != null) {
+            oldGenOccupancy = occupancy;
+        }
+    }
+
+    /**
+     * 综合内存压力（0.0 - 1.0）：GC 后老年代占用与 GC 时间占比折算值中的较大者
+     */
+    public double getPressure() {
+        return Math.max(oldGenOccupancy, Math.min(getGcTimeRatio() / MAX_GC_TIME_RATIO, 1.0));
+    }
+
+    /**
+     * 最近一个窗口内 GC 耗时占墙钟时间的比例
+     */
+    public double getGcTimeRatio() {
+        long now = System.currentTimeMillis();
+        long window = Math.min(WINDOW_MS, Math.max(now - startTime, 1));
+        long gcTime = 0;
+        synchronized (gcEvents) {
+            expireEvents(now);
+            for (long[] event : gcEvents) {
+                gcTime += event[1];
+            }
+        }
+        return Math.min((double) gcTime / window, 1.0);
+    }
+
+    /**
+     * 最近一次 GC 后的老年代占用比例
+     */
+    public double getOldGenOccupancy() {
+        return oldGenOccupancy;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public GcPressureStats getStats() {
+        GcPressureStats stats = new GcPressureStats();
+        stats.setPressure(getPressure());
+        stats.setGcTimeRatio(getGcTimeRatio());
+        stats.setOldGenOccupancy(oldGenOccupancy);
+        stats.setTotalGcCount(totalGcCount);
+        stats.setTotalGcTimeMs(totalGcTimeMs);
+        stats.setLastGcName(lastGcName);
+        stats.setLastGcDurationMs(lastGcDurationMs);
+        return stats;
+    }
+
+    private void expireEvents(long now) {
+        while (!gcEvents.isEmpty() && now - gcEvents.peekFirst()[0] > WINDOW_MS) {
+            gcEvents.removeFirst();
+        }
+    }
+
+    /**
+     * 从 GC 后各内存池用量中计算老年代占用，本次 GC 不涉及老年代信息时返回 null
+     */
+    private static Double oldGenOccupancy(Map<String, MemoryUsage> usageAfterGc) {
+        for (Map.Entry<String, MemoryUsage> entry : usageAfterGc.entrySet()) {
+            if (isOldGen(entry.getKey())) {
+                return occupancy(entry.getValue());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 启动时尚未收到 GC 通知，使用内存池记录的上次 GC 后用量
+     */
+    private static double readOldGenCollectionUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && isOldGen(pool.getName()) && pool.getCollectionUsage() != null) {
+                return occupancy(pool.getCollectionUsage());
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isOldGen(String poolName) {
+        return poolName.contains("Old Gen") || poolName.contains("Tenured");
+    }
+
+    private static double occupancy(MemoryUsage usage) {
+        long max = usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+        return max > 0 ? (double) usage.getUsed() / max : 0;
+    }
+
+    /**
+     * GC 压力统计信息
+     */
+    @Data
+    public static class GcPressureStats {
+        private double pressure;
+        private double gcTimeRatio;
+        private double oldGenOccupancy;
+        private long totalGcCount;
+        private long totalGcTimeMs;
+        private String lastGcName;
+        private long lastGcDurationMs;
+
+        @Override
+        public String toString() {
+            return String.format("GcPressureStats{压力=%.1f%%, GC时间占比=%.2f%%, GC后老年代占用=%.1f%%, " +
+                    "GC次数=%d, GC总耗时=%dms, 最近GC=%s(%dms)}",
+                pressure * 100, gcTimeRatio * 100, oldGenOccupancy * 100,
+                totalGcCount, totalGcTimeMs, lastGcName, lastGcDurationMs);
+        }
+    }
+}
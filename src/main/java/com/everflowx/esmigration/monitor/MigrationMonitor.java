@@ -25,6 +25,12 @@ public class MigrationMonitor {
     private final LongAdder totalDocumentsSucceeded = new LongAdder();
     private final LongAdder totalDocumentsFailed = new LongAdder();
     private final AtomicLong globalStartTime = new AtomicLong(0);
+
+    // ES请求/响应体字节数（压缩客户端记录）：解压后字节数与实际传输字节数
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder requestWireBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder responseWireBytes = new LongAdder();
     
     /**
      * 开始监控任务
@@ -93,6 +99,63 @@ public class MigrationMonitor {
         }
     }
     
+    /**
+     * 记录一次批量写入
+     * 
+     * @param bytes 批量请求估算字节数
+     * @param docs 批量请求文档数
+     * @param latencyMs 批量请求耗时（毫秒）
+     */
+    public void recordBulk(String taskId, long bytes, int docs, long latencyMs) {
+        TaskMetrics metrics = taskMetricsMap.get(taskId);
+        if (metrics != null) {
+            synchronized (metrics) {
+                metrics.setBulkCount(metrics.getBulkCount() + 1);
+                metrics.setBulkBytes(metrics.getBulkBytes() + bytes);
+                metrics.setBulkDocuments(metrics.getBulkDocuments() + docs);
+                metrics.setBulkLatencyMs(metrics.getBulkLatencyMs() + latencyMs);
+                metrics.setMaxBulkBytes(Math.max(metrics.getMaxBulkBytes(), bytes));
+                metrics.setMaxBulkLatencyMs(Math.max(metrics.getMaxBulkLatencyMs(), latencyMs));
+                metrics.setLastBulkBytes(bytes);
+                metrics.setLastBulkLatencyMs(latencyMs);
+            }
+        }
+    }
+    
+    /**
+     * 记录一次ES请求体的原始字节数与传输字节数
+     */
+    public void recordRequestTraffic(long bytes, long wireBytes) {
+        requestBytes.add(bytes);
+        requestWireBytes.add(wireBytes);
+    }
+
+    /**
+     * 记录一次ES响应体的传输字节数与解压后字节数
+     */
+    public void recordResponseTraffic(long wireBytes, long bytes) {
+        responseWireBytes.add(wireBytes);
+        responseBytes.add(bytes);
+    }
+
+    /**
+     * 获取ES传输字节统计
+     */
+    public WireTraffic getWireTraffic() {
+        WireTraffic traffic = new WireTraffic();
+        traffic.setRequestBytes(requestBytes.sum());
+        traffic.setRequestWireBytes(requestWireBytes.sum());
+        traffic.setResponseBytes(responseBytes.sum());
+        traffic.setResponseWireBytes(responseWireBytes.sum());
+        traffic.setRequestRatio(compressionRatio(traffic.getRequestWireBytes(), traffic.getRequestBytes()));
+        traffic.setResponseRatio(compressionRatio(traffic.getResponseWireBytes(), traffic.getResponseBytes()));
+        return traffic;
+    }
+
+    private static double compressionRatio(long wireBytes, long bytes) {
+        return bytes > 0 ? Math.round((double) wireBytes / bytes * 10000) / 10000.0 : 1.0;
+    }
+
     /**
      * 标记任务完成
      */
@@ -141,6 +204,7 @@ public class MigrationMonitor {
             global.setOverallSpeed(globalSpeed);
             global.setDuration(globalDuration);
         }
+        global.setWireTraffic(getWireTraffic());
         
         return global;
     }
@@ -169,6 +233,12 @@ public class MigrationMonitor {
             log.info("处理速度: 当前 {:.1f} docs/s, 平均 {:.1f} docs/s", 
                 metrics.getCurrentSpeed(), metrics.getAverageSpeed());
             log.info("预计剩余时间: {} 秒", metrics.getEstimatedRemainingTime());
+            if (metrics.getBulkCount() > 0) {
+                log.info("批量写入: {} 次, 平均 {}KB / {} 文档 / {}ms, 最大 {}KB / {}ms", 
+                    metrics.getBulkCount(), metrics.getBulkBytes() / metrics.getBulkCount() / 1024,
+                    metrics.getBulkDocuments() / metrics.getBulkCount(), metrics.getBulkLatencyMs() / metrics.getBulkCount(),
+                    metrics.getMaxBulkBytes() / 1024, metrics.getMaxBulkLatencyMs());
+            }
             log.info("内存使用: {}MB / {}MB ({:.1f}%)", usedMemory, maxMemory, memoryUsage);
             log.info("运行时间: {} 秒", (System.currentTimeMillis() - metrics.getStartTime()) / 1000);
             log.info("==================");
@@ -237,6 +307,14 @@ public class MigrationMonitor {
         private long endTime;
         private long lastUpdateTime;
         private String status;
+        private long bulkCount;
+        private long bulkBytes;
+        private long bulkDocuments;
+        private long bulkLatencyMs;
+        private long maxBulkBytes;
+        private long maxBulkLatencyMs;
+        private long lastBulkBytes;
+        private long lastBulkLatencyMs;
     }
     
     @Data
@@ -250,5 +328,19 @@ public class MigrationMonitor {
         private long totalDocumentsFailed;
         private double overallSpeed; // docs/second
         private long duration; // milliseconds
+        private WireTraffic wireTraffic;
+    }
+
+    /**
+     * ES传输字节统计，ratio 为传输字节数/原始字节数，未压缩时为 1
+     */
+    @Data
+    public static class WireTraffic {
+        private long requestBytes;
+        private long requestWireBytes;
+        private double requestRatio;
+        private long responseBytes;
+        private long responseWireBytes;
+        private double responseRatio;
     }
 }
\ No newline at end of file
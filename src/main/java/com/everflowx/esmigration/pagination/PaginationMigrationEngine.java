@@ -1,22 +1,42 @@
 package com.everflowx.esmigration.pagination;
 
+import com.everflowx.esmigration.domain.MigrationCheckpoint;
 import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
+import com.everflowx.esmigration.metadata.IndexMetadataCache;
+import com.everflowx.esmigration.monitor.GcPressureMonitor;
 import com.everflowx.esmigration.resilience.CircuitBreakerManager;
+import com.everflowx.esmigration.service.CheckpointService;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.metrics.Max;
+import org.elasticsearch.search.aggregations.metrics.Min;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -30,7 +50,7 @@ import java.util.concurrent.atomic.AtomicLong;
  * 5. 支持实时数据变更
  * 
  * 策略：
- * - 时间范围分页：按时间戳字段分页
+ * - 时间范围分页：按文档分布把时间轴切成多个窗口并行迁移
  * - ID范围分页：按文档ID分页
  * - 混合分页：时间+ID双重排序
  * 
@@ -43,12 +63,29 @@ public class PaginationMigrationEngine {
     @Resource
     private CircuitBreakerManager circuitBreakerManager;
     
+    @Resource
+    private GcPressureMonitor gcPressureMonitor;
+    
+    @Resource
+    private IndexMetadataCache indexMetadataCache;
+    
+    @Resource
+    private MigrationWorkerPool workerPool;
+    
+    @Resource
+    private CheckpointService checkpointService;
+    
     // 分页配置常量
     private static final int DEFAULT_PAGE_SIZE = 2000;
     private static final int MAX_PAGE_SIZE = 10000;
     private static final int MIN_PAGE_SIZE = 100;
     private static final String DEFAULT_TIME_FIELD = "@timestamp";
     private static final String ID_FIELD = "_id";
+    private static final String CHECKPOINT_COMPLETED = "COMPLETED";
+    
+    // 时间窗口规划：密度直方图的桶数与每个并行线程分到的窗口数
+    private static final long DENSITY_BUCKETS = 1000;
+    private static final int WINDOWS_PER_WORKER = 4;
     
     /**
      * 启动分页式迁移 - 支持无限大数据集
@@ -97,6 +134,10 @@ public class PaginationMigrationEngine {
     
     /**
      * 基于时间范围的分页迁移 - 适合有时间字段的数据
+     * 
+     * 先按 date_histogram 统计的文档分布把时间轴切成文档数大致相等的时间窗口，各窗口在阶段线程上并行迁移。
+     * 窗口规划和完成状态按窗口记录为断点，中断后重新执行时沿用原规划并跳过已完成的窗口，
+     * 全部窗口完成后清除断点。窗口内各页的写入全部结束且没有整体失败的批量请求时，窗口才记为完成。
      */
     private void paginateByTime(
             RestHighLevelClient sourceClient,
@@ -111,187 +152,240 @@ public class PaginationMigrationEngine {
         if (timeField == null) {
             timeField = DEFAULT_TIME_FIELD;
         }
+        int parallelism = paginationConfig.getParallelism() > 0 ?
+            paginationConfig.getParallelism() : Math.max(config.getThreadCount(), 1);
+        String taskId = String.format("pagination_%s_%s_%s", config.getSourceIndex(), config.getTargetIndex(), timeField);
         
-        log.info("使用时间分页策略，时间字段: {}", timeField);
+        log.info("使用时间分页策略，时间字段: {}, 并行窗口数: {}", timeField, parallelism);
         
-        // 获取时间范围
-        TimeRange timeRange = getTimeRange(sourceClient, config.getSourceIndex(), timeField);
-        log.info("数据时间范围: {} 到 {}", timeRange.getStartTime(), timeRange.getEndTime());
-        
-        // 按时间范围分页
-        LocalDateTime currentTime = timeRange.getStartTime();
-        LocalDateTime endTime = timeRange.getEndTime();
-        long pageNumber = 0;
+        List<TimeWindow> windows = restoreTimeWindows(taskId);
+        if (windows.isEmpty()) {
+            windows = planTimeWindows(sourceClient, config.getSourceIndex(), timeField,
+                paginationConfig.getPageSize(), parallelism);
+            saveTimeWindows(taskId, config, windows);
+        }
         
-        while (currentTime.isBefore(endTime)) {
-            pageNumber++;
-            
-            // 计算当前页的时间范围
-            LocalDateTime pageEndTime = currentTime.plusMinutes(paginationConfig.getTimeWindowMinutes());
-            if (pageEndTime.isAfter(endTime)) {
-                pageEndTime = endTime;
+        List<TimeWindow> pending = new ArrayList<>();
+        for (TimeWindow window : windows) {
+            if (!window.isCompleted()) {
+                pending.add(window);
             }
-            
-            // 处理当前时间窗口的数据
-            boolean hasMoreData = processTimeWindow(sourceClient, config, callback, paginationConfig,
-                result, timeField, currentTime, pageEndTime, pageNumber);
-            
-            currentTime = pageEndTime;
-            
-            // 如果当前窗口没有数据且时间窗口较小，扩大窗口
-            if (!hasMoreData && paginationConfig.getTimeWindowMinutes() < 60) {
-                paginationConfig.setTimeWindowMinutes(paginationConfig.getTimeWindowMinutes() * 2);
-                log.debug("扩大时间窗口至 {} 分钟", paginationConfig.getTimeWindowMinutes());
-            }
-            
-            // 内存压力控制
-            controlMemoryPressure();
         }
+        log.info("时间窗口规划 - 窗口数: {}, 待迁移: {}, 已完成: {}", windows.size(), pending.size(),
+            windows.size() - pending.size());
         
-        result.setTotalPages(pageNumber);
+        String field = timeField;
+        AtomicLong pageCounter = new AtomicLong(0);
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        Executor executor = workerPool.stageExecutor("TimeWindow", Math.min(parallelism, Math.max(pending.size(), 1)));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        
+        for (TimeWindow window : pending) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    long docs = processTimeWindow(sourceClient, config, callback, paginationConfig,
+                        result, field, window, pageCounter);
+                    completeTimeWindow(taskId, window, docs);
+                    log.debug("时间窗口 {} 迁移完成 - {}, 文档数: {}", window.getIndex(), window, docs);
+                } catch (Exception e) {
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                    log.error("时间窗口 {} 迁移失败 - {}", window.getIndex(), window, e);
+                    failures.add("时间窗口 " + window.getIndex() + " 迁移失败: " + e.getMessage());
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        
+        result.setTotalPages(pageCounter.get());
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException(failures.size() + " 个时间窗口迁移失败，重新执行时跳过已完成窗口。" + failures.peek());
+        }
+        for (TimeWindow window : windows) {
+            checkpointService.removeShardCheckpoint(taskId, window.getIndex());
+        }
     }
     
     /**
-     * 处理时间窗口内的数据
+     * 按文档在时间轴上的分布规划时间窗口
+     * 
+     * 每个窗口的文档数约为 总数 / (并行数 * WINDOWS_PER_WORKER)，且不少于一页，
+     * 多出的窗口让先完成的线程继续领取，避免个别窗口拖慢整体。
+     * 窗口边界取直方图桶的起点，首个窗口不设下界、最后一个时间窗口不设上界，
+     * 另加一个窗口迁移缺少时间字段的文档，所有窗口合起来覆盖整个索引。
      */
-    private boolean processTimeWindow(
-            RestHighLevelClient sourceClient,
-            MigrationConfig config,
-            PaginationCallback callback,
-            PaginationConfig paginationConfig,
-            PaginationResult result,
-            String timeField,
-            LocalDateTime startTime,
-            LocalDateTime endTime,
-            long pageNumber) throws Exception {
-        
-        SearchRequest request = new SearchRequest(config.getSourceIndex());
-        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-        
-        // 时间范围查询
-        sourceBuilder.query(
-            QueryBuilders.rangeQuery(timeField)
-                .gte(startTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
-                .lt(endTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
-        );
-        
-        // 排序和分页
-        sourceBuilder.sort(timeField, SortOrder.ASC);
-        sourceBuilder.sort("_id", SortOrder.ASC); // 二级排序确保稳定性
-        sourceBuilder.size(paginationConfig.getPageSize());
-        sourceBuilder.trackTotalHits(true);
-        
-        request.source(sourceBuilder);
-        
-        // 执行查询
-        SearchResponse response = executeWithCircuitBreaker(sourceClient, request);
-        SearchHit[] hits = response.getHits().getHits();
-        
-        if (hits.length > 0) {
-            log.debug("时间窗口 [{} - {}] 页 {} 找到 {} 条记录", 
-                startTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
-                endTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
-                pageNumber, hits.length);
-            
-            // 处理当前页数据
-            callback.processPage(hits, pageNumber, startTime.toString());
-            result.addProcessedCount(hits.length);
-            
-            // 如果当前页满了，可能还有更多数据，需要深度分页
-            if (hits.length == paginationConfig.getPageSize()) {
-                processDeepTimeWindow(sourceClient, config, callback, paginationConfig,
-                    result, timeField, startTime, endTime, pageNumber);
+    private List<TimeWindow> planTimeWindows(RestHighLevelClient client, String indexName, String timeField,
+                                             int pageSize, int parallelism) {
+        SearchSourceBuilder rangeSource = new SearchSourceBuilder()
+            .query(QueryBuilders.existsQuery(timeField))
+            .size(0)
+            .trackTotalHits(true)
+            .aggregation(AggregationBuilders.min("min_time").field(timeField))
+            .aggregation(AggregationBuilders.max("max_time").field(timeField));
+        SearchResponse rangeResponse = executeWithCircuitBreaker(client, new SearchRequest(indexName).source(rangeSource));
+        long total = rangeResponse.getHits().getTotalHits() != null ? rangeResponse.getHits().getTotalHits().value : 0;
+        
+        List<TimeWindow> windows = new ArrayList<>();
+        if (total > 0) {
+            long minMs = (long) ((Min) rangeResponse.getAggregations().get("min_time")).getValue();
+            long maxMs = (long) ((Max) rangeResponse.getAggregations().get("max_time")).getValue();
+            long intervalMs = Math.max((maxMs - minMs) / DENSITY_BUCKETS + 1, 1);
+            
+            SearchSourceBuilder densitySource = new SearchSourceBuilder()
+                .query(QueryBuilders.existsQuery(timeField))
+                .size(0)
+                .aggregation(AggregationBuilders.dateHistogram("density")
+                    .field(timeField)
+                    .fixedInterval(new DateHistogramInterval(intervalMs + "ms"))
+                    .minDocCount(1));
+            SearchResponse densityResponse = executeWithCircuitBreaker(client, new SearchRequest(indexName).source(densitySource));
+            List<? extends Histogram.Bucket> buckets =
+                ((Histogram) densityResponse.getAggregations().get("density")).getBuckets();
+            
+            long targetDocs = Math.max(total / ((long) parallelism * WINDOWS_PER_WORKER), pageSize);
+            Long windowStart = null;
+            long windowDocs = 0;
+            for (int i = 0; i < buckets.size(); i++) {
+                windowDocs += buckets.get(i).getDocCount();
+                if (windowDocs >= targetDocs && i < buckets.size() - 1) {
+                    long windowEnd = bucketStartMillis(buckets.get(i + 1));
+                    windows.add(new TimeWindow(windows.size(), windowStart, windowEnd, false, windowDocs));
+                    windowStart = windowEnd;
+                    windowDocs = 0;
+                }
             }
-            
-            return true;
+            windows.add(new TimeWindow(windows.size(), windowStart, null, false, windowDocs));
+            log.info("时间分布统计 - 文档数: {}, 时间范围: {} - {}, 直方图桶: {}, 每窗口目标文档数: {}",
+                total, Instant.ofEpochMilli(minMs), Instant.ofEpochMilli(maxMs), buckets.size(), targetDocs);
         }
-        
-        return false;
+        windows.add(new TimeWindow(windows.size(), null, null, true, 0));
+        return windows;
+    }
+    
+    private static long bucketStartMillis(Histogram.Bucket bucket) {
+        Object key = bucket.getKey();
+        if (key instanceof ZonedDateTime) {
+            return ((ZonedDateTime) key).toInstant().toEpochMilli();
+        }
+        return ((Number) key).longValue();
     }
     
     /**
-     * 处理时间窗口内的深度分页（当单个时间窗口数据量很大时）
+     * 迁移单个时间窗口，窗口内按 时间字段+_id 排序，用 search_after 翻页，返回前等待窗口内各页写入结束
+     * 
+     * @return 窗口内迁移的文档数
+     * @throws IllegalStateException 窗口内有页面整体写入失败
      */
-    private void processDeepTimeWindow(
+    private long processTimeWindow(
             RestHighLevelClient sourceClient,
             MigrationConfig config,
             PaginationCallback callback,
             PaginationConfig paginationConfig,
             PaginationResult result,
             String timeField,
-            LocalDateTime startTime,
-            LocalDateTime endTime,
-            long basePageNumber) throws Exception {
+            TimeWindow window,
+            AtomicLong pageCounter) throws Exception {
         
-        String lastId = null;
-        LocalDateTime lastTime = startTime;
-        int deepPageCount = 0;
+        Object[] searchAfter = null;
+        long windowPages = 0;
+        long windowDocs = 0;
+        List<CompletableFuture<Void>> pageWrites = new ArrayList<>();
         
         while (true) {
-            deepPageCount++;
-            
-            SearchRequest request = new SearchRequest(config.getSourceIndex());
             SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-            
-            // 构建深度分页查询
-            org.elasticsearch.index.query.RangeQueryBuilder rangeQuery = QueryBuilders.rangeQuery(timeField)
-                .gte(lastTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
-                .lt(endTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            
-            if (lastId != null) {
-                // 使用search_after进行深度分页
-                org.elasticsearch.index.query.BoolQueryBuilder boolQuery = QueryBuilders.boolQuery()
-                    .must(rangeQuery)
-                    .should(QueryBuilders.boolQuery()
-                        .must(QueryBuilders.termQuery(timeField, lastTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)))
-                        .must(QueryBuilders.rangeQuery("_id").gt(lastId))
-                    );
-                sourceBuilder.query(boolQuery);
-            } else {
-                sourceBuilder.query(rangeQuery);
+            sourceBuilder.query(window.toQuery(timeField));
+            // 缺少时间字段的文档没有可用的时间排序值，只按 _id 排序
+            if (!window.isMissingField()) {
+                sourceBuilder.sort(timeField, SortOrder.ASC);
             }
-            
-            sourceBuilder.sort(timeField, SortOrder.ASC);
-            sourceBuilder.sort("_id", SortOrder.ASC);
+            sourceBuilder.sort(ID_FIELD, SortOrder.ASC); // 二级排序确保稳定性
             sourceBuilder.size(paginationConfig.getPageSize());
+            sourceBuilder.trackTotalHits(false);
+            if (searchAfter != null) {
+                sourceBuilder.searchAfter(searchAfter);
+            }
             
-            request.source(sourceBuilder);
-            
-            // 执行查询
-            SearchResponse response = executeWithCircuitBreaker(sourceClient, request);
-            SearchHit[] hits = response.getHits().getHits();
-            
+            SearchRequest request = new SearchRequest(config.getSourceIndex()).source(sourceBuilder);
+            SearchHit[] hits = executeWithCircuitBreaker(sourceClient, request).getHits().getHits();
             if (hits.length == 0) {
                 break;
             }
             
-            // 处理当前深度页数据
-            String pageKey = basePageNumber + "-" + deepPageCount;
-            callback.processPage(hits, basePageNumber * 1000 + deepPageCount, pageKey);
+            windowPages++;
+            pageWrites.add(callback.processPage(hits, pageCounter.incrementAndGet(), window.getIndex() + "-" + windowPages));
             result.addProcessedCount(hits.length);
+            windowDocs += hits.length;
             
-            // 更新游标
-            SearchHit lastHit = hits[hits.length - 1];
-            lastId = lastHit.getId();
-            Object timeValue = lastHit.getSourceAsMap().get(timeField);
-            if (timeValue != null) {
-                lastTime = LocalDateTime.parse(timeValue.toString(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            }
+            searchAfter = hits[hits.length - 1].getSortValues();
             
-            // 防止无限循环
-            if (hits.length < paginationConfig.getPageSize()) {
-                break;
-            }
+            // 内存压力控制
+            controlMemoryPressure();
             
-            if (deepPageCount > 1000) {
-                log.warn("深度分页超过1000页，可能存在问题，中断处理");
+            if (hits.length < paginationConfig.getPageSize()) {
                 break;
             }
         }
         
-        if (deepPageCount > 1) {
-            log.info("时间窗口深度分页完成，共 {} 页", deepPageCount);
+        try {
+            CompletableFuture.allOf(pageWrites.toArray(new CompletableFuture[0])).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IllegalStateException("时间窗口 " + window.getIndex() + " 写入失败: " + cause.getMessage(), cause);
+        }
+        return windowDocs;
+    }
+    
+    /**
+     * 从断点恢复上次的窗口规划，没有或不完整时返回空列表
+     */
+    private List<TimeWindow> restoreTimeWindows(String taskId) {
+        Optional<MigrationCheckpoint> first = checkpointService.getShardCheckpoint(taskId, 0);
+        if (!first.isPresent() || first.get().getSliceCount() == null) {
+            return new ArrayList<>();
         }
+        int windowCount = first.get().getSliceCount();
+        List<TimeWindow> windows = new ArrayList<>(windowCount);
+        for (int i = 0; i < windowCount; i++) {
+            Optional<MigrationCheckpoint> checkpoint = checkpointService.getShardCheckpoint(taskId, i);
+            if (!checkpoint.isPresent()) {
+                log.warn("时间窗口断点不完整，重新规划: {} 缺少窗口 {}", taskId, i);
+                return new ArrayList<>();
+            }
+            // 缺少时间字段的窗口固定在最后
+            TimeWindow window = new TimeWindow(i, checkpoint.get().getShardStartOffset(),
+                checkpoint.get().getShardEndOffset(), i == windowCount - 1, checkpoint.get().getTotalCount());
+            window.setCompleted(CHECKPOINT_COMPLETED.equals(checkpoint.get().getStatus()));
+            windows.add(window);
+        }
+        log.info("从断点恢复时间窗口规划: {}, 窗口数: {}", taskId, windowCount);
+        return windows;
+    }
+    
+    private void saveTimeWindows(String taskId, MigrationConfig config, List<TimeWindow> windows) {
+        for (TimeWindow window : windows) {
+            MigrationCheckpoint checkpoint = new MigrationCheckpoint();
+            checkpoint.setTaskId(taskId);
+            checkpoint.setSourceIndex(config.getSourceIndex());
+            checkpoint.setTargetIndex(config.getTargetIndex());
+            checkpoint.setShardIndex(window.getIndex());
+            checkpoint.setSliceCount(windows.size());
+            checkpoint.setShardStartOffset(window.getStartMs());
+            checkpoint.setShardEndOffset(window.getEndMs());
+            checkpoint.setTotalCount(window.getEstimatedDocs());
+            checkpoint.setStatus("PENDING");
+            checkpointService.saveCheckpoint(checkpoint);
+        }
+    }
+    
+    private void completeTimeWindow(String taskId, TimeWindow window, long docs) {
+        checkpointService.getShardCheckpoint(taskId, window.getIndex()).ifPresent(checkpoint -> {
+            checkpoint.setProcessedCount(docs);
+            checkpoint.setStatus(CHECKPOINT_COMPLETED);
+            checkpoint.setThreadName(Thread.currentThread().getName());
+            checkpointService.saveCheckpoint(checkpoint);
+        });
+        window.setCompleted(true);
     }
     
     /**
@@ -385,68 +479,17 @@ public class PaginationMigrationEngine {
     }
     
     /**
-     * 检查索引是否有指定的时间字段
+     * 检查索引是否有指定的时间字段（按缓存的索引映射判断）
      */
     private boolean hasTimeField(RestHighLevelClient client, String indexName, String timeField) {
         try {
-            SearchRequest request = new SearchRequest(indexName);
-            SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-            sourceBuilder.query(QueryBuilders.existsQuery(timeField));
-            sourceBuilder.size(1);
-            request.source(sourceBuilder);
-            
-            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
-            return response.getHits().getTotalHits().value > 0;
+            return indexMetadataCache.hasField(client, indexName, timeField);
         } catch (Exception e) {
             log.warn("检查时间字段失败: {}", e.getMessage());
             return false;
         }
     }
     
-    /**
-     * 获取数据的时间范围
-     */
-    private TimeRange getTimeRange(RestHighLevelClient client, String indexName, String timeField) throws Exception {
-        // 获取最小时间
-        SearchRequest minRequest = new SearchRequest(indexName);
-        SearchSourceBuilder minSource = new SearchSourceBuilder();
-        minSource.query(QueryBuilders.existsQuery(timeField));
-        minSource.sort(timeField, SortOrder.ASC);
-        minSource.size(1);
-        minRequest.source(minSource);
-        
-        SearchResponse minResponse = client.search(minRequest, RequestOptions.DEFAULT);
-        
-        // 获取最大时间
-        SearchRequest maxRequest = new SearchRequest(indexName);
-        SearchSourceBuilder maxSource = new SearchSourceBuilder();
-        maxSource.query(QueryBuilders.existsQuery(timeField));
-        maxSource.sort(timeField, SortOrder.DESC);
-        maxSource.size(1);
-        maxRequest.source(maxSource);
-        
-        SearchResponse maxResponse = client.search(maxRequest, RequestOptions.DEFAULT);
-        
-        LocalDateTime startTime = LocalDateTime.MIN;
-        LocalDateTime endTime = LocalDateTime.MAX;
-        
-        if (minResponse.getHits().getHits().length > 0) {
-            Object minValue = minResponse.getHits().getHits()[0].getSourceAsMap().get(timeField);
-            if (minValue != null) {
-                startTime = LocalDateTime.parse(minValue.toString(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            }
-        }
-        
-        if (maxResponse.getHits().getHits().length > 0) {
-            Object maxValue = maxResponse.getHits().getHits()[0].getSourceAsMap().get(timeField);
-            if (maxValue != null) {
-                endTime = LocalDateTime.parse(maxValue.toString(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            }
-        }
-        
-        return new TimeRange(startTime, endTime);
-    }
-    
     /**
      * 带熔断器的ES查询执行
      */
@@ -468,22 +511,16 @@ public class PaginationMigrationEngine {
     }
     
     /**
-     * 内存压力控制
+     * 内存压力控制 - 按GC压力调节分页节奏，不主动触发GC
      */
     private void controlMemoryPressure() throws InterruptedException {
-        Runtime runtime = Runtime.getRuntime();
-        long totalMemory = runtime.totalMemory();
-        long freeMemory = runtime.freeMemory();
-        long maxMemory = runtime.maxMemory();
-        
-        double memoryPressure = (double) (totalMemory - freeMemory) / maxMemory;
+        double memoryPressure = gcPressureMonitor.getPressure();
         
         if (memoryPressure > 0.9) {
-            log.warn("内存压力过高 {:.1f}%，触发GC并暂停", memoryPressure * 100);
-            System.gc();
+            log.warn("内存压力过高 {}%，暂停分页", String.format("%.1f", memoryPressure * 100));
             Thread.sleep(2000);
         } else if (memoryPressure > 0.8) {
-            log.debug("内存压力较高 {:.1f}%，适当延迟", memoryPressure * 100);
+            log.debug("内存压力较高 {}%，适当延迟", String.format("%.1f", memoryPressure * 100));
             Thread.sleep(100);
         }
     }
@@ -492,7 +529,12 @@ public class PaginationMigrationEngine {
      * 分页回调接口
      */
     public interface PaginationCallback {
-        void processPage(SearchHit[] hits, long pageNumber, String pageKey) throws Exception;
+        /**
+         * 提交一页文档
+         * 
+         * @return 该页写入结束后完成，批量请求整体失败时异常完成
+         */
+        CompletableFuture<Void> processPage(SearchHit[] hits, long pageNumber, String pageKey) throws Exception;
     }
     
     /**
@@ -503,7 +545,7 @@ public class PaginationMigrationEngine {
         private PaginationStrategy strategy = PaginationStrategy.HYBRID;
         private int pageSize = DEFAULT_PAGE_SIZE;
         private String timeField;
-        private int timeWindowMinutes = 10; // 时间窗口大小（分钟）
+        private int parallelism; // 并行迁移的时间窗口数，0 表示使用迁移配置的线程数
         
         public PaginationConfig strategy(PaginationStrategy strategy) {
             this.strategy = strategy;
@@ -520,8 +562,8 @@ public class PaginationMigrationEngine {
             return this;
         }
         
-        public PaginationConfig timeWindowMinutes(int minutes) {
-            this.timeWindowMinutes = Math.max(1, minutes);
+        public PaginationConfig parallelism(int parallelism) {
+            this.parallelism = Math.max(0, parallelism);
             return this;
         }
     }
@@ -565,16 +607,41 @@ public class PaginationMigrationEngine {
     }
     
     /**
-     * 时间范围
+     * 时间窗口 [startMs, endMs)，边界为 null 表示该侧不设限
      */
     @Data
-    private static class TimeRange {
-        private final LocalDateTime startTime;
-        private final LocalDateTime endTime;
+    private static class TimeWindow {
+        private final int index;
+        private final Long startMs;
+        private final Long endMs;
+        private final boolean missingField;
+        private final long estimatedDocs;
+        private volatile boolean completed;
+        
+        QueryBuilder toQuery(String timeField) {
+            if (missingField) {
+                return QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(timeField));
+            }
+            if (startMs == null && endMs == null) {
+                return QueryBuilders.existsQuery(timeField);
+            }
+            RangeQueryBuilder range = QueryBuilders.rangeQuery(timeField).format("epoch_millis");
+            if (startMs != null) {
+                range.gte(startMs);
+            }
+            if (endMs != null) {
+                range.lt(endMs);
+            }
+            return range;
+        }
         
-        public TimeRange(LocalDateTime startTime, LocalDateTime endTime) {
-            this.startTime = startTime;
-            this.endTime = endTime;
+        @Override
+        public String toString() {
+            if (missingField) {
+                return "[缺少时间字段]";
+            }
+            return "[" + (startMs != null ? Instant.ofEpochMilli(startMs) : "-∞") + ", "
+                + (endMs != null ? Instant.ofEpochMilli(endMs) : "+∞") + ")";
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,428 @@
+package com.everflowx.esmigration.pipeline;
+
+import com.everflowx.esmigration.bulk.AsyncBulkWriter;
+import com.everflowx.esmigration.bulk.AsyncBulkWriterFactory;
+import com.everflowx.esmigration.bulk.BulkAssembler;
+import com.everflowx.esmigration.bulk.BulkRetryHandler.BulkOutcome;
+import com.everflowx.esmigration.cursor.SourceCursor;
+import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
+import com.everflowx.esmigration.throttle.BulkConcurrencyController;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.SearchHit;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流水线迁移引擎 - 读取、转换、写入三个阶段重叠执行
+ * 
+ * 阶段之间使用有界队列交接：
+ * 1. 读取线程预取源数据批次（readAheadBatches 控制预取深度）
+ * 2. 转换线程池把批次转换为写入请求（transformThreads / transformQueueDepth）
+ * 3. 写入线程按字节数重新组装批量请求（bulkMaxBytes / bulkMaxDocs / bulkLingerMs），
+ *    交给 {@link AsyncBulkWriter} 通过 bulkAsync 同时保持多个批量写入（maxInFlightBulks）
+ * 
+ * 批量请求与源数据批次解耦，一个批次的文档可能分布在多个批量请求中，
+ * 批次的全部文档写完才算完成。批次可能乱序完成，只有连续完成的批次才会推进已提交位置，
+ * 因此回调给调用方的位置可以安全地写入断点。
+ * 
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class PipelinedMigrationEngine {
+    
+    @Resource
+    private AsyncBulkWriterFactory asyncBulkWriterFactory;
+    
+    @Resource
+    private BulkConcurrencyController bulkConcurrencyController;
+    
+    @Resource
+    private MigrationWorkerPool workerPool;
+    
+    /**
+     * 队列结束标记
+     */
+    private static final Batch END_OF_READ = new Batch(-1, new SearchHit[0], null);
+    private static final PreparedBulk END_OF_TRANSFORM = new PreparedBulk(-1, null, null, 0, 0);
+    
+    /**
+     * 写入线程等待上游数据的最短轮询间隔
+     */
+    private static final long MIN_POLL_MILLIS = 10;
+    
+    /**
+     * 执行流水线迁移
+     */
+    public PipelineResult run(SourceCursor cursor, RestHighLevelClient targetClient, MigrationConfig config,
+                              DocumentConverter converter, PipelineListener listener) {
+        PipelineResult result = new PipelineResult();
+        int transformThreads = Math.max(config.getTransformThreads(), 1);
+        int maxInFlight = Math.max(config.getMaxInFlightBulks(), 1);
+        
+        BlockingQueue<Batch> readQueue = new ArrayBlockingQueue<>(Math.max(config.getReadAheadBatches(), 1));
+        BlockingQueue<PreparedBulk> writeQueue = new ArrayBlockingQueue<>(Math.max(config.getTransformQueueDepth(), 1));
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        CommitTracker tracker = new CommitTracker(result, listener);
+        
+        log.info("启动流水线迁移 - 游标类型: {}, 预取批次: {}, 转换线程: {}, 转换队列: {}, 并发写入: {}",
+            cursor.getType(), config.getReadAheadBatches(), transformThreads, 
+            config.getTransformQueueDepth(), maxInFlight);
+        
+        List<Future<?>> stages = new ArrayList<>();
+        Future<?> writer = null;
+        try {
+            stages.add(workerPool.startStage("Pipeline-Reader",
+                () -> read(cursor, readQueue, transformThreads, aborted, result)));
+            for (int i = 0; i < transformThreads; i++) {
+                stages.add(workerPool.startStage("Pipeline-Transform-" + i,
+                    () -> transform(readQueue, writeQueue, converter, config, aborted, result)));
+            }
+            writer = workerPool.startStage("Pipeline-Writer", () -> write(targetClient, writeQueue, config,
+                aborted, tracker, listener, result));
+            
+            for (Future<?> stage : stages) {
+                stage.get();
+            }
+            // 所有转换线程结束后通知写入线程
+            writeQueue.put(END_OF_TRANSFORM);
+            writer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            aborted.set(true);
+            log.error("流水线迁移被中断", e);
+            result.setErrorMessage("流水线迁移被中断");
+        } catch (ExecutionException | RejectedExecutionException e) {
+            log.error("流水线阶段执行失败", e);
+            abort(aborted, result, "流水线阶段执行失败: " + e.getMessage());
+            stages.forEach(stage -> stage.cancel(true));
+            if (writer != null) {
+                writer.cancel(true);
+            }
+        }
+        
+        log.info("流水线迁移结束 - 读取: {}, 成功: {}, 失败: {}, 批次: {}", 
+            result.getReadCount(), result.getSuccessCount(), result.getFailedCount(), result.getBatchCount());
+        return result;
+    }
+    
+    /**
+     * 读取阶段
+     */
+    private void read(SourceCursor cursor, BlockingQueue<Batch> readQueue, int transformThreads,
+                      AtomicBoolean aborted, PipelineResult result) {
+        long sequence = 0;
+        try {
+            SearchHit[] hits = cursor.nextBatch();
+            while (hits.length > 0 && !aborted.get()) {
+                readQueue.put(new Batch(sequence++, hits, cursor.getPosition()));
+                result.readCount.addAndGet(hits.length);
+                hits = cursor.nextBatch();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(aborted, result, "读取阶段被中断");
+        } catch (Exception e) {
+            log.error("流水线读取阶段异常", e);
+            abort(aborted, result, "读取源数据失败: " + e.getMessage());
+        } finally {
+            // 每个转换线程一个结束标记
+            for (int i = 0; i < transformThreads; i++) {
+                putQuietly(readQueue, END_OF_READ);
+            }
+        }
+    }
+    
+    /**
+     * 转换阶段
+     */
+    private void transform(BlockingQueue<Batch> readQueue, BlockingQueue<PreparedBulk> writeQueue,
+                           DocumentConverter converter, MigrationConfig config, AtomicBoolean aborted,
+                           PipelineResult result) {
+        try {
+            while (true) {
+                Batch batch = readQueue.take();
+                if (batch == END_OF_READ) {
+                    return;
+                }
+                if (aborted.get()) {
+                    continue;
+                }
+                
+                List<IndexRequest> requests = new ArrayList<>(batch.hits.length);
+                int preprocessFailed = 0;
+                for (SearchHit hit : batch.hits) {
+                    try {
+                        requests.add(converter.convert(hit));
+                    } catch (Exception e) {
+                        log.error("预处理文档失败，ID: {}, 错误: {}", hit.getId(), e.getMessage());
+                        preprocessFailed++;
+                    }
+                }
+                writeQueue.put(new PreparedBulk(batch.sequence, requests, batch.position, 
+                    batch.hits.length, preprocessFailed));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(aborted, result, "转换阶段被中断");
+        } catch (RuntimeException e) {
+            log.error("流水线转换阶段异常", e);
+            abort(aborted, result, "转换源数据失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 写入阶段 - 按字节数组装批量请求，由异步写入器限制同时进行的 bulkAsync 数量
+     * 
+     * 写入阶段异常退出时先中止流水线，再继续消费写入队列直到转换结束标记，
+     * 避免转换线程阻塞在已满的写入队列上；无论成功与否都关闭写入器。
+     */
+    private void write(RestHighLevelClient targetClient, BlockingQueue<PreparedBulk> writeQueue, MigrationConfig config,
+                       AtomicBoolean aborted, CommitTracker tracker, PipelineListener listener, PipelineResult result) {
+        AsyncBulkWriter bulkWriter = asyncBulkWriterFactory.open(targetClient, config);
+        BulkAssembler<PreparedBulk> assembler = BulkAssembler.create(config, bulkConcurrencyController,
+            (request, bytes, batches) -> bulkWriter.write(request, bytes,
+                (bulkRequest, estimatedBytes, latencyMs, outcome) -> {
+                    countOutcome(outcome, result);
+                    if (listener != null) {
+                        listener.onBulk(estimatedBytes, bulkRequest.numberOfActions(), latencyMs);
+                    }
+                    completeDocuments(batches, tracker);
+                }));
+        long pollMillis = Math.max(config.getBulkLingerMs(), MIN_POLL_MILLIS);
+        try {
+            while (true) {
+                PreparedBulk prepared = writeQueue.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (prepared == null) {
+                    // 上游暂时没有数据时，避免未满的批量请求无限等待
+                    assembler.flushIfExpired();
+                    continue;
+                }
+                if (prepared == END_OF_TRANSFORM) {
+                    break;
+                }
+                if (aborted.get()) {
+                    continue;
+                }
+                
+                result.batchCount.incrementAndGet();
+                result.failedCount.addAndGet(prepared.preprocessFailed);
+                if (prepared.requests.isEmpty()) {
+                    tracker.complete(prepared.sequence, prepared.position, prepared.docCount);
+                    continue;
+                }
+                
+                prepared.pendingDocs.set(prepared.requests.size());
+                for (IndexRequest request : prepared.requests) {
+                    assembler.add(request, prepared);
+                }
+            }
+            assembler.flush();
+        } catch (InterruptedException | InterruptedIOException e) {
+            Thread.currentThread().interrupt();
+            abort(aborted, result, "写入阶段被中断");
+        } catch (IOException | RuntimeException e) {
+            log.error("流水线写入阶段异常", e);
+            abort(aborted, result, "写入目标数据失败: " + e.getMessage());
+            drainUntilEnd(writeQueue);
+        } finally {
+            // 等待所有在途批量写入完成
+            closeQuietly(bulkWriter);
+        }
+    }
+    
+    /**
+     * 写入阶段失败后丢弃队列中的数据直到转换结束标记，使阻塞在写入队列上的转换线程得以退出
+     */
+    private void drainUntilEnd(BlockingQueue<PreparedBulk> writeQueue) {
+        try {
+            while (writeQueue.take() != END_OF_TRANSFORM) {
+                // 流水线已中止，丢弃剩余批次
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void closeQuietly(AsyncBulkWriter bulkWriter) {
+        try {
+            bulkWriter.close();
+        } catch (InterruptedIOException e) {
+            Thread.currentThread().interrupt();
+            log.warn("等待在途批量写入完成时被中断");
+        }
+    }
+    
+    /**
+     * 每个已写入的文档减少其所属批次的待写数，批次全部写完时提交
+     */
+    private void completeDocuments(List<PreparedBulk> batches, CommitTracker tracker) {
+        for (PreparedBulk batch : batches) {
+            if (batch.pendingDocs.decrementAndGet() == 0) {
+                tracker.complete(batch.sequence, batch.position, batch.docCount);
+            }
+        }
+    }
+    
+    private void countOutcome(BulkOutcome outcome, PipelineResult result) {
+        result.successCount.addAndGet(outcome.getSuccessCount());
+        result.failedCount.addAndGet(outcome.getFailedCount());
+    }
+    
+    private void abort(AtomicBoolean aborted, PipelineResult result, String message) {
+        if (aborted.compareAndSet(false, true)) {
+            result.setErrorMessage(message);
+        }
+    }
+    
+    private <T> void putQuietly(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * 已提交位置跟踪 - 只有序号连续的批次全部写完才推进位置
+     */
+    private static class CommitTracker {
+        private final PipelineResult result;
+        private final PipelineListener listener;
+        private final Map<Long, Object[]> completed = new TreeMap<>();
+        private final Map<Long, Integer> completedDocs = new TreeMap<>();
+        private long nextSequence = 0;
+        private long committedDocs = 0;
+        
+        CommitTracker(PipelineResult result, PipelineListener listener) {
+            this.result = result;
+            this.listener = listener;
+        }
+        
+        synchronized void complete(long sequence, Object[] position, int docCount) {
+            completed.put(sequence, position);
+            completedDocs.put(sequence, docCount);
+            Object[] committed = null;
+            boolean advanced = false;
+            while (completed.containsKey(nextSequence)) {
+                committed = completed.remove(nextSequence);
+                committedDocs += completedDocs.remove(nextSequence);
+                nextSequence++;
+                advanced = true;
+            }
+            if (advanced) {
+                result.committedPosition = committed;
+                if (listener != null) {
+                    listener.onCommitted(committed, committedDocs, result.getSuccessCount(), result.getFailedCount());
+                }
+            }
+        }
+    }
+    
+    /**
+     * 源数据批次
+     */
+    private static class Batch {
+        final long sequence;
+        final SearchHit[] hits;
+        final Object[] position;
+        
+        Batch(long sequence, SearchHit[] hits, Object[] position) {
+            this.sequence = sequence;
+            this.hits = hits;
+            this.position = position;
+        }
+    }
+    
+    /**
+     * 已转换待写入的批次
+     */
+    private static class PreparedBulk {
+        final long sequence;
+        final List<IndexRequest> requests;
+        final Object[] position;
+        final int docCount;
+        final int preprocessFailed;
+        final AtomicInteger pendingDocs = new AtomicInteger();
+        
+        PreparedBulk(long sequence, List<IndexRequest> requests, Object[] position, int docCount, int preprocessFailed) {
+            this.sequence = sequence;
+            this.requests = requests;
+            this.position = position;
+            this.docCount = docCount;
+            this.preprocessFailed = preprocessFailed;
+        }
+    }
+    
+    /**
+     * 文档转换接口 - 把源文档转换为目标索引写入请求
+     */
+    @FunctionalInterface
+    public interface DocumentConverter {
+        IndexRequest convert(SearchHit hit) throws Exception;
+    }
+    
+    /**
+     * 提交进度回调接口
+     */
+    @FunctionalInterface
+    public interface PipelineListener {
+        /**
+         * 连续批次全部写入完成时回调
+         * 
+         * @param position 已提交的读取位置（scroll 游标为 null）
+         * @param processedCount 已提交的文档数
+         */
+        void onCommitted(Object[] position, long processedCount, long successCount, long failedCount);
+        
+        /**
+         * 每个批量请求完成时回调
+         * 
+         * @param bytes 批量请求估算字节数
+         * @param docs 批量请求文档数
+         * @param latencyMs 批量请求耗时（毫秒）
+         */
+        default void onBulk(long bytes, int docs, long latencyMs) {
+        }
+    }
+    
+    /**
+     * 流水线迁移结果
+     */
+    public static class PipelineResult {
+        private final AtomicLong readCount = new AtomicLong(0);
+        private final AtomicLong successCount = new AtomicLong(0);
+        private final AtomicLong failedCount = new AtomicLong(0);
+        private final AtomicLong batchCount = new AtomicLong(0);
+        private volatile Object[] committedPosition;
+        private volatile String errorMessage;
+        
+        public long getReadCount() { return readCount.get(); }
+        public long getSuccessCount() { return successCount.get(); }
+        public long getFailedCount() { return failedCount.get(); }
+        public long getBatchCount() { return batchCount.get(); }
+        public Object[] getCommittedPosition() { return committedPosition; }
+        
+        public String getErrorMessage() { return errorMessage; }
+        public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    }
+}
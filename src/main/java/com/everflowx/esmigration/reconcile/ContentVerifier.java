@@ -0,0 +1,617 @@
+package com.everflowx.esmigration.reconcile;
+
+import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
+import com.everflowx.esmigration.transform.IndexRequestFactory;
+import com.everflowx.esmigration.util.EsQueryHelper;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内容校验 - 按文档内容哈希逐段比对源索引与目标索引
+ *
+ * 源文档按迁移时的转换规则转换后计算内容哈希，与目标文档的内容哈希比较，两侧都不保存文档本身：
+ * 1. 分段 - 在源索引随机抽样 _id 作为分界，把 _id 空间切成若干区间 (from, to]，两侧按同样的区间读取，
+ *    区间覆盖整个 _id 空间，目标索引多出的文档同样落在某个区间内
+ * 2. 区间哈希 - 每个区间两侧各自以 _id 排序的 search_after 读取并计算文档哈希（_id + 规范化 _source），
+ *    按 _id 内容切分叶子（_id 哈希命中模数时结束当前叶子），缺失或多出一个文档只影响它所在的叶子；
+ *    两侧的读取互不等待，分别在源 / 目标阶段线程中并行执行
+ * 3. 比较 - 区间根哈希一致即整段确认；不一致时比较叶子哈希，只重新读取不一致的叶子，
+ *    按 _id 归并得到目标缺失、目标多出与内容不一致的文档 _id
+ *
+ * _source 按键排序规范化后计算哈希，字段顺序不同不视为差异，数值按值比较（1 与 1.0 相同）。
+ * newFields 中的字段是迁移时写入的常量（可能包含时间），两侧都不参与比较。
+ * 校验期间源索引仍有写入时，新写入的文档会被报告为差异。
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class ContentVerifier {
+
+    @Resource
+    @Qualifier("sourceElasticsearchClient")
+    private RestHighLevelClient sourceClient;
+
+    @Resource
+    @Qualifier("targetElasticsearchClient")
+    private RestHighLevelClient targetClient;
+
+    @Resource
+    private EsQueryHelper esQueryHelper;
+
+    @Resource
+    private MigrationWorkerPool workerPool;
+
+    @Value("${es.migration.verify.parallelism:4}")
+    private int parallelism;
+
+    @Value("${es.migration.verify.ranges-per-thread:16}")
+    private int rangesPerThread;
+
+    @Value("${es.migration.verify.leaf-size:1000}")
+    private int leafSize;
+
+    @Value("${es.migration.verify.page-size:1000}")
+    private int pageSize;
+
+    @Value("${es.migration.verify.max-reported-ids:1000}")
+    private int maxReportedIds;
+
+    /**
+     * 执行内容校验，在调用线程中等待所有区间比较完成
+     */
+    public VerifyResult verify(MigrationConfig config) {
+        VerifyResult result = new VerifyResult();
+        result.setSourceIndex(config.getSourceIndex());
+        result.setTargetIndex(config.getTargetIndex());
+        result.setStartTime(new Date());
+        Progress progress = new Progress();
+        log.info("开始内容校验，源索引: {}, 目标索引: {}, 并行度: {}, 叶子大小: {}",
+            config.getSourceIndex(), config.getTargetIndex(), parallelism, leafSize);
+        try {
+            execute(config, result, progress);
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof InterruptedIOException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("内容校验失败: {} -> {}", config.getSourceIndex(), config.getTargetIndex(), cause);
+            result.setErrorMessage(cause.getMessage());
+        } finally {
+            progress.fill(result);
+            result.finish();
+        }
+        log.info("内容校验结束: {} -> {}, 区间: {}（整段一致 {}）, 不一致叶子: {}, 源文档: {}, 目标文档: {}, " +
+                "目标缺失: {}, 目标多出: {}, 内容不一致: {}, 转换失败: {}, 耗时: {}ms, {} docs/s",
+            config.getSourceIndex(), config.getTargetIndex(), result.getRanges(), result.getConfirmedRanges(),
+            result.getDivergentLeaves(), result.getSourceHashed(), result.getTargetHashed(),
+            result.getMissingInTarget(), result.getExtraInTarget(), result.getContentMismatch(),
+            result.getTransformFailures(), result.getDurationMs(), result.getDocsPerSecond());
+        return result;
+    }
+
+    private void execute(MigrationConfig config, VerifyResult result, Progress progress) throws IOException {
+        IndexRequestFactory requestFactory = IndexRequestFactory.create(config);
+        Set<String> ignoredFields = config.getNewFields() != null
+            ? config.getNewFields().keySet() : Collections.emptySet();
+        List<String> boundaries = sampleBoundaries(config.getSourceIndex());
+        result.setRanges(boundaries.size() + 1);
+
+        Executor sourceExecutor = workerPool.stageExecutor("Verify-Source", parallelism);
+        Executor targetExecutor = workerPool.stageExecutor("Verify-Target", parallelism);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(boundaries.size() + 1);
+        for (int i = 0; i <= boundaries.size(); i++) {
+            IdRange range = new IdRange(i == 0 ? null : boundaries.get(i - 1),
+                i == boundaries.size() ? null : boundaries.get(i));
+            DocHasher sourceHasher = new SourceHasher(requestFactory, ignoredFields, progress);
+            DocHasher targetHasher = new TargetHasher(ignoredFields);
+            CompletableFuture<List<Leaf>> sourceLeaves = CompletableFuture.supplyAsync(() ->
+                digest(sourceClient, config.getSourceIndex(), range, sourceHasher, progress.sourceHashed), sourceExecutor);
+            CompletableFuture<List<Leaf>> targetLeaves = CompletableFuture.supplyAsync(() ->
+                digest(targetClient, config.getTargetIndex(), range, targetHasher, progress.targetHashed), targetExecutor);
+            futures.add(sourceLeaves.thenCombine(targetLeaves, (s, t) -> {
+                compareRange(config, range, s, t, sourceHasher, targetHasher, progress);
+                return null;
+            }));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 在源索引随机抽样 _id 作为区间分界，按 _id 排序顺序返回
+     */
+    private List<String> sampleBoundaries(String index) throws IOException {
+        int samples = Math.min(Math.max(parallelism, 1) * Math.max(rangesPerThread, 1), 10000) - 1;
+        if (samples <= 0) {
+            return Collections.emptyList();
+        }
+        SearchRequest request = new SearchRequest(index);
+        request.source(new SearchSourceBuilder()
+            .query(QueryBuilders.functionScoreQuery(ScoreFunctionBuilders.randomFunction()))
+            .size(samples)
+            .fetchSource(false)
+            .trackTotalHits(false));
+        List<String> boundaries = new ArrayList<>(samples);
+        for (SearchHit hit : esQueryHelper.searchWithRetry(sourceClient, request, false, 3).getHits().getHits()) {
+            boundaries.add(hit.getId());
+        }
+        boundaries.sort(IdRangeReader::compare);
+        List<String> distinct = new ArrayList<>(boundaries.size());
+        for (String id : boundaries) {
+            if (distinct.isEmpty() || IdRangeReader.compare(distinct.get(distinct.size() - 1), id) != 0) {
+                distinct.add(id);
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * 读取一侧的区间并按 _id 内容切分叶子，返回叶子哈希（不保留文档）
+     */
+    private List<Leaf> digest(RestHighLevelClient client, String index, IdRange range, DocHasher hasher,
+                              LongAdder hashed) {
+        IdRangeReader reader = new IdRangeReader(client, esQueryHelper, index, range.from, range.to, pageSize, true);
+        List<Leaf> leaves = new ArrayList<>();
+        Leaf leaf = new Leaf();
+        try {
+            for (SearchHit hit = reader.next(); hit != null; hit = reader.next()) {
+                MurmurHash3.Hash128 hash = hasher.hash(hit);
+                if (hash != null) {
+                    leaf.add(hash);
+                    hashed.increment();
+                }
+                if (isLeafBoundary(hit.getId())) {
+                    leaf.endId = hit.getId();
+                    leaves.add(leaf);
+                    leaf = new Leaf();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (leaf.count > 0) {
+            leaves.add(leaf);
+        }
+        return leaves;
+    }
+
+    /**
+     * 叶子分界只取决于 _id 本身，两侧相同的 _id 在同一位置切分
+     */
+    private boolean isLeafBoundary(String id) {
+        int mixed = id.hashCode() * 0x9E3779B9;
+        return Math.floorMod(mixed ^ (mixed >>> 16), Math.max(leafSize, 1)) == 0;
+    }
+
+    /**
+     * 比较区间两侧的叶子哈希，根哈希一致时整段确认，否则只重新读取不一致的叶子
+     */
+    private void compareRange(MigrationConfig config, IdRange range, List<Leaf> sourceLeaves, List<Leaf> targetLeaves,
+                              DocHasher sourceHasher, DocHasher targetHasher, Progress progress) {
+        if (root(sourceLeaves).sameAs(root(targetLeaves))) {
+            progress.confirmedRanges.increment();
+            return;
+        }
+        String lower = range.from;
+        int i = 0;
+        int j = 0;
+        try {
+            while (i < sourceLeaves.size() || j < targetLeaves.size()) {
+                Leaf s = i < sourceLeaves.size() ? sourceLeaves.get(i) : null;
+                Leaf t = j < targetLeaves.size() ? targetLeaves.get(j) : null;
+                int cmp = s == null ? 1 : t == null ? -1 : IdRangeReader.compare(s.endId, t.endId);
+                String upper;
+                boolean same;
+                if (cmp == 0) {
+                    upper = s.endId;
+                    same = s.sameAs(t);
+                    i++;
+                    j++;
+                } else if (cmp < 0) {
+                    upper = s.endId;
+                    same = false;
+                    i++;
+                } else {
+                    upper = t.endId;
+                    same = false;
+                    j++;
+                }
+                if (!same) {
+                    progress.divergentLeaves.increment();
+                    drill(config, lower, upper != null ? upper : range.to, sourceHasher, targetHasher, progress);
+                }
+                lower = upper;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 重新读取不一致叶子 (from, to] 的两侧文档，按 _id 归并逐个比较文档哈希
+     */
+    private void drill(MigrationConfig config, String from, String to, DocHasher sourceHasher, DocHasher targetHasher,
+                       Progress progress) throws IOException {
+        IdRangeReader source = new IdRangeReader(sourceClient, esQueryHelper, config.getSourceIndex(), from, to,
+            pageSize, true);
+        IdRangeReader target = new IdRangeReader(targetClient, esQueryHelper, config.getTargetIndex(), from, to,
+            pageSize, true);
+        SearchHit s = source.next();
+        SearchHit t = target.next();
+        while (s != null || t != null) {
+            int cmp = s == null ? 1 : t == null ? -1 : IdRangeReader.compare(s.getId(), t.getId());
+            if (cmp < 0) {
+                if (sourceHasher.hash(s) != null) {
+                    progress.report(progress.missingInTarget, progress.missingIds, s.getId(), maxReportedIds);
+                }
+                s = source.next();
+            } else if (cmp > 0) {
+                progress.report(progress.extraInTarget, progress.extraIds, t.getId(), maxReportedIds);
+                t = target.next();
+            } else {
+                MurmurHash3.Hash128 sourceHash = sourceHasher.hash(s);
+                if (sourceHash != null && !sourceHash.equals(targetHasher.hash(t))) {
+                    progress.report(progress.contentMismatch, progress.differentIds, s.getId(), maxReportedIds);
+                }
+                s = source.next();
+                t = target.next();
+            }
+        }
+    }
+
+    private static Leaf root(List<Leaf> leaves) {
+        Leaf root = new Leaf();
+        for (Leaf leaf : leaves) {
+            root.count += leaf.count;
+            root.h1 += leaf.h1;
+            root.h2 += leaf.h2;
+        }
+        return root;
+    }
+
+    /**
+     * _id 区间 (from, to]，null 表示无下界 / 无上界
+     */
+    private static class IdRange {
+        private final String from;
+        private final String to;
+
+        private IdRange(String from, String to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * 叶子：以 endId 结束的连续文档，哈希为各文档 128 位哈希之和（_id 唯一，求和与顺序无关且不会抵消）
+     */
+    private static class Leaf {
+        /**
+         * 叶子最后一个文档的 _id，null 表示区间末尾未满的叶子
+         */
+        private String endId;
+        private long count;
+        private long h1;
+        private long h2;
+
+        private void add(MurmurHash3.Hash128 hash) {
+            count++;
+            h1 += hash.h1;
+            h2 += hash.h2;
+        }
+
+        private boolean sameAs(Leaf other) {
+            return count == other.count && h1 == other.h1 && h2 == other.h2;
+        }
+    }
+
+    /**
+     * 计算文档哈希：_id 与规范化后的 _source 一起计算，无法计算时返回 null（文档不参与比较）
+     */
+    private abstract static class DocHasher {
+        private final Set<String> ignoredFields;
+        private final ThreadLocal<CanonicalBuffer> buffers = ThreadLocal.withInitial(CanonicalBuffer::new);
+
+        private DocHasher(Set<String> ignoredFields) {
+            this.ignoredFields = ignoredFields;
+        }
+
+        abstract MurmurHash3.Hash128 hash(SearchHit hit);
+
+        MurmurHash3.Hash128 hash(String id, Map<String, Object> source) {
+            CanonicalBuffer buffer = buffers.get();
+            buffer.reset();
+            buffer.writeString(id);
+            buffer.writeMap(source, ignoredFields);
+            return MurmurHash3.hash128(buffer.bytes, 0, buffer.length, 0, new MurmurHash3.Hash128());
+        }
+    }
+
+    /**
+     * 源文档按迁移的转换规则转换后计算哈希
+     */
+    private static class SourceHasher extends DocHasher {
+        private final IndexRequestFactory requestFactory;
+        private final Progress progress;
+
+        private SourceHasher(IndexRequestFactory requestFactory, Set<String> ignoredFields, Progress progress) {
+            super(ignoredFields);
+            this.requestFactory = requestFactory;
+            this.progress = progress;
+        }
+
+        @Override
+        MurmurHash3.Hash128 hash(SearchHit hit) {
+            Map<String, Object> source;
+            try {
+                source = XContentHelper.convertToMap(requestFactory.build(hit).source(), false, XContentType.JSON).v2();
+            } catch (Exception e) {
+                progress.transformFailures.increment();
+                log.warn("转换源文档失败，不参与内容校验: {}, {}", hit.getId(), e.getMessage());
+                return null;
+            }
+            return hash(hit.getId(), source);
+        }
+    }
+
+    /**
+     * 目标文档按原样计算哈希
+     */
+    private static class TargetHasher extends DocHasher {
+        private TargetHasher(Set<String> ignoredFields) {
+            super(ignoredFields);
+        }
+
+        @Override
+        MurmurHash3.Hash128 hash(SearchHit hit) {
+            Map<String, Object> source = hit.getSourceAsMap();
+            return hash(hit.getId(), source != null ? source : Collections.emptyMap());
+        }
+    }
+
+    /**
+     * 规范化编码：对象按键排序，数值按值编码，每个值带类型标记
+     */
+    private static class CanonicalBuffer {
+        private byte[] bytes = new byte[1024];
+        private int length;
+
+        private void reset() {
+            length = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void writeValue(Object value) {
+            if (value == null) {
+                writeByte('N');
+            } else if (value instanceof Map) {
+                writeMap((Map<String, Object>) value, Collections.emptySet());
+            } else if (value instanceof Collection) {
+                Collection<?> list = (Collection<?>) value;
+                writeByte('L');
+                writeLong(list.size());
+                for (Object element : list) {
+                    writeValue(element);
+                }
+            } else if (value instanceof Boolean) {
+                writeByte((Boolean) value ? 'T' : 'F');
+            } else if (value instanceof Number) {
+                writeNumber((Number) value);
+            } else {
+                writeByte('S');
+                writeString(String.valueOf(value));
+            }
+        }
+
+        private void writeMap(Map<String, Object> map, Set<String> ignoredFields) {
+            List<String> keys = new ArrayList<>(map.size());
+            for (String key : map.keySet()) {
+                if (!ignoredFields.contains(key)) {
+                    keys.add(key);
+                }
+            }
+            Collections.sort(keys);
+            writeByte('M');
+            writeLong(keys.size());
+            for (String key : keys) {
+                writeString(key);
+                writeValue(map.get(key));
+            }
+        }
+
+        private void writeNumber(Number number) {
+            if (number instanceof Integer || number instanceof Long || number instanceof Short
+                || number instanceof Byte) {
+                writeByte('I');
+                writeLong(number.longValue());
+                return;
+            }
+            if (number instanceof BigInteger && ((BigInteger) number).bitLength() < 64) {
+                writeByte('I');
+                writeLong(number.longValue());
+                return;
+            }
+            double value = number.doubleValue();
+            if (value == Math.rint(value) && Math.abs(value) < 0x1p63) {
+                writeByte('I');
+                writeLong((long) value);
+            } else if (number instanceof BigDecimal || number instanceof BigInteger) {
+                writeByte('S');
+                writeString(number instanceof BigDecimal
+                    ? ((BigDecimal) number).stripTrailingZeros().toPlainString() : number.toString());
+            } else {
+                writeByte('D');
+                writeLong(Double.doubleToLongBits(value));
+            }
+        }
+
+        private void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeLong(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            bytes[length++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+
+    /**
+     * 各区间并行累计的校验进度，差异 _id 最多保留 max-reported-ids 个
+     */
+    private static class Progress {
+        private final LongAdder sourceHashed = new LongAdder();
+        private final LongAdder targetHashed = new LongAdder();
+        private final LongAdder confirmedRanges = new LongAdder();
+        private final LongAdder divergentLeaves = new LongAdder();
+        private final LongAdder transformFailures = new LongAdder();
+        private final LongAdder missingInTarget = new LongAdder();
+        private final LongAdder extraInTarget = new LongAdder();
+        private final LongAdder contentMismatch = new LongAdder();
+        private final List<String> missingIds = new ArrayList<>();
+        private final List<String> extraIds = new ArrayList<>();
+        private final List<String> differentIds = new ArrayList<>();
+        private int reported;
+
+        private void report(LongAdder counter, List<String> ids, String id, int maxReported) {
+            counter.increment();
+            synchronized (this) {
+                if (reported < maxReported) {
+                    ids.add(id);
+                    reported++;
+                }
+            }
+        }
+
+        private synchronized void fill(VerifyResult result) {
+            result.setSourceHashed(sourceHashed.sum());
+            result.setTargetHashed(targetHashed.sum());
+            result.setConfirmedRanges(confirmedRanges.sum());
+            result.setDivergentLeaves(divergentLeaves.sum());
+            result.setTransformFailures(transformFailures.sum());
+            result.setMissingInTarget(missingInTarget.sum());
+            result.setExtraInTarget(extraInTarget.sum());
+            result.setContentMismatch(contentMismatch.sum());
+            result.setMissingIds(new ArrayList<>(missingIds));
+            result.setExtraIds(new ArrayList<>(extraIds));
+            result.setDifferentIds(new ArrayList<>(differentIds));
+        }
+    }
+
+    /**
+     * 内容校验结果
+     */
+    @Data
+    public static class VerifyResult {
+        private String sourceIndex;
+        private String targetIndex;
+        private Date startTime;
+        private Date endTime;
+        private long durationMs;
+        /**
+         * 区间数 / 根哈希一致、整段确认的区间数
+         */
+        private long ranges;
+        private long confirmedRanges;
+        /**
+         * 重新读取并逐个比较的叶子数
+         */
+        private long divergentLeaves;
+        /**
+         * 已计算哈希的源 / 目标文档数
+         */
+        private long sourceHashed;
+        private long targetHashed;
+        /**
+         * 转换失败、未参与比较的源文档数
+         */
+        private long transformFailures;
+        /**
+         * 目标缺失 / 目标多出 / 内容不一致的文档数
+         */
+        private long missingInTarget;
+        private long extraInTarget;
+        private long contentMismatch;
+        /**
+         * 差异文档的 _id，三类合计最多 max-reported-ids 个
+         */
+        private List<String> missingIds;
+        private List<String> extraIds;
+        private List<String> differentIds;
+        private double docsPerSecond;
+        private String errorMessage;
+
+        public long getMismatchCount() {
+            return missingInTarget + extraInTarget + contentMismatch;
+        }
+
+        public boolean isConsistent() {
+            return errorMessage == null && getMismatchCount() == 0;
+        }
+
+        public void finish() {
+            this.endTime = new Date();
+            this.durationMs = endTime.getTime() - startTime.getTime();
+            if (durationMs > 0) {
+                this.docsPerSecond = (sourceHashed + targetHashed) * 1000.0 / durationMs;
+            }
+        }
+    }
+}
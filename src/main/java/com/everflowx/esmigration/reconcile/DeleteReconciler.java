@@ -0,0 +1,449 @@
+package com.everflowx.esmigration.reconcile;
+
+import com.everflowx.esmigration.bulk.AsyncBulkWriter;
+import com.everflowx.esmigration.bulk.AsyncBulkWriterFactory;
+import com.everflowx.esmigration.bulk.BulkAssembler;
+import com.everflowx.esmigration.cursor.SearchAfterSourceCursor;
+import com.everflowx.esmigration.cursor.SourceCursorConfig;
+import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
+import com.everflowx.esmigration.metadata.IndexMetadataCache;
+import com.everflowx.esmigration.monitor.MigrationMonitor;
+import com.everflowx.esmigration.throttle.BulkConcurrencyController;
+import com.everflowx.esmigration.util.EsQueryHelper;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 删除同步（deleteNotExist）- 删除目标索引中源索引已不存在的文档
+ *
+ * 源索引与目标索引各以 _id 排序的 search_after 流式读取（不取 _source），归并比较两个有序流，
+ * 只在目标中出现的 _id 即为待删除文档，内存占用只与每页大小有关，与索引文档数无关：
+ * 1. 两侧各预取下一页，比较与读取重叠进行
+ * 2. ES 按 _id 的编码字节排序（数字与 base64 形式的 _id 有压缩编码），归并时以同样的编码比较，
+ *    任一侧出现逆序时中止，不按错误的比较结果删除
+ * 3. 待删除文档攒满一批后先按 ids 查询回查源索引，排除扫描期间新写入源索引的文档
+ * 4. 删除带上扫描时的 _seq_no / _primary_term，扫描后被增量同步重新写入的文档因版本冲突保留
+ * 5. 预计删除比例（按两侧总数估算）或实际删除数超过 max-delete-ratio 时中止，防止源索引误清空后删除目标数据
+ *
+ * 扫描与删除进度以任务形式上报 {@link MigrationMonitor}（吞吐按已扫描的 _id 数计算）。
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class DeleteReconciler {
+
+    private static final String ID_FIELD = "_id";
+    private static final String ROUTING_FIELD = "_routing";
+
+    @Resource
+    @Qualifier("sourceElasticsearchClient")
+    private RestHighLevelClient sourceClient;
+
+    @Resource
+    @Qualifier("targetElasticsearchClient")
+    private RestHighLevelClient targetClient;
+
+    @Resource
+    private EsQueryHelper esQueryHelper;
+
+    @Resource
+    private AsyncBulkWriterFactory asyncBulkWriterFactory;
+
+    @Resource
+    private BulkConcurrencyController bulkConcurrencyController;
+
+    @Resource
+    private MigrationMonitor migrationMonitor;
+
+    @Resource
+    private MigrationWorkerPool workerPool;
+
+    @Resource
+    private IndexMetadataCache indexMetadataCache;
+
+    @Value("${es.migration.reconcile.page-size:10000}")
+    private int pageSize;
+
+    @Value("${es.migration.reconcile.delete-batch-size:1000}")
+    private int deleteBatchSize;
+
+    @Value("${es.migration.reconcile.max-delete-ratio:0.1}")
+    private double maxDeleteRatio;
+
+    @Value("${es.migration.reconcile.progress-interval-ms:10000}")
+    private long progressIntervalMs;
+
+    /**
+     * 每对源/目标索引最近一次（或正在进行的）删除同步结果
+     */
+    private final Map<String, ReconcileResult> results = new ConcurrentHashMap<>();
+
+    /**
+     * 执行删除同步，在调用线程中运行直到完成
+     *
+     * @throws IllegalStateException 同一对索引的删除同步正在进行
+     */
+    public ReconcileResult reconcile(MigrationConfig config) {
+        String key = config.getSourceIndex() + " -> " + config.getTargetIndex();
+        ReconcileResult result = new ReconcileResult();
+        result.setSourceIndex(config.getSourceIndex());
+        result.setTargetIndex(config.getTargetIndex());
+        result.setStartTime(new Date());
+        result.setRunning(true);
+        ReconcileResult previous = results.put(key, result);
+        if (previous != null && previous.isRunning()) {
+            results.put(key, previous);
+            throw new IllegalStateException("删除同步正在进行: " + key);
+        }
+
+        String taskId = "reconcile_" + config.getSourceIndex() + "_" + config.getTargetIndex() + "_"
+            + System.currentTimeMillis();
+        log.info("开始删除同步，任务ID: {}, 源索引: {}, 目标索引: {}, 每页: {}, 最大删除比例: {}",
+            taskId, config.getSourceIndex(), config.getTargetIndex(), pageSize, maxDeleteRatio);
+        try {
+            execute(config, taskId, result);
+            migrationMonitor.completeTask(taskId, "COMPLETED");
+        } catch (Exception e) {
+            if (e instanceof InterruptedIOException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("删除同步失败: {}", key, e);
+            result.setErrorMessage(e.getMessage());
+            migrationMonitor.completeTask(taskId, "FAILED");
+        } finally {
+            result.finish();
+            indexMetadataCache.invalidateCount(targetClient, config.getTargetIndex());
+        }
+        log.info("删除同步结束: {}, 源扫描: {}, 目标扫描: {}, 待删除: {}, 回查仍存在: {}, 已删除: {}, 版本冲突: {}, " +
+                "失败: {}, 耗时: {}ms, {} ids/s", key, result.getSourceScanned(), result.getTargetScanned(),
+            result.getMissingCount(), result.getRecheckedExisting(), result.getDeletedCount(),
+            result.getConflictCount(), result.getFailedCount(), result.getDurationMs(), result.getIdsPerSecond());
+        return result;
+    }
+
+    /**
+     * 各对索引最近一次删除同步的结果
+     */
+    public List<ReconcileResult> getResults() {
+        return new ArrayList<>(results.values());
+    }
+
+    private void execute(MigrationConfig config, String taskId, ReconcileResult result) throws IOException {
+        LongAdder deleted = new LongAdder();
+        LongAdder conflicts = new LongAdder();
+        LongAdder failed = new LongAdder();
+        Executor prefetch = workerPool.stageExecutor("Reconcile-Read", 2);
+
+        try (IdStream source = new IdStream(sourceClient, config.getSourceIndex(), false, prefetch);
+             IdStream target = new IdStream(targetClient, config.getTargetIndex(), true, prefetch);
+             AsyncBulkWriter writer = asyncBulkWriterFactory.open(targetClient, config,
+                 (bulkRequest, bytes, latencyMs, outcome) -> {
+                     migrationMonitor.recordBulk(taskId, bytes, bulkRequest.numberOfActions(), latencyMs);
+                     long conflicted = 0;
+                     for (BulkItemResponse item : outcome.getFailures()) {
+                         if (item.status() == RestStatus.CONFLICT) {
+                             conflicted++;
+                         }
+                     }
+                     deleted.add(outcome.getSuccessCount());
+                     conflicts.add(conflicted);
+                     failed.add(outcome.getFailedCount() - conflicted);
+                 })) {
+            BulkAssembler<Void> assembler = BulkAssembler.create(config, bulkConcurrencyController,
+                (bulkRequest, bytes, tags) -> writer.write(bulkRequest, bytes));
+            IdEntry s = source.next();
+            IdEntry t = target.next();
+            result.setSourceTotal(source.getTotalHits());
+            result.setTargetTotal(target.getTotalHits());
+            long maxDeletes = (long) (result.getTargetTotal() * maxDeleteRatio);
+            if (result.getTargetTotal() - result.getSourceTotal() > maxDeletes) {
+                throw new IllegalStateException(String.format("目标索引比源索引多 %d 件文档，超过最大删除比例 %.2f，中止删除同步",
+                    result.getTargetTotal() - result.getSourceTotal(), maxDeleteRatio));
+            }
+            migrationMonitor.startTask(taskId, config.getSourceIndex(), config.getTargetIndex(),
+                result.getSourceTotal() + result.getTargetTotal());
+
+            List<IdEntry> missing = new ArrayList<>(deleteBatchSize);
+            long lastProgress = System.currentTimeMillis();
+            // 目标读完即结束，源索引剩余的 _id 不影响删除
+            while (t != null) {
+                int cmp = s == null ? 1 : s.key.compareTo(t.key);
+                if (cmp < 0) {
+                    s = source.next();
+                } else if (cmp == 0) {
+                    s = source.next();
+                    t = target.next();
+                } else {
+                    missing.add(t);
+                    if (missing.size() >= deleteBatchSize) {
+                        deleteMissing(config, missing, assembler, result, maxDeletes);
+                    }
+                    t = target.next();
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastProgress >= progressIntervalMs) {
+                    lastProgress = now;
+                    result.setSourceScanned(source.getScanned());
+                    result.setTargetScanned(target.getScanned());
+                    result.setDeletedCount(deleted.sum());
+                    migrationMonitor.updateProgress(taskId, source.getScanned() + target.getScanned(),
+                        deleted.sum(), failed.sum());
+                }
+            }
+            deleteMissing(config, missing, assembler, result, maxDeletes);
+            assembler.flush();
+            writer.flush();
+            result.setSourceScanned(source.getScanned());
+            result.setTargetScanned(target.getScanned());
+        } finally {
+            result.setDeletedCount(deleted.sum());
+            result.setConflictCount(conflicts.sum());
+            result.setFailedCount(failed.sum());
+            migrationMonitor.updateProgress(taskId, result.getSourceScanned() + result.getTargetScanned(),
+                deleted.sum(), failed.sum());
+        }
+    }
+
+    /**
+     * 回查源索引后删除确实不存在的文档，并清空待删除列表
+     */
+    private void deleteMissing(MigrationConfig config, List<IdEntry> missing, BulkAssembler<Void> assembler,
+                               ReconcileResult result, long maxDeletes) throws IOException {
+        if (missing.isEmpty()) {
+            return;
+        }
+        String[] ids = new String[missing.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = missing.get(i).hit.getId();
+        }
+        SearchRequest request = new SearchRequest(config.getSourceIndex());
+        request.source(new SearchSourceBuilder()
+            .query(QueryBuilders.idsQuery().addIds(ids))
+            .size(ids.length)
+            .fetchSource(false)
+            .trackTotalHits(false));
+        Set<String> existing = new HashSet<>();
+        for (SearchHit hit : esQueryHelper.searchWithRetry(sourceClient, request, false, 3).getHits().getHits()) {
+            existing.add(hit.getId());
+        }
+
+        long toDelete = missing.size() - existing.size();
+        if (result.getMissingCount() + toDelete > maxDeletes) {
+            throw new IllegalStateException(String.format("待删除文档数 %d 超过最大删除比例 %.2f（目标文档数 %d），中止删除同步",
+                result.getMissingCount() + toDelete, maxDeleteRatio, result.getTargetTotal()));
+        }
+        for (IdEntry entry : missing) {
+            SearchHit hit = entry.hit;
+            if (existing.contains(hit.getId())) {
+                continue;
+            }
+            DeleteRequest delete = new DeleteRequest(config.getTargetIndex(), hit.getId())
+                .setIfSeqNo(hit.getSeqNo())
+                .setIfPrimaryTerm(hit.getPrimaryTerm());
+            DocumentField routing = hit.field(ROUTING_FIELD);
+            if (routing != null) {
+                delete.routing(String.valueOf((Object) routing.getValue()));
+            }
+            assembler.add(delete);
+        }
+        result.setMissingCount(result.getMissingCount() + toDelete);
+        result.setRecheckedExisting(result.getRecheckedExisting() + existing.size());
+        missing.clear();
+    }
+
+    /**
+     * 按 ES 排序使用的编码字节比较 _id 的条目
+     */
+    private static class IdEntry {
+        private final SearchHit hit;
+        private final BytesRef key;
+
+        private IdEntry(SearchHit hit) {
+            this.hit = hit;
+            this.key = Uid.encodeId(hit.getId());
+        }
+    }
+
+    /**
+     * 按 _id 升序读取的 _id 流，读取当前页时预取下一页
+     */
+    private class IdStream implements Closeable {
+        private final String index;
+        private final SearchAfterSourceCursor cursor;
+        private final Executor prefetch;
+        private CompletableFuture<SearchHit[]> nextPage;
+        private SearchHit[] page = new SearchHit[0];
+        private int offset;
+        private long scanned;
+        private BytesRef lastKey;
+
+        private IdStream(RestHighLevelClient client, String index, boolean withSeqNo, Executor prefetch) {
+            this.index = index;
+            this.prefetch = prefetch;
+            SourceCursorConfig cursorConfig = new SourceCursorConfig()
+                .index(index)
+                .batchSize(pageSize)
+                .fetchSource(false);
+            this.cursor = new SearchAfterSourceCursor(client, esQueryHelper, cursorConfig, ID_FIELD) {
+                @Override
+                protected SearchSourceBuilder buildSource() {
+                    return super.buildSource().seqNoAndPrimaryTerm(withSeqNo);
+                }
+            };
+        }
+
+        /**
+         * 下一个 _id，读完时返回 null
+         */
+        private IdEntry next() throws IOException {
+            while (offset >= page.length) {
+                if (!fetchPage()) {
+                    return null;
+                }
+            }
+            IdEntry entry = new IdEntry(page[offset++]);
+            if (lastKey != null && entry.key.compareTo(lastKey) <= 0) {
+                throw new IllegalStateException("索引 " + index + " 的 _id 排序与归并比较不一致: "
+                    + entry.hit.getId());
+            }
+            lastKey = entry.key;
+            scanned++;
+            return entry;
+        }
+
+        private boolean fetchPage() throws IOException {
+            if (nextPage == null) {
+                if (cursor.isExhausted()) {
+                    return false;
+                }
+                page = cursor.nextBatch();
+            } else {
+                try {
+                    page = nextPage.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("读取 _id 时被中断");
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                } finally {
+                    nextPage = null;
+                }
+            }
+            offset = 0;
+            if (page.length == 0) {
+                return false;
+            }
+            if (!cursor.isExhausted()) {
+                nextPage = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return cursor.nextBatch();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, prefetch);
+            }
+            return true;
+        }
+
+        private long getTotalHits() {
+            return Math.max(cursor.getTotalHits(), 0);
+        }
+
+        private long getScanned() {
+            return scanned;
+        }
+
+        @Override
+        public void close() {
+            // 等待预取结束，不再使用预取结果
+            if (nextPage != null) {
+                nextPage.handle((hits, e) -> null).join();
+            }
+            cursor.close();
+        }
+    }
+
+    /**
+     * 删除同步结果
+     */
+    @Data
+    public static class ReconcileResult {
+        private String sourceIndex;
+        private String targetIndex;
+        private boolean running;
+        private Date startTime;
+        private Date endTime;
+        private long durationMs;
+        /**
+         * 开始时的源索引 / 目标索引文档总数
+         */
+        private long sourceTotal;
+        private long targetTotal;
+        /**
+         * 已扫描的源 / 目标 _id 数
+         */
+        private long sourceScanned;
+        private long targetScanned;
+        /**
+         * 回查确认源索引中不存在、已提交删除的文档数
+         */
+        private long missingCount;
+        /**
+         * 归并时缺失、回查时已出现在源索引中的文档数（扫描期间新写入）
+         */
+        private long recheckedExisting;
+        private long deletedCount;
+        /**
+         * 扫描后被重新写入目标、因版本冲突未删除的文档数
+         */
+        private long conflictCount;
+        private long failedCount;
+        /**
+         * 两侧合计每秒扫描的 _id 数
+         */
+        private long idsPerSecond;
+        private String errorMessage;
+
+        private void finish() {
+            endTime = new Date();
+            durationMs = endTime.getTime() - startTime.getTime();
+            idsPerSecond = durationMs > 0 ? (sourceScanned + targetScanned) * 1000 / durationMs : 0;
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.everflowx.esmigration.reconcile;
+
+import com.everflowx.esmigration.cursor.SearchAfterSourceCursor;
+import com.everflowx.esmigration.cursor.SourceCursorConfig;
+import com.everflowx.esmigration.util.EsQueryHelper;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+
+/**
+ * 按 _id 顺序读取一段 _id 区间 (from, to] 的文档
+ *
+ * 以 _id 排序的 search_after 从 from 之后开始读取，读到编码后大于 to 的 _id 时结束，
+ * from / to 为 null 分别表示区间无下界 / 无上界。_id 按 ES 排序使用的编码字节（{@link Uid#encodeId}）比较，
+ * 读取中出现逆序时抛出 IllegalStateException。
+ *
+ * @author everflowx
+ */
+class IdRangeReader {
+
+    private static final String ID_FIELD = "_id";
+
+    private final String index;
+    private final SearchAfterSourceCursor cursor;
+    private final BytesRef toKey;
+    private SearchHit[] page = new SearchHit[0];
+    private int offset;
+    private BytesRef lastKey;
+    private boolean finished;
+
+    IdRangeReader(RestHighLevelClient client, EsQueryHelper queryHelper, String index, String from, String to,
+                  int pageSize, boolean fetchSource) {
+        this.index = index;
+        this.toKey = to != null ? encode(to) : null;
+        SourceCursorConfig cursorConfig = new SourceCursorConfig()
+            .index(index)
+            .batchSize(pageSize)
+            .fetchSource(fetchSource)
+            .resumeAfter(from != null ? new Object[]{from} : null);
+        this.cursor = new SearchAfterSourceCursor(client, queryHelper, cursorConfig, ID_FIELD);
+    }
+
+    /**
+     * 区间内的下一个文档，读完时返回 null
+     */
+    SearchHit next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        while (offset >= page.length) {
+            if (cursor.isExhausted() || (page = cursor.nextBatch()).length == 0) {
+                finished = true;
+                return null;
+            }
+            offset = 0;
+        }
+        SearchHit hit = page[offset++];
+        BytesRef key = encode(hit.getId());
+        if (lastKey != null && key.compareTo(lastKey) <= 0) {
+            throw new IllegalStateException("索引 " + index + " 的 _id 排序与比较顺序不一致: " + hit.getId());
+        }
+        if (toKey != null && key.compareTo(toKey) > 0) {
+            finished = true;
+            return null;
+        }
+        lastKey = key;
+        return hit;
+    }
+
+    /**
+     * ES 对 _id 排序使用的编码形式
+     */
+    static BytesRef encode(String id) {
+        return Uid.encodeId(id);
+    }
+
+    /**
+     * 按 ES 排序顺序比较两个 _id，null 表示无上界，排在最后
+     */
+    static int compare(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        return encode(a).compareTo(encode(b));
+    }
+}
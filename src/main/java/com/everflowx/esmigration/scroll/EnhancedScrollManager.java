@@ -1,5 +1,7 @@
 package com.everflowx.esmigration.scroll;
 
+import com.everflowx.esmigration.cursor.SourceCursor;
+import com.everflowx.esmigration.monitor.GcPressureMonitor;
 import com.everflowx.esmigration.resilience.CircuitBreakerManager;
 import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.action.search.ClearScrollRequest;
@@ -37,6 +39,9 @@ public class EnhancedScrollManager {
     @Resource
     private CircuitBreakerManager circuitBreakerManager;
     
+    @Resource
+    private GcPressureMonitor gcPressureMonitor;
+    
     // 配置常量
     private static final String SCROLL_TIMEOUT_5M = "5m";
     private static final String SCROLL_TIMEOUT_10M = "10m";
@@ -111,11 +116,10 @@ public class EnhancedScrollManager {
                                 startTime, roundTime, hits.length);
                     }
                     
-                    // 内存压力过高时主动GC
+                    // 内存压力过高时暂停读取，等待下游消化
                     if (getMemoryPressure() > MEMORY_PRESSURE_THRESHOLD) {
-                        log.warn("内存压力过高 {:.1f}%，触发GC", getMemoryPressure() * 100);
-                        System.gc();
-                        Thread.sleep(1000); // 给GC时间
+                        log.warn("内存压力过高 {}%，暂停读取", String.format("%.1f", getMemoryPressure() * 100));
+                        Thread.sleep(1000);
                     }
                     
                     // 长时间运行的Scroll需要定期刷新（防止超时）
@@ -142,6 +146,67 @@ public class EnhancedScrollManager {
         }
     }
     
+    /**
+     * 基于源数据游标（PIT / search_after / scroll）的无限大数据集迁移
+     * 
+     * 与 startInfiniteScroll 不同，游标可以逐批调整批次大小，
+     * 且 PIT / search_after 游标不会长时间占用滚动上下文。
+     */
+    public void startInfiniteCursor(SourceCursor cursor, ScrollCallback callback, ScrollConfig config) {
+        AtomicLong totalProcessed = new AtomicLong(0);
+        AtomicLong rounds = new AtomicLong(0);
+        long startTime = System.currentTimeMillis();
+        int batchSize = config.getInitialBatchSize();
+        cursor.setBatchSize(batchSize);
+        
+        log.info("启动无限大数据集游标读取 - 游标类型: {}, 预估文档数: {}, 初始批次大小: {}", 
+            cursor.getType(), config.getEstimatedTotalDocs(), batchSize);
+        
+        try {
+            SearchHit[] hits = executeWithCircuitBreaker(null, "cursor_search", cursor::nextBatch);
+            
+            while (hits.length > 0) {
+                long roundStart = System.currentTimeMillis();
+                
+                callback.processHits(hits, rounds.get());
+                totalProcessed.addAndGet(hits.length);
+                rounds.incrementAndGet();
+                
+                long roundTime = System.currentTimeMillis() - roundStart;
+                if (rounds.get() % 100 == 0) {
+                    logScrollProgress(totalProcessed.get(), rounds.get(), startTime, roundTime, hits.length);
+                }
+                
+                // 自适应批次大小调整
+                if (config.isEnableAdaptiveBatching()) {
+                    int adjustedBatchSize = adjustBatchSizeForMemory(batchSize);
+                    if (adjustedBatchSize != batchSize) {
+                        log.debug("动态调整批次大小: {} -> {}", batchSize, adjustedBatchSize);
+                        batchSize = adjustedBatchSize;
+                        cursor.setBatchSize(batchSize);
+                    }
+                }
+                
+                // 适应性延迟，避免过度压迫ES
+                if (config.isEnableMemoryPressureControl()) {
+                    adaptiveDelay(getMemoryPressure(), hits.length);
+                }
+                
+                hits = executeWithCircuitBreaker(null, "cursor_search", cursor::nextBatch);
+            }
+            
+        } catch (Exception e) {
+            log.error("游标处理异常，已处理: {} 文档", totalProcessed.get(), e);
+            throw new RuntimeException("游标迁移失败: " + e.getMessage(), e);
+        } finally {
+            cursor.close();
+            
+            long totalTime = System.currentTimeMillis() - startTime;
+            log.info("无限大数据集游标读取完成 - 总处理: {} 文档, {} 轮, 耗时: {}ms", 
+                totalProcessed.get(), rounds.get(), totalTime);
+        }
+    }
+    
     /**
      * 带熔断器的ES操作执行
      */
@@ -213,13 +278,7 @@ public class EnhancedScrollManager {
      * 获取内存压力
      */
     private double getMemoryPressure() {
-        Runtime runtime = Runtime.getRuntime();
-        long totalMemory = runtime.totalMemory();
-        long freeMemory = runtime.freeMemory();
-        long maxMemory = runtime.maxMemory();
-        
-        long usedMemory = totalMemory - freeMemory;
-        return (double) usedMemory / maxMemory;
+        return gcPressureMonitor.getPressure();
     }
     
     /**
@@ -1,6 +1,7 @@
 package com.everflowx.esmigration.service;
 
 import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
 import com.everflowx.esmigration.manager.MigrationTaskManager;
 import com.everflowx.esmigration.service.EsMigrationService.MigrationResult;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,9 @@ public class EnhancedMigrationService {
     @Autowired
     private MigrationTaskManager taskManager;
     
+    @Autowired
+    private MigrationWorkerPool workerPool;
+    
     /**
      * 带进度回调的全量迁移
      */
@@ -124,7 +128,7 @@ public class EnhancedMigrationService {
      * 实际项目中应该在批处理过程中调用taskManager.updateTaskProgress
      */
     public void simulateProgressUpdate(String taskId, long totalDocs) {
-        new Thread(() -> {
+        workerPool.startStage("Progress-" + taskId, () -> {
             try {
                 long batchSize = 1000;
                 long processed = 0;
@@ -155,6 +159,6 @@ public class EnhancedMigrationService {
                 Thread.currentThread().interrupt();
                 log.warn("进度更新线程被中断");
             }
-        }).start();
+        });
     }
 }
\ No newline at end of file
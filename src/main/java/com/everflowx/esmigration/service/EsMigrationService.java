@@ -4,6 +4,7 @@ import com.everflowx.esmigration.domain.MigrationConfig;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ES数据迁移服务接口
@@ -29,6 +30,16 @@ public interface EsMigrationService {
      */
     MigrationResult incrementalMigration(MigrationConfig config, Date lastSyncTime);
     
+    /**
+     * 基于同步游标的增量同步
+     * 
+     * 从持久化的 (时间戳, _id) 游标继续读取，只处理新增或更新的文档，写入成功后推进游标
+     * 
+     * @param config 迁移配置，需指定时间戳字段
+     * @return 迁移结果统计
+     */
+    MigrationResult incrementalSync(MigrationConfig config);
+    
     /**
      * 检查索引是否存在
      * 
@@ -84,12 +95,12 @@ public interface EsMigrationService {
     Date getLastSyncTime(String indexName, String timestampField);
     
     /**
-     * 迁移结果统计
+     * 迁移结果统计，成功与失败计数可由批量写入回调并发累加
      */
     class MigrationResult {
         private long totalCount;
-        private long successCount;
-        private long failedCount;
+        private final AtomicLong successCount = new AtomicLong(0);
+        private final AtomicLong failedCount = new AtomicLong(0);
         private long skippedCount;
         private Date startTime;
         private Date endTime;
@@ -116,11 +127,13 @@ public interface EsMigrationService {
         public long getTotalCount() { return totalCount; }
         public void setTotalCount(long totalCount) { this.totalCount = totalCount; }
         
-        public long getSuccessCount() { return successCount; }
-        public void setSuccessCount(long successCount) { this.successCount = successCount; }
+        public long getSuccessCount() { return successCount.get(); }
+        public void setSuccessCount(long successCount) { this.successCount.set(successCount); }
+        public void addSuccessCount(long count) { successCount.addAndGet(count); }
         
-        public long getFailedCount() { return failedCount; }
-        public void setFailedCount(long failedCount) { this.failedCount = failedCount; }
+        public long getFailedCount() { return failedCount.get(); }
+        public void setFailedCount(long failedCount) { this.failedCount.set(failedCount); }
+        public void addFailedCount(long count) { failedCount.addAndGet(count); }
         
         public long getSkippedCount() { return skippedCount; }
         public void setSkippedCount(long skippedCount) { this.skippedCount = skippedCount; }
@@ -1,17 +1,19 @@
 package com.everflowx.esmigration.service;
 
+import com.everflowx.esmigration.bulk.AsyncBulkWriter;
+import com.everflowx.esmigration.bulk.AsyncBulkWriterFactory;
+import com.everflowx.esmigration.bulk.BulkRetryHandler.BulkOutcome;
 import com.everflowx.esmigration.checkpoint.*;
 import com.everflowx.esmigration.domain.MigrationConfig;
 import com.everflowx.esmigration.service.EsMigrationService;
 import com.everflowx.esmigration.service.EsMigrationService.MigrationResult;
+import com.everflowx.esmigration.transform.IndexRequestFactory;
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
-import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.search.SearchHit;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
@@ -19,6 +21,7 @@ import org.springframework.stereotype.Service;
 import javax.annotation.Resource;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -50,6 +53,9 @@ public class FieldLevelMigrationService {
     @Qualifier("esMigrationServiceImpl")
     private EsMigrationService baseMigrationService;
     
+    @Resource
+    private AsyncBulkWriterFactory asyncBulkWriterFactory;
+    
     /**
      * 带字段级别断点续传的迁移
      */
@@ -133,8 +139,11 @@ public class FieldLevelMigrationService {
         log.info("开始增强的单线程迁移: taskId={}", taskId);
         
         AtomicLong batchNumber = new AtomicLong(1);
+        IndexRequestFactory requestFactory = IndexRequestFactory.create(config);
+        // 写入结果在 IO 线程中入队，由迁移线程更新断点，断点管理器只在迁移线程中访问
+        Queue<CompletedBulk> completedBulks = new ConcurrentLinkedQueue<>();
         
-        try {
+        try (AsyncBulkWriter bulkWriter = asyncBulkWriterFactory.open(targetClient, config)) {
             // 这里重用父类的滚动查询逻辑，但在批次处理时增加断点管理
             org.elasticsearch.action.search.SearchRequest searchRequest = 
                 new org.elasticsearch.action.search.SearchRequest(config.getSourceIndex());
@@ -161,12 +170,10 @@ public class FieldLevelMigrationService {
                     taskId, batchNumber.get(), batchDocIds, searchHits.length);
                 
                 try {
-                    // 处理批次（带字段级别断点）
-                    processBatchWithFieldLevelCheckpoints(searchHits, config, result, taskId, batchCheckpoint);
-                    
-                    // 标记批次完成
-                    checkpointManager.updateBatchProgress(batchCheckpoint.getCheckpointId(), 
-                        searchHits.length, result.getSuccessCount(), result.getFailedCount());
+                    // 处理批次（带字段级别断点），写入完成后在下次处理结果时标记批次完成
+                    processBatchWithFieldLevelCheckpoints(searchHits, config, requestFactory, result, taskId, 
+                        batchCheckpoint, bulkWriter, completedBulks);
+                    processCompletedBulks(completedBulks, result, taskId);
                     
                 } catch (Exception e) {
                     log.error("批次处理失败: batchNumber=" + batchNumber.get(), e);
@@ -185,6 +192,10 @@ public class FieldLevelMigrationService {
                 searchHits = searchResponse.getHits().getHits();
             }
             
+            // 等待在途写入结束并处理剩余结果
+            bulkWriter.close();
+            processCompletedBulks(completedBulks, result, taskId);
+            
         } catch (Exception e) {
             log.error("增强单线程迁移异常", e);
             throw new RuntimeException(e);
@@ -209,14 +220,17 @@ public class FieldLevelMigrationService {
     }
     
     /**
-     * 带字段级别断点的批次处理
+     * 带字段级别断点的批次处理 - 转换后提交异步批量写入
      */
     private void processBatchWithFieldLevelCheckpoints(
             SearchHit[] hits, 
             MigrationConfig config, 
+            IndexRequestFactory requestFactory, 
             MigrationResult result, 
             String taskId,
-            FieldLevelCheckpoint batchCheckpoint) {
+            FieldLevelCheckpoint batchCheckpoint,
+            AsyncBulkWriter bulkWriter,
+            Queue<CompletedBulk> completedBulks) {
         
         BulkRequest bulkRequest = new BulkRequest();
         Map<String, FieldLevelCheckpoint> docFieldCheckpoints = new HashMap<>();
@@ -236,160 +250,95 @@ public class FieldLevelMigrationService {
                     }
                 }
                 
-                // 转换文档
-                Map<String, Object> targetData = transformDocumentData(sourceData, config);
-                
-                IndexRequest indexRequest = new IndexRequest(config.getTargetIndex())
-                    .id(hit.getId())
-                    .source(targetData, XContentType.JSON);
-                
-                bulkRequest.add(indexRequest);
+                // 转换文档（无需转换时直接转发源文档字节）
+                bulkRequest.add(requestFactory.build(hit, sourceData));
                 
             } catch (Exception e) {
                 log.error("文档预处理失败: docId=" + hit.getId(), e);
-                result.setFailedCount(result.getFailedCount() + 1);
+                result.addFailedCount(1);
                 
                 // 创建文档级别的失败断点
                 checkpointManager.markDocumentFailed(taskId, hit.getId(), e.getMessage());
             }
         }
         
-        // 执行批量写入
+        // 提交批量写入
         if (bulkRequest.numberOfActions() > 0) {
             try {
-                BulkResponse bulkResponse = targetClient.bulk(bulkRequest, RequestOptions.DEFAULT);
-                
-                // 详细处理每个文档的结果
-                processDetailedBulkResponse(bulkResponse, docFieldCheckpoints, result, taskId);
-                
+                bulkWriter.write(bulkRequest, bulkRequest.estimatedSizeInBytes(), (request, bytes, latencyMs, outcome) ->
+                    completedBulks.add(new CompletedBulk(request, outcome, docFieldCheckpoints, batchCheckpoint, hits.length)));
             } catch (Exception e) {
                 log.error("批量写入失败", e);
-                result.setFailedCount(result.getFailedCount() + bulkRequest.numberOfActions());
+                result.addFailedCount(bulkRequest.numberOfActions());
                 
                 // 为所有文档创建失败断点
-                for (int i = 0; i < bulkRequest.numberOfActions(); i++) {
-                    IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(i);
-                    checkpointManager.markDocumentFailed(taskId, indexRequest.id(), e.getMessage());
+                for (DocWriteRequest<?> request : bulkRequest.requests()) {
+                    checkpointManager.markDocumentFailed(taskId, request.id(), e.getMessage());
                 }
             }
+        } else {
+            checkpointManager.updateBatchProgress(batchCheckpoint.getCheckpointId(), 
+                hits.length, result.getSuccessCount(), result.getFailedCount());
         }
     }
     
     /**
-     * 详细处理批量响应
+     * 处理已结束的批量写入 - 更新文档与字段断点，并标记批次完成
      */
-    private void processDetailedBulkResponse(
-            BulkResponse bulkResponse,
-            Map<String, FieldLevelCheckpoint> docFieldCheckpoints,
-            MigrationResult result,
-            String taskId) {
-        
-        for (BulkItemResponse item : bulkResponse.getItems()) {
-            if (item.isFailed()) {
-                result.setFailedCount(result.getFailedCount() + 1);
-                
-                // 标记文档失败
-                checkpointManager.markDocumentFailed(taskId, item.getId(), item.getFailureMessage());
-                
-                // 标记相关字段检查点失败
-                docFieldCheckpoints.entrySet().stream()
-                    .filter(entry -> entry.getKey().startsWith(item.getId() + ":"))
-                    .forEach(entry -> {
-                        FieldLevelCheckpoint checkpoint = entry.getValue();
-                        String fieldName = entry.getKey().substring(entry.getKey().indexOf(":") + 1);
-                        checkpointManager.updateFieldCheckpoint(
-                            checkpoint.getCheckpointId(),
-                            fieldName,
-                            null,
-                            FieldLevelCheckpoint.FieldCheckpoint.FieldProcessStatus.FAILED
-                        );
-                    });
-                    
-                log.debug("文档写入失败: docId={}, 原因={}", item.getId(), item.getFailureMessage());
-                
-            } else {
-                result.setSuccessCount(result.getSuccessCount() + 1);
-                
-                // 标记相关字段检查点成功
-                docFieldCheckpoints.entrySet().stream()
-                    .filter(entry -> entry.getKey().startsWith(item.getId() + ":"))
-                    .forEach(entry -> {
-                        FieldLevelCheckpoint checkpoint = entry.getValue();
-                        String fieldName = entry.getKey().substring(entry.getKey().indexOf(":") + 1);
-                        checkpointManager.updateFieldCheckpoint(
-                            checkpoint.getCheckpointId(),
-                            fieldName,
-                            null, // transformedValue 可以从 targetData 中获取
-                            FieldLevelCheckpoint.FieldCheckpoint.FieldProcessStatus.INDEXED
-                        );
-                    });
-            }
+    private void processCompletedBulks(Queue<CompletedBulk> completedBulks, MigrationResult result, String taskId) {
+        CompletedBulk completed;
+        while ((completed = completedBulks.poll()) != null) {
+            processDetailedOutcome(completed, result, taskId);
+            checkpointManager.updateBatchProgress(completed.batchCheckpoint.getCheckpointId(), 
+                completed.batchSize, result.getSuccessCount(), result.getFailedCount());
         }
     }
     
     /**
-     * 转换文档数据
+     * 详细处理批量写入结果
      */
-    private Map<String, Object> transformDocumentData(Map<String, Object> sourceData, MigrationConfig config) {
-        Map<String, Object> targetData = new HashMap<>();
+    private void processDetailedOutcome(CompletedBulk completed, MigrationResult result, String taskId) {
+        BulkOutcome outcome = completed.outcome;
+        result.addSuccessCount(outcome.getSuccessCount());
+        result.addFailedCount(outcome.getFailedCount());
         
-        // 字段映射
-        if (config.getFieldMapping() != null) {
-            for (Map.Entry<String, String> mapping : config.getFieldMapping().entrySet()) {
-                String sourceField = mapping.getKey();
-                String targetField = mapping.getValue();
-                if (sourceData.containsKey(sourceField)) {
-                    Object value = sourceData.get(sourceField);
-                    // 处理忽略大小写的字段
-                    if (config.getCaseInsensitiveFields() != null && 
-                        config.getCaseInsensitiveFields().contains(targetField) && 
-                        value instanceof String) {
-                        value = ((String) value).toLowerCase();
-                    }
-                    targetData.put(targetField, value);
-                }
-            }
-        } else {
-            // 如果没有字段映射，直接复制所有字段
-            targetData.putAll(sourceData);
+        Map<String, String> failedDocs = new HashMap<>();
+        for (BulkItemResponse item : outcome.getFailures()) {
+            failedDocs.put(item.getId(), item.getFailureMessage());
         }
-        
-        // 添加新字段
-        if (config.getNewFields() != null) {
-            targetData.putAll(config.getNewFields());
+        // 请求整体失败时没有逐条结果，只有当次未写入的文档计为失败
+        for (DocWriteRequest<?> request : outcome.getUnwrittenRequests()) {
+            failedDocs.put(request.id(), "批量写入失败: " + outcome.getRequestError());
         }
         
-        // 处理忽略大小写的字段
-        if (config.getCaseInsensitiveFields() != null) {
-            for (String field : config.getCaseInsensitiveFields()) {
-                if (targetData.containsKey(field) && targetData.get(field) instanceof String) {
-                    targetData.put(field, ((String) targetData.get(field)).toLowerCase());
-                }
-            }
-        }
-        
-        // 排除字段
-        if (config.getExcludeFields() != null) {
-            for (String excludeField : config.getExcludeFields()) {
-                targetData.remove(excludeField);
-            }
-        }
-        
-        // 只包含指定字段（只有当includeFields不为空且包含字段时才过滤）
-        if (config.getIncludeFields() != null && !config.getIncludeFields().isEmpty()) {
-            Map<String, Object> filteredData = new HashMap<>();
-            for (String includeField : config.getIncludeFields()) {
-                if (targetData.containsKey(includeField)) {
-                    filteredData.put(includeField, targetData.get(includeField));
-                }
-            }
-            // 只有当过滤后还有数据时才替换，避免空数组导致所有字段被过滤
-            if (!filteredData.isEmpty()) {
-                targetData = filteredData;
+        for (DocWriteRequest<?> request : completed.request.requests()) {
+            String docId = request.id();
+            boolean failed = failedDocs.containsKey(docId);
+            if (failed) {
+                String reason = failedDocs.get(docId);
+                
+                // 标记文档失败
+                checkpointManager.markDocumentFailed(taskId, docId, reason);
+                log.debug("文档写入失败: docId={}, 原因={}", docId, reason);
             }
+            
+            // 标记相关字段检查点状态
+            FieldLevelCheckpoint.FieldCheckpoint.FieldProcessStatus status = failed
+                ? FieldLevelCheckpoint.FieldCheckpoint.FieldProcessStatus.FAILED
+                : FieldLevelCheckpoint.FieldCheckpoint.FieldProcessStatus.INDEXED;
+            completed.docFieldCheckpoints.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(docId + ":"))
+                .forEach(entry -> {
+                    FieldLevelCheckpoint checkpoint = entry.getValue();
+                    String fieldName = entry.getKey().substring(entry.getKey().indexOf(":") + 1);
+                    checkpointManager.updateFieldCheckpoint(
+                        checkpoint.getCheckpointId(),
+                        fieldName,
+                        null, // transformedValue 可以从 targetData 中获取
+                        status
+                    );
+                });
         }
-        
-        return targetData;
     }
     
     /**
@@ -508,4 +457,24 @@ public class FieldLevelMigrationService {
             config.getTargetIndex(), 
             System.currentTimeMillis());
     }
+    
+    /**
+     * 已结束的批量写入及其对应的断点
+     */
+    private static class CompletedBulk {
+        private final BulkRequest request;
+        private final BulkOutcome outcome;
+        private final Map<String, FieldLevelCheckpoint> docFieldCheckpoints;
+        private final FieldLevelCheckpoint batchCheckpoint;
+        private final int batchSize;
+        
+        CompletedBulk(BulkRequest request, BulkOutcome outcome, Map<String, FieldLevelCheckpoint> docFieldCheckpoints,
+                      FieldLevelCheckpoint batchCheckpoint, int batchSize) {
+            this.request = request;
+            this.outcome = outcome;
+            this.docFieldCheckpoints = docFieldCheckpoints;
+            this.batchCheckpoint = batchCheckpoint;
+            this.batchSize = batchSize;
+        }
+    }
 }
\ No newline at end of file
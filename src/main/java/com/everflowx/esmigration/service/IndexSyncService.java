@@ -4,6 +4,7 @@ import com.everflowx.esmigration.domain.IndexSyncConfig;
 import com.everflowx.esmigration.domain.IndexSyncResult;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 索引同步服务接口
@@ -20,6 +21,15 @@ public interface IndexSyncService {
      */
     IndexSyncResult syncIndices(IndexSyncConfig config);
     
+    /**
+     * 同步指定索引，并在同步过程中回调各索引进度
+     * 
+     * @param config 同步配置
+     * @param progressListener 进度回调
+     * @return 同步结果
+     */
+    IndexSyncResult syncIndices(IndexSyncConfig config, Consumer<IndexSyncResult> progressListener);
+    
     /**
      * 同步单个索引
      * 
@@ -0,0 +1,34 @@
+package com.everflowx.esmigration.service;
+
+import com.everflowx.esmigration.domain.SyncCursor;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 增量同步游标服务接口
+ *
+ * @author everflowx
+ */
+public interface SyncCursorService {
+
+    /**
+     * 获取源/目标索引对的同步游标
+     */
+    Optional<SyncCursor> getCursor(String sourceIndex, String targetIndex);
+
+    /**
+     * 保存同步游标
+     */
+    void saveCursor(SyncCursor cursor);
+
+    /**
+     * 删除同步游标，下一轮同步从头开始
+     */
+    void removeCursor(String sourceIndex, String targetIndex);
+
+    /**
+     * 获取所有同步游标
+     */
+    List<SyncCursor> getCursors();
+}
@@ -1,27 +1,32 @@
 package com.everflowx.esmigration.service;
 
+import com.everflowx.esmigration.bulk.AsyncBulkWriter;
+import com.everflowx.esmigration.bulk.AsyncBulkWriterFactory;
+import com.everflowx.esmigration.cursor.SourceCursor;
+import com.everflowx.esmigration.cursor.SourceCursorConfig;
+import com.everflowx.esmigration.cursor.SourceCursorFactory;
 import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.metadata.IndexMetadataCache;
+import com.everflowx.esmigration.monitor.GcPressureMonitor;
 import com.everflowx.esmigration.pagination.PaginationMigrationEngine;
 import com.everflowx.esmigration.resilience.CircuitBreakerManager;
 import com.everflowx.esmigration.scroll.EnhancedScrollManager;
+import com.everflowx.esmigration.stream.CursorDocumentSupplier;
 import com.everflowx.esmigration.stream.StreamingMigrationEngine;
 import com.everflowx.esmigration.throttle.AdaptiveThrottleController;
+import com.everflowx.esmigration.transform.IndexRequestFactory;
+import com.everflowx.esmigration.transform.TransformPlan;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
-import org.elasticsearch.action.index.IndexRequest;
-import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.common.xcontent.XContentType;
-import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
-import java.util.Arrays;
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -55,9 +60,21 @@ public class UnlimitedMigrationService {
     @Resource
     private AdaptiveThrottleController throttleController;
     
+    @Resource
+    private AsyncBulkWriterFactory asyncBulkWriterFactory;
+    
+    @Resource
+    private GcPressureMonitor gcPressureMonitor;
+    
     @Resource
     private CircuitBreakerManager circuitBreakerManager;
     
+    @Resource
+    private SourceCursorFactory sourceCursorFactory;
+    
+    @Resource
+    private IndexMetadataCache indexMetadataCache;
+    
     /**
      * 启动无限大数据量迁移
      * 自动选择最适合的策略，确保无论多大数据都能完成
@@ -173,10 +190,18 @@ public class UnlimitedMigrationService {
         log.info("🌊 执行流式迁移策略");
         
         // 创建文档供应商
-        StreamingDocumentSupplier supplier = new StreamingDocumentSupplier(sourceClient, config);
+        CursorDocumentSupplier supplier;
+        try {
+            supplier = new CursorDocumentSupplier(
+                sourceCursorFactory.open(sourceClient, buildCursorConfig(config, config.getBatchSize())));
+        } catch (IOException e) {
+            log.error("打开源数据游标失败", e);
+            result.setErrorMessage("打开源数据游标失败: " + e.getMessage());
+            return;
+        }
         
         // 创建文档转换器
-        StreamingDocumentTransformer transformer = new StreamingDocumentTransformer();
+        StreamingDocumentTransformer transformer = new StreamingDocumentTransformer(TransformPlan.compile(config));
         
         // 启动流式迁移
         StreamingMigrationEngine.StreamingMigrationResult streamResult = 
@@ -206,21 +231,23 @@ public class UnlimitedMigrationService {
                 .strategy(PaginationMigrationEngine.PaginationStrategy.HYBRID)
                 .pageSize(throttleController.getAdaptiveBatchSize())
                 .timeField(config.getTimestampField())
-                .timeWindowMinutes(10);
+                .parallelism(config.getThreadCount());
         
-        // 创建分页回调
-        PaginationCallback callback = new PaginationCallback(targetClient, config, result);
+        // 创建分页回调，各时间窗口共用一个异步写入器
+        AsyncBulkWriter bulkWriter = openBulkWriter(targetClient, config, result);
+        PaginationCallback callback = new PaginationCallback(bulkWriter, config);
         
         // 启动分页迁移
         PaginationMigrationEngine.PaginationResult paginationResult = 
             paginationEngine.startPagination(sourceClient, config, callback, paginationConfig);
+        closeBulkWriter(bulkWriter, result);
         
-        // 转换结果
+        // 转换结果，成功与失败数由写入器回调累加
         result.setProcessedCount(paginationResult.getProcessedCount());
-        result.setSuccessCount(paginationResult.getSuccessCount());
-        result.setFailedCount(paginationResult.getFailedCount());
         result.setTotalPages(paginationResult.getTotalPages());
-        result.setErrorMessage(paginationResult.getErrorMessage());
+        if (paginationResult.getErrorMessage() != null) {
+            result.setErrorMessage(paginationResult.getErrorMessage());
+        }
     }
     
     /**
@@ -234,26 +261,41 @@ public class UnlimitedMigrationService {
         
         log.info("🔄 执行增强Scroll迁移策略");
         
-        // 创建初始搜索请求
-        org.elasticsearch.action.search.SearchRequest searchRequest = new org.elasticsearch.action.search.SearchRequest(config.getSourceIndex());
-        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-        sourceBuilder.query(QueryBuilders.matchAllQuery());
-        sourceBuilder.size(throttleController.getAdaptiveBatchSize());
-        sourceBuilder.trackTotalHits(true);
-        searchRequest.source(sourceBuilder);
-        
         // 创建Scroll回调
-        ScrollCallback callback = new ScrollCallback(targetClient, config, result);
+        AsyncBulkWriter bulkWriter = openBulkWriter(targetClient, config, result);
+        ScrollCallback callback = new ScrollCallback(bulkWriter, config);
         
         // 配置Scroll参数
         EnhancedScrollManager.ScrollConfig scrollConfig = new EnhancedScrollManager.ScrollConfig()
             .estimatedTotalDocs(10_000_000L) // 假设1000万文档
-            .initialBatchSize(config.getBatchSize())
+            .initialBatchSize(throttleController.getAdaptiveBatchSize())
             .enableAdaptiveBatching(true)
             .enableMemoryPressureControl(true);
         
-        // 启动增强Scroll
-        scrollManager.startInfiniteScroll(sourceClient, searchRequest, callback, scrollConfig);
+        // 打开源数据游标并启动读取
+        SourceCursor cursor;
+        try {
+            cursor = sourceCursorFactory.open(sourceClient, 
+                buildCursorConfig(config, throttleController.getAdaptiveBatchSize()));
+        } catch (IOException e) {
+            log.error("打开源数据游标失败", e);
+            result.setErrorMessage("打开源数据游标失败: " + e.getMessage());
+            return;
+        }
+        scrollManager.startInfiniteCursor(cursor, callback, scrollConfig);
+        closeBulkWriter(bulkWriter, result);
+    }
+    
+    /**
+     * 等待在途批量写入结束
+     */
+    private void closeBulkWriter(AsyncBulkWriter bulkWriter, UnlimitedMigrationResult result) {
+        try {
+            bulkWriter.close();
+        } catch (IOException e) {
+            log.warn("等待批量写入完成时被中断");
+            result.setErrorMessage("等待批量写入完成时被中断");
+        }
     }
     
     /**
@@ -287,19 +329,23 @@ public class UnlimitedMigrationService {
         }
     }
     
+    /**
+     * 构建源数据游标配置
+     */
+    private SourceCursorConfig buildCursorConfig(MigrationConfig config, int batchSize) {
+        return new SourceCursorConfig()
+            .index(config.getSourceIndex())
+            .batchSize(batchSize)
+            .keepAliveMinutes(config.getScrollTimeout())
+            .type(config.getCursorType());
+    }
+    
     /**
      * 获取预估文档数量
      */
     private long getEstimatedDocCount(RestHighLevelClient client, String indexName) {
         try {
-            org.elasticsearch.action.search.SearchRequest request = new org.elasticsearch.action.search.SearchRequest(indexName);
-            SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-            sourceBuilder.size(0);
-            sourceBuilder.trackTotalHits(true);
-            request.source(sourceBuilder);
-            
-            org.elasticsearch.action.search.SearchResponse response = client.search(request, RequestOptions.DEFAULT);
-            return response.getHits().getTotalHits().value;
+            return indexMetadataCache.getEstimatedDocCount(client, indexName);
         } catch (Exception e) {
             log.warn("获取文档数量失败，使用默认值: {}", e.getMessage());
             return 1000000; // 默认100万
@@ -307,20 +353,13 @@ public class UnlimitedMigrationService {
     }
     
     /**
-     * 检查是否有时间字段
+     * 检查是否有时间字段（按缓存的索引映射判断）
      */
     private boolean hasTimeField(RestHighLevelClient client, String indexName, String timeField) {
         if (timeField == null) return false;
         
         try {
-            org.elasticsearch.action.search.SearchRequest request = new org.elasticsearch.action.search.SearchRequest(indexName);
-            SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-            sourceBuilder.query(QueryBuilders.existsQuery(timeField));
-            sourceBuilder.size(1);
-            request.source(sourceBuilder);
-            
-            org.elasticsearch.action.search.SearchResponse response = client.search(request, RequestOptions.DEFAULT);
-            return response.getHits().getTotalHits().value > 0;
+            return indexMetadataCache.hasField(client, indexName, timeField);
         } catch (Exception e) {
             return false;
         }
@@ -330,13 +369,7 @@ public class UnlimitedMigrationService {
      * 获取当前内存压力
      */
     private double getCurrentMemoryPressure() {
-        Runtime runtime = Runtime.getRuntime();
-        long totalMemory = runtime.totalMemory();
-        long freeMemory = runtime.freeMemory();
-        long maxMemory = runtime.maxMemory();
-        
-        long usedMemory = totalMemory - freeMemory;
-        return (double) usedMemory / maxMemory;
+        return gcPressureMonitor.getPressure();
     }
     
     /**
@@ -374,112 +407,81 @@ public class UnlimitedMigrationService {
     }
     
     /**
-     * 流式文档供应商实现
+     * 流式文档转换器实现
      */
-    private class StreamingDocumentSupplier implements StreamingMigrationEngine.DocumentSupplier {
-        private final RestHighLevelClient client;
-        private final MigrationConfig config;
-        private String scrollId;
-        private boolean isFirstBatch = true;
+    private static class StreamingDocumentTransformer implements StreamingMigrationEngine.DocumentTransformer {
+        private final TransformPlan plan;
         
-        public StreamingDocumentSupplier(RestHighLevelClient client, MigrationConfig config) {
-            this.client = client;
-            this.config = config;
+        StreamingDocumentTransformer(TransformPlan plan) {
+            this.plan = plan;
         }
         
         @Override
-        public SearchHit[] nextBatch(int batchSize) throws Exception {
-            if (isFirstBatch) {
-                isFirstBatch = false;
-                
-                org.elasticsearch.action.search.SearchRequest request = new org.elasticsearch.action.search.SearchRequest(config.getSourceIndex());
-                SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-                sourceBuilder.query(QueryBuilders.matchAllQuery());
-                sourceBuilder.size(batchSize);
-                sourceBuilder.trackTotalHits(true);
-                request.source(sourceBuilder);
-                request.scroll(org.elasticsearch.common.unit.TimeValue.timeValueMinutes(5));
-                
-                org.elasticsearch.action.search.SearchResponse response = client.search(request, RequestOptions.DEFAULT);
-                scrollId = response.getScrollId();
-                return response.getHits().getHits();
-            } else {
-                if (scrollId == null) return null;
-                
-                org.elasticsearch.action.search.SearchScrollRequest scrollRequest = new org.elasticsearch.action.search.SearchScrollRequest(scrollId);
-                scrollRequest.scroll(org.elasticsearch.common.unit.TimeValue.timeValueMinutes(5));
-                
-                org.elasticsearch.action.search.SearchResponse response = client.scroll(scrollRequest, RequestOptions.DEFAULT);
-                scrollId = response.getScrollId();
-                SearchHit[] hits = response.getHits().getHits();
-                
-                return hits.length > 0 ? hits : null;
-            }
+        public Map<String, Object> transform(Map<String, Object> sourceDoc, MigrationConfig config) throws Exception {
+            // 转换计划在任务开始时编译，这里只做单次遍历
+            return plan.apply(sourceDoc);
         }
     }
     
     /**
-     * 流式文档转换器实现
+     * 打开异步批量写入器，被拒绝的文档退避后重试，只有永久性错误计为失败，写入结果累加到迁移结果
      */
-    private class StreamingDocumentTransformer implements StreamingMigrationEngine.DocumentTransformer {
-        @Override
-        public Map<String, Object> transform(Map<String, Object> sourceDoc, MigrationConfig config) throws Exception {
-            // 这里可以实现具体的文档转换逻辑
-            // 暂时直接返回原文档
-            return sourceDoc;
+    private AsyncBulkWriter openBulkWriter(RestHighLevelClient targetClient, MigrationConfig config,
+                                          UnlimitedMigrationResult result) {
+        return asyncBulkWriterFactory.open(targetClient, config, (bulkRequest, bytes, latencyMs, outcome) -> {
+            result.addSuccessCount(outcome.getSuccessCount());
+            result.addFailedCount(outcome.getFailedCount());
+        });
+    }
+    
+    /**
+     * 转换一批文档并提交异步批量写入，限流许可在写入结束后释放
+     * 
+     * @return 写入结束后完成，批量请求整体失败时异常完成
+     */
+    private CompletableFuture<Void> submitWithThrottle(SearchHit[] hits, IndexRequestFactory requestFactory,
+                                                       AsyncBulkWriter bulkWriter) throws Exception {
+        AdaptiveThrottleController.ThrottlePermit permit = throttleController.acquirePermit();
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        boolean submitted = false;
+        try {
+            BulkRequest bulkRequest = new BulkRequest();
+            for (SearchHit hit : hits) {
+                bulkRequest.add(requestFactory.build(hit));
+            }
+            bulkWriter.write(bulkRequest, bulkRequest.estimatedSizeInBytes(), (request, bytes, latencyMs, outcome) -> {
+                permit.updateProcessedDocs(hits.length);
+                permit.release();
+                if (outcome.isRequestFailed()) {
+                    written.completeExceptionally(new IOException("批量写入整体失败: " + bulkWriter.getLastError()));
+                } else {
+                    written.complete(null);
+                }
+            });
+            submitted = true;
+        } finally {
+            if (!submitted) {
+                permit.release();
+            }
         }
+        return written;
     }
     
     /**
      * 分页回调实现
      */
     private class PaginationCallback implements PaginationMigrationEngine.PaginationCallback {
-        private final RestHighLevelClient targetClient;
-        private final MigrationConfig config;
-        private final UnlimitedMigrationResult result;
+        private final AsyncBulkWriter bulkWriter;
+        private final IndexRequestFactory requestFactory;
         
-        public PaginationCallback(RestHighLevelClient targetClient, MigrationConfig config, UnlimitedMigrationResult result) {
-            this.targetClient = targetClient;
-            this.config = config;
-            this.result = result;
+        public PaginationCallback(AsyncBulkWriter bulkWriter, MigrationConfig config) {
+            this.bulkWriter = bulkWriter;
+            this.requestFactory = IndexRequestFactory.create(config);
         }
         
         @Override
-        public void processPage(SearchHit[] hits, long pageNumber, String pageKey) throws Exception {
-            AdaptiveThrottleController.ThrottlePermit permit = throttleController.acquirePermit();
-            try {
-                processBatchWithThrottle(hits, permit);
-            } finally {
-                permit.release();
-            }
-        }
-        
-        private void processBatchWithThrottle(SearchHit[] hits, AdaptiveThrottleController.ThrottlePermit permit) throws Exception {
-            BulkRequest bulkRequest = new BulkRequest();
-            
-            for (SearchHit hit : hits) {
-                Map<String, Object> sourceData = hit.getSourceAsMap();
-                IndexRequest indexRequest = new IndexRequest(config.getTargetIndex())
-                    .id(hit.getId())
-                    .source(sourceData, XContentType.JSON);
-                bulkRequest.add(indexRequest);
-            }
-            
-            BulkResponse bulkResponse = targetClient.bulk(bulkRequest, RequestOptions.DEFAULT);
-            
-            if (bulkResponse.hasFailures()) {
-                Arrays.stream(bulkResponse.getItems()).forEach(item -> {
-                    if (item.isFailed()) {
-                        result.addFailedCount(1);
-                    } else {
-                        result.addSuccessCount(1);
-                    }
-                });
-            } else {
-                result.addSuccessCount(hits.length);
-            }
-            
-            permit.updateProcessedDocs(hits.length);
+        public CompletableFuture<Void> processPage(SearchHit[] hits, long pageNumber, String pageKey) throws Exception {
+            return submitWithThrottle(hits, requestFactory, bulkWriter);
         }
     }
     
@@ -487,52 +489,17 @@ public class UnlimitedMigrationService {
      * Scroll回调实现
      */
     private class ScrollCallback implements EnhancedScrollManager.ScrollCallback {
-        private final RestHighLevelClient targetClient;
-        private final MigrationConfig config;
-        private final UnlimitedMigrationResult result;
+        private final AsyncBulkWriter bulkWriter;
+        private final IndexRequestFactory requestFactory;
         
-        public ScrollCallback(RestHighLevelClient targetClient, MigrationConfig config, UnlimitedMigrationResult result) {
-            this.targetClient = targetClient;
-            this.config = config;
-            this.result = result;
+        public ScrollCallback(AsyncBulkWriter bulkWriter, MigrationConfig config) {
+            this.bulkWriter = bulkWriter;
+            this.requestFactory = IndexRequestFactory.create(config);
         }
         
         @Override
         public void processHits(SearchHit[] hits, long scrollRound) throws Exception {
-            AdaptiveThrottleController.ThrottlePermit permit = throttleController.acquirePermit();
-            try {
-                processBatchWithThrottle(hits, permit);
-            } finally {
-                permit.release();
-            }
-        }
-        
-        private void processBatchWithThrottle(SearchHit[] hits, AdaptiveThrottleController.ThrottlePermit permit) throws Exception {
-            BulkRequest bulkRequest = new BulkRequest();
-            
-            for (SearchHit hit : hits) {
-                Map<String, Object> sourceData = hit.getSourceAsMap();
-                IndexRequest indexRequest = new IndexRequest(config.getTargetIndex())
-                    .id(hit.getId())
-                    .source(sourceData, XContentType.JSON);
-                bulkRequest.add(indexRequest);
-            }
-            
-            BulkResponse bulkResponse = targetClient.bulk(bulkRequest, RequestOptions.DEFAULT);
-            
-            if (bulkResponse.hasFailures()) {
-                Arrays.stream(bulkResponse.getItems()).forEach(item -> {
-                    if (item.isFailed()) {
-                        result.addFailedCount(1);
-                    } else {
-                        result.addSuccessCount(1);
-                    }
-                });
-            } else {
-                result.addSuccessCount(hits.length);
-            }
-            
-            permit.updateProcessedDocs(hits.length);
+            submitWithThrottle(hits, requestFactory, bulkWriter);
         }
     }
     
@@ -1,24 +1,41 @@
 package com.everflowx.esmigration.service.impl;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.everflowx.esmigration.bulk.AsyncBulkWriter;
+import com.everflowx.esmigration.bulk.AsyncBulkWriterFactory;
+import com.everflowx.esmigration.bulk.BulkAssembler;
 import com.everflowx.esmigration.config.ElasticsearchConfig;
+import com.everflowx.esmigration.cursor.SeqNoSourceCursor;
+import com.everflowx.esmigration.cursor.SourceCursor;
+import com.everflowx.esmigration.cursor.SourceCursorConfig;
+import com.everflowx.esmigration.cursor.ShardReadPlanner;
+import com.everflowx.esmigration.cursor.SourceCursorFactory;
+import com.everflowx.esmigration.cursor.WatermarkSourceCursor;
+import com.everflowx.esmigration.domain.ChangeCaptureMode;
 import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.domain.SyncCursor;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
+import com.everflowx.esmigration.metadata.IndexMetadataCache;
+import com.everflowx.esmigration.monitor.GcPressureMonitor;
 import com.everflowx.esmigration.service.EsMigrationService;
+import com.everflowx.esmigration.service.SyncCursorService;
+import com.everflowx.esmigration.throttle.BulkConcurrencyController;
+import com.everflowx.esmigration.transform.IndexRequestFactory;
 import com.everflowx.esmigration.util.EsQueryHelper;
 import lombok.extern.slf4j.Slf4j;
-import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsRequest;
-import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.indices.CreateIndexRequest;
-import org.elasticsearch.client.indices.GetIndexRequest;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.BoolQueryBuilder;
@@ -28,20 +45,23 @@ import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import com.everflowx.esmigration.service.CheckpointService;
 import com.everflowx.esmigration.domain.MigrationCheckpoint;
 import com.everflowx.esmigration.monitor.MigrationMonitor;
+import com.everflowx.esmigration.pipeline.PipelinedMigrationEngine;
+import com.everflowx.esmigration.reconcile.ContentVerifier;
+import com.everflowx.esmigration.reconcile.DeleteReconciler;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -73,12 +93,52 @@ public class EsMigrationServiceImpl implements EsMigrationService {
     @Resource
     private MigrationMonitor migrationMonitor;
     
+    @Resource
+    private SourceCursorFactory sourceCursorFactory;
+    
+    @Resource
+    private PipelinedMigrationEngine pipelinedMigrationEngine;
+    
+    @Resource
+    private AsyncBulkWriterFactory asyncBulkWriterFactory;
+    
+    @Resource
+    private BulkConcurrencyController bulkConcurrencyController;
+    
+    @Resource
+    private MigrationWorkerPool workerPool;
+    
+    @Resource
+    private GcPressureMonitor gcPressureMonitor;
+    
+    @Resource
+    private IndexMetadataCache indexMetadataCache;
+    
+    @Resource
+    private ShardReadPlanner shardReadPlanner;
+    
+    @Resource
+    private SyncCursorService syncCursorService;
+    
+    @Resource
+    private DeleteReconciler deleteReconciler;
+    
+    @Resource
+    private ContentVerifier contentVerifier;
+    
+    @Value("${es.migration.sync-cursor.overlap-ms:60000}")
+    private long syncOverlapMs;
+    
     private static final String SCROLL_ID_TIMEOUT = "5m";
+    private static final int CHECKPOINT_INTERVAL_BATCHES = 10;
+    private static final double GC_PRESSURE_PAUSE = 0.9;
+    private static final long GC_PRESSURE_PAUSE_MS = 1000;
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
     
     @Override
     public MigrationResult fullMigration(MigrationConfig config) {
-        String taskId = generateTaskId(config);
+        String taskId = config.getTaskId() != null ? config.getTaskId()
+            : findResumableTaskId(config).orElseGet(() -> generateTaskId(config));
         log.info("开始全量数据迁移，任务ID: {}, 源索引: {}, 目标索引: {}, 响应缓冲区: {}MB",
                 taskId, config.getSourceIndex(), config.getTargetIndex(),
                 elasticsearchConfig.getResponseBufferLimit() / 1024 / 1024);
@@ -147,8 +207,8 @@ public class EsMigrationServiceImpl implements EsMigrationService {
             checkpointService.removeCheckpoint(taskId);
             log.info("迁移成功完成，清理断点信息");
         } else {
-            // 保存失败状态
-            MigrationCheckpoint failedCheckpoint = new MigrationCheckpoint();
+            // 保存失败状态，保留已记录的读取位置以便下次恢复
+            MigrationCheckpoint failedCheckpoint = checkpointService.getCheckpoint(taskId).orElseGet(MigrationCheckpoint::new);
             failedCheckpoint.setTaskId(taskId);
             failedCheckpoint.setSourceIndex(config.getSourceIndex());
             failedCheckpoint.setTargetIndex(config.getTargetIndex());
@@ -160,6 +220,9 @@ public class EsMigrationServiceImpl implements EsMigrationService {
             checkpointService.saveCheckpoint(failedCheckpoint);
         }
         
+        // 目标索引已写入，缓存的文档数不再准确
+        indexMetadataCache.invalidateCount(targetClient, config.getTargetIndex());
+        
         // 完成任务监控
         String finalStatus = result.getErrorMessage() == null ? "COMPLETED" : "FAILED";
         migrationMonitor.completeTask(taskId, finalStatus);
@@ -170,6 +233,17 @@ public class EsMigrationServiceImpl implements EsMigrationService {
                 taskId, result.getTotalCount(), result.getSuccessCount(), 
                 result.getFailedCount(), result.getSkippedCount(), result.getDurationMs());
         
+        // 全量迁移无失败时删除目标索引中源索引已不存在的文档
+        if (Boolean.TRUE.equals(config.getDeleteNotExist()) && result.getErrorMessage() == null
+                && result.getFailedCount() == 0) {
+            DeleteReconciler.ReconcileResult reconcileResult = deleteReconciler.reconcile(config);
+            if (reconcileResult.getErrorMessage() != null) {
+                List<String> errors = result.getErrors() != null ? result.getErrors() : new ArrayList<>();
+                errors.add("删除同步失败: " + reconcileResult.getErrorMessage());
+                result.setErrors(errors);
+            }
+        }
+        
         return result;
     }
     
@@ -206,6 +280,7 @@ public class EsMigrationServiceImpl implements EsMigrationService {
         }
         
         result.finish();
+        indexMetadataCache.invalidateCount(targetClient, config.getTargetIndex());
         log.info("增量迁移完成，总数: {}, 成功: {}, 失败: {}, 跳过: {}, 耗时: {}ms", 
                 result.getTotalCount(), result.getSuccessCount(), 
                 result.getFailedCount(), result.getSkippedCount(), result.getDurationMs());
@@ -213,91 +288,460 @@ public class EsMigrationServiceImpl implements EsMigrationService {
         return result;
     }
     
+    @Override
+    public MigrationResult incrementalSync(MigrationConfig config) {
+        MigrationResult result = new MigrationResult();
+        
+        try {
+            if (config.getChangeCapture() == ChangeCaptureMode.SEQ_NO) {
+                executeSeqNoSync(config, result);
+            } else {
+                executeCursorSync(config, result);
+            }
+        } catch (Exception e) {
+            log.error("增量同步失败", e);
+            result.setErrorMessage("增量同步失败: " + e.getMessage());
+        }
+        
+        result.finish();
+        indexMetadataCache.invalidateCount(targetClient, config.getTargetIndex());
+        log.info("增量同步完成，总数: {}, 成功: {}, 失败: {}, 跳过: {}, 耗时: {}ms", 
+                result.getTotalCount(), result.getSuccessCount(), 
+                result.getFailedCount(), result.getSkippedCount(), result.getDurationMs());
+        
+        return result;
+    }
+    
+    /**
+     * 执行基于游标的增量同步
+     * 
+     * 按 (时间戳, _id) 从游标位置 search_after 读取，配置了重叠窗口时从游标时间戳减去窗口处开始，
+     * 重新写入窗口内的文档以补上刷新延迟或时钟偏差导致晚到的文档，写入按 _id 覆盖，重复写入结果不变。
+     * 每隔若干批次等待在途写入完成后推进游标；本轮出现请求整体失败或重试耗尽的写入失败时停止推进并结束，
+     * 下一轮从最后保存的位置重读。映射冲突、转换失败等永久性的单文档失败重读也无法成功，只计数不阻止推进。
+     */
+    private void executeCursorSync(MigrationConfig config, MigrationResult result) throws IOException {
+        String timestampField = config.getTimestampField();
+        if (timestampField == null || timestampField.isEmpty()) {
+            throw new IllegalArgumentException("增量同步需要指定时间戳字段");
+        }
+        
+        SyncCursor syncCursor = syncCursorService.getCursor(config.getSourceIndex(), config.getTargetIndex()).orElse(null);
+        if (syncCursor != null && !timestampField.equals(syncCursor.getTimestampField())) {
+            log.warn("时间戳字段已从 {} 变为 {}，同步游标失效，从头同步", syncCursor.getTimestampField(), timestampField);
+            syncCursor = null;
+        }
+        if (syncCursor == null) {
+            syncCursor = new SyncCursor();
+            syncCursor.setSourceIndex(config.getSourceIndex());
+            syncCursor.setTargetIndex(config.getTargetIndex());
+            syncCursor.setTimestampField(timestampField);
+        }
+        
+        // 缺失时间戳的文档会排在最后并把水位推到最大值，只同步有时间戳的文档
+        BoolQueryBuilder query = QueryBuilders.boolQuery().filter(QueryBuilders.existsQuery(timestampField));
+        Object[] resumeAfter = null;
+        if (syncCursor.getTimestamp() != null) {
+            long from = syncCursor.getTimestamp() - Math.max(syncOverlapMs, 0);
+            query.filter(QueryBuilders.rangeQuery(timestampField).gte(from).format("epoch_millis"));
+            resumeAfter = syncOverlapMs > 0
+                ? new Object[]{from, ""}
+                : new Object[]{syncCursor.getTimestamp(), syncCursor.getDocId()};
+        }
+        log.info("开始增量同步，源索引: {}, 目标索引: {}, 游标: [{}, {}], 重叠窗口: {}ms",
+                config.getSourceIndex(), config.getTargetIndex(), syncCursor.getTimestamp(), syncCursor.getDocId(),
+                syncOverlapMs);
+        
+        SourceCursorConfig cursorConfig = new SourceCursorConfig()
+            .index(config.getSourceIndex())
+            .query(query)
+            .batchSize(config.getBatchSize())
+            .resumeAfter(resumeAfter);
+        IndexRequestFactory requestFactory = createRequestFactory(config);
+        syncCursor.setLastCycleCount(0);
+        AtomicLong transientFailures = new AtomicLong(0);
+        
+        try (SourceCursor cursor = new WatermarkSourceCursor(sourceClient, esQueryHelper, cursorConfig, timestampField);
+             AsyncBulkWriter writer = openBulkWriter(config, result, "sync_" + System.currentTimeMillis(),
+                 transientFailures)) {
+            BulkAssembler<Void> assembler = createBulkAssembler(config, writer);
+            SearchHit[] searchHits = cursor.nextBatch();
+            result.setTotalCount(Math.max(cursor.getTotalHits(), 0));
+            long batchCounter = 0;
+            long pendingCount = 0;
+            
+            while (searchHits != null && searchHits.length > 0) {
+                processBatch(searchHits, requestFactory, assembler, result);
+                pendingCount += searchHits.length;
+                
+                if (++batchCounter % CHECKPOINT_INTERVAL_BATCHES == 0) {
+                    if (!advanceSyncCursor(syncCursor, cursor, assembler, writer, result, transientFailures,
+                            pendingCount)) {
+                        return;
+                    }
+                    pendingCount = 0;
+                }
+                searchHits = cursor.isExhausted() ? null : cursor.nextBatch();
+            }
+            if (pendingCount > 0) {
+                advanceSyncCursor(syncCursor, cursor, assembler, writer, result, transientFailures, pendingCount);
+            }
+        }
+    }
+    
+    /**
+     * 等待在途写入完成后把同步游标推进到当前读取位置，本轮已有可重试的写入失败时不推进并返回 false
+     */
+    private boolean advanceSyncCursor(SyncCursor syncCursor, SourceCursor cursor, BulkAssembler<Void> assembler,
+                                      AsyncBulkWriter writer, MigrationResult result, AtomicLong transientFailures,
+                                      long pendingCount) throws IOException {
+        assembler.flush();
+        writer.flush();
+        if (transientFailures.get() > 0) {
+            log.warn("增量同步存在请求失败或重试耗尽的文档 {} 件，同步游标保持在 [{}, {}]，下一轮从该位置重新读取",
+                    transientFailures.get(), syncCursor.getTimestamp(), syncCursor.getDocId());
+            return false;
+        }
+        if (result.getFailedCount() > 0) {
+            log.warn("增量同步累计永久失败 {} 件（映射冲突、转换失败等），不重读，同步游标继续推进", result.getFailedCount());
+        }
+        Object[] position = cursor.getPosition();
+        syncCursor.setTimestamp(((Number) position[0]).longValue());
+        syncCursor.setDocId(String.valueOf(position[1]));
+        syncCursor.setSyncedCount(syncCursor.getSyncedCount() + pendingCount);
+        syncCursor.setLastCycleCount(syncCursor.getLastCycleCount() + pendingCount);
+        syncCursorService.saveCursor(syncCursor);
+        return true;
+    }
+    
+    /**
+     * 执行基于分片 _seq_no 水位的增量同步
+     * 
+     * 先读取各主分片的全局检查点，再刷新源索引，然后逐个分片按 preference=_shards:N 读取
+     * (水位, 全局检查点] 区间内的文档。全局检查点以内的操作已在所有同步副本上完成、不会因主分片切换回滚，
+     * 刷新后对查询可见，因此每轮读取的区间不重不漏；更新过的文档带有新的 _seq_no，会在其所在区间被读到。
+     * 水位按分片保存在断点中（每隔若干批次等待写入完成后保存），读完一个分片后直接推进到全局检查点。
+     * 只有请求整体失败或重试耗尽的写入失败会阻止水位推进，永久性的单文档失败只计数。
+     * 删除操作不留下文档，不在此同步范围内。
+     */
+    private void executeSeqNoSync(MigrationConfig config, MigrationResult result) throws IOException {
+        Map<Integer, ShardSeqNo> shards = getShardSeqNos(config.getSourceIndex());
+        sourceClient.indices().refresh(new RefreshRequest(config.getSourceIndex()), RequestOptions.DEFAULT);
+        String taskId = getSeqNoTaskId(config);
+        log.info("开始按 _seq_no 增量同步，源索引: {}, 目标索引: {}, 分片数: {}",
+                config.getSourceIndex(), config.getTargetIndex(), shards.size());
+        
+        IndexRequestFactory requestFactory = createRequestFactory(config);
+        AtomicLong transientFailures = new AtomicLong(0);
+        try (AsyncBulkWriter writer = openBulkWriter(config, result, taskId, transientFailures)) {
+            BulkAssembler<Void> assembler = createBulkAssembler(config, writer);
+            for (Map.Entry<Integer, ShardSeqNo> entry : shards.entrySet()) {
+                int shard = entry.getKey();
+                ShardSeqNo seqNo = entry.getValue();
+                MigrationCheckpoint checkpoint = checkpointService.getShardCheckpoint(taskId, shard)
+                    .orElseGet(() -> createSeqNoCheckpoint(config, taskId, shard));
+                long watermark = checkpoint.getMaxSeqNo() != null ? checkpoint.getMaxSeqNo() : -1L;
+                if (seqNo.maxSeqNo < watermark) {
+                    log.warn("分片 {} 的最大 _seq_no {} 小于水位 {}，源索引可能已重建，该分片从头同步",
+                            shard, seqNo.maxSeqNo, watermark);
+                    watermark = -1L;
+                }
+                if (seqNo.globalCheckpoint <= watermark) {
+                    continue;
+                }
+                
+                SourceCursorConfig cursorConfig = new SourceCursorConfig()
+                    .index(config.getSourceIndex())
+                    .query(QueryBuilders.rangeQuery(SeqNoSourceCursor.SEQ_NO_FIELD)
+                        .gt(watermark).lte(seqNo.globalCheckpoint))
+                    .batchSize(config.getBatchSize())
+                    .preference("_shards:" + shard);
+                try (SourceCursor cursor = new SeqNoSourceCursor(sourceClient, esQueryHelper, cursorConfig)) {
+                    SearchHit[] searchHits = cursor.nextBatch();
+                    result.setTotalCount(result.getTotalCount() + Math.max(cursor.getTotalHits(), 0));
+                    long batchCounter = 0;
+                    long pendingCount = 0;
+                    
+                    while (searchHits != null && searchHits.length > 0) {
+                        processBatch(searchHits, requestFactory, assembler, result);
+                        checkpoint.setPrimaryTerm(searchHits[searchHits.length - 1].getPrimaryTerm());
+                        pendingCount += searchHits.length;
+                        
+                        if (++batchCounter % CHECKPOINT_INTERVAL_BATCHES == 0) {
+                            long position = ((Number) cursor.getPosition()[0]).longValue();
+                            if (!advanceSeqNoCheckpoint(checkpoint, position, assembler, writer, result,
+                                    transientFailures, pendingCount)) {
+                                return;
+                            }
+                            pendingCount = 0;
+                        }
+                        searchHits = cursor.isExhausted() ? null : cursor.nextBatch();
+                    }
+                    // 区间内的文档已全部读取，水位直接推进到全局检查点
+                    if (!advanceSeqNoCheckpoint(checkpoint, seqNo.globalCheckpoint, assembler, writer, result,
+                            transientFailures, pendingCount)) {
+                        return;
+                    }
+                }
+                log.debug("分片 {} 同步到 _seq_no {}", shard, seqNo.globalCheckpoint);
+            }
+        }
+    }
+    
+    /**
+     * 等待在途写入完成后把分片水位推进到指定 _seq_no，本轮已有可重试的写入失败时不推进并返回 false
+     */
+    private boolean advanceSeqNoCheckpoint(MigrationCheckpoint checkpoint, long seqNo, BulkAssembler<Void> assembler,
+                                           AsyncBulkWriter writer, MigrationResult result,
+                                           AtomicLong transientFailures, long pendingCount) throws IOException {
+        assembler.flush();
+        writer.flush();
+        if (transientFailures.get() > 0) {
+            log.warn("增量同步存在请求失败或重试耗尽的文档 {} 件，分片 {} 的水位保持在 {}，下一轮从该位置重新读取",
+                    transientFailures.get(), checkpoint.getShardIndex(), checkpoint.getMaxSeqNo());
+            return false;
+        }
+        if (result.getFailedCount() > 0) {
+            log.warn("增量同步累计永久失败 {} 件（映射冲突、转换失败等），不重读，分片 {} 的水位继续推进",
+                    result.getFailedCount(), checkpoint.getShardIndex());
+        }
+        checkpoint.setMaxSeqNo(seqNo);
+        checkpoint.setProcessedCount(checkpoint.getProcessedCount() + pendingCount);
+        checkpoint.setSuccessCount(checkpoint.getSuccessCount() + pendingCount);
+        checkpoint.setStatus("COMPLETED");
+        checkpointService.saveCheckpoint(checkpoint);
+        return true;
+    }
+    
+    private MigrationCheckpoint createSeqNoCheckpoint(MigrationConfig config, String taskId, int shard) {
+        MigrationCheckpoint checkpoint = new MigrationCheckpoint();
+        checkpoint.setTaskId(taskId);
+        checkpoint.setSourceIndex(config.getSourceIndex());
+        checkpoint.setTargetIndex(config.getTargetIndex());
+        checkpoint.setShardIndex(shard);
+        return checkpoint;
+    }
+    
+    /**
+     * 按 _seq_no 增量同步的断点任务ID，每对源/目标索引固定一个，各分片水位保存为该任务的分片断点
+     */
+    private String getSeqNoTaskId(MigrationConfig config) {
+        return String.format("seqno_%s_%s", config.getSourceIndex(), config.getTargetIndex());
+    }
+    
+    /**
+     * 读取源索引各主分片的最大 _seq_no 与全局检查点
+     * 
+     * @throws IllegalArgumentException 源索引对应多个具体索引（_seq_no 按分片计数，不能跨索引合并）
+     */
+    private Map<Integer, ShardSeqNo> getShardSeqNos(String indexName) throws IOException {
+        Request request = new Request("GET", "/" + indexName + "/_stats/docs");
+        request.addParameter("level", "shards");
+        request.addParameter("filter_path", "indices.*.shards.*.routing.primary,indices.*.shards.*.seq_no");
+        Response response = sourceClient.getLowLevelClient().performRequest(request);
+        JSONObject indices = JSON.parseObject(EntityUtils.toString(response.getEntity())).getJSONObject("indices");
+        if (indices == null || indices.isEmpty()) {
+            throw new IOException("未获取到索引分片统计: " + indexName);
+        }
+        if (indices.size() > 1) {
+            throw new IllegalArgumentException("按 _seq_no 增量同步只支持单个具体索引，" + indexName + " 对应 "
+                + indices.size() + " 个索引");
+        }
+        
+        JSONObject shards = indices.getJSONObject(indices.keySet().iterator().next()).getJSONObject("shards");
+        Map<Integer, ShardSeqNo> result = new TreeMap<>();
+        for (String shard : shards.keySet()) {
+            JSONArray copies = shards.getJSONArray(shard);
+            for (int i = 0; i < copies.size(); i++) {
+                JSONObject copy = copies.getJSONObject(i);
+                if (copy.getJSONObject("routing").getBooleanValue("primary")) {
+                    JSONObject stats = copy.getJSONObject("seq_no");
+                    result.put(Integer.parseInt(shard),
+                        new ShardSeqNo(stats.getLongValue("max_seq_no"), stats.getLongValue("global_checkpoint")));
+                }
+            }
+        }
+        if (result.size() != shards.size()) {
+            throw new IOException("索引 " + indexName + " 存在未分配的主分片");
+        }
+        return result;
+    }
+    
+    /**
+     * 主分片的 _seq_no 统计
+     */
+    private static class ShardSeqNo {
+        private final long maxSeqNo;
+        private final long globalCheckpoint;
+        
+        private ShardSeqNo(long maxSeqNo, long globalCheckpoint) {
+            this.maxSeqNo = maxSeqNo;
+            this.globalCheckpoint = globalCheckpoint;
+        }
+    }
+    
     /**
      * 执行单线程迁移 - 增加内存管理和动态调整
      */
-    private void executeSingleThreadMigration(MigrationConfig config, MigrationResult result, String taskId) throws IOException {
-        SearchRequest searchRequest = new SearchRequest(config.getSourceIndex());
-        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-        searchSourceBuilder.query(QueryBuilders.matchAllQuery());
+    private void executeSingleThreadMigration(MigrationConfig config, MigrationResult result, String taskId,
+                                              MigrationCheckpoint checkpoint) throws IOException {
+        SourceCursorConfig cursorConfig = new SourceCursorConfig()
+            .index(config.getSourceIndex())
+            .batchSize(config.getBatchSize())
+            .keepAliveMinutes(config.getScrollTimeout())
+            .type(config.getCursorType())
+            .resumeAfter(checkpoint.getSearchAfterValues())
+            .pitId(checkpoint.getPitId());
+
+        IndexRequestFactory requestFactory = createRequestFactory(config);
         
+        try (SourceCursor cursor = sourceCursorFactory.open(sourceClient, cursorConfig)) {
+            if (Boolean.TRUE.equals(config.getPipelineEnabled())) {
+                // 流水线引擎自行打开写入器，这里不再创建
+                executePipelinedMigration(cursor, config, requestFactory, result, taskId, checkpoint);
+            } else {
+                executeSequentialMigration(cursor, config, requestFactory, result, taskId, checkpoint);
+            }
+        }
+    }
+    
+    /**
+     * 顺序读取并写入，写入器与组装器只在该路径上创建
+     */
+    private void executeSequentialMigration(SourceCursor cursor, MigrationConfig config, IndexRequestFactory requestFactory,
+                                            MigrationResult result, String taskId, MigrationCheckpoint checkpoint) throws IOException {
         // 动态批次大小管理
         int currentBatchSize = config.getBatchSize();
-        searchSourceBuilder.size(currentBatchSize);
-        searchSourceBuilder.trackTotalHits(true);
-        searchRequest.source(searchSourceBuilder);
-        searchRequest.scroll(TimeValue.timeValueMinutes(config.getScrollTimeout()));
-
-        log.info("开始执行单线程全量迁移，初始批次大小: {}, {}", currentBatchSize, esQueryHelper.getBufferConfigInfo());
-        SearchResponse searchResponse = esQueryHelper.searchWithRetry(sourceClient, searchRequest, true, 3);
-        String scrollId = searchResponse.getScrollId();
-
-        SearchHit[] searchHits = searchResponse.getHits().getHits();
-        long totalProcessed = 0;
-        long startTime = System.currentTimeMillis();
-        long lastGcTime = getGcTime();
-        int consecutiveErrors = 0;
-
-        while (searchHits != null && searchHits.length > 0) {
-            long batchStartTime = System.currentTimeMillis();
-            long beforeBatchSuccess = result.getSuccessCount();
+        try (AsyncBulkWriter writer = openBulkWriter(config, result, taskId)) {
+            BulkAssembler<Void> assembler = createBulkAssembler(config, writer);
             
-            // 检查内存情况并调整批次大小
-            int newBatchSize = adjustBatchSizeBasedOnMemory(currentBatchSize, totalProcessed, result.getTotalCount());
-            if (newBatchSize != currentBatchSize) {
-                currentBatchSize = newBatchSize;
-                log.info("动态调整批次大小: {} -> {}", config.getBatchSize(), currentBatchSize);
+            log.info("开始执行单线程全量迁移，游标类型: {}, 初始批次大小: {}, 直通模式: {}, {}", 
+                cursor.getType(), currentBatchSize, requestFactory.isPassthrough(), esQueryHelper.getBufferConfigInfo());
+            if (checkpoint.getSearchAfterValues() != null) {
+                log.info("从断点位置继续读取: {}", Arrays.toString(checkpoint.getSearchAfterValues()));
             }
             
-            try {
-                processBatch(searchHits, config, result, taskId);
-                consecutiveErrors = 0; // 成功处理，重置错误计数
+            SearchHit[] searchHits = cursor.nextBatch();
+            long totalProcessed = checkpoint.getProcessedCount();
+            long startTime = System.currentTimeMillis();
+            int consecutiveErrors = 0;
+            long batchCounter = 0;
+
+            while (searchHits != null && searchHits.length > 0) {
+                long batchStartTime = System.currentTimeMillis();
+                long beforeBatchSuccess = result.getSuccessCount();
                 
-                // 计算处理速度并更新监控
-                long batchTime = System.currentTimeMillis() - batchStartTime;
-                long batchSuccess = result.getSuccessCount() - beforeBatchSuccess;
-                if (batchTime > 0) {
-                    double speed = (double) batchSuccess / batchTime * 1000; // docs/sec
+                // 检查内存情况并调整批次大小
+                int newBatchSize = adjustBatchSizeBasedOnMemory(currentBatchSize, totalProcessed, result.getTotalCount());
+                if (newBatchSize != currentBatchSize) {
+                    currentBatchSize = newBatchSize;
+                    cursor.setBatchSize(currentBatchSize);
+                    log.info("动态调整批次大小: {} -> {}", config.getBatchSize(), currentBatchSize);
+                }
+                
+                try {
+                    processBatch(searchHits, requestFactory, assembler, result);
+                    consecutiveErrors = 0; // 成功处理，重置错误计数
                     
-                    // 更新监控数据
-                    migrationMonitor.updateProgress(taskId, totalProcessed, result.getSuccessCount(), result.getFailedCount());
+                    // 计算处理速度并更新监控
+                    long batchTime = System.currentTimeMillis() - batchStartTime;
+                    long batchSuccess = result.getSuccessCount() - beforeBatchSuccess;
+                    if (batchTime > 0) {
+                        double speed = (double) batchSuccess / batchTime * 1000; // docs/sec
+                        
+                        // 更新监控数据
+                        migrationMonitor.updateProgress(taskId, totalProcessed, result.getSuccessCount(), result.getFailedCount());
+                        
+                        if (totalProcessed % (currentBatchSize * 5) == 0) {
+                            logPerformanceMetrics(totalProcessed, result, startTime, speed, currentBatchSize);
+                            migrationMonitor.logDetailedMetrics(taskId);
+                        }
+                    }
+                    
+                } catch (Exception e) {
+                    consecutiveErrors++;
+                    log.error("批次处理失败 ({} 次连续错误): {}", consecutiveErrors, e.getMessage());
                     
-                    if (totalProcessed % (currentBatchSize * 5) == 0) {
-                        logPerformanceMetrics(totalProcessed, result, startTime, speed, currentBatchSize);
-                        migrationMonitor.logDetailedMetrics(taskId);
+                    if (consecutiveErrors >= 3) {
+                        log.error("连续错误过多，降低批次大小并继续");
+                        currentBatchSize = Math.max(currentBatchSize / 2, 10);
+                        cursor.setBatchSize(currentBatchSize);
+                        consecutiveErrors = 0;
                     }
                 }
                 
-            } catch (Exception e) {
-                consecutiveErrors++;
-                log.error("批次处理失败 ({} 次连续错误): {}", consecutiveErrors, e.getMessage());
+                totalProcessed += searchHits.length;
                 
-                if (consecutiveErrors >= 3) {
-                    log.error("连续错误过多，降低批次大小并继续");
-                    currentBatchSize = Math.max(currentBatchSize / 2, 10);
-                    consecutiveErrors = 0;
+                // 断点只记录已落盘的读取位置：组装器中未写入的文档先写出并等待在途写入结束后才更新断点，
+                // 两次保存之间不修改断点对象（断点服务按引用缓存），失败时保存的也是最近一次落盘的位置
+                if (++batchCounter % CHECKPOINT_INTERVAL_BATCHES == 0 && cursor.getPosition() != null) {
+                    assembler.flush();
+                    writer.flush();
+                    checkpoint.setSearchAfterValues(cursor.getPosition());
+                    checkpoint.setPitId(cursor.getPitId());
+                    checkpoint.setProcessedCount(totalProcessed);
+                    checkpoint.setSuccessCount(result.getSuccessCount());
+                    checkpoint.setFailedCount(result.getFailedCount());
+                    checkpoint.setCurrentBatchSize(currentBatchSize);
+                    checkpointService.saveCheckpoint(checkpoint);
                 }
-            }
-            
-            totalProcessed += searchHits.length;
-            
-            // 内存清理
-            if (totalProcessed % (currentBatchSize * 10) == 0) {
-                performMemoryCleanup(lastGcTime);
-                lastGcTime = getGcTime();
-            }
-
-            SearchScrollRequest scrollRequest = new SearchScrollRequest(scrollId);
-            scrollRequest.scroll(TimeValue.timeValueMinutes(config.getScrollTimeout()));
+                
+                // GC压力过高时放慢读取节奏
+                paceForGcPressure();
 
-            try {
-                searchResponse = esQueryHelper.scrollWithRetry(sourceClient, scrollRequest, true, 3);
-                scrollId = searchResponse.getScrollId();
-                searchHits = searchResponse.getHits().getHits();
-            } catch (IOException e) {
-                log.error("滚动查询重试失败，停止迁移: {}", e.getMessage());
-                throw e;
+                try {
+                    searchHits = cursor.nextBatch();
+                } catch (IOException e) {
+                    log.error("读取源数据重试失败，停止迁移: {}", e.getMessage());
+                    throw e;
+                }
             }
+            
+            // 写出组装器中剩余的文档，关闭写入器时等待在途写入结束
+            assembler.flush();
+        }
+    }
+    
+    /**
+     * 执行流水线迁移 - 读取、转换与写入重叠进行
+     */
+    private void executePipelinedMigration(SourceCursor cursor, MigrationConfig config, IndexRequestFactory requestFactory,
+                                           MigrationResult result, String taskId, MigrationCheckpoint checkpoint) throws IOException {
+        long baseProcessed = checkpoint.getProcessedCount();
+        long baseSuccess = result.getSuccessCount();
+        long baseFailed = result.getFailedCount();
+        AtomicLong committedBatches = new AtomicLong(0);
+        
+        PipelinedMigrationEngine.PipelineResult pipelineResult = pipelinedMigrationEngine.run(
+            cursor, targetClient, config, requestFactory::build,
+            new PipelinedMigrationEngine.PipelineListener() {
+                @Override
+                public void onCommitted(Object[] position, long processed, long success, long failed) {
+                    long totalProcessed = baseProcessed + processed;
+                    migrationMonitor.updateProgress(taskId, totalProcessed, baseSuccess + success, baseFailed + failed);
+                    
+                    // 记录已提交的读取位置，进程崩溃后可从该位置继续
+                    checkpoint.setSearchAfterValues(position);
+                    checkpoint.setPitId(cursor.getPitId());
+                    checkpoint.setProcessedCount(totalProcessed);
+                    checkpoint.setSuccessCount(baseSuccess + success);
+                    checkpoint.setFailedCount(baseFailed + failed);
+                    if (committedBatches.incrementAndGet() % CHECKPOINT_INTERVAL_BATCHES == 0 && position != null) {
+                        checkpointService.saveCheckpoint(checkpoint);
+                    }
+                }
+                
+                @Override
+                public void onBulk(long bytes, int docs, long latencyMs) {
+                    migrationMonitor.recordBulk(taskId, bytes, docs, latencyMs);
+                }
+            });
+        
+        result.setSuccessCount(baseSuccess + pipelineResult.getSuccessCount());
+        result.setFailedCount(baseFailed + pipelineResult.getFailedCount());
+        
+        if (pipelineResult.getErrorMessage() != null) {
+            throw new IOException(pipelineResult.getErrorMessage());
         }
     }
     
@@ -305,11 +749,7 @@ public class EsMigrationServiceImpl implements EsMigrationService {
      * 根据内存使用情况调整批次大小
      */
     private int adjustBatchSizeBasedOnMemory(int currentBatchSize, long processedCount, long totalCount) {
-        Runtime runtime = Runtime.getRuntime();
-        long totalMemory = runtime.totalMemory();
-        long freeMemory = runtime.freeMemory();
-        long usedMemory = totalMemory - freeMemory;
-        double memoryUsagePercent = (double) usedMemory / totalMemory * 100;
+        double memoryUsagePercent = gcPressureMonitor.getPressure() * 100;
         
         // 计算进度百分比
         double progress = totalCount > 0 ? (double) processedCount / totalCount : 0;
@@ -334,37 +774,18 @@ public class EsMigrationServiceImpl implements EsMigrationService {
     }
     
     /**
-     * 获取GC时间
+     * 按GC压力调节读取节奏，不主动触发GC
      */
-    private long getGcTime() {
-        try {
-            return java.lang.management.ManagementFactory.getGarbageCollectorMXBeans()
-                .stream()
-                .mapToLong(gcBean -> gcBean.getCollectionTime())
-                .sum();
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    /**
-     * 执行内存清理
-     */
-    private void performMemoryCleanup(long lastGcTime) {
-        long currentGcTime = getGcTime();
-        long gcTimeDiff = currentGcTime - lastGcTime;
-        
-        if (gcTimeDiff > 1000) { // GC时间超过1秒
-            log.warn("检测到频繁GC，GC耗时: {}ms，建议手动清理内存", gcTimeDiff);
-        }
-        
-        Runtime runtime = Runtime.getRuntime();
-        long beforeGc = runtime.freeMemory();
-        System.gc(); // 手动触发GC
-        long afterGc = runtime.freeMemory();
-        
-        if (afterGc > beforeGc) {
-            log.debug("内存清理效果: 释放 {}MB", (afterGc - beforeGc) / 1024 / 1024);
+    private void paceForGcPressure() throws InterruptedIOException {
+        double pressure = gcPressureMonitor.getPressure();
+        if (pressure > GC_PRESSURE_PAUSE) {
+            log.warn("GC压力过高，暂停读取 {}ms - {}", GC_PRESSURE_PAUSE_MS, gcPressureMonitor.getStats());
+            try {
+                Thread.sleep(GC_PRESSURE_PAUSE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("GC压力等待被中断");
+            }
         }
     }
     
@@ -390,210 +811,188 @@ public class EsMigrationServiceImpl implements EsMigrationService {
     }
     
     /**
-     * 处理批次数据 - 修复错误计数逻辑
+     * 处理批次数据 - 转换后交给组装器，按字节数与文档数组装批量写入
      */
-    private void processBatch(SearchHit[] hits, MigrationConfig config, MigrationResult result, String taskId) {
-        BulkRequest bulkRequest = new BulkRequest();
-        AtomicLong batchPreprocessFailed = new AtomicLong(0);
+    private void processBatch(SearchHit[] hits, IndexRequestFactory requestFactory, BulkAssembler<Void> assembler,
+                              MigrationResult result) throws IOException {
+        long batchPreprocessFailed = 0;
         
         for (SearchHit hit : hits) {
+            IndexRequest indexRequest;
             try {
-                Map<String, Object> sourceData = hit.getSourceAsMap();
-                Map<String, Object> targetData = transformDocument(sourceData, config);
-                
-                IndexRequest indexRequest = new IndexRequest(config.getTargetIndex())
-                        .id(hit.getId())
-                        .source(targetData, XContentType.JSON);
-                
-                bulkRequest.add(indexRequest);
-                
+                indexRequest = requestFactory.build(hit);
             } catch (Exception e) {
                 log.error("预处理文档失败，ID: {}, 错误: {}", hit.getId(), e.getMessage());
-                batchPreprocessFailed.incrementAndGet();
+                batchPreprocessFailed++;
+                continue;
             }
+            assembler.add(indexRequest);
         }
         
         // 更新预处理失败数
-        result.setFailedCount(result.getFailedCount() + batchPreprocessFailed.get());
-        
-        if (bulkRequest.numberOfActions() > 0) {
-            try {
-                BulkResponse bulkResponse = targetClient.bulk(bulkRequest, RequestOptions.DEFAULT);
-                
-                // 修复：正确统计成功和失败数量
-                AtomicLong batchSuccessCount = new AtomicLong(0);
-                AtomicLong batchFailedCount = new AtomicLong(0);
-                
-                if (bulkResponse.hasFailures()) {
-                    // 逐个检查每个操作的结果
-                    Arrays.stream(bulkResponse.getItems())
-                        .forEach(item -> {
-                            if (item.isFailed()) {
-                                batchFailedCount.incrementAndGet();
-                                log.debug("文档写入失败: {}, 原因: {}", item.getId(), item.getFailureMessage());
-                            } else {
-                                batchSuccessCount.incrementAndGet();
-                            }
-                        });
-                    
-                    log.warn("批量写入部分失败: 成功 {} 件，失败 {} 件", batchSuccessCount.get(), batchFailedCount.get());
-                } else {
-                    // 全部成功
-                    batchSuccessCount.set(bulkResponse.getItems().length);
-                }
-                
-                // 更新结果计数
-                long oldSuccessCount = result.getSuccessCount();
-                long oldFailedCount = result.getFailedCount();
-                result.setSuccessCount(result.getSuccessCount() + batchSuccessCount.get());
-                result.setFailedCount(result.getFailedCount() + batchFailedCount.get());
-                
-                // 记录详细进度并更新监控
-                if (result.getSuccessCount() % 10000 == 0 || 
-                    (batchSuccessCount.get() > 0 && result.getSuccessCount() != oldSuccessCount)) {
-                    long totalProcessed = result.getSuccessCount() + result.getFailedCount();
-                    double successRate = totalProcessed > 0 ? (double) result.getSuccessCount() / totalProcessed * 100 : 0;
-                    log.info("进度更新: 成功 {} 件，失败 {} 件，成功率 {:.2f}%", 
-                        result.getSuccessCount(), result.getFailedCount(), successRate);
-                    
-                    // 更新监控数据
-                    migrationMonitor.updateProgress(taskId, totalProcessed, result.getSuccessCount(), result.getFailedCount());
-                }
-                
-            } catch (IOException e) {
-                log.error("批量写入完全失败", e);
-                result.setFailedCount(result.getFailedCount() + bulkRequest.numberOfActions());
-            }
+        if (batchPreprocessFailed > 0) {
+            result.addFailedCount(batchPreprocessFailed);
         }
+        assembler.flushIfExpired();
     }
     
     /**
-     * 转换文档数据
+     * 创建批量写入组装器，组装好的请求交给异步写入器提交
      */
-    private Map<String, Object> transformDocument(Map<String, Object> sourceData, MigrationConfig config) {
-        Map<String, Object> targetData = new HashMap<>();
-        
-        // 字段映射
-        if (config.getFieldMapping() != null) {
-            for (Map.Entry<String, String> mapping : config.getFieldMapping().entrySet()) {
-                String sourceField = mapping.getKey();
-                String targetField = mapping.getValue();
-                if (sourceData.containsKey(sourceField)) {
-                    Object value = sourceData.get(sourceField);
-                    // 处理忽略大小写的字段
-                    if (config.getCaseInsensitiveFields() != null && 
-                        config.getCaseInsensitiveFields().contains(targetField) && 
-                        value instanceof String) {
-                        value = ((String) value).toLowerCase();
-                    }
-                    targetData.put(targetField, value);
-                }
+    private BulkAssembler<Void> createBulkAssembler(MigrationConfig config, AsyncBulkWriter writer) {
+        return BulkAssembler.create(config, bulkConcurrencyController,
+            (bulkRequest, bytes, tags) -> writer.write(bulkRequest, bytes));
+    }
+    
+    /**
+     * 打开异步批量写入器 - 被拒绝的文档退避后重试，只有永久性错误计为失败，
+     * 写入结果在 IO 线程中累加到迁移结果，并上报批量请求大小与耗时
+     */
+    private AsyncBulkWriter openBulkWriter(MigrationConfig config, MigrationResult result, String taskId) {
+        return openBulkWriter(config, result, taskId, null);
+    }
+    
+    /**
+     * 打开异步批量写入器，并把请求整体失败或重试耗尽（429/503）的文档数累加到 transientFailures，
+     * 这些文档稍后重读通常可以写入成功，增量同步据此决定是否推进位置
+     */
+    private AsyncBulkWriter openBulkWriter(MigrationConfig config, MigrationResult result, String taskId,
+                                           AtomicLong transientFailures) {
+        return asyncBulkWriterFactory.open(targetClient, config, (bulkRequest, bytes, latencyMs, outcome) -> {
+            migrationMonitor.recordBulk(taskId, bytes, bulkRequest.numberOfActions(), latencyMs);
+            result.addSuccessCount(outcome.getSuccessCount());
+            result.addFailedCount(outcome.getFailedCount());
+            if (transientFailures != null) {
+                transientFailures.addAndGet(outcome.getUnwrittenRequests().size() + outcome.getRetryExhaustedCount());
             }
-        } else {
-            // 如果没有字段映射，直接复制所有字段
-            targetData.putAll(sourceData);
+        });
+    }
+    
+    /**
+     * 创建写入请求构建器，配置无需转换时直接转发源文档字节
+     */
+    private IndexRequestFactory createRequestFactory(MigrationConfig config) {
+        IndexRequestFactory requestFactory = IndexRequestFactory.create(config);
+        if (requestFactory.isPassthrough()) {
+            log.info("迁移配置无字段转换，启用源文档直通模式");
+        } else if (requestFactory.isStreaming()) {
+            log.info("迁移配置字段转换支持流式处理，启用JSON流式转换");
         }
-        
-        // 添加新字段
-        if (config.getNewFields() != null) {
-            targetData.putAll(config.getNewFields());
+        return requestFactory;
+    }
+    
+    /**
+     * 执行并行迁移 - 基于 sliced scroll 切分源索引，每个线程独立消费一个切片
+     */
+    private void executeParallelMigration(MigrationConfig config, MigrationResult result, String taskId) throws IOException {
+        if (Boolean.TRUE.equals(config.getShardRouting())) {
+            executeShardParallelMigration(config, result, taskId);
+            return;
         }
+        int sliceCount = config.getThreadCount();
+        Executor executor = workerPool.stageExecutor("Slice", sliceCount);
+        List<CompletableFuture<MigrationResult>> futures = new ArrayList<>();
         
-        // 处理忽略大小写的字段
-        if (config.getCaseInsensitiveFields() != null) {
-            for (String field : config.getCaseInsensitiveFields()) {
-                if (targetData.containsKey(field) && targetData.get(field) instanceof String) {
-                    targetData.put(field, ((String) targetData.get(field)).toLowerCase());
-                }
-            }
-        }
+        log.info("开始执行切片并行迁移，切片数: {}", sliceCount);
         
-        // 排除字段
-        if (config.getExcludeFields() != null) {
-            for (String excludeField : config.getExcludeFields()) {
-                targetData.remove(excludeField);
-            }
-        }
+        // 所有切片共享的进度计数，用于汇总上报监控
+        AtomicLong processedCounter = new AtomicLong(0);
+        AtomicLong successCounter = new AtomicLong(0);
+        AtomicLong failedCounter = new AtomicLong(0);
         
-        // 只包含指定字段（只有当includeFields不为空且包含字段时才过滤）
-        if (config.getIncludeFields() != null && !config.getIncludeFields().isEmpty()) {
-            Map<String, Object> filteredData = new HashMap<>();
-            for (String includeField : config.getIncludeFields()) {
-                if (targetData.containsKey(includeField)) {
-                    filteredData.put(includeField, targetData.get(includeField));
+        for (int i = 0; i < sliceCount; i++) {
+            final int sliceId = i;
+            
+            CompletableFuture<MigrationResult> future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return executeSliceMigration(config, taskId, sliceId, sliceCount, config.getSourceIndex(), null,
+                        processedCounter, successCounter, failedCounter);
+                } catch (Exception e) {
+                    log.error("切片 {} 迁移失败", sliceId, e);
+                    MigrationResult sliceResult = new MigrationResult();
+                    sliceResult.setErrorMessage("切片 " + sliceId + " 迁移失败: " + e.getMessage());
+                    return sliceResult;
                 }
-            }
-            // 只有当过滤后还有数据时才替换，避免空数组导致所有字段被过滤
-            if (!filteredData.isEmpty()) {
-                targetData = filteredData;
-            }
+            }, executor);
+            futures.add(future);
         }
         
-        return targetData;
+        mergeSliceResults(futures, result);
     }
-
+    
     /**
-     * 执行并行迁移
+     * 按主分片并行迁移
+     * 
+     * 每个分片一个读取单元，通过 preference 只读取该分片并指定提供副本的节点，
+     * 同时运行的读取数不超过 threadCount，单个节点的读取数由 ShardReadPlanner 全局限制。
+     * 源索引是别名时按 (具体索引, 分片) 拆分，每个读取单元只查询分片所属的具体索引，
+     * 读取单元按规划顺序编号作为切片号，避免不同索引的同号分片共用断点。
      */
-    private void executeParallelMigration(MigrationConfig config, MigrationResult result) throws IOException {
-        int threadCount = config.getThreadCount();
-        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    private void executeShardParallelMigration(MigrationConfig config, MigrationResult result, String taskId) throws IOException {
+        List<ShardReadPlanner.ShardRead> plan = shardReadPlanner.plan(sourceClient, config.getSourceIndex());
+        int shardCount = plan.size();
+        Executor executor = workerPool.stageExecutor("Shard", Math.min(config.getThreadCount(), shardCount));
         List<CompletableFuture<MigrationResult>> futures = new ArrayList<>();
         
-        log.info("开始执行并行迁移，线程数: {}", threadCount);
+        log.info("开始执行分片并行迁移，分片数: {}, 并行读取数: {}", shardCount, Math.min(config.getThreadCount(), shardCount));
         
-        // 获取总文档数进行分片
-        long totalCount = getDocumentCount(config.getSourceIndex(), false);
-        long docsPerThread = Math.max(totalCount / threadCount, 1000);
+        AtomicLong processedCounter = new AtomicLong(0);
+        AtomicLong successCounter = new AtomicLong(0);
+        AtomicLong failedCounter = new AtomicLong(0);
         
-        for (int i = 0; i < threadCount; i++) {
-            final int shardIndex = i;
-            final long startOffset = i * docsPerThread;
-            final long endOffset = (i == threadCount - 1) ? totalCount : (i + 1) * docsPerThread;
-            
+        for (int i = 0; i < shardCount; i++) {
+            ShardReadPlanner.ShardRead read = plan.get(i);
+            int unitId = i;
             CompletableFuture<MigrationResult> future = CompletableFuture.supplyAsync(() -> {
+                ShardReadPlanner.NodeLease lease = null;
                 try {
-                    return executeShardMigration(config, shardIndex, startOffset, endOffset);
+                    lease = shardReadPlanner.acquire(read);
+                    log.debug("索引 {} 分片 {} 由节点 {} 读取，预估文档数: {}",
+                        read.getIndex(), read.getShard(), lease.getNodeId(), read.getDocs());
+                    return executeSliceMigration(config, taskId, unitId, shardCount, read.getIndex(),
+                        lease.getPreference(), processedCounter, successCounter, failedCounter);
                 } catch (Exception e) {
-                    log.error("分片 {} 迁移失败", shardIndex, e);
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                    log.error("索引 {} 分片 {} 迁移失败", read.getIndex(), read.getShard(), e);
                     MigrationResult shardResult = new MigrationResult();
-                    shardResult.setErrorMessage("分片迁移失败: " + e.getMessage());
+                    shardResult.setErrorMessage("索引 " + read.getIndex() + " 分片 " + read.getShard()
+                        + " 迁移失败: " + e.getMessage());
                     return shardResult;
+                } finally {
+                    if (lease != null) {
+                        lease.release();
+                    }
                 }
             }, executor);
             futures.add(future);
         }
         
-        // 等待所有分片完成并合并结果
+        mergeSliceResults(futures, result);
+    }
+    
+    /**
+     * 等待所有切片完成并合并结果
+     */
+    private void mergeSliceResults(List<CompletableFuture<MigrationResult>> futures, MigrationResult result) {
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
         
         for (CompletableFuture<MigrationResult> future : futures) {
             try {
-                MigrationResult shardResult = future.get();
-                result.setSuccessCount(result.getSuccessCount() + shardResult.getSuccessCount());
-                result.setFailedCount(result.getFailedCount() + shardResult.getFailedCount());
-                result.setSkippedCount(result.getSkippedCount() + shardResult.getSkippedCount());
-                if (shardResult.getErrorMessage() != null) {
+                MigrationResult sliceResult = future.get();
+                result.setSuccessCount(result.getSuccessCount() + sliceResult.getSuccessCount());
+                result.setFailedCount(result.getFailedCount() + sliceResult.getFailedCount());
+                result.setSkippedCount(result.getSkippedCount() + sliceResult.getSkippedCount());
+                if (sliceResult.getErrorMessage() != null) {
                     String currentError = result.getErrorMessage();
-                    result.setErrorMessage(currentError == null ? shardResult.getErrorMessage() : 
-                        currentError + "; " + shardResult.getErrorMessage());
+                    result.setErrorMessage(currentError == null ? sliceResult.getErrorMessage() : 
+                        currentError + "; " + sliceResult.getErrorMessage());
                 }
             } catch (Exception e) {
-                log.error("获取分片结果失败", e);
-                result.setErrorMessage("分片结果合并失败: " + e.getMessage());
-            }
-        }
-        
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(2, TimeUnit.HOURS)) {
-                log.warn("并行迁移超时，强制关闭线程池");
-                executor.shutdownNow();
+                log.error("获取切片结果失败", e);
+                result.setErrorMessage("切片结果合并失败: " + e.getMessage());
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("并行迁移被中断", e);
-            executor.shutdownNow();
         }
     }
 
@@ -616,15 +1015,20 @@ public class EsMigrationServiceImpl implements EsMigrationService {
         SearchHit[] searchHits = searchResponse.getHits().getHits();
 
         result.setTotalCount(searchResponse.getHits().getTotalHits().value);
+        IndexRequestFactory requestFactory = createRequestFactory(config);
+        try (AsyncBulkWriter writer = openBulkWriter(config, result, "incremental_" + System.currentTimeMillis())) {
+            BulkAssembler<Void> assembler = createBulkAssembler(config, writer);
 
-        while (searchHits != null && searchHits.length > 0) {
-            processBatch(searchHits, config, result, "incremental_" + System.currentTimeMillis());
+            while (searchHits != null && searchHits.length > 0) {
+                processBatch(searchHits, requestFactory, assembler, result);
 
-            SearchScrollRequest scrollRequest = new SearchScrollRequest(scrollId);
-            scrollRequest.scroll(TimeValue.timeValueMinutes(config.getScrollTimeout()));
-            searchResponse = sourceClient.scroll(scrollRequest, elasticsearchConfig.getCustomRequestOptions());
-            scrollId = searchResponse.getScrollId();
-            searchHits = searchResponse.getHits().getHits();
+                SearchScrollRequest scrollRequest = new SearchScrollRequest(scrollId);
+                scrollRequest.scroll(TimeValue.timeValueMinutes(config.getScrollTimeout()));
+                searchResponse = sourceClient.scroll(scrollRequest, elasticsearchConfig.getCustomRequestOptions());
+                scrollId = searchResponse.getScrollId();
+                searchHits = searchResponse.getHits().getHits();
+            }
+            assembler.flush();
         }
     }
 
@@ -632,8 +1036,7 @@ public class EsMigrationServiceImpl implements EsMigrationService {
     public boolean indexExists(String indexName, boolean isTarget) {
         try {
             RestHighLevelClient client = isTarget ? targetClient : sourceClient;
-            GetIndexRequest request = new GetIndexRequest(indexName);
-            return client.indices().exists(request, RequestOptions.DEFAULT);
+            return indexMetadataCache.exists(client, indexName);
         } catch (Exception e) {
             log.error("检查索引是否存在失败: {}", indexName, e);
             return false;
@@ -649,6 +1052,7 @@ public class EsMigrationServiceImpl implements EsMigrationService {
                 request.source(mapping, XContentType.JSON);
             }
             client.indices().create(request, RequestOptions.DEFAULT);
+            indexMetadataCache.invalidate(client, indexName);
             log.info("成功创建索引: {}", indexName);
             return true;
         } catch (IOException e) {
@@ -661,10 +1065,9 @@ public class EsMigrationServiceImpl implements EsMigrationService {
     public String getIndexMapping(String indexName, boolean isTarget) {
         try {
             RestHighLevelClient client = isTarget ? targetClient : sourceClient;
-            GetMappingsRequest request = new GetMappingsRequest();
-            request.indices(indexName);
-            GetMappingsResponse response = client.indices().getMapping(request, RequestOptions.DEFAULT);
-            return response.toString();
+            IndexMetadataCache.IndexDescriptor descriptor = indexMetadataCache.getDescriptor(client, indexName);
+            // 与创建索引请求体格式一致：{"mappings": {...}}
+            return new JSONObject().fluentPut("mappings", descriptor.getMapping()).toJSONString();
         } catch (IOException e) {
             log.error("获取索引映射失败: {}", indexName, e);
             return null;
@@ -675,21 +1078,10 @@ public class EsMigrationServiceImpl implements EsMigrationService {
     public long getDocumentCount(String indexName, boolean isTarget) {
         try {
             RestHighLevelClient client = isTarget ? targetClient : sourceClient;
-            SearchRequest searchRequest = new SearchRequest(indexName);
-            SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-            searchSourceBuilder.query(QueryBuilders.matchAllQuery());
-            searchSourceBuilder.size(0);
-            // 关键修复：设置trackTotalHits为true以获取准确的文档总数
-            searchSourceBuilder.trackTotalHits(true);
-            searchRequest.source(searchSourceBuilder);
-
-            log.debug("获取索引 {} 的文档数量", indexName);
-            SearchResponse searchResponse = client.search(searchRequest, elasticsearchConfig.getCustomRequestOptions());
-
-            long totalHits = searchResponse.getHits().getTotalHits().value;
-            log.info("索引 {} 的文档总数: {}", indexName, totalHits);
-
-            return totalHits;
+            // _count API 返回精确总数，结果在缓存有效期内复用
+            long count = indexMetadataCache.getDocCount(client, indexName, elasticsearchConfig.getCustomRequestOptions());
+            log.debug("索引 {} 的文档总数: {}", indexName, count);
+            return count;
         } catch (IOException e) {
             log.error("获取文档数量失败: {}", indexName, e);
             return 0;
@@ -703,7 +1095,9 @@ public class EsMigrationServiceImpl implements EsMigrationService {
         try {
             log.info("开始验证迁移结果，源索引: {}, 目标索引: {}", config.getSourceIndex(), config.getTargetIndex());
 
-            // 使用智能计数方法获取准确的文档数量
+            // 验证需要最新的文档数量，跳过缓存
+            indexMetadataCache.invalidateCount(sourceClient, config.getSourceIndex());
+            indexMetadataCache.invalidateCount(targetClient, config.getTargetIndex());
             long sourceCount = getSmartDocumentCount(config.getSourceIndex(), false);
             long targetCount = getSmartDocumentCount(config.getTargetIndex(), true);
 
@@ -727,6 +1121,10 @@ public class EsMigrationServiceImpl implements EsMigrationService {
                         sourceCount, targetCount, difference, differencePercent));
             }
 
+            if (Boolean.TRUE.equals(config.getVerifyContent())) {
+                verifyContent(config, result);
+            }
+
             log.info("验证结果: {}", result.getMessage());
 
         } catch (Exception e) {
@@ -738,6 +1136,35 @@ public class EsMigrationServiceImpl implements EsMigrationService {
         return result;
     }
 
+    /**
+     * 按文档内容哈希比对两侧索引，存在任何差异即验证失败，差异文档的 _id 记录到 differences
+     */
+    private void verifyContent(MigrationConfig config, ValidationResult result) {
+        ContentVerifier.VerifyResult verify = contentVerifier.verify(config);
+        if (verify.getErrorMessage() != null) {
+            result.setSuccess(false);
+            result.setMessage(result.getMessage() + "；内容校验失败: " + verify.getErrorMessage());
+            return;
+        }
+
+        List<String> differences = new ArrayList<>();
+        for (String id : verify.getMissingIds()) {
+            differences.add("目标缺失: " + id);
+        }
+        for (String id : verify.getExtraIds()) {
+            differences.add("目标多出: " + id);
+        }
+        for (String id : verify.getDifferentIds()) {
+            differences.add("内容不一致: " + id);
+        }
+        result.setDifferences(differences);
+        result.setSuccess(verify.isConsistent());
+        result.setMessage(String.format("%s；内容校验%s - 源文档: %d, 目标文档: %d, 目标缺失: %d, 目标多出: %d, " +
+                "内容不一致: %d, 转换失败: %d", result.getMessage(), verify.isConsistent() ? "一致" : "不一致",
+            verify.getSourceHashed(), verify.getTargetHashed(), verify.getMissingInTarget(),
+            verify.getExtraInTarget(), verify.getContentMismatch(), verify.getTransformFailures()));
+    }
+
     @Override
     public Date getLastSyncTime(String indexName, String timestampField) {
         try {
@@ -820,27 +1247,14 @@ public class EsMigrationServiceImpl implements EsMigrationService {
         try {
             RestHighLevelClient client = isTarget ? targetClient : sourceClient;
 
-            // 使用count API获取精确数量，这比search API更高效
-            SearchRequest countRequest = new SearchRequest(indexName);
-            SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-
-            sourceBuilder.query(QueryBuilders.matchAllQuery());
-            sourceBuilder.size(0); // 不返回文档内容，只返回计数
-            sourceBuilder.trackTotalHits(true); // 关键：获取精确总数
-            sourceBuilder.timeout(TimeValue.timeValueMinutes(5)); // 5分钟超时
-
-            countRequest.source(sourceBuilder);
-
-            log.info("开始获取大数据量索引 {} 的精确文档数量", indexName);
-
-            SearchResponse response = client.search(countRequest, elasticsearchConfig.getLargeQueryRequestOptions());
-
-            long totalHits = response.getHits().getTotalHits().value;
+            // 使用count API获取精确数量，大索引使用更长的请求超时
+            long startTime = System.currentTimeMillis();
+            long count = indexMetadataCache.getDocCount(client, indexName, elasticsearchConfig.getLargeQueryRequestOptions());
 
             log.info("索引 {} 的精确文档总数: {} (耗时: {}ms)",
-                    indexName, totalHits, response.getTook().getMillis());
+                    indexName, count, System.currentTimeMillis() - startTime);
 
-            return totalHits;
+            return count;
 
         } catch (Exception e) {
             log.error("获取大数据量索引 {} 的文档数量失败，回退到普通方法: {}", indexName, e.getMessage());
@@ -851,151 +1265,150 @@ public class EsMigrationServiceImpl implements EsMigrationService {
 
     /**
      * 智能获取文档数量
-     * 根据索引大小自动选择最适合的计数方法
+     * _count API 对任意大小的索引都返回精确值，直接使用大索引的请求选项计数一次
      */
     public long getSmartDocumentCount(String indexName, boolean isTarget) {
-        // 先用普通方法快速获取一个估算值
-        long estimatedCount = getDocumentCount(indexName, isTarget);
-
-        // 如果估算值接近10000，可能是被限制了，使用精确计数方法
-        if (estimatedCount >= 9999) {
-            log.info("检测到可能的大数据量索引 {}，使用精确计数方法", indexName);
-            return getLargeIndexDocumentCount(indexName, isTarget);
-        }
-
-        return estimatedCount;
+        return getLargeIndexDocumentCount(indexName, isTarget);
     }
     
     /**
-     * 执行分片迁移
+     * 执行单个切片的迁移
+     * 
+     * 每个切片通过 SliceBuilder 获得源索引中互不重叠的一部分文档，
+     * 切片内部完整滚动到结束，因此所有切片合起来恰好覆盖全部文档。
+     * 指定 shardPreference 时按分片读取：sliceId 为读取单元编号，readIndex 为分片所属的具体索引，
+     * 切片即该分片上的全部文档。
      */
-    private MigrationResult executeShardMigration(MigrationConfig config, int shardIndex, long startOffset, long endOffset) throws IOException {
+    private MigrationResult executeSliceMigration(MigrationConfig config, String taskId, int sliceId, int sliceCount,
+                                                  String readIndex, String shardPreference, AtomicLong processedCounter,
+                                                  AtomicLong successCounter, AtomicLong failedCounter) throws IOException {
         MigrationResult result = new MigrationResult();
-        String threadName = "Migration-Shard-" + shardIndex;
+        String threadName = "Migration-Slice-" + sliceId;
         Thread.currentThread().setName(threadName);
         
-        log.info("分片 {} 开始迁移，文档范围: {} - {}", shardIndex, startOffset, endOffset);
-        
-        SearchRequest searchRequest = new SearchRequest(config.getSourceIndex());
-        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-        searchSourceBuilder.query(QueryBuilders.matchAllQuery());
-        
         // 动态调整批次大小
-        int dynamicBatchSize = adjustBatchSizeForShard(config.getBatchSize(), shardIndex);
-        searchSourceBuilder.size(dynamicBatchSize);
-        searchSourceBuilder.trackTotalHits(true);
+        int dynamicBatchSize = adjustBatchSizeForSlice(config.getBatchSize(), sliceId);
+        SourceCursorConfig cursorConfig = new SourceCursorConfig()
+            .index(readIndex)
+            .batchSize(dynamicBatchSize)
+            .keepAliveMinutes(config.getScrollTimeout())
+            .type(config.getCursorType());
+        if (shardPreference != null) {
+            cursorConfig.preference(shardPreference);
+        } else {
+            cursorConfig.slice(sliceId, sliceCount);
+        }
         
-        // 添加分片排序，确保数据分布均匀
-        searchSourceBuilder.sort("_doc");
+        IndexRequestFactory requestFactory = createRequestFactory(config);
+        SourceCursor cursor = sourceCursorFactory.open(sourceClient, cursorConfig);
+        SearchHit[] searchHits;
+        try {
+            searchHits = cursor.nextBatch();
+        } catch (IOException e) {
+            cursor.close();
+            throw e;
+        }
+        long sliceTotal = Math.max(cursor.getTotalHits(), 0);
         
-        searchRequest.source(searchSourceBuilder);
-        searchRequest.scroll(TimeValue.timeValueMinutes(config.getScrollTimeout()));
-
-        SearchResponse searchResponse = esQueryHelper.searchWithRetry(sourceClient, searchRequest, true, 3);
-        String scrollId = searchResponse.getScrollId();
-        SearchHit[] searchHits = searchResponse.getHits().getHits();
+        log.info("切片 {}/{} 开始迁移，游标类型: {}, 切片文档数: {}", sliceId, sliceCount, cursor.getType(), sliceTotal);
+        MigrationCheckpoint sliceCheckpoint = createSliceCheckpoint(config, taskId, sliceId, sliceCount, sliceTotal);
+        checkpointService.saveCheckpoint(sliceCheckpoint);
         
-        long processedInShard = 0;
-        long targetDocsInShard = endOffset - startOffset;
+        long processedInSlice = 0;
+        long lastReportedBatch = 0;
+        // 已汇总到全局计数的本切片结果，写入结果异步到达，每次只汇总新增部分
+        long reportedSuccess = 0;
+        long reportedFailed = 0;
         
-        while (searchHits != null && searchHits.length > 0 && processedInShard < targetDocsInShard) {
-            // 如果超过了分片目标数量，只处理剩余的
-            int actualProcessCount = (int) Math.min(searchHits.length, targetDocsInShard - processedInShard);
-            SearchHit[] actualHits = Arrays.copyOf(searchHits, actualProcessCount);
-            
-            processShardBatch(actualHits, config, result, shardIndex);
-            processedInShard += actualProcessCount;
-            
-            // 记录分片进度
-            double progress = (double) processedInShard / targetDocsInShard * 100;
-            if (processedInShard % (dynamicBatchSize * 10) == 0) {
-                log.info("分片 {} 进度: {:.1f}% ({}/{} docs)", shardIndex, progress, processedInShard, targetDocsInShard);
-            }
-            
-            if (processedInShard >= targetDocsInShard) {
-                break;
-            }
+        AsyncBulkWriter writer = openBulkWriter(config, result, taskId);
+        BulkAssembler<Void> assembler = createBulkAssembler(config, writer);
+        try {
+            while (searchHits != null && searchHits.length > 0) {
+                processBatch(searchHits, requestFactory, assembler, result);
+                processedInSlice += searchHits.length;
+                
+                // 汇总各切片进度并上报监控
+                long sliceSuccess = result.getSuccessCount();
+                long sliceFailed = result.getFailedCount();
+                long totalProcessed = processedCounter.addAndGet(searchHits.length);
+                long totalSuccess = successCounter.addAndGet(sliceSuccess - reportedSuccess);
+                long totalFailed = failedCounter.addAndGet(sliceFailed - reportedFailed);
+                reportedSuccess = sliceSuccess;
+                reportedFailed = sliceFailed;
+                migrationMonitor.updateProgress(taskId, totalProcessed, totalSuccess, totalFailed);
+                
+                // 记录切片进度
+                long batchNo = processedInSlice / (dynamicBatchSize * 10L);
+                if (batchNo > lastReportedBatch) {
+                    lastReportedBatch = batchNo;
+                    double progress = sliceTotal > 0 ? (double) processedInSlice / sliceTotal * 100 : 0;
+                    log.info("切片 {} 进度: {}% ({}/{} docs)", sliceId, 
+                        String.format("%.1f", progress), processedInSlice, sliceTotal);
+                    checkpointService.updateShardProgress(taskId, sliceId, processedInSlice, 
+                        result.getSuccessCount(), result.getFailedCount());
+                }
 
-            SearchScrollRequest scrollRequest = new SearchScrollRequest(scrollId);
-            scrollRequest.scroll(TimeValue.timeValueMinutes(config.getScrollTimeout()));
+                try {
+                    searchHits = cursor.nextBatch();
+                } catch (IOException e) {
+                    log.error("切片 {} 读取源数据失败: {}", sliceId, e.getMessage());
+                    throw e;
+                }
+            }
             
+            // 写出组装器中剩余的文档，等待在途写入结束后汇总最终计数
+            assembler.flush();
+            writer.close();
+            migrationMonitor.updateProgress(taskId, processedCounter.get(),
+                successCounter.addAndGet(result.getSuccessCount() - reportedSuccess),
+                failedCounter.addAndGet(result.getFailedCount() - reportedFailed));
+        } catch (IOException e) {
+            sliceCheckpoint.setStatus("FAILED");
+            sliceCheckpoint.setErrorMessage(e.getMessage());
+            sliceCheckpoint.setProcessedCount(processedInSlice);
+            sliceCheckpoint.setSuccessCount(result.getSuccessCount());
+            sliceCheckpoint.setFailedCount(result.getFailedCount());
+            checkpointService.saveCheckpoint(sliceCheckpoint);
+            throw e;
+        } finally {
             try {
-                searchResponse = esQueryHelper.scrollWithRetry(sourceClient, scrollRequest, true, 3);
-                scrollId = searchResponse.getScrollId();
-                searchHits = searchResponse.getHits().getHits();
-            } catch (IOException e) {
-                log.error("分片 {} 滚动查询失败: {}", shardIndex, e.getMessage());
-                throw e;
+                writer.close();
+            } finally {
+                cursor.close();
             }
         }
         
-        log.info("分片 {} 迁移完成，处理文档数: {}, 成功: {}, 失败: {}", 
-                shardIndex, processedInShard, result.getSuccessCount(), result.getFailedCount());
+        log.info("切片 {} 迁移完成，处理文档数: {}, 成功: {}, 失败: {}", 
+                sliceId, processedInSlice, result.getSuccessCount(), result.getFailedCount());
+        checkpointService.removeShardCheckpoint(taskId, sliceId);
         
         return result;
     }
     
     /**
-     * 处理分片批次数据
+     * 创建切片断点信息
      */
-    private void processShardBatch(SearchHit[] hits, MigrationConfig config, MigrationResult result, int shardIndex) {
-        BulkRequest bulkRequest = new BulkRequest();
-        AtomicLong batchSuccessCount = new AtomicLong(0);
-        AtomicLong batchFailedCount = new AtomicLong(0);
-        
-        for (SearchHit hit : hits) {
-            try {
-                Map<String, Object> sourceData = hit.getSourceAsMap();
-                Map<String, Object> targetData = transformDocument(sourceData, config);
-                
-                IndexRequest indexRequest = new IndexRequest(config.getTargetIndex())
-                        .id(hit.getId())
-                        .source(targetData, XContentType.JSON);
-                
-                bulkRequest.add(indexRequest);
-                
-            } catch (Exception e) {
-                log.error("分片 {} 处理文档失败，ID: {}, 错误: {}", shardIndex, hit.getId(), e.getMessage());
-                batchFailedCount.incrementAndGet();
-            }
-        }
-        
-        if (bulkRequest.numberOfActions() > 0) {
-            try {
-                BulkResponse bulkResponse = targetClient.bulk(bulkRequest, RequestOptions.DEFAULT);
-                
-                // 修复错误计数逻辑
-                if (bulkResponse.hasFailures()) {
-                    Arrays.stream(bulkResponse.getItems())
-                        .forEach(item -> {
-                            if (item.isFailed()) {
-                                batchFailedCount.incrementAndGet();
-                                log.warn("分片 {} 文档写入失败: {}, 原因: {}", 
-                                    shardIndex, item.getId(), item.getFailureMessage());
-                            } else {
-                                batchSuccessCount.incrementAndGet();
-                            }
-                        });
-                } else {
-                    batchSuccessCount.addAndGet(bulkResponse.getItems().length);
-                }
-                
-                result.setSuccessCount(result.getSuccessCount() + batchSuccessCount.get());
-                result.setFailedCount(result.getFailedCount() + batchFailedCount.get());
-                
-            } catch (IOException e) {
-                log.error("分片 {} 批量写入失败", shardIndex, e);
-                result.setFailedCount(result.getFailedCount() + bulkRequest.numberOfActions());
-            }
-        }
+    private MigrationCheckpoint createSliceCheckpoint(MigrationConfig config, String taskId, int sliceId, 
+                                                      int sliceCount, long sliceTotal) {
+        MigrationCheckpoint checkpoint = new MigrationCheckpoint();
+        checkpoint.setTaskId(taskId);
+        checkpoint.setSourceIndex(config.getSourceIndex());
+        checkpoint.setTargetIndex(config.getTargetIndex());
+        checkpoint.setShardIndex(sliceId);
+        checkpoint.setSliceCount(sliceCount);
+        checkpoint.setTotalCount(sliceTotal);
+        checkpoint.setCurrentBatchSize(config.getBatchSize());
+        checkpoint.setThreadName(Thread.currentThread().getName());
+        checkpoint.setStatus("RUNNING");
+        return checkpoint;
     }
     
     /**
-     * 为分片调整批次大小
+     * 为切片调整批次大小
      */
-    private int adjustBatchSizeForShard(int baseBatchSize, int shardIndex) {
-        // 不同分片使用略有不同的批次大小，避免同时竞争资源
-        int adjustment = (shardIndex % 3 - 1) * 100; // -100, 0, +100
+    private int adjustBatchSizeForSlice(int baseBatchSize, int sliceId) {
+        // 不同切片使用略有不同的批次大小，避免同时竞争资源
+        int adjustment = (sliceId % 3 - 1) * 100; // -100, 0, +100
         return Math.max(baseBatchSize + adjustment, 100);
     }
     
@@ -1018,7 +1431,7 @@ public class EsMigrationServiceImpl implements EsMigrationService {
         
         try {
             log.info("开始单线程迁移，任务ID: {}", taskId);
-            executeSingleThreadMigration(config, result, taskId);
+            executeSingleThreadMigration(config, result, taskId, checkpoint);
             
             // 更新最终状态
             checkpoint.setProcessedCount(result.getSuccessCount() + result.getFailedCount());
@@ -1044,7 +1457,7 @@ public class EsMigrationServiceImpl implements EsMigrationService {
     private void executeParallelMigrationWithCheckpoint(MigrationConfig config, MigrationResult result, 
                                                         String taskId, Optional<MigrationCheckpoint> checkpointOpt) throws IOException {
         try {
-            executeParallelMigration(config, result);
+            executeParallelMigration(config, result, taskId);
         } catch (Exception e) {
             // 保存并行迁移失败信息
             MigrationCheckpoint checkpoint = new MigrationCheckpoint();
@@ -1058,6 +1471,29 @@ public class EsMigrationServiceImpl implements EsMigrationService {
         }
     }
     
+    /**
+     * 查找同一源/目标索引上可以恢复的单线程迁移断点
+     * 
+     * 只有记录了游标排序值的断点才能恢复，scroll ID 过期后无法继续使用。
+     */
+    private Optional<String> findResumableTaskId(MigrationConfig config) {
+        if (config.getThreadCount() > 1) {
+            return Optional.empty();
+        }
+        return checkpointService.getUnfinishedCheckpoints().stream()
+            .filter(checkpoint -> checkpoint.getShardIndex() == null)
+            .filter(checkpoint -> checkpoint.getSearchAfterValues() != null)
+            .filter(checkpoint -> config.getSourceIndex().equals(checkpoint.getSourceIndex())
+                && config.getTargetIndex().equals(checkpoint.getTargetIndex()))
+            .filter(checkpoint -> checkpointService.canResumeFromCheckpoint(checkpoint.getTaskId(), config))
+            .max(Comparator.comparing(checkpoint -> checkpoint.getLastUpdateTime() != null ? 
+                checkpoint.getLastUpdateTime().getTime() : 0L))
+            .map(checkpoint -> {
+                log.info("发现可恢复的迁移断点，任务ID: {}", checkpoint.getTaskId());
+                return checkpoint.getTaskId();
+            });
+    }
+    
     /**
      * 生成任务ID
      */
@@ -6,14 +6,14 @@ import com.everflowx.esmigration.config.ElasticsearchConfig;
 import com.everflowx.esmigration.domain.IndexSyncConfig;
 import com.everflowx.esmigration.domain.IndexSyncResult;
 import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.executor.IndexSyncScheduler;
+import com.everflowx.esmigration.metadata.IndexMetadataCache;
 import com.everflowx.esmigration.service.EsMigrationService;
 import com.everflowx.esmigration.service.IndexSyncService;
 import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
-import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
-import org.elasticsearch.action.admin.indices.get.GetIndexResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.common.settings.Settings;
@@ -26,9 +26,7 @@ import org.springframework.util.CollectionUtils;
 import javax.annotation.Resource;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -55,8 +53,19 @@ public class IndexSyncServiceImpl implements IndexSyncService {
     @Autowired
     private EsMigrationService esMigrationService;
     
+    @Resource
+    private IndexSyncScheduler indexSyncScheduler;
+    
+    @Resource
+    private IndexMetadataCache indexMetadataCache;
+    
     @Override
     public IndexSyncResult syncIndices(IndexSyncConfig config) {
+        return syncIndices(config, progress -> { });
+    }
+    
+    @Override
+    public IndexSyncResult syncIndices(IndexSyncConfig config, Consumer<IndexSyncResult> progressListener) {
         IndexSyncResult result = new IndexSyncResult();
         
         try {
@@ -82,13 +91,16 @@ public class IndexSyncServiceImpl implements IndexSyncService {
             
             log.info("找到 {} 个索引需要同步: {}", indicesToSync.size(), indicesToSync);
             
-            // 并行同步索引
-            if (config.getThreadCount() > 1) {
-                syncIndicesParallel(indicesToSync, config, result);
-            } else {
-                syncIndicesSequential(indicesToSync, config, result);
+            // 批量预加载源索引的映射与设置，避免逐个索引请求
+            if (config.getSyncSettings() || config.getSyncMappings()) {
+                indexMetadataCache.preload(sourceClient, indicesToSync);
             }
             
+            // 按存储大小排序，在全局切片预算内调度各索引
+            indexSyncScheduler.run(indicesToSync, config, result,
+                (indexName, readSlices, taskId) -> syncSingleIndexInternal(indexName, config, readSlices, taskId),
+                progressListener);
+            
         } catch (Exception e) {
             log.error("索引同步失败", e);
             result.addError("索引同步失败: " + e.getMessage());
@@ -116,8 +128,9 @@ public class IndexSyncServiceImpl implements IndexSyncService {
                 return result;
             }
             
-            IndexSyncResult.IndexSyncDetail detail = syncSingleIndexInternal(indexName, config);
-            result.addIndexDetail(indexName, detail);
+            indexSyncScheduler.run(Collections.singletonList(indexName), config, result,
+                (name, readSlices, taskId) -> syncSingleIndexInternal(name, config, readSlices, taskId),
+                progress -> { });
             
         } catch (Exception e) {
             log.error("同步索引 {} 失败", indexName, e);
@@ -131,8 +144,12 @@ public class IndexSyncServiceImpl implements IndexSyncService {
     
     /**
      * 内部同步单个索引的方法
+     * 
+     * @param readSlices 数据迁移使用的读取切片数
+     * @param taskId 数据迁移任务ID，为空时自动生成
      */
-    private IndexSyncResult.IndexSyncDetail syncSingleIndexInternal(String indexName, IndexSyncConfig config) {
+    private IndexSyncResult.IndexSyncDetail syncSingleIndexInternal(String indexName, IndexSyncConfig config,
+                                                                    int readSlices, String taskId) {
         IndexSyncResult.IndexSyncDetail detail = new IndexSyncResult.IndexSyncDetail();
         detail.setIndexName(indexName);
         detail.setStartTime(new Date());
@@ -153,7 +170,7 @@ public class IndexSyncServiceImpl implements IndexSyncService {
             
             // 2. 同步数据
             if (config.getSyncData()) {
-                long syncedCount = syncIndexData(indexName, config);
+                long syncedCount = syncIndexData(indexName, config, readSlices, taskId);
                 detail.setDocumentCount(syncedCount);
                 detail.setSuccessCount(syncedCount);
                 detail.setDataSynced(true);
@@ -184,77 +201,11 @@ public class IndexSyncServiceImpl implements IndexSyncService {
         return detail;
     }
     
-    /**
-     * 顺序同步索引
-     */
-    private void syncIndicesSequential(List<String> indices, IndexSyncConfig config, IndexSyncResult result) {
-        for (String indexName : indices) {
-            try {
-                IndexSyncResult.IndexSyncDetail detail = syncSingleIndexInternal(indexName, config);
-                result.addIndexDetail(indexName, detail);
-                
-                if ("FAILED".equals(detail.getStatus())) {
-                    result.addError("索引 " + indexName + " 同步失败: " + detail.getErrorMessage());
-                }
-                
-            } catch (Exception e) {
-                log.error("同步索引 {} 失败", indexName, e);
-                result.addError("同步索引 " + indexName + " 失败: " + e.getMessage());
-            }
-        }
-    }
-    
-    /**
-     * 并行同步索引
-     */
-    private void syncIndicesParallel(List<String> indices, IndexSyncConfig config, IndexSyncResult result) {
-        ExecutorService executor = Executors.newFixedThreadPool(config.getThreadCount());
-        
-        try {
-            List<CompletableFuture<IndexSyncResult.IndexSyncDetail>> futures = indices.stream()
-                .map(indexName -> CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return syncSingleIndexInternal(indexName, config);
-                    } catch (Exception e) {
-                        log.error("并行同步索引 {} 失败", indexName, e);
-                        IndexSyncResult.IndexSyncDetail detail = new IndexSyncResult.IndexSyncDetail();
-                        detail.setIndexName(indexName);
-                        detail.setStatus("FAILED");
-                        detail.setErrorMessage(e.getMessage());
-                        return detail;
-                    }
-                }, executor))
-                .collect(Collectors.toList());
-            
-            // 等待所有任务完成
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-            
-            // 收集结果
-            for (CompletableFuture<IndexSyncResult.IndexSyncDetail> future : futures) {
-                IndexSyncResult.IndexSyncDetail detail = future.get();
-                result.addIndexDetail(detail.getIndexName(), detail);
-                
-                if ("FAILED".equals(detail.getStatus())) {
-                    result.addError("索引 " + detail.getIndexName() + " 同步失败: " + detail.getErrorMessage());
-                }
-            }
-            
-        } catch (Exception e) {
-            log.error("并行同步索引失败", e);
-            result.addError("并行同步失败: " + e.getMessage());
-        } finally {
-            executor.shutdown();
-        }
-    }
-    
     @Override
     public List<String> getAllIndices(boolean isTarget) {
         try {
             RestHighLevelClient client = isTarget ? targetClient : sourceClient;
-            GetIndexRequest request = new GetIndexRequest();
-            request.indices("*");
-            GetIndexResponse response = client.indices().get(request, RequestOptions.DEFAULT);
-            return Arrays.asList(response.getIndices());
+            return indexMetadataCache.getIndexNames(client);
         } catch (IOException e) {
             log.error("获取索引列表失败", e);
             return new ArrayList<>();
@@ -346,9 +297,7 @@ public class IndexSyncServiceImpl implements IndexSyncService {
     public boolean createIndex(String indexName, IndexSyncConfig config) {
         try {
             // 检查目标索引是否已存在
-            GetIndexRequest existsRequest = new GetIndexRequest();
-            existsRequest.indices(indexName);
-            boolean targetExists = targetClient.indices().exists(existsRequest, RequestOptions.DEFAULT);
+            boolean targetExists = indexMetadataCache.exists(targetClient, indexName);
 
             if (targetExists) {
                 if (config.getForceRecreate()) {
@@ -356,6 +305,7 @@ public class IndexSyncServiceImpl implements IndexSyncService {
                     // 删除现有索引
                     DeleteIndexRequest deleteRequest = new DeleteIndexRequest(indexName);
                     targetClient.indices().delete(deleteRequest, RequestOptions.DEFAULT);
+                    indexMetadataCache.invalidate(targetClient, indexName);
                     log.info("已删除现有索引: {}", indexName);
                 } else if (!config.getOverwriteExisting()) {
                     log.info("索引 {} 已存在，跳过创建", indexName);
@@ -364,17 +314,15 @@ public class IndexSyncServiceImpl implements IndexSyncService {
             }
 
             // 获取源索引信息
-            GetIndexRequest getRequest = new GetIndexRequest();
-            getRequest.indices(indexName);
-            GetIndexResponse getResponse = sourceClient.indices().get(getRequest, RequestOptions.DEFAULT);
+            IndexMetadataCache.IndexDescriptor sourceDescriptor = indexMetadataCache.getDescriptor(sourceClient, indexName);
 
             // 创建索引请求
             CreateIndexRequest createRequest = new CreateIndexRequest(indexName);
 
             // 同步设置
             if (config.getSyncSettings()) {
-                Settings sourceSettings = getResponse.getSettings().get(indexName);
-                if (sourceSettings != null) {
+                Settings sourceSettings = sourceDescriptor.getSettings();
+                if (!sourceSettings.isEmpty()) {
                     // 过滤掉不能设置的系统设置
                     Settings.Builder settingsBuilder = Settings.builder();
                     sourceSettings.keySet().forEach(key -> {
@@ -402,6 +350,7 @@ public class IndexSyncServiceImpl implements IndexSyncService {
 
             // 创建索引
             CreateIndexResponse createResponse = targetClient.indices().create(createRequest, RequestOptions.DEFAULT);
+            indexMetadataCache.invalidate(targetClient, indexName);
 
             if (createResponse.isAcknowledged()) {
                 log.info("索引 {} 创建成功", indexName);
@@ -429,6 +378,10 @@ public class IndexSyncServiceImpl implements IndexSyncService {
 
     @Override
     public long syncIndexData(String indexName, IndexSyncConfig config) {
+        return syncIndexData(indexName, config, config.getThreadCount(), null);
+    }
+    
+    private long syncIndexData(String indexName, IndexSyncConfig config, int readSlices, String taskId) {
         try {
             // 构建迁移配置
             MigrationConfig migrationConfig = new MigrationConfig();
@@ -436,7 +389,9 @@ public class IndexSyncServiceImpl implements IndexSyncService {
             migrationConfig.setTargetIndex(indexName);
             migrationConfig.setBatchSize(config.getBatchSize());
             migrationConfig.setScrollTimeout(config.getScrollTimeout());
-            migrationConfig.setThreadCount(config.getThreadCount());
+            migrationConfig.setThreadCount(readSlices);
+            migrationConfig.setTaskId(taskId);
+            migrationConfig.setShardRouting(config.getShardRouting());
             migrationConfig.setOverwriteExisting(config.getOverwriteExisting());
             migrationConfig.setNewFields(config.getNewFields());
             migrationConfig.setCaseInsensitiveFields(config.getCaseInsensitiveFields());
@@ -446,8 +401,7 @@ public class IndexSyncServiceImpl implements IndexSyncService {
             EsMigrationService.MigrationResult result;
             if (config.getIncrementalMode()) {
                 migrationConfig.setTimestampField(config.getTimestampField());
-                Date lastSyncTime = esMigrationService.getLastSyncTime(indexName, config.getTimestampField());
-                result = esMigrationService.incrementalMigration(migrationConfig, lastSyncTime);
+                result = esMigrationService.incrementalSync(migrationConfig);
             } else {
                 result = esMigrationService.fullMigration(migrationConfig);
             }
@@ -489,12 +443,9 @@ public class IndexSyncServiceImpl implements IndexSyncService {
     public String getIndexSettings(String indexName, boolean isTarget) {
         try {
             RestHighLevelClient client = isTarget ? targetClient : sourceClient;
-            GetIndexRequest request = new GetIndexRequest();
-            request.indices(indexName);
-            GetIndexResponse response = client.indices().get(request, RequestOptions.DEFAULT);
-            Settings settings = response.getSettings().get(indexName);
+            Settings settings = indexMetadataCache.getDescriptor(client, indexName).getSettings();
 
-            if (settings != null) {
+            if (!settings.isEmpty()) {
                 // 将Settings转换为JSON格式
                 JSONObject settingsJson = new JSONObject();
 
@@ -574,29 +525,9 @@ public class IndexSyncServiceImpl implements IndexSyncService {
     public String getIndexMappings(String indexName, boolean isTarget) {
         try {
             RestHighLevelClient client = isTarget ? targetClient : sourceClient;
-            GetIndexRequest request = new GetIndexRequest();
-            request.indices(indexName);
-            GetIndexResponse response = client.indices().get(request, RequestOptions.DEFAULT);
-
-            // 获取映射信息并格式化为JSON
-            try {
-                Object mappingObj = response.getMappings().get(indexName);
-                if (mappingObj != null) {
-                    String mappingStr = mappingObj.toString();
-
-                    // 尝试解析为JSON对象以确保格式正确
-                    try {
-                        JSONObject mappingJson = JSON.parseObject(mappingStr);
-                        return mappingJson.toJSONString();
-                    } catch (Exception parseEx) {
-                        log.debug("映射字符串解析为JSON失败，返回原始字符串: {}", parseEx.getMessage());
-                        return mappingStr;
-                    }
-                }
-            } catch (Exception e) {
-                log.debug("获取映射详情失败，返回空对象: {}", e.getMessage());
-            }
-            return "{}";
+            // 映射定义即 {"properties": {...}} 部分，可直接用于创建索引
+            Map<String, Object> mapping = indexMetadataCache.getDescriptor(client, indexName).getMapping();
+            return JSON.toJSONString(mapping);
         } catch (Exception e) {
             log.error("获取索引 {} 映射失败", indexName, e);
             return "{}";
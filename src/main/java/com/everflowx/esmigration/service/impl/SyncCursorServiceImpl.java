@@ -0,0 +1,123 @@
+package com.everflowx.esmigration.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.everflowx.esmigration.domain.SyncCursor;
+import com.everflowx.esmigration.service.SyncCursorService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 增量同步游标服务实现
+ *
+ * 每对源/目标索引一个 JSON 文件，先写临时文件再原子替换，进程中断时不会留下半个游标。
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Service
+public class SyncCursorServiceImpl implements SyncCursorService {
+
+    @Value("${es.migration.sync-cursor.dir:./sync-cursors}")
+    private String cursorDir;
+
+    // 内存缓存，提高读取性能
+    private final ConcurrentHashMap<String, SyncCursor> cursorCache = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<SyncCursor> getCursor(String sourceIndex, String targetIndex) {
+        String key = getCursorKey(sourceIndex, targetIndex);
+        SyncCursor cached = cursorCache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Path filePath = Paths.get(cursorDir, getCursorFileName(key));
+        if (!Files.exists(filePath)) {
+            return Optional.empty();
+        }
+        try {
+            SyncCursor cursor = JSON.parseObject(new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8),
+                SyncCursor.class);
+            cursorCache.put(key, cursor);
+            return Optional.of(cursor);
+        } catch (Exception e) {
+            log.error("读取同步游标失败: {}", filePath, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void saveCursor(SyncCursor cursor) {
+        String key = getCursorKey(cursor.getSourceIndex(), cursor.getTargetIndex());
+        cursor.setLastUpdateTime(new Date());
+        try {
+            Path dir = Paths.get(cursorDir);
+            Files.createDirectories(dir);
+            Path filePath = dir.resolve(getCursorFileName(key));
+            Path tempPath = dir.resolve(getCursorFileName(key) + ".tmp");
+            Files.write(tempPath, JSON.toJSONString(cursor, true).getBytes(StandardCharsets.UTF_8));
+            Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            cursorCache.put(key, cursor);
+            log.debug("保存同步游标: {} -> {}, 位置: [{}, {}]", cursor.getSourceIndex(), cursor.getTargetIndex(),
+                cursor.getTimestamp(), cursor.getDocId());
+        } catch (IOException e) {
+            throw new IllegalStateException("保存同步游标失败: " + key, e);
+        }
+    }
+
+    @Override
+    public void removeCursor(String sourceIndex, String targetIndex) {
+        String key = getCursorKey(sourceIndex, targetIndex);
+        cursorCache.remove(key);
+        try {
+            Files.deleteIfExists(Paths.get(cursorDir, getCursorFileName(key)));
+            log.info("删除同步游标: {} -> {}", sourceIndex, targetIndex);
+        } catch (IOException e) {
+            log.error("删除同步游标失败: {}", key, e);
+        }
+    }
+
+    @Override
+    public List<SyncCursor> getCursors() {
+        List<SyncCursor> cursors = new ArrayList<>();
+        Path dir = Paths.get(cursorDir);
+        if (!Files.exists(dir)) {
+            return cursors;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(path -> path.getFileName().toString().endsWith(".json")).forEach(path -> {
+                try {
+                    cursors.add(JSON.parseObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8),
+                        SyncCursor.class));
+                } catch (Exception e) {
+                    log.warn("读取同步游标失败: {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            log.error("列出同步游标失败", e);
+        }
+        return cursors;
+    }
+
+    private String getCursorKey(String sourceIndex, String targetIndex) {
+        return sourceIndex + "__" + targetIndex;
+    }
+
+    private String getCursorFileName(String key) {
+        return String.format("sync_cursor_%s.json", key.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+}
@@ -0,0 +1,173 @@
+package com.everflowx.esmigration.stream;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.search.SearchHit;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按估算占用字节数限界的批次队列
+ *
+ * 以批次中各文档 _source 的长度加固定开销估算批次常驻内存，入队使占用超过预算时生产者阻塞，
+ * 直到消费者取走足够的批次。单个批次超过预算时只在队列为空时入队，保证不会死锁。
+ * 与按批次数限界相比，队列内存不再随文档大小与批次大小放大，可预先确定。
+ *
+ * @author everflowx
+ */
+public class ByteBoundedBatchQueue {
+
+    /**
+     * 每个 SearchHit 除 _source 外的常驻开销估算（对象头、_id、元数据字段等）
+     */
+    private static final int HIT_OVERHEAD_BYTES = 256;
+
+    private final long maxBytes;
+    private final Queue<Entry> entries = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+
+    private long usedBytes;
+    private long peakBytes;
+    private long putCount;
+    private long blockedPuts;
+    private long blockedNanos;
+
+    public ByteBoundedBatchQueue(long maxBytes) {
+        this.maxBytes = Math.max(maxBytes, 1);
+    }
+
+    /**
+     * 批次入队，占用超过字节预算时阻塞
+     */
+    public void put(SearchHit[] batch) throws InterruptedException {
+        long bytes = estimateBytes(batch);
+        lock.lockInterruptibly();
+        try {
+            if (!hasRoom(bytes)) {
+                long waitStart = System.nanoTime();
+                blockedPuts++;
+                try {
+                    while (!hasRoom(bytes)) {
+                        notFull.await();
+                    }
+                } finally {
+                    blockedNanos += System.nanoTime() - waitStart;
+                }
+            }
+            entries.add(new Entry(batch, bytes));
+            usedBytes += bytes;
+            peakBytes = Math.max(peakBytes, usedBytes);
+            putCount++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出批次，队列为空时最多等待指定时间，超时返回 null
+     */
+    public SearchHit[] poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (entries.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            Entry entry = entries.poll();
+            usedBytes -= entry.bytes;
+            notFull.signalAll();
+            return entry.batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasRoom(long bytes) {
+        return entries.isEmpty() || usedBytes + bytes <= maxBytes;
+    }
+
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return entries.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取队列占用快照
+     */
+    public QueueStats getStats() {
+        lock.lock();
+        try {
+            QueueStats stats = new QueueStats();
+            stats.batches = entries.size();
+            stats.usedBytes = usedBytes;
+            stats.maxBytes = maxBytes;
+            stats.peakBytes = peakBytes;
+            stats.putCount = putCount;
+            stats.blockedPuts = blockedPuts;
+            stats.blockedMs = TimeUnit.NANOSECONDS.toMillis(blockedNanos);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 估算批次常驻字节数
+     */
+    static long estimateBytes(SearchHit[] batch) {
+        long bytes = 0;
+        for (SearchHit hit : batch) {
+            BytesReference source = hit.getSourceRef();
+            bytes += HIT_OVERHEAD_BYTES + (source != null ? source.length() : 0);
+        }
+        return bytes;
+    }
+
+    private static final class Entry {
+        private final SearchHit[] batch;
+        private final long bytes;
+
+        private Entry(SearchHit[] batch, long bytes) {
+            this.batch = batch;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * 队列占用统计
+     */
+    public static class QueueStats {
+        private int batches;
+        private long usedBytes;
+        private long maxBytes;
+        private long peakBytes;
+        private long putCount;
+        private long blockedPuts;
+        private long blockedMs;
+
+        public int getBatches() { return batches; }
+        public long getUsedBytes() { return usedBytes; }
+        public long getMaxBytes() { return maxBytes; }
+        public long getPeakBytes() { return peakBytes; }
+        public long getPutCount() { return putCount; }
+        public long getBlockedPuts() { return blockedPuts; }
+        public long getBlockedMs() { return blockedMs; }
+
+        public double getOccupancy() {
+            return maxBytes > 0 ? (double) usedBytes / maxBytes : 0;
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.everflowx.esmigration.stream;
+
+import com.everflowx.esmigration.bulk.AsyncBulkWriter;
+import com.everflowx.esmigration.bulk.AsyncBulkWriterFactory;
+import com.everflowx.esmigration.bulk.BulkAssembler;
+import com.everflowx.esmigration.cursor.SourceCursorConfig;
+import com.everflowx.esmigration.cursor.WatermarkSourceCursor;
+import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.domain.SyncCursor;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
+import com.everflowx.esmigration.service.SyncCursorService;
+import com.everflowx.esmigration.throttle.BulkConcurrencyController;
+import com.everflowx.esmigration.transform.IndexRequestFactory;
+import com.everflowx.esmigration.util.EsQueryHelper;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 持续变更同步引擎 - 以亚秒级延迟把源索引的新文档持续复制到目标索引
+ *
+ * 每对源/目标索引一个长时间运行的同步阶段，替代定时增量同步：
+ * 1. 按 (时间戳, _id) 从同步游标 search_after 轮询新文档，只读取时间戳不晚于 当前时间 - settle-ms 的文档，
+ *    给源集群刷新和写入方时钟偏差留出余量，游标之后不会再出现更早的文档
+ * 2. 轮询间隔自适应：有新文档时按最小间隔（读满一页时立即）继续，空闲时逐次加倍到最大间隔
+ * 3. 批量写入器在同步期间保持打开，每轮轮询后立即发送未满的批量请求
+ * 4. 读完一轮后等待在途写入完成，记录已确认的时间点，延迟 = 当前时间 - 已确认时间点；
+ *    游标按 checkpoint-interval-ms 持久化，与定时增量同步共用同一个游标
+ * 5. 整个批量请求失败（如目标集群不可用）或文档重试耗尽仍被拒绝（429/503）时回退到上次确认的位置重读，
+ *    单个文档的永久性错误计为失败并跳过
+ * 6. 每隔 overlap-sweep-interval-ms（以及启动、回退后）从当前位置的时间戳减去增量同步的重叠窗口处重读一次，
+ *    补上刷新延迟或时钟偏差导致晚于游标才可见的文档，与定时增量同步的重叠窗口一致
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class ChangeTailingEngine {
+
+    @Resource
+    @Qualifier("sourceElasticsearchClient")
+    private RestHighLevelClient sourceClient;
+
+    @Resource
+    @Qualifier("targetElasticsearchClient")
+    private RestHighLevelClient targetClient;
+
+    @Resource
+    private EsQueryHelper esQueryHelper;
+
+    @Resource
+    private AsyncBulkWriterFactory asyncBulkWriterFactory;
+
+    @Resource
+    private BulkConcurrencyController bulkConcurrencyController;
+
+    @Resource
+    private SyncCursorService syncCursorService;
+
+    @Resource
+    private MigrationWorkerPool workerPool;
+
+    @Value("${es.migration.tailing.min-interval-ms:200}")
+    private long minIntervalMs;
+
+    @Value("${es.migration.tailing.max-interval-ms:5000}")
+    private long maxIntervalMs;
+
+    @Value("${es.migration.tailing.settle-ms:1000}")
+    private long settleMs;
+
+    @Value("${es.migration.tailing.checkpoint-interval-ms:5000}")
+    private long checkpointIntervalMs;
+
+    @Value("${es.migration.tailing.max-docs-per-poll:50000}")
+    private long maxDocsPerPoll;
+
+    @Value("${es.migration.sync-cursor.overlap-ms:60000}")
+    private long overlapMs;
+
+    @Value("${es.migration.tailing.overlap-sweep-interval-ms:60000}")
+    private long overlapSweepIntervalMs;
+
+    private final Map<String, Tail> tails = new ConcurrentHashMap<>();
+
+    /**
+     * 启动持续同步，同一对索引已在同步时抛出 IllegalStateException
+     */
+    public synchronized TailStatus start(MigrationConfig config) {
+        if (config.getTimestampField() == null || config.getTimestampField().isEmpty()) {
+            throw new IllegalArgumentException("持续同步需要指定时间戳字段");
+        }
+        String key = getKey(config.getSourceIndex(), config.getTargetIndex());
+        Tail existing = tails.get(key);
+        if (existing != null && existing.running) {
+            throw new IllegalStateException("索引已在持续同步: " + key);
+        }
+        Tail tail = new Tail(config);
+        tails.put(key, tail);
+        try {
+            workerPool.startStage("Tail-" + config.getSourceIndex(), tail::run);
+        } catch (RuntimeException e) {
+            tails.remove(key);
+            throw e;
+        }
+        log.info("启动持续同步: {}, 轮询间隔: {}-{}ms, 稳定延迟: {}ms", key, minIntervalMs, maxIntervalMs, settleMs);
+        return tail.toStatus();
+    }
+
+    /**
+     * 停止持续同步，等待当前轮询结束、在途写入完成并保存游标后返回
+     *
+     * @return 该对索引是否在同步
+     */
+    public boolean stop(String sourceIndex, String targetIndex) {
+        Tail tail = tails.get(getKey(sourceIndex, targetIndex));
+        if (tail == null || !tail.running) {
+            return false;
+        }
+        tail.stop();
+        return true;
+    }
+
+    /**
+     * 各持续同步的状态与延迟
+     */
+    public List<TailStatus> getStatus() {
+        List<TailStatus> statuses = new ArrayList<>();
+        for (Tail tail : tails.values()) {
+            statuses.add(tail.toStatus());
+        }
+        return statuses;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Tail tail : tails.values()) {
+            if (tail.running) {
+                tail.stop();
+            }
+        }
+    }
+
+    private static String getKey(String sourceIndex, String targetIndex) {
+        return sourceIndex + " -> " + targetIndex;
+    }
+
+    /**
+     * 单对索引的持续同步
+     */
+    private class Tail {
+        private final MigrationConfig config;
+        private final String timestampField;
+        private final Object sleepLock = new Object();
+        private volatile boolean running = true;
+        private volatile boolean finished;
+
+        private final LongAdder polls = new LongAdder();
+        private final LongAdder docsRead = new LongAdder();
+        private final LongAdder successCount = new LongAdder();
+        private final LongAdder failedCount = new LongAdder();
+        private final LongAdder rewindFailures = new LongAdder();
+        private final AtomicReference<String> lastError = new AtomicReference<>();
+        private final long startTime = System.currentTimeMillis();
+        private volatile Object[] position;
+        private volatile long confirmedUpTo;
+        private volatile long intervalMs = minIntervalMs;
+
+        private Tail(MigrationConfig config) {
+            this.config = config;
+            this.timestampField = config.getTimestampField();
+        }
+
+        private void run() {
+            SyncCursor syncCursor = syncCursorService.getCursor(config.getSourceIndex(), config.getTargetIndex())
+                .filter(cursor -> timestampField.equals(cursor.getTimestampField()))
+                .orElseGet(this::newCursor);
+            position = syncCursor.getTimestamp() != null
+                ? new Object[]{syncCursor.getTimestamp(), syncCursor.getDocId()} : null;
+            IndexRequestFactory requestFactory = IndexRequestFactory.create(config);
+
+            try (AsyncBulkWriter writer = asyncBulkWriterFactory.open(targetClient, config,
+                    (bulkRequest, bytes, latencyMs, outcome) -> {
+                        successCount.add(outcome.getSuccessCount());
+                        failedCount.add(outcome.getFailedCount());
+                        // 整体失败与重试耗尽的回压拒绝都是暂时性的，需要回退重读，不能把游标推过这些文档
+                        if (outcome.isRequestFailed() || outcome.getRetryExhaustedCount() > 0) {
+                            rewindFailures.increment();
+                        }
+                    })) {
+                BulkAssembler<Void> assembler = BulkAssembler.create(config, bulkConcurrencyController,
+                    (bulkRequest, bytes, tags) -> writer.write(bulkRequest, bytes));
+                long lastSave = System.currentTimeMillis();
+                long lastSweep = 0;
+                long rewindFailuresSeen = 0;
+
+                while (running && !Thread.currentThread().isInterrupted()) {
+                    long upperBound = System.currentTimeMillis() - settleMs;
+                    boolean sweep = overlapMs > 0 && position != null
+                        && System.currentTimeMillis() - lastSweep >= overlapSweepIntervalMs;
+                    Object[] sweptFrom = position;
+                    boolean drained;
+                    long read;
+                    try {
+                        WatermarkSourceCursor reader = openReader(upperBound, sweep);
+                        if (sweep) {
+                            lastSweep = System.currentTimeMillis();
+                        }
+                        read = 0;
+                        SearchHit[] hits;
+                        do {
+                            hits = reader.nextBatch();
+                            for (SearchHit hit : hits) {
+                                addDocument(hit, requestFactory, assembler);
+                            }
+                            read += hits.length;
+                        } while (hits.length > 0 && !reader.isExhausted() && running && read < maxDocsPerPoll);
+                        drained = reader.isExhausted() || hits.length == 0;
+                        if (reader.getPosition() != null) {
+                            // 重读重叠窗口读完时不把位置退回到本轮开始之前
+                            position = sweep && drained ? laterOf(sweptFrom, reader.getPosition()) : reader.getPosition();
+                        }
+                        polls.increment();
+                        docsRead.add(read);
+                        // 不等待批量请求攒满，读到的文档立即发送
+                        assembler.flush();
+                    } catch (IOException e) {
+                        log.warn("持续同步轮询失败: {} - {}", getKey(config.getSourceIndex(), config.getTargetIndex()),
+                            e.getMessage());
+                        lastError.set(e.getMessage());
+                        intervalMs = maxIntervalMs;
+                        pause(intervalMs);
+                        continue;
+                    }
+
+                    long now = System.currentTimeMillis();
+                    if (drained || now - lastSave >= checkpointIntervalMs) {
+                        writer.flush();
+                        if (rewindFailures.sum() > rewindFailuresSeen) {
+                            rewindFailuresSeen = rewindFailures.sum();
+                            lastError.set(writer.getLastError());
+                            log.warn("持续同步批量写入失败，回退到游标位置 [{}, {}] 重读: {}",
+                                syncCursor.getTimestamp(), syncCursor.getDocId(), writer.getLastError());
+                            position = syncCursor.getTimestamp() != null
+                                ? new Object[]{syncCursor.getTimestamp(), syncCursor.getDocId()} : null;
+                            lastSweep = 0;
+                            intervalMs = maxIntervalMs;
+                            pause(intervalMs);
+                            continue;
+                        }
+                        if (drained) {
+                            confirmedUpTo = upperBound;
+                        }
+                        if (now - lastSave >= checkpointIntervalMs) {
+                            saveCursor(syncCursor);
+                            lastSave = now;
+                        }
+                    }
+
+                    // 自适应轮询间隔：读满时立即继续，有新文档时用最小间隔，空闲时逐次加倍
+                    if (!drained) {
+                        continue;
+                    }
+                    intervalMs = read > 0 ? minIntervalMs : Math.min(Math.max(intervalMs, minIntervalMs) * 2, maxIntervalMs);
+                    pause(intervalMs);
+                }
+
+                assembler.flush();
+                writer.flush();
+                if (rewindFailures.sum() == rewindFailuresSeen) {
+                    saveCursor(syncCursor);
+                }
+            } catch (Exception e) {
+                log.error("持续同步异常终止: {}", getKey(config.getSourceIndex(), config.getTargetIndex()), e);
+                lastError.set(e.getMessage());
+            } finally {
+                running = false;
+                finished = true;
+                synchronized (sleepLock) {
+                    sleepLock.notifyAll();
+                }
+                log.info("持续同步已停止: {}, 读取: {}, 成功: {}, 失败: {}",
+                    getKey(config.getSourceIndex(), config.getTargetIndex()), docsRead.sum(), successCount.sum(),
+                    failedCount.sum());
+            }
+        }
+
+        private SyncCursor newCursor() {
+            SyncCursor cursor = new SyncCursor();
+            cursor.setSourceIndex(config.getSourceIndex());
+            cursor.setTargetIndex(config.getTargetIndex());
+            cursor.setTimestampField(timestampField);
+            return cursor;
+        }
+
+        /**
+         * 从当前位置打开读取游标，sweep 为 true 时从位置时间戳减去重叠窗口处开始重读
+         */
+        private WatermarkSourceCursor openReader(long upperBound, boolean sweep) {
+            RangeQueryBuilder range = QueryBuilders.rangeQuery(timestampField).lte(upperBound).format("epoch_millis");
+            Object[] from = position;
+            if (from != null && sweep) {
+                from = new Object[]{((Number) from[0]).longValue() - overlapMs, ""};
+            }
+            if (from != null) {
+                range.gte(from[0]);
+            }
+            BoolQueryBuilder query = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.existsQuery(timestampField))
+                .filter(range);
+            SourceCursorConfig cursorConfig = new SourceCursorConfig()
+                .index(config.getSourceIndex())
+                .query(query)
+                .batchSize(config.getBatchSize())
+                .resumeAfter(from);
+            return new WatermarkSourceCursor(sourceClient, esQueryHelper, cursorConfig, timestampField);
+        }
+
+        /**
+         * 按 (时间戳, _id) 排序顺序取较后的位置，_id 按 ES 排序使用的编码比较
+         */
+        private Object[] laterOf(Object[] a, Object[] b) {
+            if (a == null) {
+                return b;
+            }
+            int cmp = Long.compare(((Number) a[0]).longValue(), ((Number) b[0]).longValue());
+            if (cmp == 0) {
+                cmp = Uid.encodeId(String.valueOf(a[1])).compareTo(Uid.encodeId(String.valueOf(b[1])));
+            }
+            return cmp >= 0 ? a : b;
+        }
+
+        private void addDocument(SearchHit hit, IndexRequestFactory requestFactory, BulkAssembler<Void> assembler)
+                throws IOException {
+            IndexRequest indexRequest;
+            try {
+                indexRequest = requestFactory.build(hit);
+            } catch (Exception e) {
+                log.error("预处理文档失败，ID: {}, 错误: {}", hit.getId(), e.getMessage());
+                failedCount.increment();
+                return;
+            }
+            assembler.add(indexRequest);
+        }
+
+        private void saveCursor(SyncCursor syncCursor) {
+            Object[] current = position;
+            if (current == null) {
+                return;
+            }
+            long timestamp = ((Number) current[0]).longValue();
+            String docId = String.valueOf(current[1]);
+            if (Long.valueOf(timestamp).equals(syncCursor.getTimestamp()) && docId.equals(syncCursor.getDocId())) {
+                return;
+            }
+            syncCursor.setTimestamp(timestamp);
+            syncCursor.setDocId(docId);
+            syncCursor.setSyncedCount(successCount.sum());
+            try {
+                syncCursorService.saveCursor(syncCursor);
+            } catch (IllegalStateException e) {
+                log.warn("保存持续同步游标失败: {}", e.getMessage());
+            }
+        }
+
+        private void pause(long millis) {
+            synchronized (sleepLock) {
+                if (!running) {
+                    return;
+                }
+                try {
+                    sleepLock.wait(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void stop() {
+            synchronized (sleepLock) {
+                running = false;
+                sleepLock.notifyAll();
+                while (!finished) {
+                    try {
+                        sleepLock.wait(1000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private TailStatus toStatus() {
+            long now = System.currentTimeMillis();
+            Object[] current = position;
+            TailStatus status = new TailStatus();
+            status.setSourceIndex(config.getSourceIndex());
+            status.setTargetIndex(config.getTargetIndex());
+            status.setRunning(running);
+            status.setStartTime(startTime);
+            status.setPositionTimestamp(current != null ? ((Number) current[0]).longValue() : null);
+            status.setPositionDocId(current != null ? String.valueOf(current[1]) : null);
+            status.setLagMs(confirmedUpTo > 0 ? now - confirmedUpTo : -1);
+            status.setFrontierAgeMs(current != null ? now - ((Number) current[0]).longValue() : -1);
+            status.setIntervalMs(intervalMs);
+            status.setPolls(polls.sum());
+            status.setDocsRead(docsRead.sum());
+            status.setSuccessCount(successCount.sum());
+            status.setFailedCount(failedCount.sum());
+            status.setLastError(lastError.get());
+            return status;
+        }
+    }
+
+    /**
+     * 持续同步状态
+     */
+    @Data
+    public static class TailStatus {
+        private String sourceIndex;
+        private String targetIndex;
+        private boolean running;
+        private long startTime;
+        private Long positionTimestamp;
+        private String positionDocId;
+        /**
+         * 复制延迟：当前时间与最近一次读完并确认写入的时间点之差，尚未确认时为 -1
+         */
+        private long lagMs;
+        /**
+         * 最后一条已读取文档的时间戳距今的时长，源端空闲时持续增长
+         */
+        private long frontierAgeMs;
+        private long intervalMs;
+        private long polls;
+        private long docsRead;
+        private long successCount;
+        private long failedCount;
+        private String lastError;
+    }
+}
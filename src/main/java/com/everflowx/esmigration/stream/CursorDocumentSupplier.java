@@ -0,0 +1,34 @@
+package com.everflowx.esmigration.stream;
+
+import com.everflowx.esmigration.cursor.SourceCursor;
+import org.elasticsearch.search.SearchHit;
+
+/**
+ * 基于源数据游标的文档供应商
+ * 
+ * @author everflowx
+ */
+public class CursorDocumentSupplier implements StreamingMigrationEngine.DocumentSupplier, AutoCloseable {
+    
+    private final SourceCursor cursor;
+    
+    public CursorDocumentSupplier(SourceCursor cursor) {
+        this.cursor = cursor;
+    }
+    
+    @Override
+    public SearchHit[] nextBatch(int batchSize) throws Exception {
+        cursor.setBatchSize(batchSize);
+        SearchHit[] hits = cursor.nextBatch();
+        return hits.length > 0 ? hits : null;
+    }
+    
+    public SourceCursor getCursor() {
+        return cursor;
+    }
+    
+    @Override
+    public void close() {
+        cursor.close();
+    }
+}
@@ -1,19 +1,25 @@
 package com.everflowx.esmigration.stream;
 
+import com.everflowx.esmigration.bulk.AsyncBulkWriter;
+import com.everflowx.esmigration.bulk.AsyncBulkWriterFactory;
+import com.everflowx.esmigration.bulk.BulkAssembler;
 import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.executor.MigrationWorkerPool;
+import com.everflowx.esmigration.monitor.GcPressureMonitor;
+import com.everflowx.esmigration.throttle.BulkConcurrencyController;
+import com.everflowx.esmigration.transform.IndexRequestFactory;
 import lombok.extern.slf4j.Slf4j;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
-import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.search.SearchHit;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
+import java.io.InterruptedIOException;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -32,14 +38,24 @@ import java.util.concurrent.atomic.AtomicLong;
 @Component
 public class StreamingMigrationEngine {
     
-    // 内存压力阈值：超过80%开始限流，超过90%暂停处理
-    private static final double MEMORY_PRESSURE_THROTTLE = 0.8;
+    // 内存压力阈值：超过90%暂停读取
     private static final double MEMORY_PRESSURE_PAUSE = 0.9;
     
     // 流式处理配置
-    private static final int QUEUE_CAPACITY = 10000; // 队列容量
     private static final int MAX_CONCURRENT_BATCHES = 5; // 最大并发批次
     
+    @Resource
+    private AsyncBulkWriterFactory asyncBulkWriterFactory;
+    
+    @Resource
+    private BulkConcurrencyController bulkConcurrencyController;
+    
+    @Resource
+    private MigrationWorkerPool workerPool;
+    
+    @Resource
+    private GcPressureMonitor gcPressureMonitor;
+    
     /**
      * 启动流式迁移
      */
@@ -51,61 +67,77 @@ public class StreamingMigrationEngine {
             DocumentTransformer transformer) {
         
         StreamingMigrationResult result = new StreamingMigrationResult();
+        IndexRequestFactory requestFactory = IndexRequestFactory.create(config, source -> transformer.transform(source, config));
+        // 批次任务在共享工作线程池中的分道标识
+        String laneId = "Streaming-" + config.getSourceIndex() + "->" + config.getTargetIndex();
         
-        // 创建有界队列，防止内存无限增长
-        BlockingQueue<SearchHit[]> batchQueue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        // 按字节预算限界的队列，队列内存不随文档大小放大
+        ByteBoundedBatchQueue batchQueue = new ByteBoundedBatchQueue(config.getStreamQueueMaxBytes());
         
         // 信号量控制并发批次数量
         Semaphore batchSemaphore = new Semaphore(MAX_CONCURRENT_BATCHES);
         
+        // 转换后的批量请求异步提交，写入结果在 IO 线程中累加
+        AsyncBulkWriter bulkWriter = asyncBulkWriterFactory.open(targetClient, config,
+            (bulkRequest, bytes, latencyMs, outcome) -> {
+                result.addSuccessCount(outcome.getSuccessCount());
+                result.addFailedCount(outcome.getFailedCount());
+            });
+        
         AtomicBoolean producerFinished = new AtomicBoolean(false);
         AtomicBoolean consumerStopped = new AtomicBoolean(false);
         
-        // 启动生产者线程（读取数据）
-        Thread producer = new Thread(() -> {
-            try {
-                produceData(supplier, batchQueue, config.getBatchSize(), producerFinished, result);
-            } catch (Exception e) {
-                log.error("生产者线程异常", e);
-                result.setErrorMessage("生产者异常: " + e.getMessage());
-                producerFinished.set(true);
-            }
-        }, "StreamingProducer");
-        
-        // 启动消费者线程（处理数据）
-        Thread consumer = new Thread(() -> {
-            try {
-                consumeData(targetClient, batchQueue, transformer, config, 
-                    producerFinished, consumerStopped, batchSemaphore, result);
-            } catch (Exception e) {
-                log.error("消费者线程异常", e);
-                result.setErrorMessage("消费者异常: " + e.getMessage());
-                consumerStopped.set(true);
-            }
-        }, "StreamingConsumer");
-        
-        // 启动监控线程
-        Thread monitor = new Thread(() -> {
-            monitorMemoryAndFlow(batchQueue, result, producerFinished, consumerStopped);
-        }, "StreamingMonitor");
-        
-        log.info("启动流式迁移引擎 - 队列容量: {}, 最大并发批次: {}", QUEUE_CAPACITY, MAX_CONCURRENT_BATCHES);
-        
-        producer.start();
-        consumer.start();
-        monitor.start();
+        log.info("启动流式迁移引擎 - 队列字节预算: {}, 最大并发批次: {}, 直通模式: {}", 
+            config.getStreamQueueMaxBytes(), MAX_CONCURRENT_BATCHES, requestFactory.isPassthrough());
         
-        // 等待完成
+        Future<?> producer = null;
+        Future<?> consumer = null;
+        Future<?> monitor = null;
         try {
-            producer.join();
-            consumer.join();
-            monitor.interrupt(); // 停止监控
-            monitor.join(1000);
+            // 启动生产者（读取数据）
+            producer = workerPool.startStage("StreamingProducer", () -> {
+                try {
+                    produceData(supplier, batchQueue, config.getBatchSize(), producerFinished, result);
+                } catch (Exception e) {
+                    log.error("生产者线程异常", e);
+                    result.setErrorMessage("生产者异常: " + e.getMessage());
+                    producerFinished.set(true);
+                }
+            });
+            
+            // 启动消费者（处理数据）
+            consumer = workerPool.startStage("StreamingConsumer", () -> {
+                try {
+                    consumeData(bulkWriter, batchQueue, config, requestFactory, laneId,
+                        producerFinished, consumerStopped, batchSemaphore, result);
+                } catch (Exception e) {
+                    log.error("消费者线程异常", e);
+                    result.setErrorMessage("消费者异常: " + e.getMessage());
+                    consumerStopped.set(true);
+                }
+            });
+            
+            // 启动监控
+            monitor = workerPool.startStage("StreamingMonitor",
+                () -> monitorMemoryAndFlow(batchQueue, result, producerFinished, consumerStopped));
+            
+            // 等待完成
+            producer.get();
+            consumer.get();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             log.error("流式迁移被中断", e);
             result.setErrorMessage("迁移被中断");
+        } catch (ExecutionException | RejectedExecutionException e) {
+            log.error("流式迁移阶段执行失败", e);
+            result.setErrorMessage("流式迁移阶段执行失败: " + e.getMessage());
+            cancel(producer);
+            cancel(consumer);
+        } finally {
+            // 停止监控
+            cancel(monitor);
         }
+        result.updateQueueStats(batchQueue.getStats());
         
         result.setFinished(true);
         log.info("流式迁移完成 - 处理: {}, 成功: {}, 失败: {}", 
@@ -117,7 +149,7 @@ public class StreamingMigrationEngine {
     /**
      * 生产数据 - 读取ES数据并放入队列
      */
-    private void produceData(DocumentSupplier supplier, BlockingQueue<SearchHit[]> queue, 
+    private void produceData(DocumentSupplier supplier, ByteBoundedBatchQueue queue, 
                            int batchSize, AtomicBoolean finished, StreamingMigrationResult result) {
         try {
             SearchHit[] batch;
@@ -128,26 +160,21 @@ public class StreamingMigrationEngine {
                 
                 // 内存压力检查 - 如果内存压力过大，等待消费者处理
                 while (getMemoryPressure() > MEMORY_PRESSURE_PAUSE) {
-                    log.warn("内存压力过高 {:.1f}%，生产者暂停等待", getMemoryPressure() * 100);
+                    log.warn("内存压力过高 {}%，生产者暂停等待", String.format("%.1f", getMemoryPressure() * 100));
                     Thread.sleep(1000);
-                    
-                    // 强制GC释放内存
-                    System.gc();
-                    Thread.sleep(100);
                 }
                 
-                // 放入队列（阻塞式，如果队列满了会等待）
+                // 放入队列（阻塞式，超过字节预算时等待消费者取走批次）
                 queue.put(batch);
                 
                 result.addBatchCount();
                 
                 if (batchCount % 100 == 0) {
-                    log.debug("生产者已生产 {} 批次，队列大小: {}, 内存压力: {:.1f}%", 
-                        batchCount, queue.size(), getMemoryPressure() * 100);
+                    ByteBoundedBatchQueue.QueueStats queueStats = queue.getStats();
+                    log.debug("生产者已生产 {} 批次，队列: {} 批次 / {} 字节，占用: {}%", 
+                        batchCount, queueStats.getBatches(), queueStats.getUsedBytes(),
+                        String.format("%.1f", queueStats.getOccupancy() * 100));
                 }
-                
-                // 适应性延迟 - 根据队列大小和内存压力调节
-                adaptiveDelay(queue.size(), getMemoryPressure());
             }
             
             log.info("生产者完成，总共生产 {} 批次", batchCount);
@@ -155,6 +182,14 @@ public class StreamingMigrationEngine {
             log.error("生产数据异常", e);
             result.setErrorMessage("生产数据异常: " + e.getMessage());
         } finally {
+            // 释放游标等服务端上下文
+            if (supplier instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) supplier).close();
+                } catch (Exception e) {
+                    log.warn("关闭文档供应商失败: {}", e.getMessage());
+                }
+            }
             finished.set(true);
         }
     }
@@ -162,8 +197,8 @@ public class StreamingMigrationEngine {
     /**
      * 消费数据 - 从队列取数据并写入目标ES
      */
-    private void consumeData(RestHighLevelClient targetClient, BlockingQueue<SearchHit[]> queue,
-                           DocumentTransformer transformer, MigrationConfig config,
+    private void consumeData(AsyncBulkWriter bulkWriter, ByteBoundedBatchQueue queue,
+                           MigrationConfig config, IndexRequestFactory requestFactory, String laneId,
                            AtomicBoolean producerFinished, AtomicBoolean consumerStopped,
                            Semaphore batchSemaphore, StreamingMigrationResult result) {
         try {
@@ -176,9 +211,10 @@ public class StreamingMigrationEngine {
                 
                 try {
                     // 异步处理批次，避免阻塞消费者主线程
-                    processBatchAsync(targetClient, batch, transformer, config, result, batchSemaphore);
+                    processBatchAsync(bulkWriter, batch, config, requestFactory, laneId, result, batchSemaphore);
                 } catch (Exception e) {
                     log.error("处理批次异常", e);
+                    result.addFailedCount(batch.length);
                     batchSemaphore.release();
                 }
             }
@@ -193,119 +229,87 @@ public class StreamingMigrationEngine {
             log.error("消费数据异常", e);
             result.setErrorMessage("消费数据异常: " + e.getMessage());
         } finally {
+            // 异常退出时同样等待在途批量写入结束，返回的成功/失败数不再变化
+            try {
+                bulkWriter.close();
+            } catch (InterruptedIOException e) {
+                Thread.currentThread().interrupt();
+                log.warn("等待在途批量写入完成时被中断");
+            }
             consumerStopped.set(true);
         }
     }
     
     /**
-     * 异步处理批次
+     * 异步处理批次 - 转换在共享工作线程池中进行，批量写入交给异步写入器
+     * 
+     * 共享线程池排队已满拒绝任务时改在消费者线程上直接处理该批次，既不丢弃数据，也让消费者暂缓取新批次
      */
-    private void processBatchAsync(RestHighLevelClient targetClient, SearchHit[] batch,
-                                 DocumentTransformer transformer, MigrationConfig config,
+    private void processBatchAsync(AsyncBulkWriter bulkWriter, SearchHit[] batch,
+                                 MigrationConfig config, IndexRequestFactory requestFactory, String laneId,
                                  StreamingMigrationResult result, Semaphore semaphore) {
-        
-        // 使用普通线程处理批次
-        Thread batchThread = new Thread(() -> {
+        Runnable task = () -> {
             try {
-                processBatch(targetClient, batch, transformer, config, result);
+                processBatch(bulkWriter, batch, config, requestFactory, result);
             } catch (Exception e) {
                 log.error("批次处理异常", e);
                 result.addFailedCount(batch.length);
             } finally {
                 semaphore.release();
             }
-        });
-        batchThread.start();
+        };
+        try {
+            workerPool.submit(laneId, task);
+        } catch (RejectedExecutionException e) {
+            log.warn("工作线程池拒绝批次任务，在消费者线程上处理: {}", e.getMessage());
+            task.run();
+        }
     }
     
     /**
-     * 处理单个批次
+     * 处理单个批次 - 按字节数与文档数拆分为一个或多个批量请求
      */
-    private void processBatch(RestHighLevelClient targetClient, SearchHit[] batch,
-                            DocumentTransformer transformer, MigrationConfig config,
+    private void processBatch(AsyncBulkWriter bulkWriter, SearchHit[] batch,
+                            MigrationConfig config, IndexRequestFactory requestFactory,
                             StreamingMigrationResult result) throws Exception {
         
-        BulkRequest bulkRequest = new BulkRequest();
-        int validDocuments = 0;
+        BulkAssembler<Void> assembler = BulkAssembler.create(config, bulkConcurrencyController,
+            (bulkRequest, bytes, tags) -> bulkWriter.write(bulkRequest, bytes));
         
         // 转换文档
         for (SearchHit hit : batch) {
+            IndexRequest indexRequest;
             try {
-                Map<String, Object> sourceData = hit.getSourceAsMap();
-                Map<String, Object> targetData = transformer.transform(sourceData, config);
-                
-                IndexRequest request = new IndexRequest(config.getTargetIndex())
-                        .id(hit.getId())
-                        .source(targetData, XContentType.JSON);
-                
-                bulkRequest.add(request);
-                validDocuments++;
-                
+                indexRequest = requestFactory.build(hit);
             } catch (Exception e) {
                 log.warn("文档转换失败，ID: {}, 错误: {}", hit.getId(), e.getMessage());
                 result.addFailedCount(1);
+                continue;
             }
+            assembler.add(indexRequest);
         }
         
-        // 批量写入
-        if (validDocuments > 0) {
-            try {
-                BulkResponse bulkResponse = targetClient.bulk(bulkRequest, RequestOptions.DEFAULT);
-                
-                if (bulkResponse.hasFailures()) {
-                    // 逐个检查结果
-                    long batchSuccess = 0;
-                    long batchFailed = 0;
-                    
-                    for (org.elasticsearch.action.bulk.BulkItemResponse item : bulkResponse.getItems()) {
-                        if (item.isFailed()) {
-                            batchFailed++;
-                            log.debug("文档写入失败: {}, 原因: {}", item.getId(), item.getFailureMessage());
-                        } else {
-                            batchSuccess++;
-                        }
-                    }
-                    
-                    result.addSuccessCount(batchSuccess);
-                    result.addFailedCount(batchFailed);
-                } else {
-                    result.addSuccessCount(validDocuments);
-                }
-                
-                result.addProcessedCount(batch.length);
-                
-            } catch (Exception e) {
-                log.error("批量写入完全失败", e);
-                result.addFailedCount(validDocuments);
-                result.addProcessedCount(batch.length);
-                
-                // 如果是网络问题，稍等重试
-                if (isNetworkError(e)) {
-                    Thread.sleep(5000);
-                }
-            }
-        }
+        // 提交剩余文档，写入结果由写入器回调累加
+        assembler.flush();
+        result.addProcessedCount(batch.length);
     }
     
     /**
      * 监控内存和流量
      */
-    private void monitorMemoryAndFlow(BlockingQueue<SearchHit[]> queue, StreamingMigrationResult result,
+    private void monitorMemoryAndFlow(ByteBoundedBatchQueue queue, StreamingMigrationResult result,
                                     AtomicBoolean producerFinished, AtomicBoolean consumerStopped) {
         try {
             while (!producerFinished.get() || !consumerStopped.get()) {
                 double memoryPressure = getMemoryPressure();
-                int queueSize = queue.size();
+                ByteBoundedBatchQueue.QueueStats queueStats = queue.getStats();
+                result.updateQueueStats(queueStats);
                 
-                log.info("流式监控 - 队列大小: {}, 内存压力: {:.1f}%, 已处理: {}, 成功: {}, 失败: {}", 
-                    queueSize, memoryPressure * 100, result.getProcessedCount(), 
-                    result.getSuccessCount(), result.getFailedCount());
-                
-                // 内存压力过高时强制GC
-                if (memoryPressure > MEMORY_PRESSURE_THROTTLE) {
-                    log.warn("内存压力较高，触发GC");
-                    System.gc();
-                }
+                log.info("流式监控 - 队列: {} 批次 / {} 字节 (占用 {}%, 峰值 {} 字节, 读取阻塞 {}ms), 内存压力: {}%, 已处理: {}, 成功: {}, 失败: {}", 
+                    queueStats.getBatches(), queueStats.getUsedBytes(),
+                    String.format("%.1f", queueStats.getOccupancy() * 100), queueStats.getPeakBytes(),
+                    queueStats.getBlockedMs(), String.format("%.1f", memoryPressure * 100),
+                    result.getProcessedCount(), result.getSuccessCount(), result.getFailedCount());
                 
                 Thread.sleep(10000); // 10秒监控一次
             }
@@ -318,39 +322,15 @@ public class StreamingMigrationEngine {
      * 获取内存压力（0.0 - 1.0）
      */
     private double getMemoryPressure() {
-        Runtime runtime = Runtime.getRuntime();
-        long totalMemory = runtime.totalMemory();
-        long freeMemory = runtime.freeMemory();
-        long maxMemory = runtime.maxMemory();
-        
-        // 计算已使用内存占最大内存的比例
-        long usedMemory = totalMemory - freeMemory;
-        return (double) usedMemory / maxMemory;
+        return gcPressureMonitor.getPressure();
     }
     
-    /**
-     * 适应性延迟
-     */
-    private void adaptiveDelay(int queueSize, double memoryPressure) throws InterruptedException {
-        if (memoryPressure > MEMORY_PRESSURE_THROTTLE || queueSize > QUEUE_CAPACITY * 0.8) {
-            // 队列接近满或内存压力大时，生产者稍作延迟
-            Thread.sleep((long)(100 * memoryPressure * (queueSize / (double)QUEUE_CAPACITY)));
+    private static void cancel(Future<?> stage) {
+        if (stage != null) {
+            stage.cancel(true);
         }
     }
     
-    /**
-     * 判断是否为网络错误
-     */
-    private boolean isNetworkError(Exception e) {
-        String message = e.getMessage();
-        return message != null && (
-            message.contains("timeout") ||
-            message.contains("connection") ||
-            message.contains("ConnectException") ||
-            message.contains("SocketTimeoutException")
-        );
-    }
-    
     /**
      * 文档供应商接口
      */
@@ -375,6 +355,7 @@ public class StreamingMigrationEngine {
         private final AtomicLong batchCount = new AtomicLong(0);
         private volatile String errorMessage;
         private volatile boolean finished = false;
+        private volatile ByteBoundedBatchQueue.QueueStats queueStats;
         
         public void addProcessedCount(long count) { processedCount.addAndGet(count); }
         public void addSuccessCount(long count) { successCount.addAndGet(count); }
@@ -391,5 +372,11 @@ public class StreamingMigrationEngine {
         
         public boolean isFinished() { return finished; }
         public void setFinished(boolean finished) { this.finished = finished; }
+        
+        /**
+         * 读取队列占用统计（监控周期更新，迁移结束时为最终值）
+         */
+        public ByteBoundedBatchQueue.QueueStats getQueueStats() { return queueStats; }
+        public void updateQueueStats(ByteBoundedBatchQueue.QueueStats queueStats) { this.queueStats = queueStats; }
     }
 }
\ No newline at end of file
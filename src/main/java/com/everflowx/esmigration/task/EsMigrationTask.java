@@ -1,12 +1,17 @@
 package com.everflowx.esmigration.task;
 
+import com.everflowx.esmigration.domain.ChangeCaptureMode;
 import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.reconcile.DeleteReconciler;
 import com.everflowx.esmigration.service.EsMigrationService;
 import com.everflowx.esmigration.service.EsMigrationService.MigrationResult;
+import com.everflowx.esmigration.stream.ChangeTailingEngine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -26,6 +31,15 @@ public class EsMigrationTask {
     @Autowired
     private EsMigrationService esMigrationService;
     
+    @Autowired
+    private ChangeTailingEngine changeTailingEngine;
+    
+    @Autowired
+    private DeleteReconciler deleteReconciler;
+    
+    @Value("${es.migration.task.tailing:false}")
+    private boolean tailing;
+    
     @Value("${es.migration.task.source-index:}")
     private String sourceIndex;
     
@@ -38,6 +52,15 @@ public class EsMigrationTask {
     @Value("${es.migration.task.timestamp-field:updateTime}")
     private String timestampField;
     
+    @Value("${es.migration.task.delete-not-exist:false}")
+    private boolean deleteNotExist;
+    
+    @Value("${es.migration.task.verify-content:false}")
+    private boolean verifyContent;
+    
+    @Value("${es.migration.task.change-capture:TIMESTAMP}")
+    private ChangeCaptureMode changeCapture;
+    
     @Value("${es.migration.task.case-insensitive-fields:}")
     private String caseInsensitiveFieldsStr;
     
@@ -61,7 +84,10 @@ public class EsMigrationTask {
         migrationConfig.setTargetIndex(targetIndex);
         migrationConfig.setBatchSize(batchSize);
         migrationConfig.setTimestampField(timestampField);
+        migrationConfig.setChangeCapture(changeCapture);
         migrationConfig.setIncrementalSync(true);
+        migrationConfig.setDeleteNotExist(deleteNotExist);
+        migrationConfig.setVerifyContent(verifyContent);
         migrationConfig.setOverwriteExisting(true);
         
         // 解析忽略大小写字段
@@ -86,22 +112,30 @@ public class EsMigrationTask {
     }
     
     /**
-     * 增量同步任务 - 每5分钟执行一次
+     * 持续同步模式 - 应用启动后开始持续复制新文档，代替定时增量同步
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startTailing() {
+        if (migrationConfig == null || !tailing) {
+            return;
+        }
+        changeTailingEngine.start(migrationConfig);
+    }
+    
+    /**
+     * 增量同步任务 - 每5分钟执行一次，持续同步模式下不执行
      */
     @Scheduled(fixedRate = 300000) // 5分钟
     public void incrementalSync() {
-        if (migrationConfig == null) {
+        if (migrationConfig == null || tailing) {
             return;
         }
         
         try {
             log.info("开始执行增量同步任务");
             
-            // 获取上次同步时间
-            Date lastSyncTime = esMigrationService.getLastSyncTime(targetIndex, timestampField);
-            
-            // 执行增量迁移
-            MigrationResult result = esMigrationService.incrementalMigration(migrationConfig, lastSyncTime);
+            // 从同步游标继续增量同步
+            MigrationResult result = esMigrationService.incrementalSync(migrationConfig);
             
             if (result.getSuccessCount() > 0) {
                 log.info("增量同步完成，成功: {}, 失败: {}, 耗时: {}ms", 
@@ -141,6 +175,7 @@ public class EsMigrationTask {
             fullConfig.setCaseInsensitiveFields(migrationConfig.getCaseInsensitiveFields());
             fullConfig.setNewFields(migrationConfig.getNewFields());
             fullConfig.setFieldMapping(migrationConfig.getFieldMapping());
+            fullConfig.setVerifyContent(migrationConfig.getVerifyContent());
             fullConfig.setIncrementalSync(false);
             fullConfig.setOverwriteExisting(true);
             
@@ -169,6 +204,26 @@ public class EsMigrationTask {
         }
     }
     
+    /**
+     * 删除同步任务 - 每天执行一次（默认凌晨4点，在全量同步之后），删除目标索引中源索引已不存在的文档
+     */
+    @Scheduled(cron = "${es.migration.task.delete-not-exist-cron:0 0 4 * * ?}")
+    public void reconcileDeletes() {
+        if (migrationConfig == null || !deleteNotExist) {
+            return;
+        }
+        
+        try {
+            log.info("开始执行删除同步任务");
+            DeleteReconciler.ReconcileResult result = deleteReconciler.reconcile(migrationConfig);
+            if (result.getErrorMessage() != null) {
+                log.error("删除同步失败: {}", result.getErrorMessage());
+            }
+        } catch (Exception e) {
+            log.error("删除同步任务执行失败", e);
+        }
+    }
+    
     /**
      * 解析键值对字符串
      * 格式: key1=value1,key2=value2
@@ -1,9 +1,11 @@
 package com.everflowx.esmigration.throttle;
 
+import com.everflowx.esmigration.monitor.GcPressureMonitor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -13,7 +15,7 @@ import java.util.concurrent.atomic.DoubleAdder;
  * 自适应限流控制器 - 确保无论多大数据量都能稳定迁移
  * 
  * 核心特性：
- * 1. 内存压力感知：动态调整处理速度
+ * 1. 内存压力感知：按 GC 后老年代占用与 GC 时间占比动态调整处理速度
  * 2. 自适应限流：根据系统负载自动调节
  * 3. 回压机制：防止下游处理不及时导致的内存堆积
  * 4. 多级限流：批次级、文档级、时间级多重保护
@@ -37,6 +39,7 @@ public class AdaptiveThrottleController {
     private final AtomicLong totalProcessedDocs = new AtomicLong(0);
     private final AtomicLong totalProcessingTime = new AtomicLong(0);
     private final DoubleAdder currentThroughput = new DoubleAdder();
+    private final AtomicLong totalRejectedDocs = new AtomicLong(0);
     
     // 自适应参数
     private volatile int currentBatchSize = 1000;
@@ -48,6 +51,14 @@ public class AdaptiveThrottleController {
     private final AtomicInteger queueSize = new AtomicInteger(0);
     private final AtomicInteger maxQueueSize = new AtomicInteger(100);
     
+    // 目标集群侧的批量写入控制
+    @Resource
+    private BulkConcurrencyController bulkConcurrencyController;
+    
+    // 内存压力信号
+    @Resource
+    private GcPressureMonitor gcPressureMonitor;
+    
     public AdaptiveThrottleController() {
         this.processingPermits = new Semaphore(maxConcurrentBatches.get());
     }
@@ -61,8 +72,8 @@ public class AdaptiveThrottleController {
         
         // 危险区域：暂停所有处理
         if (memoryPressure > MEMORY_CRITICAL) {
-            log.warn("内存压力达到危险水平 {:.1f}%，暂停所有处理", memoryPressure * 100);
-            performEmergencyCleanup();
+            log.warn("内存压力达到危险水平 {}%，暂停所有处理", String.format("%.1f", memoryPressure * 100));
+            performEmergencyThrottle();
             Thread.sleep(5000); // 等待5秒
             return acquirePermit(); // 递归重试
         }
@@ -109,6 +120,26 @@ public class AdaptiveThrottleController {
         }
     }
     
+    /**
+     * 记录目标集群拒绝的写入（429/503 回压），按拒绝比例收缩并发数与批次大小
+     * 
+     * @param rejectedDocs 被拒绝的文档数
+     * @param totalDocs 本次批量写入的文档数
+     */
+    public void recordRejection(int rejectedDocs, int totalDocs) {
+        totalRejectedDocs.addAndGet(rejectedDocs);
+        double rejectedRatio = totalDocs > 0 ? Math.min((double) rejectedDocs / totalDocs, 1.0) : 1.0;
+        
+        // 拒绝比例越高收缩越多，至少收缩到原来的一半
+        int newConcurrency = Math.max((int) (maxConcurrentBatches.get() * (1 - rejectedRatio / 2)), 1);
+        maxConcurrentBatches.set(newConcurrency);
+        currentBatchSize = Math.max((int) (currentBatchSize * (1 - rejectedRatio / 2)), 50);
+        lastAdjustmentTime = System.currentTimeMillis();
+        
+        log.warn("目标集群拒绝写入 {}/{} 件，降低处理强度 - 并发: {}, 批次: {}", 
+            rejectedDocs, totalDocs, newConcurrency, currentBatchSize);
+    }
+    
     /**
      * 获取自适应的批次大小
      */
@@ -205,27 +236,14 @@ public class AdaptiveThrottleController {
     }
     
     /**
-     * 紧急清理
+     * 紧急限流：不主动触发GC，收缩到最保守的参数等待内存自然回落
      */
-    private void performEmergencyCleanup() {
-        log.warn("执行紧急内存清理");
-        
-        // 强制GC
-        System.gc();
-        
-        // 等待GC完成
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
-        // 重置为最保守的参数
+    private void performEmergencyThrottle() {
         maxConcurrentBatches.set(1);
         currentBatchSize = 50;
         maxQueueSize.set(5);
         
-        log.warn("紧急清理完成，参数重置为最保守值");
+        log.warn("紧急限流，参数重置为最保守值 - {}", gcPressureMonitor.getStats());
     }
     
     /**
@@ -261,14 +279,7 @@ public class AdaptiveThrottleController {
      * 获取内存压力值
      */
     private double getMemoryPressure() {
-        Runtime runtime = Runtime.getRuntime();
-        long totalMemory = runtime.totalMemory();
-        long freeMemory = runtime.freeMemory();
-        long maxMemory = runtime.maxMemory();
-        
-        // 计算已使用内存占最大内存的比例
-        long usedMemory = totalMemory - freeMemory;
-        return (double) usedMemory / maxMemory;
+        return gcPressureMonitor.getPressure();
     }
     
     /**
@@ -284,6 +295,8 @@ public class AdaptiveThrottleController {
         stats.setTotalProcessedDocs(totalProcessedDocs.get());
         stats.setTotalProcessingTimeMs(totalProcessingTime.get());
         stats.setCurrentThroughput(currentThroughput.sum());
+        stats.setTotalRejectedDocs(totalRejectedDocs.get());
+        bulkConcurrencyController.fillStats(stats);
         return stats;
     }
     
@@ -294,6 +307,7 @@ public class AdaptiveThrottleController {
         totalProcessedDocs.set(0);
         totalProcessingTime.set(0);
         currentThroughput.reset();
+        totalRejectedDocs.set(0);
         log.info("限流控制器统计信息已重置");
     }
     
@@ -362,6 +376,16 @@ public class AdaptiveThrottleController {
         private long totalProcessedDocs;
         private long totalProcessingTimeMs;
         private double currentThroughput;
+        private long totalRejectedDocs;
+        
+        // 批量写入 AIMD 控制状态
+        private int bulkInFlight;
+        private int bulkInFlightLimit;
+        private long bulkTargetBytes;
+        private long bulkLatencyP50;
+        private long bulkLatencyP95;
+        private long bulkLatencyP99;
+        private double bulkRejectionRate;
         
         public double getAverageProcessingTime() {
             return totalProcessedDocs > 0 ? (double) totalProcessingTimeMs / totalProcessedDocs : 0;
@@ -375,10 +399,13 @@ public class AdaptiveThrottleController {
         public String toString() {
             return String.format(
                 "ThrottleStats{内存压力=%.1f%%, 批次大小=%d, 并发数=%d, 队列=%d/%d, " +
-                "已处理=%d, 平均处理时间=%.1fms, 处理速度=%.1f docs/s}",
+                "已处理=%d, 平均处理时间=%.1fms, 处理速度=%.1f docs/s, 被拒绝=%d, " +
+                "在途写入=%d/%d, 单批字节=%d, 写入延迟p50/p95/p99=%d/%d/%dms, 拒绝率=%.2f%%}",
                 memoryPressure * 100, currentBatchSize, maxConcurrentBatches,
                 currentQueueSize, maxQueueSize, totalProcessedDocs,
-                getAverageProcessingTime(), getProcessingSpeed()
+                getAverageProcessingTime(), getProcessingSpeed(), totalRejectedDocs,
+                bulkInFlight, bulkInFlightLimit, bulkTargetBytes,
+                bulkLatencyP50, bulkLatencyP95, bulkLatencyP99, bulkRejectionRate * 100
             );
         }
     }
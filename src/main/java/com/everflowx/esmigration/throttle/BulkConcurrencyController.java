@@ -0,0 +1,243 @@
+package com.everflowx.esmigration.throttle;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量写入并发控制器（AIMD）
+ *
+ * 以目标集群的反馈为依据调节写入强度，与只看本地堆内存的 {@link AdaptiveThrottleController} 互补：
+ * 1. 全局限制同时在途的批量写入数，所有迁移引擎共享同一组许可
+ * 2. 按窗口统计批量写入延迟的 p50/p95/p99 与 429 拒绝率
+ * 3. 窗口内无拒绝且 p95 未超过目标延迟时加性增加：在途数 +1，单批字节数 +最小字节数
+ * 4. 出现拒绝或 p95 超过目标延迟时乘性减少：在途数与单批字节数减半
+ *
+ * 这样写入速度会持续试探到目标集群的承载上限，一旦出现回压立即大幅后退。
+ *
+ * @author everflowx
+ */
+@Slf4j
+@Component
+public class BulkConcurrencyController {
+
+    /**
+     * 两次乘性减少之间的最小间隔，避免同一波拒绝把并发连续减到底
+     */
+    private static final long DECREASE_COOLDOWN_MS = 1000;
+
+    @Value("${es.migration.bulk-control.min-in-flight:1}")
+    private int minInFlight;
+
+    @Value("${es.migration.bulk-control.max-in-flight:32}")
+    private int maxInFlight;
+
+    @Value("${es.migration.bulk-control.initial-in-flight:4}")
+    private int initialInFlight;
+
+    @Value("${es.migration.bulk-control.min-bytes:1048576}") // 1MB
+    private long minBytes;
+
+    @Value("${es.migration.bulk-control.max-bytes:52428800}") // 50MB
+    private long maxBytes;
+
+    @Value("${es.migration.bulk-control.initial-bytes:10485760}") // 10MB
+    private long initialBytes;
+
+    @Value("${es.migration.bulk-control.target-latency-ms:2000}")
+    private long targetLatencyMs;
+
+    @Value("${es.migration.bulk-control.window-size:20}")
+    private int windowSize;
+
+    private final ResizableSemaphore permits = new ResizableSemaphore();
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    // 当前限制
+    private volatile int inFlightLimit;
+    private volatile long targetBulkBytes;
+
+    // 当前窗口
+    private long[] windowLatencies;
+    private int windowCount;
+    private long windowDocs;
+    private long windowRejectedDocs;
+    private long lastDecreaseTime;
+
+    // 最近一个完整窗口的统计
+    private volatile long latencyP50;
+    private volatile long latencyP95;
+    private volatile long latencyP99;
+    private volatile double rejectionRate;
+
+    @PostConstruct
+    public void init() {
+        minInFlight = Math.max(minInFlight, 1);
+        maxInFlight = Math.max(maxInFlight, minInFlight);
+        minBytes = Math.max(minBytes, 1);
+        maxBytes = Math.max(maxBytes, minBytes);
+        windowLatencies = new long[Math.max(windowSize, 1)];
+
+        inFlightLimit = clamp(initialInFlight, minInFlight, maxInFlight);
+        targetBulkBytes = clamp(initialBytes, minBytes, maxBytes);
+        permits.release(inFlightLimit);
+        log.info("批量写入并发控制器初始化 - 在途上限: {} ({}~{}), 单批字节数: {} ({}~{}), 目标延迟: {}ms",
+            inFlightLimit, minInFlight, maxInFlight, targetBulkBytes, minBytes, maxBytes, targetLatencyMs);
+    }
+
+    /**
+     * 获取一个在途写入许可，达到上限时阻塞
+     */
+    public BulkPermit acquire() throws InterruptedException {
+        permits.acquire();
+        inFlight.incrementAndGet();
+        return new BulkPermit();
+    }
+
+    /**
+     * 当前单批字节数上限，不超过任务配置的上限
+     */
+    public long getBulkBytesLimit(long configuredMaxBytes) {
+        return Math.min(targetBulkBytes, configuredMaxBytes);
+    }
+
+    /**
+     * 记录一次批量写入请求的响应
+     *
+     * @param latencyMs 请求耗时
+     * @param rejectedDocs 被目标集群拒绝（429/503）的文档数，整个请求被拒绝时等于 totalDocs
+     * @param totalDocs 请求中的文档数
+     */
+    public synchronized void recordResponse(long latencyMs, int rejectedDocs, int totalDocs) {
+        windowLatencies[windowCount++] = latencyMs;
+        windowDocs += totalDocs;
+        windowRejectedDocs += rejectedDocs;
+
+        long now = System.currentTimeMillis();
+        if (rejectedDocs > 0 && now - lastDecreaseTime >= DECREASE_COOLDOWN_MS) {
+            closeWindow();
+            decrease(now, String.format("目标集群拒绝 %d/%d 件", rejectedDocs, totalDocs));
+        } else if (windowCount == windowLatencies.length) {
+            closeWindow();
+            if (windowRejectedDocs > 0 || latencyP95 > targetLatencyMs) {
+                if (now - lastDecreaseTime >= DECREASE_COOLDOWN_MS) {
+                    decrease(now, String.format("p95 延迟 %dms, 拒绝率 %.2f%%", latencyP95, rejectionRate * 100));
+                }
+            } else {
+                increase();
+            }
+            resetWindow();
+        }
+    }
+
+    /**
+     * 计算当前窗口的延迟百分位与拒绝率
+     */
+    private void closeWindow() {
+        long[] sorted = Arrays.copyOf(windowLatencies, windowCount);
+        Arrays.sort(sorted);
+        latencyP50 = percentile(sorted, 0.50);
+        latencyP95 = percentile(sorted, 0.95);
+        latencyP99 = percentile(sorted, 0.99);
+        rejectionRate = windowDocs > 0 ? (double) windowRejectedDocs / windowDocs : 0;
+    }
+
+    private void increase() {
+        int newLimit = Math.min(inFlightLimit + 1, maxInFlight);
+        resize(newLimit);
+        targetBulkBytes = Math.min(targetBulkBytes + minBytes, maxBytes);
+        log.debug("目标集群状态良好 (p95 {}ms)，提高写入强度 - 在途上限: {}, 单批字节数: {}",
+            latencyP95, inFlightLimit, targetBulkBytes);
+    }
+
+    private void decrease(long now, String reason) {
+        resize(Math.max(inFlightLimit / 2, minInFlight));
+        targetBulkBytes = Math.max(targetBulkBytes / 2, minBytes);
+        lastDecreaseTime = now;
+        resetWindow();
+        log.warn("{}，降低写入强度 - 在途上限: {}, 单批字节数: {}", reason, inFlightLimit, targetBulkBytes);
+    }
+
+    private void resize(int newLimit) {
+        int delta = newLimit - inFlightLimit;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            // 已发出的许可不收回，归还后自然收敛到新上限
+            permits.reducePermits(-delta);
+        }
+        inFlightLimit = newLimit;
+    }
+
+    private void resetWindow() {
+        windowCount = 0;
+        windowDocs = 0;
+        windowRejectedDocs = 0;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+    /**
+     * 将当前状态写入限流统计信息
+     */
+    public void fillStats(AdaptiveThrottleController.ThrottleStats stats) {
+        stats.setBulkInFlight(inFlight.get());
+        stats.setBulkInFlightLimit(inFlightLimit);
+        stats.setBulkTargetBytes(targetBulkBytes);
+        stats.setBulkLatencyP50(latencyP50);
+        stats.setBulkLatencyP95(latencyP95);
+        stats.setBulkLatencyP99(latencyP99);
+        stats.setBulkRejectionRate(rejectionRate);
+    }
+
+    /**
+     * 在途写入许可，写入（含重试）全部结束后释放，重复释放无效
+     */
+    public class BulkPermit {
+        private boolean released;
+
+        public synchronized void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    /**
+     * 可收缩的信号量，公开 {@link Semaphore#reducePermits(int)}
+     */
+    private static final class ResizableSemaphore extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore() {
+            super(0);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
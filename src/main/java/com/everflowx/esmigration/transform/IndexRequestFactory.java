@@ -0,0 +1,128 @@
+package com.everflowx.esmigration.transform;
+
+import com.everflowx.esmigration.domain.MigrationConfig;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.SearchHit;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 目标索引写入请求构建器
+ * 
+ * 迁移配置不需要任何字段转换时进入直通模式：直接把源文档的原始字节放入 IndexRequest，
+ * 跳过 _source 解析为 Map 再序列化回 JSON 的过程；转换计划支持流式处理时在 JSON
+ * 令牌流上直接改写；否则解析后交给转换函数处理。
+ * 每个任务创建一次，可在多个线程间共享。
+ * 
+ * @author everflowx
+ */
+public class IndexRequestFactory {
+    
+    private final String targetIndex;
+    private final boolean passthrough;
+    private final StreamingSourceTransformer streamingTransformer;
+    private final SourceTransformer transformer;
+    
+    private IndexRequestFactory(String targetIndex, boolean passthrough,
+                                StreamingSourceTransformer streamingTransformer, SourceTransformer transformer) {
+        this.targetIndex = targetIndex;
+        this.passthrough = passthrough;
+        this.streamingTransformer = streamingTransformer;
+        this.transformer = transformer;
+    }
+    
+    /**
+     * 根据迁移配置编译转换计划并创建，配置不需要转换时自动使用直通模式
+     */
+    public static IndexRequestFactory create(MigrationConfig config) {
+        TransformPlan plan = TransformPlan.compile(config);
+        StreamingSourceTransformer streamingTransformer = !plan.isIdentity() && plan.isStreamable()
+            ? new StreamingSourceTransformer(plan) : null;
+        return new IndexRequestFactory(config.getTargetIndex(), plan.isIdentity(), streamingTransformer, plan::apply);
+    }
+    
+    /**
+     * 根据迁移配置与自定义转换函数创建，配置不需要转换时自动使用直通模式
+     */
+    public static IndexRequestFactory create(MigrationConfig config, SourceTransformer transformer) {
+        return new IndexRequestFactory(config.getTargetIndex(), !requiresTransform(config), null, transformer);
+    }
+    
+    /**
+     * 迁移配置是否需要对文档做转换
+     * 
+     * 注意 fieldMapping 即使为空也表示"只保留映射字段"，因此只要设置了就需要转换。
+     */
+    public static boolean requiresTransform(MigrationConfig config) {
+        return config.getFieldMapping() != null
+            || !isEmpty(config.getNewFields())
+            || !isEmpty(config.getCaseInsensitiveFields())
+            || !isEmpty(config.getExcludeFields())
+            || !isEmpty(config.getIncludeFields());
+    }
+    
+    /**
+     * 由搜索命中构建写入请求
+     */
+    public IndexRequest build(SearchHit hit) throws Exception {
+        return build(hit.getId(), hit.getSourceRef(), hit::getSourceAsMap);
+    }
+    
+    /**
+     * 由搜索命中及已解析的源文档构建写入请求（调用方因其他用途已解析过 _source 时使用）
+     */
+    public IndexRequest build(SearchHit hit, Map<String, Object> parsedSource) throws Exception {
+        return build(hit.getId(), hit.getSourceRef(), () -> parsedSource, false);
+    }
+    
+    /**
+     * 由文档ID、原始字节与源文档构建写入请求
+     */
+    public IndexRequest build(String id, BytesReference sourceBytes, Supplier<Map<String, Object>> sourceMap) throws Exception {
+        return build(id, sourceBytes, sourceMap, true);
+    }
+    
+    private IndexRequest build(String id, BytesReference sourceBytes, Supplier<Map<String, Object>> sourceMap,
+                               boolean preferStreaming) throws Exception {
+        IndexRequest request = new IndexRequest(targetIndex).id(id);
+        if (passthrough && sourceBytes != null) {
+            return request.source(sourceBytes, XContentType.JSON);
+        }
+        if (preferStreaming && streamingTransformer != null && sourceBytes != null) {
+            return request.source(streamingTransformer.transform(sourceBytes), XContentType.JSON);
+        }
+        Map<String, Object> source = sourceMap.get();
+        if (source == null) {
+            throw new IllegalArgumentException("文档缺少_source，无法迁移: " + id);
+        }
+        return request.source(transformer.transform(source), XContentType.JSON);
+    }
+    
+    public boolean isPassthrough() {
+        return passthrough;
+    }
+    
+    public boolean isStreaming() {
+        return streamingTransformer != null;
+    }
+    
+    private static boolean isEmpty(Map<?, ?> map) {
+        return map == null || map.isEmpty();
+    }
+    
+    private static boolean isEmpty(Collection<?> collection) {
+        return collection == null || collection.isEmpty();
+    }
+    
+    /**
+     * 源文档转换函数
+     */
+    @FunctionalInterface
+    public interface SourceTransformer {
+        Map<String, Object> transform(Map<String, Object> source) throws Exception;
+    }
+}
@@ -0,0 +1,150 @@
+package com.everflowx.esmigration.transform;
+
+import com.everflowx.esmigration.transform.TransformPlan.FieldRule;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 流式 _source 转换器
+ *
+ * 按 {@link TransformPlan} 的规则逐个读取源文档的 JSON 令牌并直接写出目标文档，
+ * 不构建 Map 树：未命中规则的字段与子对象整体拷贝，只有规则路径的父对象才会逐字段深入。
+ * 宽文档上可避免为每个字段分配 Map 节点与装箱对象，显著降低年轻代分配速率。
+ *
+ * 仅适用于 {@link TransformPlan#isStreamable()} 为 true 的转换计划。
+ *
+ * @author everflowx
+ */
+public class StreamingSourceTransformer {
+
+    private final TransformPlan plan;
+
+    public StreamingSourceTransformer(TransformPlan plan) {
+        if (!plan.isStreamable()) {
+            throw new IllegalArgumentException("转换计划包含重复目标字段，不支持流式转换");
+        }
+        this.plan = plan;
+    }
+
+    /**
+     * 转换源文档字节，返回目标文档字节
+     */
+    public BytesReference transform(BytesReference source) throws IOException {
+        BytesReference target = transform(source, plan.isIncludeFiltered());
+        // 包含字段过滤后为空时保留过滤前的结果
+        if (target == null) {
+            target = transform(source, false);
+        }
+        return target;
+    }
+
+    /**
+     * 按指定过滤方式转换，启用包含过滤且结果为空时返回 null
+     */
+    private BytesReference transform(BytesReference source, boolean filterInclude) throws IOException {
+        try (InputStream input = source.streamInput();
+             XContentParser parser = XContentType.JSON.xContent().createParser(
+                 NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, input);
+             XContentBuilder builder = XContentFactory.jsonBuilder()) {
+
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                throw new IllegalArgumentException("_source 不是 JSON 对象");
+            }
+            builder.startObject();
+            int written = writeObject(parser, builder, null, Frame.root(), !filterInclude);
+            for (FieldRule rule : plan.getConstants()) {
+                if (plan.isConstantEmitted(rule, filterInclude)) {
+                    builder.field(rule.targetName, rule.constant);
+                    written++;
+                }
+            }
+            builder.endObject();
+            return filterInclude && written == 0 ? null : BytesReference.bytes(builder);
+        }
+    }
+
+    /**
+     * 处理当前对象内的所有字段，解析器停在对象的 START_OBJECT 上，返回时停在 END_OBJECT 上
+     *
+     * @return 本对象中写出的字段数
+     */
+    private int writeObject(XContentParser parser, XContentBuilder builder, String prefix,
+                            Frame frame, boolean inherited) throws IOException {
+        int written = 0;
+        while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+            String key = parser.currentName();
+            XContentParser.Token token = parser.nextToken();
+            String path = TransformPlan.childPath(prefix, key);
+            FieldRule rule = plan.ruleFor(path);
+
+            String name = rule != null ? rule.targetName : key;
+            if ((rule != null && rule.excluded) || (prefix == null && plan.isConstantKey(name))) {
+                parser.skipChildren();
+                continue;
+            }
+            boolean included = plan.isIncluded(rule, inherited);
+
+            if (token == XContentParser.Token.START_OBJECT && plan.isContainer(path)) {
+                Frame child = new Frame(frame, name);
+                writeObject(parser, builder, path, child, included);
+                if (!child.opened && plan.isKept(rule) && included) {
+                    child.open(builder);
+                }
+                if (child.opened) {
+                    builder.endObject();
+                    written++;
+                }
+            } else if (plan.isKept(rule) && included) {
+                frame.open(builder);
+                builder.field(name);
+                if (token == XContentParser.Token.VALUE_STRING && rule != null && rule.lowercase) {
+                    builder.value(parser.text().toLowerCase());
+                } else {
+                    builder.copyCurrentStructure(parser);
+                }
+                written++;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 延迟写出的对象：只有其中第一个字段被写出时才写出对象本身及其尚未写出的父对象，
+     * 过滤后为空的嵌套对象因此不会出现在目标文档中
+     */
+    private static final class Frame {
+        private final Frame parent;
+        private final String name;
+        private boolean opened;
+
+        private Frame(Frame parent, String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        static Frame root() {
+            Frame root = new Frame(null, null);
+            root.opened = true;
+            return root;
+        }
+
+        void open(XContentBuilder builder) throws IOException {
+            if (opened) {
+                return;
+            }
+            parent.open(builder);
+            builder.startObject(name);
+            opened = true;
+        }
+    }
+}
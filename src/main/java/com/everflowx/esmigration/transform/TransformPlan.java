@@ -0,0 +1,418 @@
+package com.everflowx.esmigration.transform;
+
+import com.everflowx.esmigration.domain.MigrationConfig;
+import com.everflowx.esmigration.exception.MigrationConfigException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 文档转换计划
+ *
+ * 每个任务由 {@link MigrationConfig} 编译一次：字段映射编译为重命名表，排除字段、
+ * 包含字段、忽略大小写字段在编译期合并为每个字段路径的处理规则，新增字段预先完成
+ * 大小写与过滤处理。转换时只对文档做一次遍历并写入一个输出 Map。
+ *
+ * 语义与原逐文档转换逻辑一致：
+ * 1. 配置了字段映射时只保留映射字段，否则保留全部字段
+ * 2. 新增字段覆盖同名字段
+ * 3. 忽略大小写字段的字符串值转为小写
+ * 4. 移除排除字段
+ * 5. 只保留包含字段，过滤后为空时保留过滤前的结果
+ *
+ * 字段名支持以点号分隔的路径（如 user.name）定位嵌套对象中的字段；排除与包含对
+ * 父路径生效时作用于整个子对象。嵌套字段重命名必须保持父路径不变。
+ *
+ * 转换时按层级选择遍历方式：映射模式或包含过滤生效时只按该层有规则的字段名取值，
+ * 其余字段必然被丢弃；否则整层复制后只修补有规则的字段，避免逐字段查找规则。
+ *
+ * 编译后不可变，可在多个线程间共享。
+ *
+ * @author everflowx
+ */
+public class TransformPlan {
+
+    /**
+     * 字段规则，按源字段路径索引
+     */
+    private static final String[] NO_KEYS = new String[0];
+
+    private final Map<String, FieldRule> rules;
+
+    /**
+     * 规则路径的所有父路径，遍历到这些对象时需要深入处理其子字段
+     */
+    private final Set<String> containers;
+
+    /**
+     * 每个父路径（顶层为 null）下有规则或需要深入处理的字段名
+     */
+    private final Map<String, String[]> childKeys;
+
+    /**
+     * 预处理后的新增字段
+     */
+    private final FieldRule[] constants;
+
+    /**
+     * 新增字段名，同名的顶层源字段会被新增字段覆盖
+     */
+    private final Set<String> constantKeys;
+
+    private final boolean mapped;
+    private final boolean includeFiltered;
+    private final boolean duplicateTargets;
+    private final boolean identity;
+
+    private TransformPlan(Map<String, FieldRule> rules, Set<String> containers, FieldRule[] constants,
+                          Set<String> constantKeys, boolean mapped, boolean includeFiltered,
+                          boolean duplicateTargets) {
+        this.rules = rules;
+        this.containers = containers;
+        this.childKeys = childKeys(rules.keySet(), containers);
+        this.constants = constants;
+        this.constantKeys = constantKeys;
+        this.mapped = mapped;
+        this.includeFiltered = includeFiltered;
+        this.duplicateTargets = duplicateTargets;
+        this.identity = !mapped && rules.isEmpty() && constants.length == 0;
+    }
+
+    /**
+     * 由迁移配置编译转换计划
+     */
+    public static TransformPlan compile(MigrationConfig config) {
+        Set<String> lowercase = toSet(config.getCaseInsensitiveFields());
+        Set<String> excluded = toSet(config.getExcludeFields());
+        Set<String> included = toSet(config.getIncludeFields());
+        boolean includeFiltered = !included.isEmpty();
+        boolean mapped = config.getFieldMapping() != null;
+
+        Map<String, FieldRule> rules = new HashMap<>();
+        boolean duplicateTargets = false;
+        if (mapped) {
+            // 重命名表：按映射配置顺序编号，多个字段映射到同一目标时后者覆盖前者
+            Map<String, FieldRule> byTarget = new HashMap<>();
+            int rank = 0;
+            for (Map.Entry<String, String> mapping : config.getFieldMapping().entrySet()) {
+                String sourcePath = mapping.getKey();
+                String targetPath = mapping.getValue();
+                FieldRule rule = new FieldRule(sourcePath, targetPath, targetName(sourcePath, targetPath),
+                    lowercase.contains(targetPath), matchesPath(excluded, targetPath),
+                    matchesPath(included, targetPath), rank++, null);
+                FieldRule previous = byTarget.put(targetPath, rule);
+                if (previous != null) {
+                    previous.duplicate = true;
+                    rule.duplicate = true;
+                    duplicateTargets = true;
+                }
+                rules.put(sourcePath, rule);
+            }
+        } else {
+            // 无映射模式下只有排除、包含、小写字段需要规则
+            Set<String> special = new HashSet<>(lowercase);
+            special.addAll(excluded);
+            special.addAll(included);
+            for (String path : special) {
+                rules.put(path, new FieldRule(path, path, lastSegment(path), lowercase.contains(path),
+                    matchesPath(excluded, path), matchesPath(included, path), 0, null));
+            }
+        }
+
+        Set<String> containers = new HashSet<>();
+        for (String path : rules.keySet()) {
+            for (int dot = path.indexOf('.'); dot > 0; dot = path.indexOf('.', dot + 1)) {
+                containers.add(path.substring(0, dot));
+            }
+        }
+
+        // 新增字段：按原逻辑同样经过小写、排除与包含处理，值在编译期完成转换
+        List<FieldRule> constants = new ArrayList<>();
+        Set<String> constantKeys = new HashSet<>();
+        if (config.getNewFields() != null) {
+            for (Map.Entry<String, Object> field : config.getNewFields().entrySet()) {
+                String key = field.getKey();
+                Object value = field.getValue();
+                if (lowercase.contains(key) && value instanceof String) {
+                    value = ((String) value).toLowerCase();
+                }
+                constants.add(new FieldRule(key, key, key, false, matchesPath(excluded, key),
+                    matchesPath(included, key), 0, value));
+                constantKeys.add(key);
+            }
+        }
+
+        return new TransformPlan(Collections.unmodifiableMap(rules), Collections.unmodifiableSet(containers),
+            constants.toArray(new FieldRule[0]), Collections.unmodifiableSet(constantKeys),
+            mapped, includeFiltered, duplicateTargets);
+    }
+
+    /**
+     * 转换计划是否不改变文档
+     */
+    public boolean isIdentity() {
+        return identity;
+    }
+
+    /**
+     * 是否可以在 JSON 令牌流上直接转换
+     *
+     * 多个字段映射到同一目标时需要按映射顺序决定保留哪个值，只能在 Map 上处理。
+     */
+    public boolean isStreamable() {
+        return !duplicateTargets;
+    }
+
+    /**
+     * 应用转换计划，返回新的目标文档，不修改源文档
+     */
+    public Map<String, Object> apply(Map<String, Object> source) {
+        if (identity) {
+            return new HashMap<>(source);
+        }
+        Map<String, Object> target = apply(source, includeFiltered);
+        // 包含字段过滤后为空时保留过滤前的结果
+        if (includeFiltered && target.isEmpty()) {
+            return apply(source, false);
+        }
+        return target;
+    }
+
+    private Map<String, Object> apply(Map<String, Object> source, boolean filterInclude) {
+        Map<String, Integer> ranks = duplicateTargets ? new HashMap<>() : null;
+        Map<String, Object> target = walk(source, null, !filterInclude, ranks);
+        for (FieldRule rule : constants) {
+            if (isConstantEmitted(rule, filterInclude)) {
+                target.put(rule.targetName, rule.constant);
+            }
+        }
+        return target;
+    }
+
+    private Map<String, Object> walk(Map<String, Object> source, String prefix, boolean inherited,
+                                     Map<String, Integer> ranks) {
+        String[] keys = childKeys.getOrDefault(prefix, NO_KEYS);
+        if (!mapped && inherited) {
+            return patch(source, prefix, keys, ranks);
+        }
+        // 没有规则且不是容器的字段不保留，只需按有规则的字段名取值
+        Map<String, Object> target = new HashMap<>(capacityFor(Math.min(keys.length, source.size())));
+        for (String key : keys) {
+            Object value = source.get(key);
+            if (value != null || source.containsKey(key)) {
+                visit(target, prefix, key, value, inherited, ranks);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * 保留全部字段的层级：整层复制，再修补有规则的字段
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> patch(Map<String, Object> source, String prefix, String[] keys,
+                                      Map<String, Integer> ranks) {
+        Map<String, Object> target = new HashMap<>(source);
+        if (prefix == null) {
+            target.keySet().removeAll(constantKeys);
+        }
+        for (String key : keys) {
+            Object value = target.get(key);
+            if (value == null && !target.containsKey(key)) {
+                continue;
+            }
+            String path = childPath(prefix, key);
+            FieldRule rule = rules.get(path);
+            if (rule != null && rule.excluded) {
+                target.remove(key);
+            } else if (value instanceof Map && containers.contains(path)) {
+                target.put(key, walk((Map<String, Object>) value, path, true, ranks));
+            } else if (rule != null && rule.lowercase && value instanceof String) {
+                target.put(key, ((String) value).toLowerCase());
+            }
+        }
+        return target;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void visit(Map<String, Object> target, String prefix, String key, Object value, boolean inherited,
+                       Map<String, Integer> ranks) {
+        String path = childPath(prefix, key);
+        FieldRule rule = rules.get(path);
+        if (rule != null && rule.excluded) {
+            return;
+        }
+        String name = rule != null ? rule.targetName : key;
+        if (prefix == null && constantKeys.contains(name)) {
+            return;
+        }
+        boolean included = isIncluded(rule, inherited);
+
+        if (value instanceof Map && containers.contains(path)) {
+            Map<String, Object> child = walk((Map<String, Object>) value, path, included, ranks);
+            if (!child.isEmpty() || (isKept(rule) && included)) {
+                put(target, rule, name, child, ranks);
+            }
+        } else if (isKept(rule) && included) {
+            if (rule != null && rule.lowercase && value instanceof String) {
+                value = ((String) value).toLowerCase();
+            }
+            put(target, rule, name, value, ranks);
+        }
+    }
+
+    private static void put(Map<String, Object> target, FieldRule rule, String name, Object value,
+                            Map<String, Integer> ranks) {
+        if (rule != null && rule.duplicate) {
+            Integer placed = ranks.get(rule.targetPath);
+            if (placed != null && placed > rule.rank) {
+                return;
+            }
+            ranks.put(rule.targetPath, rule.rank);
+        }
+        target.put(name, value);
+    }
+
+    /**
+     * 字段在其所在对象中是否保留：映射模式只保留映射字段，否则保留全部字段
+     */
+    boolean isKept(FieldRule rule) {
+        return rule != null || !mapped;
+    }
+
+    /**
+     * 字段是否通过包含过滤：父路径已被包含、未启用过滤或字段自身被包含
+     */
+    boolean isIncluded(FieldRule rule, boolean inherited) {
+        return inherited || (rule != null && rule.included);
+    }
+
+    boolean isConstantEmitted(FieldRule rule, boolean filterInclude) {
+        return !rule.excluded && (!filterInclude || rule.included);
+    }
+
+    FieldRule ruleFor(String path) {
+        return rules.get(path);
+    }
+
+    boolean isContainer(String path) {
+        return containers.contains(path);
+    }
+
+    boolean isConstantKey(String name) {
+        return constantKeys.contains(name);
+    }
+
+    FieldRule[] getConstants() {
+        return constants;
+    }
+
+    boolean isIncludeFiltered() {
+        return includeFiltered;
+    }
+
+    static String childPath(String prefix, String name) {
+        return prefix == null ? name : prefix + "." + name;
+    }
+
+    /**
+     * 重命名后在父对象中的字段名
+     *
+     * 顶层字段沿用原有语义，目标名原样作为字段名；嵌套字段只能在同一父对象内改名。
+     */
+    private static String targetName(String sourcePath, String targetPath) {
+        int dot = sourcePath.lastIndexOf('.');
+        if (dot < 0) {
+            return targetPath;
+        }
+        String parent = sourcePath.substring(0, dot + 1);
+        if (!targetPath.startsWith(parent) || targetPath.indexOf('.', parent.length()) >= 0) {
+            throw new MigrationConfigException(
+                String.format("嵌套字段重命名必须保持父路径不变: %s -> %s", sourcePath, targetPath),
+                "fieldMapping"
+            );
+        }
+        return targetPath.substring(parent.length());
+    }
+
+    private static String lastSegment(String path) {
+        return path.substring(path.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * 路径自身或任一父路径是否在集合中
+     */
+    private static boolean matchesPath(Set<String> paths, String path) {
+        if (paths.isEmpty()) {
+            return false;
+        }
+        if (paths.contains(path)) {
+            return true;
+        }
+        for (int dot = path.indexOf('.'); dot > 0; dot = path.indexOf('.', dot + 1)) {
+            if (paths.contains(path.substring(0, dot))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按父路径分组规则路径与容器路径的最后一段
+     */
+    private static Map<String, String[]> childKeys(Set<String> rulePaths, Set<String> containerPaths) {
+        Map<String, Set<String>> grouped = new HashMap<>();
+        for (Set<String> paths : Arrays.asList(rulePaths, containerPaths)) {
+            for (String path : paths) {
+                int dot = path.lastIndexOf('.');
+                String parent = dot < 0 ? null : path.substring(0, dot);
+                grouped.computeIfAbsent(parent, k -> new HashSet<>()).add(path.substring(dot + 1));
+            }
+        }
+        Map<String, String[]> childKeys = new HashMap<>();
+        grouped.forEach((parent, names) -> childKeys.put(parent, names.toArray(new String[0])));
+        return childKeys;
+    }
+
+    private static Set<String> toSet(Collection<String> fields) {
+        return fields == null ? Collections.emptySet() : new HashSet<>(fields);
+    }
+
+    private static int capacityFor(int size) {
+        return Math.max(16, (int) (size / 0.75f) + 1);
+    }
+
+    /**
+     * 单个字段的处理规则
+     */
+    static final class FieldRule {
+        final String sourcePath;
+        final String targetPath;
+        final String targetName;
+        final boolean lowercase;
+        final boolean excluded;
+        final boolean included;
+        final int rank;
+        final Object constant;
+        boolean duplicate;
+
+        private FieldRule(String sourcePath, String targetPath, String targetName, boolean lowercase,
+                          boolean excluded, boolean included, int rank, Object constant) {
+            this.sourcePath = sourcePath;
+            this.targetPath = targetPath;
+            this.targetName = targetName;
+            this.lowercase = lowercase;
+            this.excluded = excluded;
+            this.included = included;
+            this.rank = rank;
+            this.constant = constant;
+        }
+    }
+}
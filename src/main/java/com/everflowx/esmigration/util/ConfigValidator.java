@@ -3,6 +3,7 @@ package com.everflowx.esmigration.util;
 import com.everflowx.esmigration.domain.IndexSyncConfig;
 import com.everflowx.esmigration.domain.MigrationConfig;
 import com.everflowx.esmigration.exception.MigrationConfigException;
+import com.everflowx.esmigration.transform.TransformPlan;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -47,6 +48,40 @@ public class ConfigValidator {
             throw MigrationConfigException.invalidThreadCount(config.getThreadCount() != null ? config.getThreadCount() : 0);
         }
         
+        // 验证流水线阶段深度
+        if (Boolean.TRUE.equals(config.getPipelineEnabled())) {
+            validatePositive(config.getReadAheadBatches(), "readAheadBatches");
+            validatePositive(config.getTransformThreads(), "transformThreads");
+            validatePositive(config.getTransformQueueDepth(), "transformQueueDepth");
+            validatePositive(config.getMaxInFlightBulks(), "maxInFlightBulks");
+        }
+        
+        // 验证批量写入组装参数
+        validatePositive(config.getBulkMaxBytes(), "bulkMaxBytes");
+        validatePositive(config.getBulkMaxDocs(), "bulkMaxDocs");
+        if (config.getBulkLingerMs() == null || config.getBulkLingerMs() < 0) {
+            throw new MigrationConfigException(
+                String.format("bulkLingerMs 配置无效: %d, 不能小于0", config.getBulkLingerMs() != null ? config.getBulkLingerMs() : 0),
+                "bulkLingerMs"
+            );
+        }
+        
+        // 验证批量写入重试参数
+        if (config.getBulkMaxRetries() == null || config.getBulkMaxRetries() < 0) {
+            throw new MigrationConfigException(
+                String.format("bulkMaxRetries 配置无效: %d, 不能小于0", config.getBulkMaxRetries() != null ? config.getBulkMaxRetries() : 0),
+                "bulkMaxRetries"
+            );
+        }
+        validatePositive(config.getBulkRetryBackoffMs(), "bulkRetryBackoffMs");
+        validatePositive(config.getBulkRetryMaxBackoffMs(), "bulkRetryMaxBackoffMs");
+        validatePositive(config.getStreamQueueMaxBytes(), "streamQueueMaxBytes");
+        
+        // 验证字段映射（嵌套字段只能在同一父对象内改名）
+        if (config.getFieldMapping() != null) {
+            TransformPlan.compile(config);
+        }
+        
         // 验证时间戳字段（增量同步时必需）
         if (Boolean.TRUE.equals(config.getIncrementalSync()) && !StringUtils.hasText(config.getTimestampField())) {
             throw MigrationConfigException.missingRequiredField("timestampField");
@@ -56,6 +91,18 @@ public class ConfigValidator {
                  config.getSourceIndex(), config.getTargetIndex(), config.getBatchSize(), config.getThreadCount());
     }
     
+    /**
+     * 验证数值配置为正数
+     */
+    private void validatePositive(Number value, String fieldName) {
+        if (value == null || value.longValue() < 1) {
+            throw new MigrationConfigException(
+                String.format("%s 配置无效: %d, 必须大于0", fieldName, value != null ? value.longValue() : 0),
+                fieldName
+            );
+        }
+    }
+    
     /**
      * 验证索引同步配置
      */
@@ -174,11 +221,28 @@ public class ConfigValidator {
         optimizedConfig.setCaseInsensitiveFields(config.getCaseInsensitiveFields());
         optimizedConfig.setIncrementalSync(config.getIncrementalSync());
         optimizedConfig.setTimestampField(config.getTimestampField());
+        optimizedConfig.setChangeCapture(config.getChangeCapture());
         optimizedConfig.setDeleteNotExist(config.getDeleteNotExist());
+        optimizedConfig.setVerifyContent(config.getVerifyContent());
         optimizedConfig.setQueryCondition(config.getQueryCondition());
         optimizedConfig.setExcludeFields(config.getExcludeFields());
         optimizedConfig.setIncludeFields(config.getIncludeFields());
         optimizedConfig.setOverwriteExisting(config.getOverwriteExisting());
+        optimizedConfig.setCursorType(config.getCursorType());
+        optimizedConfig.setPipelineEnabled(config.getPipelineEnabled());
+        optimizedConfig.setReadAheadBatches(config.getReadAheadBatches());
+        optimizedConfig.setTransformThreads(config.getTransformThreads());
+        optimizedConfig.setTransformQueueDepth(config.getTransformQueueDepth());
+        optimizedConfig.setMaxInFlightBulks(config.getMaxInFlightBulks());
+        optimizedConfig.setBulkMaxBytes(config.getBulkMaxBytes());
+        optimizedConfig.setBulkMaxDocs(config.getBulkMaxDocs());
+        optimizedConfig.setBulkLingerMs(config.getBulkLingerMs());
+        optimizedConfig.setBulkMaxRetries(config.getBulkMaxRetries());
+        optimizedConfig.setBulkRetryBackoffMs(config.getBulkRetryBackoffMs());
+        optimizedConfig.setBulkRetryMaxBackoffMs(config.getBulkRetryMaxBackoffMs());
+        optimizedConfig.setStreamQueueMaxBytes(config.getStreamQueueMaxBytes());
+        optimizedConfig.setShardRouting(config.getShardRouting());
+        optimizedConfig.setTaskId(config.getTaskId());
         
         // 优化批次大小
         int optimizedBatchSize = config.getBatchSize();
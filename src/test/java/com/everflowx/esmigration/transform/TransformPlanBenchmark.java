@@ -0,0 +1,149 @@
+package com.everflowx.esmigration.transform;
+
+import com.everflowx.esmigration.domain.MigrationConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 转换计划基准测试 - 对比编译后的 {@link TransformPlan} 与原逐文档转换逻辑
+ *
+ * 运行方式（基准在独立 JVM 中执行，需要把测试类路径传给 JMH）：
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main TransformPlanBenchmark"
+ *
+ * @author everflowx
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformPlanBenchmark {
+
+    private static final int FIELD_COUNT = 40;
+
+    /**
+     * mapped: 字段映射 + 小写 + 排除 + 包含；unmapped: 保留全部字段 + 新增 + 小写 + 排除
+     */
+    @Param({"mapped", "unmapped"})
+    private String scenario;
+
+    private MigrationConfig config;
+    private TransformPlan plan;
+    private Map<String, Object> document;
+
+    @Setup
+    public void setup() {
+        document = new HashMap<>();
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            document.put("field" + i, i % 2 == 0 ? "Value-" + i : (Object) i);
+        }
+
+        config = new MigrationConfig();
+        config.setCaseInsensitiveFields(Arrays.asList("field0", "field2", "field4"));
+        config.setExcludeFields(Arrays.asList("field6", "field7"));
+        if ("mapped".equals(scenario)) {
+            Map<String, String> mapping = new LinkedHashMap<>();
+            for (int i = 0; i < FIELD_COUNT / 2; i++) {
+                mapping.put("field" + i, i < 3 ? "renamed" + i : "field" + i);
+            }
+            config.setFieldMapping(mapping);
+            List<String> included = new ArrayList<>();
+            for (int i = 0; i < FIELD_COUNT / 4; i++) {
+                included.add("field" + i);
+            }
+            config.setIncludeFields(included);
+        } else {
+            Map<String, Object> newFields = new HashMap<>();
+            newFields.put("source", "ES-Cluster-A");
+            newFields.put("migrated", true);
+            config.setNewFields(newFields);
+        }
+        plan = TransformPlan.compile(config);
+    }
+
+    @Benchmark
+    public Map<String, Object> compiledPlan() {
+        return plan.apply(document);
+    }
+
+    @Benchmark
+    public Map<String, Object> legacyTransform() {
+        return transformDocument(document, config);
+    }
+
+    /**
+     * 原 EsMigrationServiceImpl#transformDocument 的逐文档转换逻辑，作为对照
+     */
+    private static Map<String, Object> transformDocument(Map<String, Object> sourceData, MigrationConfig config) {
+        Map<String, Object> targetData = new HashMap<>();
+
+        if (config.getFieldMapping() != null) {
+            for (Map.Entry<String, String> mapping : config.getFieldMapping().entrySet()) {
+                String sourceField = mapping.getKey();
+                String targetField = mapping.getValue();
+                if (sourceData.containsKey(sourceField)) {
+                    Object value = sourceData.get(sourceField);
+                    if (config.getCaseInsensitiveFields() != null &&
+                        config.getCaseInsensitiveFields().contains(targetField) &&
+                        value instanceof String) {
+                        value = ((String) value).toLowerCase();
+                    }
+                    targetData.put(targetField, value);
+                }
+            }
+        } else {
+            targetData.putAll(sourceData);
+        }
+
+        if (config.getNewFields() != null) {
+            targetData.putAll(config.getNewFields());
+        }
+
+        if (config.getCaseInsensitiveFields() != null) {
+            for (String field : config.getCaseInsensitiveFields()) {
+                if (targetData.containsKey(field) && targetData.get(field) instanceof String) {
+                    targetData.put(field, ((String) targetData.get(field)).toLowerCase());
+                }
+            }
+        }
+
+        if (config.getExcludeFields() != null) {
+            for (String excludeField : config.getExcludeFields()) {
+                targetData.remove(excludeField);
+            }
+        }
+
+        if (config.getIncludeFields() != null && !config.getIncludeFields().isEmpty()) {
+            Map<String, Object> filteredData = new HashMap<>();
+            for (String includeField : config.getIncludeFields()) {
+                if (targetData.containsKey(includeField)) {
+                    filteredData.put(includeField, targetData.get(includeField));
+                }
+            }
+            if (!filteredData.isEmpty()) {
+                targetData = filteredData;
+            }
+        }
+
+        return targetData;
+    }
+}